@@ -6,44 +6,63 @@ import org.esa.snap.core.util.SystemUtils;
 import org.jblas.ComplexDoubleMatrix;
 import org.jblas.DoubleMatrix;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 public class SpectralUtils {
 
     static Logger logger = SystemUtils.LOG;
 
-    private static void fftTransform1D_inplace(ComplexDoubleMatrix vector, int fftLength, int direction) {
-        switch (direction) {
-            case 1:
-                fft1D_inplace(vector, fftLength);
-                break;
-            case -1:
-                invfft1D_inplace(vector, fftLength);
-                break;
-            default:
-                throw new IllegalArgumentException("fourier1D: direction 1, or -1");
+    // 1-D plans only hold their precomputed tables and can be used by several threads at once
+    private static final Map<Integer, DoubleFFT_1D> fftPlans = new ConcurrentHashMap<>();
+
+    // 2-D plans keep scratch buffers, so every thread has its own
+    private static final ThreadLocal<Map<Long, DoubleFFT_2D>> fft2DPlans = ThreadLocal.withInitial(HashMap::new);
+
+    // per thread buffer for the strided row transforms
+    private static final ThreadLocal<double[]> workspace = ThreadLocal.withInitial(() -> new double[0]);
+
+    /**
+     * Get the shared 1-D FFT plan for the given length. The plan is created on first use.
+     * It is used for both directions.
+     *
+     * @param fftLength number of complex samples
+     * @return the plan
+     */
+    public static DoubleFFT_1D getFFTPlan(final int fftLength) {
+        return fftPlans.computeIfAbsent(fftLength, DoubleFFT_1D::new);
+    }
+
+    private static DoubleFFT_2D getFFT2DPlan(final int rows, final int columns) {
+        return fft2DPlans.get().computeIfAbsent(((long) rows << 32) | columns, k -> new DoubleFFT_2D(rows, columns));
+    }
+
+    private static double[] getWorkspace(final int length) {
+        double[] buffer = workspace.get();
+        if (buffer.length < length) {
+            buffer = new double[length];
+            workspace.set(buffer);
         }
+        return buffer;
     }
 
     public static void fft1D_inplace(ComplexDoubleMatrix vector, final int fftLength) {
-        DoubleFFT_1D fft = new DoubleFFT_1D(fftLength);
-        fft.complexForward(vector.data);
+        getFFTPlan(fftLength).complexForward(vector.data);
     }
 
     public static void invfft1D_inplace(ComplexDoubleMatrix vector, final int fftLength) {
-        DoubleFFT_1D fft = new DoubleFFT_1D(fftLength);
-        fft.complexInverse(vector.data, true);
+        getFFTPlan(fftLength).complexInverse(vector.data, true);
     }
 
     public static ComplexDoubleMatrix fft1D(ComplexDoubleMatrix vector, final int fftLength) {
-        DoubleFFT_1D fft = new DoubleFFT_1D(fftLength);
-        fft.complexForward(vector.data);
+        getFFTPlan(fftLength).complexForward(vector.data);
         return vector;
     }
 
     public static ComplexDoubleMatrix invfft1D(ComplexDoubleMatrix vector, final int fftLength) {
-        DoubleFFT_1D fft = new DoubleFFT_1D(fftLength);
-        fft.complexInverse(vector.data, true);
+        getFFTPlan(fftLength).complexInverse(vector.data, true);
         return vector;
     }
 
@@ -53,25 +72,49 @@ public class SpectralUtils {
         return result;
     }
 
+    /**
+     * Transform the columns (dimension 1) or rows (dimension 2) in place. The data is stored column by column
+     * with interleaved real and imaginary parts: columns are transformed where they are, rows are gathered
+     * into a per thread buffer.
+     */
     private static void fftTransformInPlace(ComplexDoubleMatrix cplxData, int dimension, int flag) {
+        if (flag != 1 && flag != -1) {
+            throw new IllegalArgumentException("fourier1D: direction 1, or -1");
+        }
         int i;
         final int columns = cplxData.columns;
         final int rows = cplxData.rows;
+        final double[] data = cplxData.data;
 
         switch (dimension) {
             case 1: {
+                final DoubleFFT_1D fft = getFFTPlan(rows);
                 for (i = 0; i < columns; ++i) {
-                    ComplexDoubleMatrix VECTOR = cplxData.getColumn(i);
-                    fftTransform1D_inplace(VECTOR, rows, flag);
-                    cplxData.putColumn(i, VECTOR);
+                    if (flag == 1) {
+                        fft.complexForward(data, 2 * i * rows);
+                    } else {
+                        fft.complexInverse(data, 2 * i * rows, true);
+                    }
                 }
                 break;
             }
             case 2: {
+                final DoubleFFT_1D fft = getFFTPlan(columns);
+                final double[] row = getWorkspace(2 * columns);
                 for (i = 0; i < rows; ++i) {
-                    ComplexDoubleMatrix VECTOR = cplxData.getRow(i);
-                    fftTransform1D_inplace(VECTOR, columns, flag);
-                    cplxData.putRow(i, VECTOR);
+                    for (int c = 0, k = 2 * i; c < columns; ++c, k += 2 * rows) {
+                        row[2 * c] = data[k];
+                        row[2 * c + 1] = data[k + 1];
+                    }
+                    if (flag == 1) {
+                        fft.complexForward(row);
+                    } else {
+                        fft.complexInverse(row, true);
+                    }
+                    for (int c = 0, k = 2 * i; c < columns; ++c, k += 2 * rows) {
+                        data[k] = row[2 * c];
+                        data[k + 1] = row[2 * c + 1];
+                    }
                 }
                 break;
             }
@@ -98,11 +141,9 @@ public class SpectralUtils {
     }
 
     public static void fft2D_inplace(ComplexDoubleMatrix A) {
-        ComplexDoubleMatrix aTemp = A.transpose();
-        DoubleFFT_2D fft2d = new DoubleFFT_2D(aTemp.rows, aTemp.columns);
-//        fft2d.complexForward(A.data);
-        fft2d.complexForward(aTemp.data);
-        A.data = aTemp.transpose().data;
+        // separable: transform the columns, then the rows
+        fftTransformInPlace(A, 1, 1);
+        fftTransformInPlace(A, 2, 1);
     }
 
     public static ComplexDoubleMatrix fft2D(ComplexDoubleMatrix inMatrix) {
@@ -112,16 +153,12 @@ public class SpectralUtils {
     }
 
     public static void fft2D_inplace(DoubleMatrix A) {
-        DoubleFFT_2D fft2d = new DoubleFFT_2D(A.rows, A.columns);
-        fft2d.realForwardFull(A.data);
+        getFFT2DPlan(A.rows, A.columns).realForwardFull(A.data);
     }
 
     public static void invfft2D_inplace(ComplexDoubleMatrix A) {
-        DoubleFFT_2D fft2d = new DoubleFFT_2D(A.rows, A.columns);
-//        fft2d.complexInverse(A.data, true);
-        ComplexDoubleMatrix aTemp = A.transpose();
-        fft2d.complexInverse(aTemp.data, true);
-        A.data = aTemp.transpose().data;
+        fftTransformInPlace(A, 1, -1);
+        fftTransformInPlace(A, 2, -1);
     }
 
     public static ComplexDoubleMatrix invfft2d(ComplexDoubleMatrix inMatrix) {
@@ -2,21 +2,30 @@ package org.esa.s1tbx.commons;
 
 import org.esa.snap.engine_utilities.datamodel.OrbitStateVector;
 import org.esa.snap.engine_utilities.datamodel.PosVector;
+import org.esa.snap.engine_utilities.eo.Constants;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Orbit state vectors of a product with Lagrange interpolation of the sensor position and velocity.
+ * <p>
+ * Interpolated positions and velocities are precomputed on a dense time grid between the first and the last
+ * state vector and looked up with cubic Hermite interpolation between the grid nodes. The grid is built once
+ * in the constructor and never modified, so an instance can be shared by all tile computation threads.
+ * Times outside the orbit are extrapolated with the Lagrange polynomial directly.
+ */
 public final class OrbitStateVectors {
 
     public OrbitStateVector[] orbitStateVectors = null;
     public PosVector[] sensorPosition = null; // sensor position for all range lines
     public PosVector[] sensorVelocity = null; // sensor velocity for all range lines
     private double dt = 0.0;
-    private final Map<Double, PositionVelocity> timeMap = new HashMap<>();
+    private final InterpolationGrid grid;
 
     private static final int nv = 8;
+    private static final int gridNodesPerVector = 10;
+    private static final int maxGridNodes = 200000;
 
     public OrbitStateVectors(final OrbitStateVector[] orbitStateVectors,
                              final double firstLineUTC, final double lineTimeInterval, final int sourceImageHeight) {
@@ -26,6 +35,8 @@ public final class OrbitStateVectors {
         this.dt = (this.orbitStateVectors[this.orbitStateVectors.length - 1].time_mjd -
                 this.orbitStateVectors[0].time_mjd) / (this.orbitStateVectors.length - 1);
 
+        this.grid = new InterpolationGrid(this);
+
         this.sensorPosition = new PosVector[sourceImageHeight];
         this.sensorVelocity = new PosVector[sourceImageHeight];
         for (int i = 0; i < sourceImageHeight; i++) {
@@ -42,6 +53,8 @@ public final class OrbitStateVectors {
 
         this.dt = (this.orbitStateVectors[orbitStateVectors.length - 1].time_mjd -
                 this.orbitStateVectors[0].time_mjd) / (this.orbitStateVectors.length - 1);
+
+        this.grid = new InterpolationGrid(this);
     }
 
     private static OrbitStateVector[] removeRedundantVectors(OrbitStateVector[] orbitStateVectors) {
@@ -61,51 +74,38 @@ public final class OrbitStateVectors {
         return vectorList.toArray(new OrbitStateVector[0]);
     }
 
-    public PositionVelocity getPositionVelocity(final Double time) {
-
-        PositionVelocity cachedPosVel = timeMap.get(time);
-        if(cachedPosVel != null) {
-            return cachedPosVel;
-        }
+    public PositionVelocity getPositionVelocity(final double time) {
 
-        int i0, iN;
-        if (orbitStateVectors.length <= nv) {
-            i0 = 0;
-            iN = orbitStateVectors.length - 1;
-        } else {
-            i0 = Math.max((int) ((time - orbitStateVectors[0].time_mjd) / dt) - nv / 2 + 1, 0);
-            iN = Math.min(i0 + nv - 1, orbitStateVectors.length - 1);
-            i0 = (iN < orbitStateVectors.length - 1 ? i0 : iN - nv + 1);
-        }
-
-        //lagrangeInterpolatingPolynomial
         final PositionVelocity pv = new PositionVelocity();
+        if (!grid.interpolate(time, pv.position, pv.velocity)) {
+            lagrangeInterpolate(time, pv.position, pv.velocity);
+        }
+        return pv;
+    }
 
-        for (int i = i0; i <= iN; ++i) {
-            final OrbitStateVector orbI = orbitStateVectors[i];
+    PosVector getPosition(final double time, final PosVector position) {
 
-            double weight = 1;
-            for (int j = i0; j <= iN; ++j) {
-                if (j != i) {
-                    final double time2 = orbitStateVectors[j].time_mjd;
-                    weight *= (time - time2) / (orbI.time_mjd - time2);
-                }
-            }
+        if (!grid.interpolate(time, position, null)) {
+            lagrangeInterpolate(time, position, null);
+        }
+        return position;
+    }
 
-            pv.position.x += weight * orbI.x_pos;
-            pv.position.y += weight * orbI.y_pos;
-            pv.position.z += weight * orbI.z_pos;
+    PosVector getVelocity(final double time) {
 
-            pv.velocity.x += weight * orbI.x_vel;
-            pv.velocity.y += weight * orbI.y_vel;
-            pv.velocity.z += weight * orbI.z_vel;
+        final PosVector position = new PosVector();
+        final PosVector velocity = new PosVector();
+        if (!grid.interpolate(time, position, velocity)) {
+            lagrangeInterpolate(time, position, velocity);
         }
-
-        timeMap.put(time, pv);
-        return pv;
+        return velocity;
     }
 
-    PosVector getPosition(final double time, final PosVector position) {
+    /**
+     * Interpolate position and optionally velocity with the Lagrange polynomial through the nv state vectors
+     * closest to the given time.
+     */
+    private void lagrangeInterpolate(final double time, final PosVector position, final PosVector velocity) {
 
         int i0, iN;
         if (orbitStateVectors.length <= nv) {
@@ -121,6 +121,11 @@ public final class OrbitStateVectors {
         position.x = 0;
         position.y = 0;
         position.z = 0;
+        if (velocity != null) {
+            velocity.x = 0;
+            velocity.y = 0;
+            velocity.z = 0;
+        }
 
         for (int i = i0; i <= iN; ++i) {
             final OrbitStateVector orbI = orbitStateVectors[i];
@@ -132,43 +137,17 @@ public final class OrbitStateVectors {
                     weight *= (time - time2) / (orbI.time_mjd - time2);
                 }
             }
+
             position.x += weight * orbI.x_pos;
             position.y += weight * orbI.y_pos;
             position.z += weight * orbI.z_pos;
-        }
-        return position;
-    }
 
-    PosVector getVelocity(final double time) {
-
-        int i0, iN;
-        if (orbitStateVectors.length <= nv) {
-            i0 = 0;
-            iN = orbitStateVectors.length - 1;
-        } else {
-            i0 = Math.max((int) ((time - orbitStateVectors[0].time_mjd) / dt) - nv / 2 + 1, 0);
-            iN = Math.min(i0 + nv - 1, orbitStateVectors.length - 1);
-            i0 = (iN < orbitStateVectors.length - 1 ? i0 : iN - nv + 1);
-        }
-
-        //lagrangeInterpolatingPolynomial
-        final PosVector velocity = new PosVector();
-
-        for (int i = i0; i <= iN; ++i) {
-            final OrbitStateVector orbI = orbitStateVectors[i];
-
-            double weight = 1;
-            for (int j = i0; j <= iN; ++j) {
-                if (j != i) {
-                    final double time2 = orbitStateVectors[j].time_mjd;
-                    weight *= (time - time2) / (orbI.time_mjd - time2);
-                }
+            if (velocity != null) {
+                velocity.x += weight * orbI.x_vel;
+                velocity.y += weight * orbI.y_vel;
+                velocity.z += weight * orbI.z_vel;
             }
-            velocity.x += weight * orbI.x_vel;
-            velocity.y += weight * orbI.y_vel;
-            velocity.z += weight * orbI.z_vel;
         }
-        return velocity;
     }
 
     private int[] findAdjacentVectors(final double time) {
@@ -218,4 +197,116 @@ public final class OrbitStateVectors {
         public final PosVector position = new PosVector();
         public final PosVector velocity = new PosVector();
     }
+
+    /**
+     * Sensor positions and velocities on an equally spaced time grid, stored in primitive arrays.
+     * Values between two grid nodes are computed with cubic Hermite interpolation, using the node velocities
+     * as derivatives of the position and the node accelerations (finite differences of the velocities) as
+     * derivatives of the velocity.
+     */
+    private static final class InterpolationGrid {
+
+        private final double firstTime; // in days
+        private final double timeStep;  // in days
+        private final double timeStepInSeconds;
+        private final int numNodes;
+        private final double[] posX, posY, posZ;
+        private final double[] velX, velY, velZ;
+        private final double[] accX, accY, accZ;
+
+        InterpolationGrid(final OrbitStateVectors orbit) {
+
+            final OrbitStateVector[] vectors = orbit.orbitStateVectors;
+            final int numIntervals = vectors.length - 1;
+            if (numIntervals < 1) {
+                firstTime = 0;
+                timeStep = 0;
+                timeStepInSeconds = 0;
+                numNodes = 0;
+                posX = posY = posZ = velX = velY = velZ = accX = accY = accZ = new double[0];
+                return;
+            }
+
+            final int nodesPerVector = Math.max(1, Math.min(gridNodesPerVector, maxGridNodes / numIntervals));
+            firstTime = vectors[0].time_mjd;
+            numNodes = numIntervals * nodesPerVector + 1;
+            timeStep = (vectors[numIntervals].time_mjd - firstTime) / (numNodes - 1);
+            timeStepInSeconds = timeStep * Constants.secondsInDay;
+
+            posX = new double[numNodes];
+            posY = new double[numNodes];
+            posZ = new double[numNodes];
+            velX = new double[numNodes];
+            velY = new double[numNodes];
+            velZ = new double[numNodes];
+
+            final PosVector position = new PosVector();
+            final PosVector velocity = new PosVector();
+            for (int i = 0; i < numNodes; ++i) {
+                orbit.lagrangeInterpolate(firstTime + i * timeStep, position, velocity);
+                posX[i] = position.x;
+                posY[i] = position.y;
+                posZ[i] = position.z;
+                velX[i] = velocity.x;
+                velY[i] = velocity.y;
+                velZ[i] = velocity.z;
+            }
+
+            accX = computeDerivative(velX, timeStepInSeconds);
+            accY = computeDerivative(velY, timeStepInSeconds);
+            accZ = computeDerivative(velZ, timeStepInSeconds);
+        }
+
+        /**
+         * Second order finite differences, central inside and one-sided at both ends of the grid.
+         */
+        private static double[] computeDerivative(final double[] values, final double h) {
+            final int n = values.length;
+            final double[] derivative = new double[n];
+            if (n < 3) {
+                derivative[0] = derivative[n - 1] = (values[n - 1] - values[0]) / h;
+                return derivative;
+            }
+            for (int i = 1; i < n - 1; ++i) {
+                derivative[i] = (values[i + 1] - values[i - 1]) / (2 * h);
+            }
+            derivative[0] = (-3 * values[0] + 4 * values[1] - values[2]) / (2 * h);
+            derivative[n - 1] = (3 * values[n - 1] - 4 * values[n - 2] + values[n - 3]) / (2 * h);
+            return derivative;
+        }
+
+        /**
+         * @return false if the time is outside of the grid.
+         */
+        boolean interpolate(final double time, final PosVector position, final PosVector velocity) {
+
+            final double s = (time - firstTime) / timeStep;
+            if (numNodes < 2 || !(s >= 0.0 && s <= numNodes - 1)) {
+                return false;
+            }
+
+            final int i = Math.min((int) s, numNodes - 2);
+            final double u = s - i;
+            final double u2 = u * u;
+            final double u3 = u2 * u;
+            final double h = timeStepInSeconds;
+
+            // cubic Hermite basis functions
+            final double h00 = 2 * u3 - 3 * u2 + 1;
+            final double h10 = (u3 - 2 * u2 + u) * h;
+            final double h01 = -2 * u3 + 3 * u2;
+            final double h11 = (u3 - u2) * h;
+
+            position.x = h00 * posX[i] + h10 * velX[i] + h01 * posX[i + 1] + h11 * velX[i + 1];
+            position.y = h00 * posY[i] + h10 * velY[i] + h01 * posY[i + 1] + h11 * velY[i + 1];
+            position.z = h00 * posZ[i] + h10 * velZ[i] + h01 * posZ[i + 1] + h11 * velZ[i + 1];
+
+            if (velocity != null) {
+                velocity.x = h00 * velX[i] + h10 * accX[i] + h01 * velX[i + 1] + h11 * accX[i + 1];
+                velocity.y = h00 * velY[i] + h10 * accY[i] + h01 * velY[i + 1] + h11 * accY[i + 1];
+                velocity.z = h00 * velZ[i] + h10 * accZ[i] + h01 * velZ[i + 1] + h11 * accZ[i + 1];
+            }
+            return true;
+        }
+    }
 }
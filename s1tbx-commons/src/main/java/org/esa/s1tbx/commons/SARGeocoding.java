@@ -108,6 +108,195 @@ public final class SARGeocoding {
         return firstLineUTC + y0 * lineTimeInterval;
     }
 
+    /**
+     * Compute zero Doppler time for given earth point starting the search from a known line, e.g. the solution
+     * of the neighbouring pixel. The bracket around the start line is widened by doubling steps until the Doppler
+     * frequency changes sign and then refined by bisection. If no bracket is found inside the image, or it touches
+     * the first or last line, the full bisection search is used.
+     *
+     * @param firstLineUTC     The zero Doppler time for the first range line.
+     * @param lineTimeInterval The line time interval.
+     * @param wavelength       The radar wavelength.
+     * @param earthPoint       The earth point in xyz coordinate.
+     * @param sensorPosition   Array of sensor positions for all range lines.
+     * @param sensorVelocity   Array of sensor velocities for all range lines.
+     * @param startLine        The line to start the search from, negative if not known.
+     * @return The zero Doppler time in days if it is found, NonValidZeroDopplerTime otherwise.
+     * @throws OperatorException The operator exception.
+     */
+    public static double getEarthPointZeroDopplerTime(final double firstLineUTC,
+                                                      final double lineTimeInterval, final double wavelength,
+                                                      final PosVector earthPoint, final PosVector[] sensorPosition,
+                                                      final PosVector[] sensorVelocity, final int startLine)
+            throws OperatorException {
+
+        final int lastLine = sensorPosition.length - 1;
+        if (startLine < 1 || startLine >= lastLine - 1) {
+            return getEarthPointZeroDopplerTime(
+                    firstLineUTC, lineTimeInterval, wavelength, earthPoint, sensorPosition, sensorVelocity);
+        }
+
+        int lowerBound = startLine;
+        int upperBound = startLine + 1;
+        double lowerBoundFreq = getDopplerProduct(earthPoint, sensorPosition[lowerBound], sensorVelocity[lowerBound]);
+        double upperBoundFreq = getDopplerProduct(earthPoint, sensorPosition[upperBound], sensorVelocity[upperBound]);
+
+        // widen the bracket towards the side where the Doppler frequency decreases in magnitude
+        int step = 1;
+        while (lowerBoundFreq * upperBoundFreq > 0.0) {
+            if (Math.abs(upperBoundFreq) < Math.abs(lowerBoundFreq)) {
+                if (upperBound >= lastLine) {
+                    break;
+                }
+                lowerBound = upperBound;
+                lowerBoundFreq = upperBoundFreq;
+                upperBound = Math.min(upperBound + step, lastLine);
+                upperBoundFreq = getDopplerProduct(earthPoint, sensorPosition[upperBound], sensorVelocity[upperBound]);
+            } else {
+                if (lowerBound <= 0) {
+                    break;
+                }
+                upperBound = lowerBound;
+                upperBoundFreq = lowerBoundFreq;
+                lowerBound = Math.max(lowerBound - step, 0);
+                lowerBoundFreq = getDopplerProduct(earthPoint, sensorPosition[lowerBound], sensorVelocity[lowerBound]);
+            }
+            step *= 2;
+        }
+
+        if (lowerBoundFreq * upperBoundFreq > 0.0 || lowerBound == 0 || upperBound == lastLine) {
+            // diverged or at the image border: use the full search which handles the border lines
+            return getEarthPointZeroDopplerTime(
+                    firstLineUTC, lineTimeInterval, wavelength, earthPoint, sensorPosition, sensorVelocity);
+        }
+
+        double midFreq;
+        while (upperBound - lowerBound > 1) {
+
+            final int mid = (lowerBound + upperBound) / 2;
+            midFreq = getDopplerProduct(earthPoint, sensorPosition[mid], sensorVelocity[mid]);
+
+            if (midFreq * lowerBoundFreq > 0.0) {
+                lowerBound = mid;
+                lowerBoundFreq = midFreq;
+            } else if (midFreq * upperBoundFreq > 0.0) {
+                upperBound = mid;
+                upperBoundFreq = midFreq;
+            } else if (Double.compare(midFreq, 0.0) == 0) {
+                return firstLineUTC + mid * lineTimeInterval;
+            }
+        }
+
+        if (Double.compare(lowerBoundFreq, 0.0) == 0) {
+            return firstLineUTC + lowerBound * lineTimeInterval;
+        }
+
+        final double y0 = lowerBound - lowerBoundFreq * (upperBound - lowerBound) / (upperBoundFreq - lowerBoundFreq);
+        return firstLineUTC + y0 * lineTimeInterval;
+    }
+
+    /**
+     * Compute zero Doppler times for a row of earth points, e.g. the DEM samples of one tile row. Each point
+     * is solved starting from the solution of the previous valid point.
+     *
+     * @param firstLineUTC     The zero Doppler time for the first range line.
+     * @param lineTimeInterval The line time interval.
+     * @param wavelength       The radar wavelength.
+     * @param earthPoints      The earth points in xyz coordinate, null entries are skipped.
+     * @param sensorPosition   Array of sensor positions for all range lines.
+     * @param sensorVelocity   Array of sensor velocities for all range lines.
+     * @param zeroDopplerTimes The zero Doppler times in days, NonValidZeroDopplerTime where no solution is found.
+     * @throws OperatorException The operator exception.
+     */
+    public static void getEarthPointZeroDopplerTimes(final double firstLineUTC,
+                                                     final double lineTimeInterval, final double wavelength,
+                                                     final PosVector[] earthPoints, final PosVector[] sensorPosition,
+                                                     final PosVector[] sensorVelocity, final double[] zeroDopplerTimes)
+            throws OperatorException {
+
+        int startLine = -1;
+        for (int i = 0; i < earthPoints.length; ++i) {
+            if (earthPoints[i] == null) {
+                zeroDopplerTimes[i] = NonValidZeroDopplerTime;
+                continue;
+            }
+
+            final double zeroDopplerTime = getEarthPointZeroDopplerTime(firstLineUTC, lineTimeInterval, wavelength,
+                    earthPoints[i], sensorPosition, sensorVelocity, startLine);
+
+            zeroDopplerTimes[i] = zeroDopplerTime;
+            if (zeroDopplerTime != NonValidZeroDopplerTime) {
+                startLine = (int) ((zeroDopplerTime - firstLineUTC) / lineTimeInterval);
+            }
+        }
+    }
+
+    /**
+     * Unscaled Doppler frequency for given earth point and sensor position. It has the same sign as the
+     * Doppler frequency and is only used where the sign or a linear interpolation of it matters.
+     */
+    private static double getDopplerProduct(final PosVector earthPoint, final PosVector sensorPosition,
+                                            final PosVector sensorVelocity) {
+        return sensorVelocity.x * (earthPoint.x - sensorPosition.x) +
+                sensorVelocity.y * (earthPoint.y - sensorPosition.y) +
+                sensorVelocity.z * (earthPoint.z - sensorPosition.z);
+    }
+
+    /**
+     * Compute zero Doppler time for given earth point using Newton's method, starting from the given time,
+     * e.g. the solution of the neighbouring pixel. If the iteration does not converge or leaves the orbit,
+     * the bisection method over the orbit state vectors is used instead.
+     *
+     * @param lineTimeInterval The line time interval.
+     * @param wavelength       The radar wavelength.
+     * @param earthPoint       The earth point in xyz coordinate.
+     * @param orbit            The object holding orbit state vectors.
+     * @param initialTime      The time in days to start the iteration from, NonValidZeroDopplerTime if not known.
+     * @return The zero Doppler time in days if it is found, NonValidZeroDopplerTime otherwise.
+     * @throws OperatorException The operator exception.
+     */
+    public static double getEarthPointZeroDopplerTimeNewton(
+            final double lineTimeInterval, final double wavelength,
+            final PosVector earthPoint, final OrbitStateVectors orbit, final double initialTime) throws OperatorException {
+
+        final int numOrbitVec = orbit.orbitStateVectors.length;
+        final double firstVecTime = orbit.orbitStateVectors[0].time_mjd;
+        final double lastVecTime = orbit.orbitStateVectors[numOrbitVec - 1].time_mjd;
+
+        if (initialTime == NonValidZeroDopplerTime || initialTime <= firstVecTime || initialTime >= lastVecTime) {
+            return getEarthPointZeroDopplerTimeNewton(lineTimeInterval, wavelength, earthPoint, orbit);
+        }
+
+        double newTime = initialTime;
+        OrbitStateVectors.PositionVelocity pv = orbit.getPositionVelocity(newTime);
+        double newFreq = getDopplerFrequency(earthPoint, pv.position, pv.velocity, wavelength);
+
+        int numIter = 0;
+        while (Math.abs(newFreq) > 0.001) {
+            if (numIter > 10) {
+                return getZeroDopplerTime(lineTimeInterval, wavelength, earthPoint, orbit);
+            }
+
+            final double oldTime = newTime;
+            final double oldFreq = newFreq;
+
+            pv = orbit.getPositionVelocity(oldTime + lineTimeInterval);
+            final double oldFreqDel = getDopplerFrequency(earthPoint, pv.position, pv.velocity, wavelength);
+
+            final double d = (oldFreqDel - oldFreq) / lineTimeInterval;
+            newTime = oldTime - oldFreq / d;
+            if (Double.isNaN(newTime) || newTime <= firstVecTime || newTime >= lastVecTime) {
+                return getZeroDopplerTime(lineTimeInterval, wavelength, earthPoint, orbit);
+            }
+
+            pv = orbit.getPositionVelocity(newTime);
+            newFreq = getDopplerFrequency(earthPoint, pv.position, pv.velocity, wavelength);
+            numIter++;
+        }
+
+        return newTime;
+    }
+
     public static double getEarthPointZeroDopplerTimeNewton(
             final double lineTimeInterval, final double wavelength,
             final PosVector earthPoint, final OrbitStateVectors orbit) throws OperatorException {
@@ -249,6 +438,96 @@ public final class SARGeocoding {
         return lowerBoundTime - lowerBoundFreq * (upperBoundTime - lowerBoundTime) / (upperBoundFreq - lowerBoundFreq);
     }
 
+    /**
+     * Compute zero Doppler time for given point with the product orbit state vectors, starting the search from
+     * a known time, e.g. the solution of the neighbouring pixel. The bracket around the start time is widened by
+     * doubling steps of one line time interval until the Doppler frequency changes sign. If no bracket is found
+     * within the orbit, the search over all orbit state vectors is used.
+     *
+     * @param lineTimeInterval The line time interval.
+     * @param wavelength       The radar wavelength.
+     * @param earthPoint       The earth point in xyz coordinate.
+     * @param orbit            The object holding orbit state vectors.
+     * @param initialTime      The time in days to start the search from, NonValidZeroDopplerTime if not known.
+     * @return The zero Doppler time in days if it is found, NonValidZeroDopplerTime otherwise.
+     * @throws OperatorException The operator exception.
+     */
+    public static double getZeroDopplerTime(final double lineTimeInterval,
+                                            final double wavelength, final PosVector earthPoint,
+                                            final OrbitStateVectors orbit, final double initialTime)
+            throws OperatorException {
+
+        final int numOrbitVec = orbit.orbitStateVectors.length;
+        final double firstVecTime = orbit.orbitStateVectors[0].time_mjd;
+        final double lastVecTime = orbit.orbitStateVectors[numOrbitVec - 1].time_mjd;
+        final double absLineTimeInterval = Math.abs(lineTimeInterval);
+
+        if (initialTime == NonValidZeroDopplerTime || initialTime < firstVecTime ||
+                initialTime + absLineTimeInterval > lastVecTime) {
+            return getZeroDopplerTime(lineTimeInterval, wavelength, earthPoint, orbit);
+        }
+
+        double lowerBoundTime = initialTime;
+        double upperBoundTime = initialTime + absLineTimeInterval;
+        OrbitStateVectors.PositionVelocity pv = orbit.getPositionVelocity(lowerBoundTime);
+        double lowerBoundFreq = getDopplerFrequency(earthPoint, pv.position, pv.velocity, wavelength);
+        pv = orbit.getPositionVelocity(upperBoundTime);
+        double upperBoundFreq = getDopplerFrequency(earthPoint, pv.position, pv.velocity, wavelength);
+
+        double step = absLineTimeInterval;
+        while (lowerBoundFreq * upperBoundFreq > 0.0) {
+            if (Math.abs(upperBoundFreq) < Math.abs(lowerBoundFreq)) {
+                if (upperBoundTime >= lastVecTime) {
+                    return getZeroDopplerTime(lineTimeInterval, wavelength, earthPoint, orbit);
+                }
+                lowerBoundTime = upperBoundTime;
+                lowerBoundFreq = upperBoundFreq;
+                upperBoundTime = Math.min(upperBoundTime + step, lastVecTime);
+                pv = orbit.getPositionVelocity(upperBoundTime);
+                upperBoundFreq = getDopplerFrequency(earthPoint, pv.position, pv.velocity, wavelength);
+            } else {
+                if (lowerBoundTime <= firstVecTime) {
+                    return getZeroDopplerTime(lineTimeInterval, wavelength, earthPoint, orbit);
+                }
+                upperBoundTime = lowerBoundTime;
+                upperBoundFreq = lowerBoundFreq;
+                lowerBoundTime = Math.max(lowerBoundTime - step, firstVecTime);
+                pv = orbit.getPositionVelocity(lowerBoundTime);
+                lowerBoundFreq = getDopplerFrequency(earthPoint, pv.position, pv.velocity, wavelength);
+            }
+            step *= 2.0;
+        }
+
+        if (Double.compare(lowerBoundFreq, 0.0) == 0) {
+            return lowerBoundTime;
+        } else if (Double.compare(upperBoundFreq, 0.0) == 0) {
+            return upperBoundTime;
+        }
+
+        double midTime, midFreq;
+        double diffTime = upperBoundTime - lowerBoundTime;
+        while (diffTime > absLineTimeInterval) {
+
+            midTime = (upperBoundTime + lowerBoundTime) / 2.0;
+            pv = orbit.getPositionVelocity(midTime);
+            midFreq = getDopplerFrequency(earthPoint, pv.position, pv.velocity, wavelength);
+
+            if (midFreq * lowerBoundFreq > 0.0) {
+                lowerBoundTime = midTime;
+                lowerBoundFreq = midFreq;
+            } else if (midFreq * upperBoundFreq > 0.0) {
+                upperBoundTime = midTime;
+                upperBoundFreq = midFreq;
+            } else {
+                return midTime;
+            }
+
+            diffTime = upperBoundTime - lowerBoundTime;
+        }
+
+        return lowerBoundTime - lowerBoundFreq * (upperBoundTime - lowerBoundTime) / (upperBoundFreq - lowerBoundFreq);
+    }
+
     /**
      * Compute Doppler frequency for given earthPoint and sensor position.
      *
@@ -585,6 +864,101 @@ public final class SARGeocoding {
         }
     }
 
+    /**
+     * Compute local incidence angle and projected local incidence angle (in degree) without creating any
+     * intermediate objects. The latitude, longitude and elevation arrays cover the current tile plus a one pixel
+     * border, i.e. the pixel (xx, yy) of the tile is found at [yy + 1][xx + 1] in all three arrays.
+     *
+     * @param tileLat                          The latitudes of the tile pixels including the border.
+     * @param tileLon                          The longitudes of the tile pixels including the border.
+     * @param localDEM                         The local DEM including the border.
+     * @param demNoDataValue                   The DEM no data value.
+     * @param xx                               The x coordinate of the current pixel relative to the tile.
+     * @param yy                               The y coordinate of the current pixel relative to the tile.
+     * @param centrePoint                      The earth point of the current pixel in xyz coordinate.
+     * @param sensorPos                        The sensor position in xyz coordinate.
+     * @param saveLocalIncidenceAngle          Boolean flag indicating saving local incidence angle.
+     * @param saveProjectedLocalIncidenceAngle Boolean flag indicating saving projected local incidence angle.
+     * @param saveSigmaNought                  Boolean flag indicating applying radiometric calibration.
+     * @param workspace                        Four reusable vectors for the right, left, up and down points.
+     * @param localIncidenceAngles             The local incidence angle and projected local incidence angle.
+     */
+    public static void computeLocalIncidenceAngle(
+            final double[][] tileLat, final double[][] tileLon, final double[][] localDEM,
+            final double demNoDataValue, final int xx, final int yy,
+            final PosVector centrePoint, final PosVector sensorPos, final boolean saveLocalIncidenceAngle,
+            final boolean saveProjectedLocalIncidenceAngle, final boolean saveSigmaNought,
+            final PosVector[] workspace, final double[] localIncidenceAngles) {
+
+        for (int i = 0; i < 3; i++) {
+            final double[] demRow = localDEM[yy + i];
+            for (int j = 0; j < 3; j++) {
+                if (Double.compare(demRow[xx + j], demNoDataValue) == 0) {
+                    return;
+                }
+            }
+        }
+
+        final double rightPointHeight = (localDEM[yy][xx + 2] + localDEM[yy + 1][xx + 2] + localDEM[yy + 2][xx + 2]) / 3.0;
+        final double leftPointHeight = (localDEM[yy][xx] + localDEM[yy + 1][xx] + localDEM[yy + 2][xx]) / 3.0;
+        final double upPointHeight = (localDEM[yy][xx] + localDEM[yy][xx + 1] + localDEM[yy][xx + 2]) / 3.0;
+        final double downPointHeight = (localDEM[yy + 2][xx] + localDEM[yy + 2][xx + 1] + localDEM[yy + 2][xx + 2]) / 3.0;
+
+        final PosVector rightPoint = workspace[0];
+        final PosVector leftPoint = workspace[1];
+        final PosVector upPoint = workspace[2];
+        final PosVector downPoint = workspace[3];
+
+        GeoUtils.geo2xyzWGS84(tileLat[yy + 1][xx + 2], tileLon[yy + 1][xx + 2], rightPointHeight, rightPoint);
+        GeoUtils.geo2xyzWGS84(tileLat[yy + 1][xx], tileLon[yy + 1][xx], leftPointHeight, leftPoint);
+        GeoUtils.geo2xyzWGS84(tileLat[yy][xx + 1], tileLon[yy][xx + 1], upPointHeight, upPoint);
+        GeoUtils.geo2xyzWGS84(tileLat[yy + 2][xx + 1], tileLon[yy + 2][xx + 1], downPointHeight, downPoint);
+
+        final double ax = rightPoint.x - leftPoint.x, ay = rightPoint.y - leftPoint.y, az = rightPoint.z - leftPoint.z;
+        final double bx = downPoint.x - upPoint.x, by = downPoint.y - upPoint.y, bz = downPoint.z - upPoint.z;
+        final double cx = centrePoint.x, cy = centrePoint.y, cz = centrePoint.z;
+
+        // ground plane normal
+        double nx = ay * bz - az * by;
+        double ny = az * bx - ax * bz;
+        double nz = ax * by - ay * bx;
+        double norm = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        nx /= norm;
+        ny /= norm;
+        nz /= norm;
+        if (nx * cx + ny * cy + nz * cz < 0) {
+            nx = -nx;
+            ny = -ny;
+            nz = -nz;
+        }
+
+        double sx = sensorPos.x - cx, sy = sensorPos.y - cy, sz = sensorPos.z - cz;
+        norm = Math.sqrt(sx * sx + sy * sy + sz * sz);
+        sx /= norm;
+        sy /= norm;
+        sz /= norm;
+
+        if (saveLocalIncidenceAngle) { // local incidence angle
+            localIncidenceAngles[0] = FastMath.acos(nx * sx + ny * sy + nz * sz) * Constants.RTOD;
+        }
+
+        if (saveProjectedLocalIncidenceAngle || saveSigmaNought) { // projected local incidence angle
+            // range plane normal
+            double mx = sy * cz - sz * cy, my = sz * cx - sx * cz, mz = sx * cy - sy * cx;
+            norm = Math.sqrt(mx * mx + my * my + mz * mz);
+            mx /= norm;
+            my /= norm;
+            mz /= norm;
+            final double mnInnerProduct = mx * nx + my * ny + mz * nz;
+            double n1x = nx - mx * mnInnerProduct, n1y = ny - my * mnInnerProduct, n1z = nz - mz * mnInnerProduct;
+            norm = Math.sqrt(n1x * n1x + n1y * n1y + n1z * n1z);
+            n1x /= norm;
+            n1y /= norm;
+            n1z /= norm;
+            localIncidenceAngles[1] = FastMath.acos(n1x * sx + n1y * sy + n1z * sz) * Constants.RTOD;
+        }
+    }
+
     public static void computeLocalIncidenceAngle(
             final LocalGeometry lg, final double demNoDataValue, final boolean saveLocalIncidenceAngle,
             final boolean saveProjectedLocalIncidenceAngle, final boolean saveSigmaNought, final int x0,
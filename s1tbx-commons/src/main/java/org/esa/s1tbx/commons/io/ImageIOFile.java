@@ -25,6 +25,7 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.spi.ImageReaderSpi;
 import javax.imageio.stream.FileCacheImageInputStream;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.MemoryCacheImageInputStream;
@@ -33,10 +34,19 @@ import java.awt.image.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 
 /**
  * Reader for ImageIO File
+ *
+ * When the image is backed by a file, tile reads are served by a pool of independent readers
+ * each with its own stream so that several tiles of the same image can be decoded concurrently.
+ * The pool size can be set with the property s1tbx.readers.readersPerFile.
+ * Images opened from a stream (e.g. inside a zip) are read through the single shared reader.
  */
 public class ImageIOFile {
 
@@ -54,11 +64,29 @@ public class ImageIOFile {
     private ImageInputStream stream;
     private ImageReader reader;
 
+    private File imageFile = null;
+    private Semaphore readerPermits = null;
+    private final ConcurrentLinkedQueue<ImageReader> idleReaders = new ConcurrentLinkedQueue<>();
+    private final List<ImageReader> pooledReaders = new ArrayList<>();
+
     private static final boolean useFileCache = Config.instance().preferences().getBoolean("s1tbx.readers.useFileCache", false);
+    private static final int readersPerFile = Config.instance().preferences().getInt("s1tbx.readers.readersPerFile",
+            Runtime.getRuntime().availableProcessors());
 
     public ImageIOFile(final File inputFile, final ImageReader iioReader,
                        final File productInputFile) throws IOException {
         this(inputFile.getName(), ImageIO.createImageInputStream(inputFile), iioReader, productInputFile);
+        enableReaderPool(inputFile);
+    }
+
+    /**
+     * @param imageFile the file the stream was opened on, used to open further readers for concurrent reads
+     */
+    public ImageIOFile(final String name, final ImageInputStream inputStream, final ImageReader iioReader,
+                       final int numImages, final int numBands, final int dataType,
+                       final File productInputFile, final File imageFile) throws IOException {
+        this(name, inputStream, iioReader, numImages, numBands, dataType, productInputFile);
+        enableReaderPool(imageFile);
     }
 
     public ImageIOFile(final String name, final ImageInputStream inputStream, final ImageReader iioReader,
@@ -202,6 +230,17 @@ public class ImageIOFile {
             stream.close();
         if (reader != null)
             reader.dispose();
+        synchronized (pooledReaders) {
+            for (ImageReader pooledReader : pooledReaders) {
+                final Object input = pooledReader.getInput();
+                pooledReader.dispose();
+                if (input instanceof ImageInputStream) {
+                    ((ImageInputStream) input).close();
+                }
+            }
+            pooledReaders.clear();
+            idleReaders.clear();
+        }
     }
 
     public int getSceneWidth() throws IOException {
@@ -289,12 +328,50 @@ public class ImageIOFile {
         }
     }
 
-    private synchronized Raster getData(final ImageReadParam param,
-                                        final int destOffsetX, final int destOffsetY,
-                                        final int destWidth, final int destHeight) throws IOException {
+    private Raster getData(final ImageReadParam param,
+                           final int destOffsetX, final int destOffsetY,
+                           final int destWidth, final int destHeight) throws IOException {
+        return getData(param, new Rectangle(destOffsetX, destOffsetY, destWidth, destHeight));
+    }
+
+    /**
+     * Reads the given region of the first image. Safe to call from several threads at once.
+     *
+     * @param param    read parameters, typically created from getReader().getDefaultReadParam()
+     * @param destRect the region to return
+     * @return the raster of the region
+     * @throws IOException if the image could not be read
+     */
+    public Raster getData(final ImageReadParam param, final Rectangle destRect) throws IOException {
+        if (readerPermits == null) {
+            return getDataFromSharedReader(param, destRect);
+        }
+
+        readerPermits.acquireUninterruptibly();
+        ImageReader pooledReader = null;
+        try {
+            pooledReader = acquireReader();
+            final RenderedImage image = pooledReader.readAsRenderedImage(0, param);
+            return image.getData(destRect);
+        } catch (Exception e) {
+            if (pooledReader != null) {
+                discardReader(pooledReader);
+                pooledReader = null;
+            }
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        } finally {
+            if (pooledReader != null) {
+                idleReaders.offer(pooledReader);
+            }
+            readerPermits.release();
+        }
+    }
+
+    private synchronized Raster getDataFromSharedReader(final ImageReadParam param,
+                                                        final Rectangle destRect) throws IOException {
         try {
             final RenderedImage image = reader.readAsRenderedImage(0, param);
-            return image.getData(new Rectangle(destOffsetX, destOffsetY, destWidth, destHeight));
+            return image.getData(destRect);
         } catch (Exception e) {
             if(ZipUtils.isZip(productInputFile) && !ZipUtils.isValid(productInputFile)) {
                 throw new IOException("Zip file is corrupt "+productInputFile.getName());
@@ -303,6 +380,46 @@ public class ImageIOFile {
         }
     }
 
+    private void enableReaderPool(final File inputFile) {
+        if (inputFile != null && inputFile.isFile() && reader.getOriginatingProvider() != null && readersPerFile > 1) {
+            imageFile = inputFile;
+            readerPermits = new Semaphore(readersPerFile);
+        }
+    }
+
+    private ImageReader acquireReader() throws IOException {
+        final ImageReader idleReader = idleReaders.poll();
+        if (idleReader != null) {
+            return idleReader;
+        }
+
+        final ImageReaderSpi readerSpi = reader.getOriginatingProvider();
+        final ImageInputStream readerStream = ImageIO.createImageInputStream(imageFile);
+        if (readerStream == null)
+            throw new IOException("Unable to open " + imageFile);
+        final ImageReader newReader = readerSpi.createReaderInstance();
+        newReader.setInput(readerStream, false, true);
+        synchronized (pooledReaders) {
+            pooledReaders.add(newReader);
+        }
+        return newReader;
+    }
+
+    private void discardReader(final ImageReader pooledReader) {
+        synchronized (pooledReaders) {
+            pooledReaders.remove(pooledReader);
+        }
+        try {
+            final Object input = pooledReader.getInput();
+            pooledReader.dispose();
+            if (input instanceof ImageInputStream) {
+                ((ImageInputStream) input).close();
+            }
+        } catch (IOException e) {
+            SystemUtils.LOG.warning("Unable to close reader of " + name + ": " + e.getMessage());
+        }
+    }
+
     public static class BandInfo {
         public final int imageID;
         public final int bandSampleOffset;
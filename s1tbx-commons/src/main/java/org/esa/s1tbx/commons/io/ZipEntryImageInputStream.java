@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A seekable ImageInputStream over an uncompressed (STORED) entry of a zip file.
+ * The entry data is read with positional reads on the zip file itself so that nothing is
+ * copied to memory or to a cache file. Use create() which returns null for entries that are
+ * compressed or can not be located so that callers can fall back to the entry InputStream.
+ */
+public final class ZipEntryImageInputStream extends ImageInputStreamImpl {
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final long MASK_16 = 0xFFFFL;
+    private static final long MASK_32 = 0xFFFFFFFFL;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final FileChannel channel;
+    private final long dataOffset;
+    private final long length;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long bufferPos = -1;
+
+    private ZipEntryImageInputStream(final FileChannel channel, final long dataOffset, final long length) {
+        this.channel = channel;
+        this.dataOffset = dataOffset;
+        this.length = length;
+        buffer.limit(0);
+    }
+
+    /**
+     * @param zipFile   the zip archive
+     * @param entryName full path of the entry within the archive
+     * @return a stream on the entry data or null if the entry is not found or not STORED
+     */
+    public static ZipEntryImageInputStream create(final File zipFile, final String entryName) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ);
+            final long[] entry = findStoredEntry(channel, entryName);
+            if (entry == null) {
+                channel.close();
+                return null;
+            }
+            return new ZipEntryImageInputStream(channel, entry[0], entry[1]);
+        } catch (Exception e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignore) {
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Locates the data of a STORED entry from the central directory and its local header.
+     *
+     * @return the offset of the entry data in the file and its length or null if not found or compressed
+     */
+    public static long[] findStoredEntry(final FileChannel channel, final String entryName) throws IOException {
+        final long fileSize = channel.size();
+        if (fileSize < END_SIZE) {
+            return null;
+        }
+
+        // the end of central directory record is followed by a comment of up to 64K
+        final int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE);
+        final long tailPos = fileSize - tailSize;
+        final ByteBuffer tail = readBytes(channel, tailPos, tailSize);
+        int endPos = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; --i) {
+            if (tail.getInt(i) == END_SIG) {
+                endPos = i;
+                break;
+            }
+        }
+        if (endPos < 0) {
+            return null;
+        }
+
+        long numEntries = tail.getShort(endPos + 10) & MASK_16;
+        long dirSize = tail.getInt(endPos + 12) & MASK_32;
+        long dirOffset = tail.getInt(endPos + 16) & MASK_32;
+
+        if (numEntries == MASK_16 || dirSize == MASK_32 || dirOffset == MASK_32) {
+            final long locatorPos = tailPos + endPos - 20;
+            if (locatorPos < 0) {
+                return null;
+            }
+            final ByteBuffer locator = readBytes(channel, locatorPos, 20);
+            if (locator.getInt(0) != ZIP64_LOCATOR_SIG) {
+                return null;
+            }
+            final ByteBuffer zip64End = readBytes(channel, locator.getLong(8), 56);
+            if (zip64End.getInt(0) != ZIP64_END_SIG) {
+                return null;
+            }
+            numEntries = zip64End.getLong(32);
+            dirSize = zip64End.getLong(40);
+            dirOffset = zip64End.getLong(48);
+        }
+        if (dirSize > Integer.MAX_VALUE || dirOffset + dirSize > fileSize) {
+            return null;
+        }
+
+        final byte[] nameBytes = entryName.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer dir = readBytes(channel, dirOffset, (int) dirSize);
+        int pos = 0;
+        for (long n = 0; n < numEntries && pos + 46 <= dirSize; ++n) {
+            if (dir.getInt(pos) != CENTRAL_HEADER_SIG) {
+                return null;
+            }
+            final int method = dir.getShort(pos + 10) & 0xFFFF;
+            long compressedSize = dir.getInt(pos + 20) & MASK_32;
+            long size = dir.getInt(pos + 24) & MASK_32;
+            final int nameLength = dir.getShort(pos + 28) & 0xFFFF;
+            final int extraLength = dir.getShort(pos + 30) & 0xFFFF;
+            final int commentLength = dir.getShort(pos + 32) & 0xFFFF;
+            long localHeaderOffset = dir.getInt(pos + 42) & MASK_32;
+
+            if (nameMatches(dir, pos + 46, nameLength, nameBytes)) {
+                if (method != 0) {
+                    return null;
+                }
+                // zip64 extra field holds only the values that overflowed, in this order
+                int extraPos = pos + 46 + nameLength;
+                final int extraEnd = extraPos + extraLength;
+                while (extraPos + 4 <= extraEnd) {
+                    final int id = dir.getShort(extraPos) & 0xFFFF;
+                    final int dataSize = dir.getShort(extraPos + 2) & 0xFFFF;
+                    if (id == ZIP64_EXTRA_ID) {
+                        int valuePos = extraPos + 4;
+                        if (size == MASK_32) {
+                            size = dir.getLong(valuePos);
+                            valuePos += 8;
+                        }
+                        if (compressedSize == MASK_32) {
+                            compressedSize = dir.getLong(valuePos);
+                            valuePos += 8;
+                        }
+                        if (localHeaderOffset == MASK_32) {
+                            localHeaderOffset = dir.getLong(valuePos);
+                        }
+                        break;
+                    }
+                    extraPos += 4 + dataSize;
+                }
+                if (compressedSize != size) {
+                    return null;
+                }
+
+                final ByteBuffer localHeader = readBytes(channel, localHeaderOffset, 30);
+                if (localHeader.getInt(0) != LOCAL_HEADER_SIG) {
+                    return null;
+                }
+                final long dataOffset = localHeaderOffset + 30 +
+                        (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+                if (dataOffset + size > fileSize) {
+                    return null;
+                }
+                return new long[]{dataOffset, size};
+            }
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        return null;
+    }
+
+    private static boolean nameMatches(final ByteBuffer dir, final int pos, final int length, final byte[] name) {
+        if (length != name.length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (dir.get(pos + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer readBytes(final FileChannel channel, long position, final int size) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            final int n = channel.read(buf, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of zip file");
+            }
+            position += n;
+        }
+        return buf;
+    }
+
+    /**
+     * @return the offset of the entry data within the zip file
+     */
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        if (!fillBuffer()) {
+            return -1;
+        }
+        final int value = buffer.get((int) (streamPos - bufferPos)) & 0xFF;
+        ++streamPos;
+        return value;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        checkClosed();
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        bitOffset = 0;
+        if (len == 0) {
+            return 0;
+        }
+        if (streamPos >= length) {
+            return -1;
+        }
+        final int toRead = (int) Math.min(len, length - streamPos);
+
+        if (toRead >= BUFFER_SIZE) {
+            // large reads such as image strips go straight to the destination
+            final ByteBuffer dest = ByteBuffer.wrap(b, off, toRead);
+            final int n = channel.read(dest, dataOffset + streamPos);
+            if (n > 0) {
+                streamPos += n;
+            }
+            return n;
+        }
+
+        if (!fillBuffer()) {
+            return -1;
+        }
+        final int bufferOffset = (int) (streamPos - bufferPos);
+        final int n = Math.min(toRead, buffer.limit() - bufferOffset);
+        for (int i = 0; i < n; ++i) {
+            b[off + i] = buffer.get(bufferOffset + i);
+        }
+        streamPos += n;
+        return n;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        if (bufferPos >= 0 && streamPos >= bufferPos && streamPos < bufferPos + buffer.limit()) {
+            return true;
+        }
+        buffer.clear();
+        buffer.limit((int) Math.min(BUFFER_SIZE, length - streamPos));
+        long position = dataOffset + streamPos;
+        while (buffer.hasRemaining()) {
+            final int n = channel.read(buffer, position);
+            if (n < 0) {
+                break;
+            }
+            position += n;
+        }
+        buffer.flip();
+        bufferPos = streamPos;
+        return buffer.limit() > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        channel.close();
+    }
+}
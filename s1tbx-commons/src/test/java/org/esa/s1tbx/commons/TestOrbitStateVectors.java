@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons;
+
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.engine_utilities.datamodel.OrbitStateVector;
+import org.esa.snap.engine_utilities.datamodel.PosVector;
+import org.esa.snap.engine_utilities.eo.Constants;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestOrbitStateVectors {
+
+    private static final double firstTime = 7300.5; // in days
+    private static final double vectorInterval = 10.0; // in seconds
+    private static final int numVectors = 30;
+    private static final double radius = 7000000.0;
+    private static final double omega = 2.0 * Math.PI / 6000.0;
+
+    private static OrbitStateVector[] createCircularOrbit() {
+        final OrbitStateVector[] vectors = new OrbitStateVector[numVectors];
+        for (int i = 0; i < numVectors; ++i) {
+            final double t = i * vectorInterval;
+            final double a = omega * t;
+            vectors[i] = new OrbitStateVector(new ProductData.UTC(firstTime + t / Constants.secondsInDay),
+                    radius * Math.cos(a), radius * Math.sin(a), 0.0,
+                    -radius * omega * Math.sin(a), radius * omega * Math.cos(a), 0.0);
+        }
+        return vectors;
+    }
+
+    private static void assertOnOrbit(final double time, final PosVector position, final PosVector velocity) {
+        final double a = omega * (time - firstTime) * Constants.secondsInDay;
+        assertEquals(radius * Math.cos(a), position.x, 1e-3);
+        assertEquals(radius * Math.sin(a), position.y, 1e-3);
+        assertEquals(-radius * omega * Math.sin(a), velocity.x, 1e-5);
+        assertEquals(radius * omega * Math.cos(a), velocity.y, 1e-5);
+    }
+
+    @Test
+    public void testInterpolation() {
+        final OrbitStateVectors orbit = new OrbitStateVectors(createCircularOrbit());
+
+        final double duration = (numVectors - 1) * vectorInterval / Constants.secondsInDay;
+        for (int i = 0; i <= 1000; ++i) {
+            final double time = firstTime + duration * i / 1000.0;
+            final OrbitStateVectors.PositionVelocity pv = orbit.getPositionVelocity(time);
+            assertOnOrbit(time, pv.position, pv.velocity);
+        }
+    }
+
+    @Test
+    public void testSensorPositionPerLine() {
+        final double lineTimeInterval = 0.002 / Constants.secondsInDay;
+        final double firstLineUTC = firstTime + 20.0 / Constants.secondsInDay;
+        final OrbitStateVectors orbit = new OrbitStateVectors(createCircularOrbit(), firstLineUTC, lineTimeInterval, 5000);
+
+        for (int i = 0; i < 5000; i += 7) {
+            final double time = firstLineUTC + i * lineTimeInterval;
+            assertOnOrbit(time, orbit.sensorPosition[i], orbit.sensorVelocity[i]);
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final OrbitStateVectors orbit = new OrbitStateVectors(createCircularOrbit());
+        final double duration = (numVectors - 1) * vectorInterval / Constants.secondsInDay;
+        final int numThreads = 32;
+        final int numQueries = 20000;
+
+        final double[] times = new double[numQueries];
+        final double[] expectedX = new double[numQueries];
+        final double[] expectedVY = new double[numQueries];
+        for (int i = 0; i < numQueries; ++i) {
+            times[i] = firstTime + duration * ((i * 7919) % numQueries) / numQueries;
+            final OrbitStateVectors.PositionVelocity pv = orbit.getPositionVelocity(times[i]);
+            expectedX[i] = pv.position.x;
+            expectedVY[i] = pv.velocity.y;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < numThreads; ++t) {
+                final int offset = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int errors = 0;
+                        for (int n = 0; n < numQueries; ++n) {
+                            final int i = (n + offset * 613) % numQueries;
+                            final OrbitStateVectors.PositionVelocity pv = orbit.getPositionVelocity(times[i]);
+                            if (pv.position.x != expectedX[i] || pv.velocity.y != expectedVY[i]) {
+                                ++errors;
+                            }
+                        }
+                        return errors;
+                    }
+                }));
+            }
+
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
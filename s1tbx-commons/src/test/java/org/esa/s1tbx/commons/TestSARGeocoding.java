@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons;
+
+import org.esa.snap.engine_utilities.datamodel.PosVector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestSARGeocoding {
+
+    private static final int numLines = 5000;
+    private static final double firstLineUTC = 7000.0;
+    private static final double lineTimeInterval = 0.0005 / 86400.0;
+    private static final double wavelength = 0.0555;
+    private static final double velocity = 7000.0;
+
+    private final PosVector[] sensorPosition = new PosVector[numLines];
+    private final PosVector[] sensorVelocity = new PosVector[numLines];
+
+    public TestSARGeocoding() {
+        // straight line flight along y, the zero Doppler line of a point is where the sensor y equals the point y
+        for (int i = 0; i < numLines; ++i) {
+            sensorPosition[i] = new PosVector(7000000.0, i * velocity * 0.0005, 0.0);
+            sensorVelocity[i] = new PosVector(0.0, velocity, 0.0);
+        }
+    }
+
+    private PosVector earthPointAtLine(final double line) {
+        return new PosVector(6400000.0, line * velocity * 0.0005, 1000.0);
+    }
+
+    @Test
+    public void testWarmStartMatchesBisection() {
+        final double[] lines = {1.5, 17.25, 999.0, 2500.75, 4321.4, 4997.6};
+        final int[] startLines = {-1, 1, 100, 2500, 4000, 4997};
+
+        for (double line : lines) {
+            final PosVector earthPoint = earthPointAtLine(line);
+            final double expected = SARGeocoding.getEarthPointZeroDopplerTime(
+                    firstLineUTC, lineTimeInterval, wavelength, earthPoint, sensorPosition, sensorVelocity);
+            assertEquals(line, (expected - firstLineUTC) / lineTimeInterval, 1e-3);
+
+            for (int startLine : startLines) {
+                final double time = SARGeocoding.getEarthPointZeroDopplerTime(
+                        firstLineUTC, lineTimeInterval, wavelength, earthPoint, sensorPosition, sensorVelocity,
+                        startLine);
+                assertEquals(expected, time, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testOutsideImage() {
+        final PosVector earthPoint = earthPointAtLine(numLines + 100);
+        final double time = SARGeocoding.getEarthPointZeroDopplerTime(
+                firstLineUTC, lineTimeInterval, wavelength, earthPoint, sensorPosition, sensorVelocity, 2000);
+        assertEquals(SARGeocoding.NonValidZeroDopplerTime, time, 0.0);
+    }
+
+    @Test
+    public void testBatch() {
+        final PosVector[] earthPoints = new PosVector[100];
+        for (int i = 0; i < earthPoints.length; ++i) {
+            earthPoints[i] = i == 50 ? null : earthPointAtLine(1200.0 + i * 0.3);
+        }
+
+        final double[] times = new double[earthPoints.length];
+        SARGeocoding.getEarthPointZeroDopplerTimes(
+                firstLineUTC, lineTimeInterval, wavelength, earthPoints, sensorPosition, sensorVelocity, times);
+
+        for (int i = 0; i < earthPoints.length; ++i) {
+            if (earthPoints[i] == null) {
+                assertEquals(SARGeocoding.NonValidZeroDopplerTime, times[i], 0.0);
+            } else {
+                assertEquals(SARGeocoding.getEarthPointZeroDopplerTime(firstLineUTC, lineTimeInterval, wavelength,
+                        earthPoints[i], sensorPosition, sensorVelocity), times[i], 1e-12);
+            }
+        }
+    }
+}
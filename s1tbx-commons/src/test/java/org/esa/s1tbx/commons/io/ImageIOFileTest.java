@@ -1,9 +1,20 @@
 package org.esa.s1tbx.commons.io;
 
 import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.stream.FileCacheImageInputStream;
 import javax.imageio.stream.ImageInputStream;
 
@@ -17,4 +28,47 @@ public class ImageIOFileTest {
     ImageInputStream imageInputStream = ImageIOFile.createImageInputStream(new ByteArrayInputStream(new byte[0]), new Dimension(60000, 60000));
     Assert.assertTrue("For large files we expect a FileCacheImageInputStream", imageInputStream instanceof FileCacheImageInputStream);
   }
+
+  @Test
+  public void concurrentReadsOfFileBackedImage() throws Exception {
+    final int width = 256, height = 256, tileSize = 32;
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_USHORT_GRAY);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.getRaster().setSample(x, y, 0, y * width + x);
+      }
+    }
+    final File file = File.createTempFile("imageiofile", ".tif");
+    file.deleteOnExit();
+    Assert.assertTrue(ImageIO.write(image, "tif", file));
+
+    final ImageIOFile img = new ImageIOFile(file, ImageIOFile.getIIOReader(file), file);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Boolean>> results = new ArrayList<>();
+      for (int ty = 0; ty < height; ty += tileSize) {
+        for (int tx = 0; tx < width; tx += tileSize) {
+          final Rectangle rect = new Rectangle(tx, ty, tileSize, tileSize);
+          results.add(executor.submit(() -> {
+            final ImageReadParam param = img.getReader().getDefaultReadParam();
+            final Raster data = img.getData(param, rect);
+            for (int y = rect.y; y < rect.y + rect.height; y++) {
+              for (int x = rect.x; x < rect.x + rect.width; x++) {
+                if (data.getSample(x, y, 0) != y * width + x) {
+                  return false;
+                }
+              }
+            }
+            return true;
+          }));
+        }
+      }
+      for (Future<Boolean> result : results) {
+        Assert.assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdown();
+      img.close();
+    }
+  }
 }
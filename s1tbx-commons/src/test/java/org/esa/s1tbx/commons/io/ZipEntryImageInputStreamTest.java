@@ -0,0 +1,83 @@
+package org.esa.s1tbx.commons.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ZipEntryImageInputStreamTest {
+
+  private static final int SIZE = 100000;
+
+  @Test
+  public void readStoredEntryInPlace() throws IOException {
+    final byte[] data = createData();
+    final File zipFile = writeZip(data);
+
+    final ZipEntryImageInputStream stream = ZipEntryImageInputStream.create(zipFile, "product/measurement/stored.tiff");
+    Assert.assertNotNull(stream);
+    try {
+      Assert.assertEquals(SIZE, stream.length());
+
+      final byte[] all = new byte[SIZE];
+      stream.readFully(all);
+      Assert.assertArrayEquals(data, all);
+      Assert.assertEquals(-1, stream.read());
+
+      stream.seek(12345);
+      Assert.assertEquals(data[12345] & 0xFF, stream.read());
+      final byte[] part = new byte[20];
+      stream.seek(SIZE - 20);
+      stream.readFully(part);
+      for (int i = 0; i < part.length; i++) {
+        Assert.assertEquals(data[SIZE - 20 + i], part[i]);
+      }
+
+      stream.seek(4);
+      final int expected = ((data[4] & 0xFF) << 24) | ((data[5] & 0xFF) << 16) | ((data[6] & 0xFF) << 8) | (data[7] & 0xFF);
+      Assert.assertEquals(expected, stream.readInt());
+    } finally {
+      stream.close();
+    }
+  }
+
+  @Test
+  public void compressedOrMissingEntryNotSupported() throws IOException {
+    final File zipFile = writeZip(createData());
+    Assert.assertNull(ZipEntryImageInputStream.create(zipFile, "product/manifest.safe"));
+    Assert.assertNull(ZipEntryImageInputStream.create(zipFile, "product/measurement/missing.tiff"));
+  }
+
+  private static byte[] createData() {
+    final byte[] data = new byte[SIZE];
+    new Random(7).nextBytes(data);
+    return data;
+  }
+
+  private static File writeZip(final byte[] data) throws IOException {
+    final File file = File.createTempFile("s1zip", ".zip");
+    file.deleteOnExit();
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+      zip.putNextEntry(new ZipEntry("product/manifest.safe"));
+      zip.write(data, 0, 1000);
+      zip.closeEntry();
+
+      final ZipEntry stored = new ZipEntry("product/measurement/stored.tiff");
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(data.length);
+      final CRC32 crc = new CRC32();
+      crc.update(data);
+      stored.setCrc(crc.getValue());
+      zip.putNextEntry(stored);
+      zip.write(data);
+      zip.closeEntry();
+    }
+    return file;
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.orbits.sentinel1;
+
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.core.util.SystemUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent index of the Sentinel-1 orbit files in a local orbit folder.
+ * An entry holds the mission, validity period and version of a file. Entries of new files are taken from the
+ * file name and replaced with the header data once the file has been read.
+ * The index is saved next to the folder and the folder is only listed again when it has been modified.
+ * Entries are sorted by validity start, so a lookup is a binary search.
+ */
+final class OrbitFileIndex {
+
+    private static final int MAGIC = 0x53314f49; // S1OI
+    private static final int FORMAT_VERSION = 1;
+    private static final String INDEX_EXT = ".index";
+
+    private static final Map<File, OrbitFileIndex> indexes = new ConcurrentHashMap<>();
+
+    private final File folder;
+    private final File indexFile;
+
+    private final Map<String, Entry> entryMap = new HashMap<>();
+    private Entry[] entries = new Entry[0];          // sorted by validity start
+    private double maxValidityDuration = 0;
+    private long folderModified = Long.MIN_VALUE;
+
+    static final class Entry {
+        final String name;
+        final String mission;
+        final double validityStart;  // MJD
+        final double validityStop;   // MJD
+        final String version;        // empty until the header has been read
+
+        Entry(final String name, final String mission, final double validityStart, final double validityStop,
+              final String version) {
+            this.name = name;
+            this.mission = mission;
+            this.validityStart = validityStart;
+            this.validityStop = validityStop;
+            this.version = version;
+        }
+
+        boolean covers(final double mjd) {
+            return mjd >= validityStart && mjd < validityStop;
+        }
+    }
+
+    private OrbitFileIndex(final File folder) {
+        this.folder = folder;
+        this.indexFile = new File(folder.getParentFile(), folder.getName() + INDEX_EXT);
+        load();
+    }
+
+    static OrbitFileIndex getIndex(final File folder) {
+        return indexes.computeIfAbsent(folder.getAbsoluteFile(), OrbitFileIndex::new);
+    }
+
+    /**
+     * Find an orbit file covering the given time. If several files cover it, the one with the latest validity
+     * start is used.
+     *
+     * @param prefix file name prefix of the mission and orbit type
+     * @param mjd    the time
+     * @return the orbit file or null if none is found
+     */
+    synchronized File findOrbitFile(final String prefix, final double mjd) {
+        refresh();
+
+        // last entry starting at or before mjd
+        int lo = 0, hi = entries.length - 1, idx = -1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (entries[mid].validityStart <= mjd) {
+                idx = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        for (int i = idx; i >= 0 && entries[i].validityStart >= mjd - maxValidityDuration; --i) {
+            final Entry entry = entries[i];
+            if (entry.covers(mjd) && entry.name.toUpperCase().startsWith(prefix)) {
+                final File file = new File(folder, entry.name);
+                if (file.exists()) {
+                    return file;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace the entry of a file with the header data of the file
+     */
+    synchronized void update(final File file, final String mission, final double validityStart,
+                             final double validityStop, final String version) {
+        final Entry entry = new Entry(file.getName(), mission, validityStart, validityStop,
+                version == null ? "" : version);
+        final Entry old = entryMap.put(entry.name, entry);
+        if (old == null || old.validityStart != entry.validityStart || old.validityStop != entry.validityStop ||
+                !old.mission.equals(entry.mission) || !old.version.equals(entry.version)) {
+            sortEntries();
+            save();
+        }
+    }
+
+    synchronized int size() {
+        return entries.length;
+    }
+
+    private void refresh() {
+        final long modified = folder.lastModified();
+        if (modified == folderModified) {
+            return;
+        }
+
+        final String[] names = folder.list((dir, name) -> isOrbitFile(name));
+        final Set<String> present = new HashSet<>();
+        if (names != null) {
+            for (String name : names) {
+                present.add(name);
+                if (!entryMap.containsKey(name)) {
+                    final Entry entry = createEntryFromFilename(name);
+                    if (entry != null) {
+                        entryMap.put(name, entry);
+                    }
+                }
+            }
+        }
+        entryMap.keySet().retainAll(present);
+
+        folderModified = modified;
+        sortEntries();
+        save();
+    }
+
+    private static boolean isOrbitFile(final String name) {
+        final String upperName = name.toUpperCase();
+        return upperName.endsWith(".ZIP") || upperName.endsWith(".EOF");
+    }
+
+    private static Entry createEntryFromFilename(final String name) {
+        try {
+            if (name.length() < 73) {
+                return null;
+            }
+            final ProductData.UTC start = Sentinel1OrbitFileReader.getValidityStartFromFilenameUTC(name);
+            final ProductData.UTC stop = Sentinel1OrbitFileReader.getValidityStopFromFilenameUTC(name);
+            if (start == null || stop == null) {
+                return null;
+            }
+            return new Entry(name, name.substring(0, 3).toUpperCase(), start.getMJD(), stop.getMJD(), "");
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void sortEntries() {
+        final Entry[] sorted = entryMap.values().toArray(new Entry[0]);
+        Arrays.sort(sorted, Comparator.comparingDouble((Entry e) -> e.validityStart).thenComparing(e -> e.name));
+        double maxDuration = 0;
+        for (Entry entry : sorted) {
+            maxDuration = Math.max(maxDuration, entry.validityStop - entry.validityStart);
+        }
+        entries = sorted;
+        maxValidityDuration = maxDuration;
+    }
+
+    private void load() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            final long modified = in.readLong();
+            final int count = in.readInt();
+            for (int i = 0; i < count; ++i) {
+                final Entry entry = new Entry(in.readUTF(), in.readUTF(), in.readDouble(), in.readDouble(),
+                        in.readUTF());
+                entryMap.put(entry.name, entry);
+            }
+            folderModified = modified;
+            sortEntries();
+        } catch (IOException e) {
+            SystemUtils.LOG.fine("Unable to read orbit file index " + indexFile + ": " + e.getMessage());
+            entryMap.clear();
+            folderModified = Long.MIN_VALUE;
+        }
+    }
+
+    private void save() {
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(
+                    indexFile.getAbsoluteFile().getParentFile().toPath(), indexFile.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(folderModified);
+                out.writeInt(entries.length);
+                for (Entry entry : entries) {
+                    out.writeUTF(entry.name);
+                    out.writeUTF(entry.mission);
+                    out.writeDouble(entry.validityStart);
+                    out.writeDouble(entry.validityStop);
+                    out.writeUTF(entry.version);
+                }
+            }
+            Files.move(tmpFile, indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            SystemUtils.LOG.fine("Unable to write orbit file index " + indexFile + ": " + e.getMessage());
+            if (tmpFile != null) {
+                tmpFile.toFile().delete();
+            }
+        }
+    }
+}
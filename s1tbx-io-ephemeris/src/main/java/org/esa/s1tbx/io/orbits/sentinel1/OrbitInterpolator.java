@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.orbits.sentinel1;
+
+import Jama.Matrix;
+import org.esa.snap.engine_utilities.datamodel.Orbits;
+import org.esa.snap.engine_utilities.util.Maths;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Piecewise polynomial interpolation of orbit state vectors.
+ * A query uses the polyDegree + 1 state vectors around it. The polynomials of such a window are fitted
+ * the first time the window is used and kept, so a query only looks up its window and evaluates six polynomials.
+ * The interpolator is thread safe.
+ */
+final class OrbitInterpolator {
+
+    private static final int NUM_COMPONENTS = 6;
+
+    private final int polyDegree;
+    private final int numVecPolyFit;
+    private final int halfNumVecPolyFit;
+
+    private final int numVectors;
+    private final double t0;
+    private final double tN;
+    private final double[] time;        // relative to t0
+    private final double[][] values;    // [component][vector]: x, y, z position and velocity
+
+    // [window start][component][coefficient]
+    private final AtomicReferenceArray<double[][]> windowCoeffs;
+
+    OrbitInterpolator(final List<Orbits.OrbitVector> osvList, final int polyDegree) {
+        numVectors = osvList.size();
+        if (numVectors == 0) {
+            throw new IllegalArgumentException("No orbit state vectors");
+        }
+        this.numVecPolyFit = Math.min(polyDegree + 1, numVectors);
+        this.polyDegree = numVecPolyFit - 1;
+        this.halfNumVecPolyFit = numVecPolyFit / 2;
+
+        t0 = osvList.get(0).utcMJD;
+        tN = osvList.get(numVectors - 1).utcMJD;
+        time = new double[numVectors];
+        values = new double[NUM_COMPONENTS][numVectors];
+        for (int i = 0; i < numVectors; ++i) {
+            final Orbits.OrbitVector osv = osvList.get(i);
+            time[i] = osv.utcMJD - t0;
+            values[0][i] = osv.xPos;
+            values[1][i] = osv.yPos;
+            values[2][i] = osv.zPos;
+            values[3][i] = osv.xVel;
+            values[4][i] = osv.yVel;
+            values[5][i] = osv.zVel;
+        }
+        windowCoeffs = new AtomicReferenceArray<>(numVectors - numVecPolyFit + 1);
+    }
+
+    /**
+     * Get orbit state vector for given time.
+     *
+     * @param utc The UTC in days.
+     * @return The orbit state vector.
+     */
+    Orbits.OrbitVector getOrbitData(final double utc) {
+
+        final double[][] coeffs = getWindowCoefficients(getWindowStart(utc));
+        final double normalizedTime = utc - t0;
+
+        return new Orbits.OrbitVector(utc,
+                Maths.polyVal(normalizedTime, coeffs[0]),
+                Maths.polyVal(normalizedTime, coeffs[1]),
+                Maths.polyVal(normalizedTime, coeffs[2]),
+                Maths.polyVal(normalizedTime, coeffs[3]),
+                Maths.polyVal(normalizedTime, coeffs[4]),
+                Maths.polyVal(normalizedTime, coeffs[5]));
+    }
+
+    /**
+     * The state vectors are about equally spaced, so the window follows from the time directly.
+     * Queries outside of the orbit use the first or last window.
+     */
+    int getWindowStart(final double utc) {
+        final int vecIdx = numVectors > 1 ? (int) ((utc - t0) / (tN - t0) * (numVectors - 1)) : 0;
+        final int start = vecIdx - halfNumVecPolyFit + 1;
+        return Math.max(0, Math.min(start, numVectors - numVecPolyFit));
+    }
+
+    private double[][] getWindowCoefficients(final int start) {
+        double[][] coeffs = windowCoeffs.get(start);
+        if (coeffs == null) {
+            coeffs = fitWindow(start);
+            windowCoeffs.compareAndSet(start, null, coeffs);
+        }
+        return coeffs;
+    }
+
+    private double[][] fitWindow(final int start) {
+        final double[] timeArray = new double[numVecPolyFit];
+        System.arraycopy(time, start, timeArray, 0, numVecPolyFit);
+        final Matrix A = Maths.createVandermondeMatrix(timeArray, polyDegree);
+
+        final double[][] coeffs = new double[NUM_COMPONENTS][];
+        final double[] valueArray = new double[numVecPolyFit];
+        for (int c = 0; c < NUM_COMPONENTS; ++c) {
+            System.arraycopy(values[c], start, valueArray, 0, numVecPolyFit);
+            coeffs[c] = Maths.polyFit(A, valueArray);
+        }
+        return coeffs;
+    }
+}
@@ -19,10 +19,14 @@ import org.esa.snap.core.datamodel.ProductData;
 import org.esa.snap.core.dataop.downloadable.XMLSupport;
 import org.esa.snap.core.util.SystemUtils;
 import org.esa.snap.engine_utilities.datamodel.Orbits;
+import org.esa.snap.engine_utilities.util.Settings;
 import org.jdom2.Document;
 import org.jdom2.Element;
 
-import java.io.File;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -36,6 +40,13 @@ public class Sentinel1OrbitFileReader {
     final static DateFormat dateFormat = ProductData.UTC.createDateFormat("yyyyMMdd-HHmmss");
     final static DateFormat orbitDateFormat = ProductData.UTC.createDateFormat("yyyy-MM-dd HH:mm:ss");
 
+    // the state vectors of a parsed orbit file are kept in a binary file next to it
+    private static final boolean useBinarySidecar =
+            Boolean.parseBoolean(Settings.instance().get("OrbitFiles.sentinel1BinarySidecar", "true"));
+    static final String SIDECAR_EXT = ".osv";
+    private static final int SIDECAR_MAGIC = 0x53314f56; // S1OV
+    private static final int SIDECAR_VERSION = 1;
+
     private FixedHeader fixedHeader = null;
     private final File orbitFile;
     private List<Orbits.OrbitVector> osvList = new ArrayList<>();
@@ -50,6 +61,26 @@ public class Sentinel1OrbitFileReader {
 
     void read() throws Exception {
 
+        final File sidecarFile = getSidecarFile(orbitFile);
+        if (useBinarySidecar && sidecarFile.exists() && sidecarFile.lastModified() >= orbitFile.lastModified()) {
+            if (readSidecar(sidecarFile)) {
+                return;
+            }
+        }
+
+        readXML();
+
+        if (useBinarySidecar) {
+            writeSidecar(sidecarFile);
+        }
+    }
+
+    static File getSidecarFile(final File orbitFile) {
+        return new File(orbitFile.getPath() + SIDECAR_EXT);
+    }
+
+    private void readXML() throws Exception {
+
         final Document doc;
         if (orbitFile.getName().toLowerCase().endsWith(".zip")) {
             final ZipFile productZip = new ZipFile(orbitFile, ZipFile.OPEN_READ);
@@ -77,6 +108,69 @@ public class Sentinel1OrbitFileReader {
         }
     }
 
+    private boolean readSidecar(final File sidecarFile) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecarFile)))) {
+            if (in.readInt() != SIDECAR_MAGIC || in.readInt() != SIDECAR_VERSION) {
+                return false;
+            }
+            FixedHeader header = null;
+            if (in.readBoolean()) {
+                header = new FixedHeader(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+            }
+            final int count = in.readInt();
+            final List<Orbits.OrbitVector> list = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                list.add(new Orbits.OrbitVector(in.readDouble(),
+                        in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readDouble(), in.readDouble()));
+            }
+            fixedHeader = header;
+            osvList = list;
+            return true;
+        } catch (IOException e) {
+            SystemUtils.LOG.fine("Unable to read orbit sidecar " + sidecarFile + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeSidecar(final File sidecarFile) {
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(
+                    sidecarFile.getAbsoluteFile().getParentFile().toPath(), sidecarFile.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(SIDECAR_MAGIC);
+                out.writeInt(SIDECAR_VERSION);
+                out.writeBoolean(fixedHeader != null);
+                if (fixedHeader != null) {
+                    out.writeUTF(fixedHeader.mission);
+                    out.writeUTF(fixedHeader.fileType);
+                    out.writeUTF(fixedHeader.validityStart);
+                    out.writeUTF(fixedHeader.validityStop);
+                    out.writeUTF(fixedHeader.version);
+                }
+                out.writeInt(osvList.size());
+                for (Orbits.OrbitVector osv : osvList) {
+                    out.writeDouble(osv.utcMJD);
+                    out.writeDouble(osv.xPos);
+                    out.writeDouble(osv.yPos);
+                    out.writeDouble(osv.zPos);
+                    out.writeDouble(osv.xVel);
+                    out.writeDouble(osv.yVel);
+                    out.writeDouble(osv.zVel);
+                }
+            }
+            Files.move(tmpFile, sidecarFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            SystemUtils.LOG.fine("Unable to write orbit sidecar " + sidecarFile + ": " + e.getMessage());
+            if (tmpFile != null) {
+                tmpFile.toFile().delete();
+            }
+        }
+    }
+
     private static FixedHeader readFixedHeader(final Element fixedHeaderElem) {
 
         String mission = fixedHeaderElem.getChild("Mission").getText();
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.orbits.sentinel1;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit test for OrbitFileIndex.
+ */
+public class TestOrbitFileIndex {
+
+    private static final String PREFIX = "S1A_OPER_AUX_POEORB_OPOD_";
+    private static final String FILE1 = PREFIX + "20140526T151322_V20140509T225944_20140511T005944.EOF";
+    private static final String FILE2 = PREFIX + "20140527T151322_V20140510T225944_20140512T005944.EOF";
+    private static final String FILE3 = PREFIX + "20140528T151322_V20140511T225944_20140513T005944.EOF";
+
+    private File folder;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("orbits").resolve("05").toFile();
+        folder.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        final File parent = folder.getParentFile();
+        final File[] files = parent.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                final File[] children = file.listFiles();
+                if (children != null) {
+                    for (File child : children) {
+                        child.delete();
+                    }
+                }
+                file.delete();
+            }
+        }
+        parent.delete();
+    }
+
+    private static double mjd(final String utc) throws Exception {
+        return Sentinel1OrbitFileReader.toUTC(utc).getMJD();
+    }
+
+    @Test
+    public void testFindOrbitFile() throws Exception {
+        new File(folder, FILE1).createNewFile();
+        new File(folder, FILE2).createNewFile();
+        new File(folder, "readme.txt").createNewFile();
+
+        final OrbitFileIndex index = OrbitFileIndex.getIndex(folder);
+        assertEquals(FILE1, index.findOrbitFile(PREFIX, mjd("UTC=2014-05-10T12:00:00")).getName());
+        assertEquals(2, index.size());
+
+        // covered by both files, the later one is used
+        assertEquals(FILE2, index.findOrbitFile(PREFIX, mjd("UTC=2014-05-11T00:00:00")).getName());
+        assertEquals(FILE2, index.findOrbitFile(PREFIX, mjd("UTC=2014-05-11T12:00:00")).getName());
+
+        assertNull(index.findOrbitFile(PREFIX, mjd("UTC=2014-05-12T12:00:00")));
+        assertNull(index.findOrbitFile("S1B_OPER_AUX_POEORB_OPOD_", mjd("UTC=2014-05-10T12:00:00")));
+    }
+
+    @Test
+    public void testIndexIsUpdated() throws Exception {
+        new File(folder, FILE1).createNewFile();
+
+        final OrbitFileIndex index = OrbitFileIndex.getIndex(folder);
+        assertNull(index.findOrbitFile(PREFIX, mjd("UTC=2014-05-12T12:00:00")));
+
+        new File(folder, FILE3).createNewFile();
+        folder.setLastModified(folder.lastModified() + 2000);
+        assertEquals(FILE3, index.findOrbitFile(PREFIX, mjd("UTC=2014-05-12T12:00:00")).getName());
+
+        // header data replaces the validity taken from the file name
+        index.update(new File(folder, FILE3), "Sentinel-1A",
+                mjd("UTC=2014-05-12T00:00:00"), mjd("UTC=2014-05-13T00:59:44"), "1.10.1");
+        assertNull(index.findOrbitFile(PREFIX, mjd("UTC=2014-05-11T23:00:00")));
+        assertEquals(FILE3, index.findOrbitFile(PREFIX, mjd("UTC=2014-05-12T12:00:00")).getName());
+    }
+
+    @Test
+    public void testIndexIsPersistent() throws Exception {
+        new File(folder, FILE1).createNewFile();
+        new File(folder, FILE2).createNewFile();
+        OrbitFileIndex.getIndex(folder).findOrbitFile(PREFIX, mjd("UTC=2014-05-10T12:00:00"));
+
+        final File indexFile = new File(folder.getParentFile(), folder.getName() + ".index");
+        assertEquals(true, indexFile.exists());
+
+        // an index of another folder with a copy of the saved index starts with the saved entries
+        final File otherFolder = new File(folder.getParentFile(), "06");
+        otherFolder.mkdirs();
+        Files.copy(indexFile.toPath(), new File(folder.getParentFile(), "06.index").toPath());
+
+        assertEquals(2, OrbitFileIndex.getIndex(otherFolder).size());
+    }
+}
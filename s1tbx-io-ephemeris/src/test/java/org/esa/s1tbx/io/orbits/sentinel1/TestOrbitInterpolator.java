@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.orbits.sentinel1;
+
+import Jama.Matrix;
+import org.esa.snap.engine_utilities.datamodel.Orbits;
+import org.esa.snap.engine_utilities.util.Maths;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for OrbitInterpolator.
+ */
+public class TestOrbitInterpolator {
+
+    private static final double T0 = 5352.958136574074; // MJD
+    private static final double INTERVAL = 10.0 / 86400.0; // 10 s in days
+    private static final double RADIUS = 7071000.0;
+    private static final double OMEGA = 2.0 * Math.PI / 5925.0; // rad/s
+
+    private static List<Orbits.OrbitVector> createOrbit(final int numVectors) {
+        final List<Orbits.OrbitVector> osvList = new ArrayList<>();
+        for (int i = 0; i < numVectors; i++) {
+            final double s = i * 10.0;
+            final double a = OMEGA * s;
+            osvList.add(new Orbits.OrbitVector(T0 + i * INTERVAL,
+                    RADIUS * Math.cos(a), RADIUS * Math.sin(a) * 0.2, RADIUS * Math.sin(a),
+                    -RADIUS * OMEGA * Math.sin(a), RADIUS * OMEGA * Math.cos(a) * 0.2, RADIUS * OMEGA * Math.cos(a)));
+        }
+        return osvList;
+    }
+
+    // the fit per query done before the interpolator
+    private static Orbits.OrbitVector fitPerQuery(final List<Orbits.OrbitVector> osvList, final int polyDegree,
+                                                  final double utc) {
+        final int numVectors = osvList.size();
+        final double t0 = osvList.get(0).utcMJD;
+        final double tN = osvList.get(numVectors - 1).utcMJD;
+        final int numVecPolyFit = polyDegree + 1;
+        final int halfNumVecPolyFit = numVecPolyFit / 2;
+
+        final int vecIdx = (int) ((utc - t0) / (tN - t0) * (numVectors - 1));
+        int start = vecIdx - halfNumVecPolyFit + 1;
+        start = Math.max(0, Math.min(start, numVectors - numVecPolyFit));
+
+        final double[] timeArray = new double[numVecPolyFit];
+        final double[][] valueArrays = new double[6][numVecPolyFit];
+        for (int i = 0; i < numVecPolyFit; i++) {
+            final Orbits.OrbitVector osv = osvList.get(start + i);
+            timeArray[i] = osv.utcMJD - t0;
+            valueArrays[0][i] = osv.xPos;
+            valueArrays[1][i] = osv.yPos;
+            valueArrays[2][i] = osv.zPos;
+            valueArrays[3][i] = osv.xVel;
+            valueArrays[4][i] = osv.yVel;
+            valueArrays[5][i] = osv.zVel;
+        }
+
+        final Matrix A = Maths.createVandermondeMatrix(timeArray, polyDegree);
+        final double[] v = new double[6];
+        for (int c = 0; c < 6; c++) {
+            v[c] = Maths.polyVal(utc - t0, Maths.polyFit(A, valueArrays[c]));
+        }
+        return new Orbits.OrbitVector(utc, v[0], v[1], v[2], v[3], v[4], v[5]);
+    }
+
+    @Test
+    public void testMatchesFitPerQuery() {
+        final List<Orbits.OrbitVector> osvList = createOrbit(200);
+        final double tN = osvList.get(osvList.size() - 1).utcMJD;
+
+        for (int polyDegree : new int[]{3, 4}) {
+            final OrbitInterpolator interpolator = new OrbitInterpolator(osvList, polyDegree);
+            for (double utc = T0 - 0.1 * INTERVAL; utc <= tN + 0.1 * INTERVAL; utc += 0.37 * INTERVAL) {
+                final Orbits.OrbitVector expected = fitPerQuery(osvList, polyDegree, utc);
+                final Orbits.OrbitVector actual = interpolator.getOrbitData(utc);
+                assertEquals(expected.xPos, actual.xPos, 1e-6);
+                assertEquals(expected.yPos, actual.yPos, 1e-6);
+                assertEquals(expected.zPos, actual.zPos, 1e-6);
+                assertEquals(expected.xVel, actual.xVel, 1e-9);
+                assertEquals(expected.yVel, actual.yVel, 1e-9);
+                assertEquals(expected.zVel, actual.zVel, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testStateVectorsAreReproduced() {
+        final List<Orbits.OrbitVector> osvList = createOrbit(50);
+        final OrbitInterpolator interpolator = new OrbitInterpolator(osvList, 3);
+
+        for (Orbits.OrbitVector osv : osvList) {
+            final Orbits.OrbitVector orbitData = interpolator.getOrbitData(osv.utcMJD);
+            assertEquals(osv.xPos, orbitData.xPos, 1e-3);
+            assertEquals(osv.yPos, orbitData.yPos, 1e-3);
+            assertEquals(osv.zPos, orbitData.zPos, 1e-3);
+            assertEquals(osv.xVel, orbitData.xVel, 1e-6);
+        }
+    }
+
+    @Test
+    public void testWindowStart() {
+        final List<Orbits.OrbitVector> osvList = createOrbit(20);
+        final OrbitInterpolator interpolator = new OrbitInterpolator(osvList, 4);
+
+        assertEquals(0, interpolator.getWindowStart(T0 - 100.0));
+        assertEquals(0, interpolator.getWindowStart(T0 + 1.5 * INTERVAL));
+        assertEquals(8, interpolator.getWindowStart(T0 + 9.5 * INTERVAL));
+        // an odd number of vectors per window stays within the orbit at the end
+        assertEquals(15, interpolator.getWindowStart(T0 + 18.5 * INTERVAL));
+        assertEquals(15, interpolator.getWindowStart(T0 + 100.0));
+    }
+}
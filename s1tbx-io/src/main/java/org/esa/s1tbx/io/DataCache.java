@@ -1,31 +1,44 @@
 package org.esa.s1tbx.io;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
 import org.esa.s1tbx.commons.io.ImageIOFile;
+import org.esa.snap.runtime.Config;
 
 import java.awt.*;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Cache of decoded tile data of one product reader, bounded by the number of bytes held.
+ * The size in MB can be set with the property s1tbx.readers.dataCacheSizeMB.
+ *
  * Created by lveci on 20/05/2014.
  */
 public class DataCache {
 
-    private final LoadingCache<DataKey, Data> cache;
+    private static final String CACHE_SIZE_PROPERTY = "s1tbx.readers.dataCacheSizeMB";
+    private static final long DEFAULT_CACHE_SIZE_MB = 256;
+
+    private final Cache<DataKey, Data> cache;
 
     public DataCache() {
-        cache = CacheBuilder.newBuilder().maximumSize(500).initialCapacity(500)
+        this(Config.instance().preferences().getLong(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE_MB) * 1024L * 1024L);
+    }
+
+    public DataCache(final long maxBytes) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(new Weigher<DataKey, Data>() {
+                    @Override
+                    public int weigh(DataKey key, Data value) {
+                        return value.getSizeInBytes();
+                    }
+                })
                 .expireAfterAccess(10, TimeUnit.MINUTES)
-                //.recordStats()
-                .build(new CacheLoader<DataKey, Data>() {
-                           @Override
-                           public Data load(DataKey key) throws Exception {
-                               return new Data();
-                           }
-                       }
-        );
+                .recordStats()
+                .build();
     }
 
     public long size() {
@@ -36,25 +49,59 @@ public class DataCache {
         return cache.stats().toString();
     }
 
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public double getHitRate() {
+        final CacheStats stats = cache.stats();
+        return stats.hitRate();
+    }
+
+    /**
+     * @return the cached data or null if the key is not in the cache
+     */
     public Data get(DataKey key) {
-        return cache.getUnchecked(key);
+        return cache.getIfPresent(key);
     }
 
-    public synchronized void put(DataKey key, Data value) {
+    public void put(DataKey key, Data value) {
         cache.put(key, value);
     }
 
+    public void clear() {
+        cache.invalidateAll();
+    }
+
     public static class DataKey {
         private final ImageIOFile img;
         private final Rectangle rect;
+        private final int hash;
 
         public DataKey(final ImageIOFile img, final Rectangle rect) {
             this.img = img;
             this.rect = rect;
+
+            int h = System.identityHashCode(img);
+            h = 31 * h + rect.x;
+            h = 31 * h + rect.y;
+            h = 31 * h + rect.width;
+            h = 31 * h + rect.height;
+            this.hash = h;
         }
 
         @Override
         public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DataKey)) {
+                return false;
+            }
 
             DataKey key = (DataKey) obj;
             return (rect.x == key.rect.x &&
@@ -66,7 +113,7 @@ public class DataCache {
 
         @Override
         public int hashCode() {
-            return img.hashCode();
+            return hash;
         }
 
         @Override
@@ -88,5 +135,9 @@ public class DataCache {
             this.intArray = srcArray;
             this.valid = true;
         }
+
+        int getSizeInBytes() {
+            return intArray == null ? 0 : intArray.length * Integer.BYTES;
+        }
     }
 }
@@ -28,6 +28,7 @@ import org.jdom2.Element;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -37,21 +38,23 @@ import java.util.Set;
  */
 public final class BinaryDBReader {
 
-    private final static int Skip = 0;
-    private final static int An = 1;
-    private final static int In = 2;
-    private final static int B1 = 3;
-    private final static int B4 = 4;
-    private final static int Fn = 5;
-    private final static int B2 = 6;
-    private final static int En = 7;
-    private final static int B8 = 8;
-    private final static int Debug = -1;
-
+    final static int Skip = 0;
+    final static int An = 1;
+    final static int In = 2;
+    final static int B1 = 3;
+    final static int B4 = 4;
+    final static int Fn = 5;
+    final static int B2 = 6;
+    final static int En = 7;
+    final static int B8 = 8;
+    final static int Debug = -1;
+
+    // values set by callers, and all values when in debug mode
     private final Map<String, Object> metaMap = new HashMap<>(100);
     private final Document xmlDoc;
     private final String recName;
     private final long startPos;
+    private BinaryRecordPlan.Values values;
 
     private final static boolean DEBUG_MODE = false;
 
@@ -63,9 +66,16 @@ public final class BinaryDBReader {
 
     public void assignMetadataTo(final MetadataElement elem) {
 
-        final Set<String> keys = metaMap.keySet();                           // The set of keys in the map.
+        final Set<String> keys = new LinkedHashSet<>();
+        if (values != null) {
+            for (String key : values.getNames()) {
+                keys.add(key);
+            }
+        }
+        keys.addAll(metaMap.keySet());
+
         for (final String key : keys) {
-            final Object value = metaMap.get(key);                   // Get the value for that key.
+            final Object value = get(key);                   // Get the value for that key.
             if (value == null || key.isEmpty()) continue;
 
             if (value instanceof Integer) {
@@ -83,10 +93,22 @@ public final class BinaryDBReader {
     }
 
     public void readRecord(final BinaryFileReader reader) {
+        if (DEBUG_MODE) {
+            readRecordDebug(reader);
+            return;
+        }
+
+        try {
+            values = BinaryRecordPlan.get(xmlDoc).decode(reader, recName);
+        } catch (Exception e) {
+            SystemUtils.LOG.severe(' ' + e.toString() + ':' + " reading " + recName);
+        }
+    }
+
+    private void readRecordDebug(final BinaryFileReader reader) {
         final Element root = xmlDoc.getRootElement();
 
-        if (DEBUG_MODE)
-            System.out.print("\nReading " + recName + "\n\n");
+        System.out.print("\nReading " + recName + "\n\n");
 
         final List children = root.getContent();
         for (Object aChild : children) {
@@ -110,101 +132,14 @@ public final class BinaryDBReader {
                         final String suffix = " " + l;
                         for (Object aStructChild : structChildren) {
                             if (aStructChild instanceof Element) {
-
-                                if (DEBUG_MODE) {
-                                    DecodeElementDebug(reader, metaMap, (Element) aStructChild, suffix);
-                                } else {
-                                    DecodeElement(reader, metaMap, (Element) aStructChild, suffix);
-                                }
+                                DecodeElementDebug(reader, metaMap, (Element) aStructChild, suffix);
                             }
                         }
                     }
                 }
 
-                if (DEBUG_MODE) {
-                    DecodeElementDebug(reader, metaMap, child, null);
-                } else {
-                    DecodeElement(reader, metaMap, child, null);
-                }
-            }
-        }
-
-    }
-
-    private static void DecodeElement(final BinaryFileReader reader, final Map metaMap,
-                                      final Element child, final String suffix) {
-
-        String name = "";
-        try {
-            final Attribute nameAttrib = child.getAttribute("name");
-            final Attribute typeAttrib = child.getAttribute("type");
-            final Attribute numAttrib = child.getAttribute("num");
-            if (nameAttrib != null && typeAttrib != null && numAttrib != null) {
-
-                name = nameAttrib.getValue();
-                if (suffix != null)
-                    name += suffix;
-                final int type = Integer.parseInt(typeAttrib.getValue());
-                final int num = Integer.parseInt(numAttrib.getValue());
-
-                switch (type) {
-                    case Skip: {
-                        reader.skipBytes(num); // blank
-                        break;
-                    }
-                    case An: {
-                        metaMap.put(name, reader.readAn(num));
-                        break;
-                    }
-                    case In: {
-                        metaMap.put(name, (int) reader.readIn(num));
-                        break;
-                    }
-                    case B1: {
-                        metaMap.put(name, reader.readB1());
-                        break;
-                    }
-                    case B2: {
-                        metaMap.put(name, reader.readB2());
-                        break;
-                    }
-                    case B4: {
-                        metaMap.put(name, reader.readB4());
-                        break;
-                    }
-                    case B8: {
-                        metaMap.put(name, reader.readB8());
-                        break;
-                    }
-                    case Fn: {
-                        metaMap.put(name, reader.readFn(num));
-                        break;
-                    }
-                    case En: {
-                        metaMap.put(name, reader.readEn(num));
-                        break;
-                    }
-                    case Debug: {
-                        System.out.print(" = ");
-                        for (int i = 0; i < num; ++i) {
-                            final String tmp = reader.readAn(1);
-                            if (!tmp.isEmpty() && !tmp.equals(" "))
-                                System.out.print(tmp);
-                        }
-                        System.out.println();
-                        break;
-                    }
-                    default: {
-                        throw new IllegalBinaryFormatException("Unknown type " + type, reader.getCurrentPos());
-                    }
-                }
+                DecodeElementDebug(reader, metaMap, child, null);
             }
-
-        } catch (Exception e) {
-            if (e.getCause() != null)
-                SystemUtils.LOG.severe(' ' + e.toString() + ':' + e.getCause().toString() + " for " + name);
-            else
-                SystemUtils.LOG.severe(' ' + e.toString() + ':' + " for " + name);
         }
     }
 
@@ -316,7 +251,13 @@ public final class BinaryDBReader {
     }
 
     private Object get(final String name) {
-        final Object obj = metaMap.get(name);
+        Object obj = metaMap.get(name);
+        if (obj == null && values != null) {
+            final int slot = values.getSlot(name);
+            if (slot >= 0) {
+                obj = values.getObject(slot);
+            }
+        }
         if (obj == null && DEBUG_MODE) {
             SystemUtils.LOG.info("metadata " + name + " is null");
         }
@@ -324,17 +265,32 @@ public final class BinaryDBReader {
     }
 
     public final String getAttributeString(final String name) {
-        return (String) get(name);
+        final Object obj = metaMap.get(name);
+        if (obj != null || values == null) {
+            return (String) obj;
+        }
+        final int slot = values.getSlot(name);
+        return slot < 0 ? null : values.getString(slot);
     }
 
     public final Integer getAttributeInt(final String name) {
-        Integer i = (Integer) get(name);
-        return i == null ? 0 : i;
+        final Object obj = metaMap.get(name);
+        if (obj != null || values == null) {
+            Integer i = (Integer) get(name);
+            return i == null ? 0 : i;
+        }
+        final int slot = values.getSlot(name);
+        return slot < 0 || values.getKind(slot) == BinaryRecordPlan.STRING ? 0 : (int) values.getLong(slot);
     }
 
     public final Double getAttributeDouble(final String name) {
-        Double d = (Double) get(name);
-        return d == null ? 0 : d;
+        final Object obj = metaMap.get(name);
+        if (obj != null || values == null) {
+            Double d = (Double) get(name);
+            return d == null ? 0 : d;
+        }
+        final int slot = values.getSlot(name);
+        return slot < 0 || values.getKind(slot) == BinaryRecordPlan.STRING ? 0 : values.getDouble(slot);
     }
 
     public final void set(final String name, final Object o) {
@@ -15,7 +15,10 @@
  */
 package org.esa.s1tbx.io.binary;
 
+import org.esa.s1tbx.commons.io.FileImageInputStreamExtImpl;
+
 import javax.imageio.stream.ImageInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -44,6 +47,20 @@ public final class BinaryFileReader {
         stream.setByteOrder(order);
     }
 
+    public ByteOrder getByteOrder() {
+        return stream.getByteOrder();
+    }
+
+    /**
+     * @return the file being read or null if the stream is not backed by a file
+     */
+    public File getFile() {
+        if (stream instanceof FileImageInputStreamExtImpl) {
+            return ((FileImageInputStreamExtImpl) stream).getFile();
+        }
+        return null;
+    }
+
     public void seek(final long pos) throws IOException {
         stream.seek(pos);
     }
@@ -116,6 +133,23 @@ public final class BinaryFileReader {
         stream.readFully(array, 0, array.length);
     }
 
+    /**
+     * Reads up to len bytes, stopping early only at the end of the stream
+     *
+     * @return the number of bytes read
+     */
+    public int readBytes(final byte[] array, final int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            final int n = stream.read(array, total, len - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
     public void read(final char[] array) throws IOException {
         stream.readFully(array, 0, array.length);
     }
@@ -147,7 +181,7 @@ public final class BinaryFileReader {
         return parseLong(longStr, streamPosition);
     }
 
-    private static long parseLong(String integerStr, long streamPosition) throws IllegalBinaryFormatException {
+    static long parseLong(String integerStr, long streamPosition) throws IllegalBinaryFormatException {
         long number;
         try {
             number = Long.parseLong(integerStr);
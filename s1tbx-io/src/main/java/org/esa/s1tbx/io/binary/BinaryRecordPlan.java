@@ -0,0 +1,473 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.binary;
+
+import org.esa.snap.core.util.SystemUtils;
+import org.jdom2.Attribute;
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A record definition compiled once from its XML into runs of fields with fixed byte offsets.
+ * A record is decoded by reading each run with one bulk read and decoding the fields from the buffer
+ * into primitive slots, instead of walking the XML and boxing every field into a map.
+ */
+final class BinaryRecordPlan {
+
+    static final byte MISSING = 0;
+    static final byte INT = 1;
+    static final byte SHORT = 2;
+    static final byte LONG = 3;
+    static final byte DOUBLE = 4;
+    static final byte STRING = 5;
+
+    private static final Map<Document, BinaryRecordPlan> planCache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Segment[] segments;
+    private final Map<List<Integer>, Layout> layoutMap = new ConcurrentHashMap<>();
+
+    private BinaryRecordPlan(final Segment[] segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * @param xmlDoc record definition
+     * @return the compiled plan, shared by all records of the definition
+     */
+    static BinaryRecordPlan get(final Document xmlDoc) {
+        BinaryRecordPlan plan = planCache.get(xmlDoc);
+        if (plan == null) {
+            plan = compile(xmlDoc);
+            planCache.put(xmlDoc, plan);
+        }
+        return plan;
+    }
+
+    private static BinaryRecordPlan compile(final Document xmlDoc) {
+        final List<Segment> segmentList = new ArrayList<>();
+        List<Field> run = new ArrayList<>();
+
+        for (Object content : xmlDoc.getRootElement().getContent()) {
+            if (!(content instanceof Element)) {
+                continue;
+            }
+            final Element child = (Element) content;
+            if (child.getName().equals("struct")) {
+                if (!run.isEmpty()) {
+                    segmentList.add(new Segment(run, 1, null));
+                    run = new ArrayList<>();
+                }
+                final List<Field> structFields = new ArrayList<>();
+                for (Element structChild : child.getChildren()) {
+                    addField(structFields, structChild);
+                }
+                final Attribute loopAttrib = child.getAttribute("loop");
+                if (loopAttrib != null) {
+                    segmentList.add(new Segment(structFields, 0, loopAttrib.getValue()));
+                } else {
+                    final int nloop = Integer.parseInt(child.getAttribute("nloop").getValue());
+                    segmentList.add(new Segment(structFields, nloop, null));
+                }
+            } else {
+                addField(run, child);
+            }
+        }
+        if (!run.isEmpty()) {
+            segmentList.add(new Segment(run, 1, null));
+        }
+        return new BinaryRecordPlan(segmentList.toArray(new Segment[0]));
+    }
+
+    private static void addField(final List<Field> fields, final Element elem) {
+        final Attribute nameAttrib = elem.getAttribute("name");
+        final Attribute typeAttrib = elem.getAttribute("type");
+        final Attribute numAttrib = elem.getAttribute("num");
+        if (nameAttrib != null && typeAttrib != null && numAttrib != null) {
+            fields.add(new Field(nameAttrib.getValue(), Integer.parseInt(typeAttrib.getValue()),
+                    Integer.parseInt(numAttrib.getValue())));
+        }
+    }
+
+    /**
+     * Decodes one record from the current position of the reader
+     *
+     * @param reader  positioned at the start of the record
+     * @param recName used in error messages
+     * @return the decoded values
+     */
+    Values decode(final BinaryFileReader reader, final String recName) throws IOException {
+
+        int numSlots = 0;
+        for (Segment segment : segments) {
+            if (segment.loopName == null) {
+                numSlots += segment.numValues * segment.fixedLoop;
+            }
+        }
+        final Values values = new Values(numSlots);
+        final Integer[] loops = new Integer[segments.length];
+        byte[] buf = null;
+        boolean truncated = false;
+
+        for (int s = 0; s < segments.length; ++s) {
+            final Segment segment = segments[s];
+            final int loop = segment.loopName != null ? values.getLoopCount(segment.loopName) : segment.fixedLoop;
+            loops[s] = loop;
+            if (loop <= 0 || segment.size == 0) {
+                continue;
+            }
+            if (segment.loopName != null) {
+                values.grow(segment.numValues * loop);
+            }
+
+            final int size = segment.size * loop;
+            if (buf == null || buf.length < size) {
+                buf = new byte[size];
+            }
+            final int bytesRead = reader.readBytes(buf, size);
+            if (bytesRead < size && !truncated) {
+                truncated = true;
+                SystemUtils.LOG.severe(" Unexpected end of file reading " + recName + ": expected " + size +
+                        " bytes, but only found " + bytesRead);
+            }
+            final ByteBuffer data = ByteBuffer.wrap(buf, 0, size).order(reader.getByteOrder());
+            final boolean suffixed = segment.loopName != null || segment.fixedLoop != 1;
+
+            for (int l = 0; l < loop; ++l) {
+                final int base = l * segment.size;
+                for (Field field : segment.fields) {
+                    if (field.isValue) {
+                        final int slot = values.count++;
+                        values.names[slot] = suffixed ? field.getLoopName(l + 1) : field.name;
+                        final int offset = base + field.offset;
+                        if (offset + field.size > bytesRead) {
+                            continue;
+                        }
+                        try {
+                            decodeField(field, buf, data, offset, values, slot);
+                        } catch (Exception e) {
+                            SystemUtils.LOG.severe(' ' + e.toString() + ':' + " for " + values.names[slot]);
+                        }
+                    }
+                }
+            }
+        }
+
+        values.layout = getLayout(Arrays.asList(loops), values);
+        return values;
+    }
+
+    private static void decodeField(final Field field, final byte[] buf, final ByteBuffer data, final int offset,
+                                    final Values values, final int slot) throws IllegalBinaryFormatException {
+        switch (field.type) {
+            case BinaryDBReader.An:
+                values.setString(slot, decodeAn(buf, offset, field.num));
+                break;
+            case BinaryDBReader.In:
+                values.setLong(slot, INT, (int) decodeIn(buf, offset, field.num));
+                break;
+            case BinaryDBReader.B1:
+                values.setLong(slot, INT, buf[offset] & 0xFF);
+                break;
+            case BinaryDBReader.B2:
+                values.setLong(slot, SHORT, data.getShort(offset));
+                break;
+            case BinaryDBReader.B4:
+                values.setLong(slot, INT, data.getInt(offset));
+                break;
+            case BinaryDBReader.B8:
+                values.setLong(slot, LONG, data.getLong(offset));
+                break;
+            case BinaryDBReader.Fn:
+                values.setDouble(slot, decodeFn(buf, offset, field.num));
+                break;
+            case BinaryDBReader.En:
+                values.setDouble(slot, decodeEn(buf, offset, field.num));
+                break;
+        }
+    }
+
+    static String decodeAn(final byte[] buf, final int offset, final int num) {
+        final String str = new String(buf, offset, num);
+        if (str.indexOf('\0') >= 0)
+            return str.replace('\0', ' ');
+        return str;
+    }
+
+    static long decodeIn(final byte[] buf, final int offset, final int num) throws IllegalBinaryFormatException {
+        // fast path for right aligned ascii integers
+        int i = offset;
+        final int end = offset + num;
+        while (i < end && buf[i] == ' ') {
+            ++i;
+        }
+        if (i == end) {
+            return 0;
+        }
+        boolean negative = false;
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            ++i;
+        }
+        long value = 0;
+        int digits = 0;
+        while (i < end && buf[i] >= '0' && buf[i] <= '9' && digits < 18) {
+            value = value * 10 + (buf[i] - '0');
+            ++i;
+            ++digits;
+        }
+        int j = i;
+        while (j < end && buf[j] == ' ') {
+            ++j;
+        }
+        if (digits > 0 && j == end) {
+            return negative ? -value : value;
+        }
+
+        final String longStr = decodeAn(buf, offset, num).trim();
+        if (longStr.isEmpty()) return 0;
+        return BinaryFileReader.parseLong(longStr, offset);
+    }
+
+    static double decodeFn(final byte[] buf, final int offset, final int num) throws IllegalBinaryFormatException {
+        String doubleString = decodeAn(buf, offset, num).trim();
+        if (doubleString.isEmpty()) return 0;
+        doubleString = doubleString.replace('D', 'E');
+        try {
+            return Double.parseDouble(doubleString);
+        } catch (NumberFormatException e) {
+            throw new IllegalBinaryFormatException("Not able to parse double string", offset, e);
+        }
+    }
+
+    static double decodeEn(final byte[] buf, final int offset, final int num) {
+        final String str = new String(buf, offset, num).trim();
+        if (str.isEmpty()) return 0;
+        return ByteBuffer.wrap(buf, offset, num).getDouble();
+    }
+
+    private Layout getLayout(final List<Integer> loops, final Values values) {
+        Layout layout = layoutMap.get(loops);
+        if (layout == null) {
+            final Map<String, Integer> nameMap = new HashMap<>(100);
+            for (int slot = 0; slot < values.count; ++slot) {
+                nameMap.put(values.names[slot], slot);
+            }
+            layout = new Layout(nameMap);
+            layoutMap.put(loops, layout);
+        }
+        return layout;
+    }
+
+    private static final class Field {
+        final String name;
+        final int type;
+        final int num;
+        final int size;     // bytes in the record
+        final boolean isValue;
+        int offset;
+        private volatile String[] loopNames = new String[0];
+
+        Field(final String name, final int type, final int num) {
+            this.name = name;
+            this.type = type;
+            this.isValue = type >= BinaryDBReader.An && type <= BinaryDBReader.B8;
+            if (!isValue && type != BinaryDBReader.Skip && type != BinaryDBReader.Debug) {
+                SystemUtils.LOG.severe(" Unknown type " + type + " for " + name);
+                this.num = 0;
+            } else {
+                this.num = num;
+            }
+            this.size = getSize(type, this.num);
+        }
+
+        // binary fields have the width of their type whatever num says, the definitions use num="1"
+        private static int getSize(final int type, final int num) {
+            switch (type) {
+                case BinaryDBReader.B1:
+                    return 1;
+                case BinaryDBReader.B2:
+                    return 2;
+                case BinaryDBReader.B4:
+                    return 4;
+                case BinaryDBReader.B8:
+                    return 8;
+                default:
+                    return num;
+            }
+        }
+
+        String getLoopName(final int l) {
+            String[] names = loopNames;
+            if (l >= names.length) {
+                synchronized (this) {
+                    names = loopNames;
+                    if (l >= names.length) {
+                        final String[] newNames = Arrays.copyOf(names, Math.max(l + 1, names.length * 2));
+                        for (int i = Math.max(1, names.length); i < newNames.length; ++i) {
+                            newNames[i] = name + ' ' + i;
+                        }
+                        loopNames = names = newNames;
+                    }
+                }
+            }
+            return names[l];
+        }
+    }
+
+    private static final class Segment {
+        final Field[] fields;
+        final int fixedLoop;
+        final String loopName;
+        final int size;
+        final int numValues;
+
+        Segment(final List<Field> fieldList, final int fixedLoop, final String loopName) {
+            this.fields = fieldList.toArray(new Field[0]);
+            this.fixedLoop = fixedLoop;
+            this.loopName = loopName;
+            int offset = 0, count = 0;
+            for (Field field : fields) {
+                field.offset = offset;
+                offset += field.size;
+                if (field.isValue) {
+                    ++count;
+                }
+            }
+            this.size = offset;
+            this.numValues = count;
+        }
+    }
+
+    private static final class Layout {
+        final Map<String, Integer> nameMap;
+
+        Layout(final Map<String, Integer> nameMap) {
+            this.nameMap = nameMap;
+        }
+    }
+
+    /**
+     * The decoded fields of one record
+     */
+    static final class Values {
+        private String[] names;
+        private byte[] kinds;
+        private long[] numbers;
+        private String[] strings;
+        private int count = 0;
+        private Layout layout;
+
+        private Values(final int numSlots) {
+            names = new String[numSlots];
+            kinds = new byte[numSlots];
+            numbers = new long[numSlots];
+        }
+
+        // slots of looped structs are only known once the loop count has been decoded
+        private void grow(final int extra) {
+            final int size = names.length + extra;
+            names = Arrays.copyOf(names, size);
+            kinds = Arrays.copyOf(kinds, size);
+            numbers = Arrays.copyOf(numbers, size);
+            if (strings != null) {
+                strings = Arrays.copyOf(strings, size);
+            }
+        }
+
+        private void setLong(final int slot, final byte kind, final long value) {
+            kinds[slot] = kind;
+            numbers[slot] = value;
+        }
+
+        private void setDouble(final int slot, final double value) {
+            kinds[slot] = DOUBLE;
+            numbers[slot] = Double.doubleToRawLongBits(value);
+        }
+
+        private void setString(final int slot, final String value) {
+            if (strings == null) {
+                strings = new String[names.length];
+            }
+            kinds[slot] = STRING;
+            strings[slot] = value;
+        }
+
+        private int getLoopCount(final String name) {
+            for (int slot = count - 1; slot >= 0; --slot) {
+                if (name.equals(names[slot])) {
+                    return kinds[slot] == MISSING ? 0 : (int) getDouble(slot);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return the slot of the named field or -1 if not in the record
+         */
+        int getSlot(final String name) {
+            final Integer slot = layout.nameMap.get(name);
+            return slot == null || kinds[slot] == MISSING ? -1 : slot;
+        }
+
+        Iterable<String> getNames() {
+            return layout.nameMap.keySet();
+        }
+
+        byte getKind(final int slot) {
+            return kinds[slot];
+        }
+
+        long getLong(final int slot) {
+            return kinds[slot] == DOUBLE ? (long) Double.longBitsToDouble(numbers[slot]) : numbers[slot];
+        }
+
+        double getDouble(final int slot) {
+            return kinds[slot] == DOUBLE ? Double.longBitsToDouble(numbers[slot]) : numbers[slot];
+        }
+
+        String getString(final int slot) {
+            return kinds[slot] == STRING ? strings[slot] : String.valueOf(getObject(slot));
+        }
+
+        Object getObject(final int slot) {
+            switch (kinds[slot]) {
+                case INT:
+                    return (int) numbers[slot];
+                case SHORT:
+                    return (short) numbers[slot];
+                case LONG:
+                    return numbers[slot];
+                case DOUBLE:
+                    return Double.longBitsToDouble(numbers[slot]);
+                case STRING:
+                    return strings[slot];
+                default:
+                    return null;
+            }
+        }
+    }
+}
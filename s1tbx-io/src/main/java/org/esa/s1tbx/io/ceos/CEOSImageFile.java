@@ -22,11 +22,18 @@ import org.esa.snap.core.datamodel.MetadataElement;
 import org.esa.snap.core.datamodel.ProductData;
 import org.esa.snap.engine_utilities.eo.Constants;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 
 /**
  * This class represents an image file of a CEOS product.
+ * When the image file is on disk, the lines of a tile are read with positional reads on a FileChannel
+ * so that several threads can read the same file without locking.
  *
  * @version $Revision: 1.3 $ $Date: 2012-01-10 21:22:00 $
  */
@@ -40,6 +47,9 @@ public abstract class CEOSImageFile {
     protected long startPosImageRecords = 0;
     protected int imageHeaderLength = 0;
 
+    private volatile FileChannel imageChannel = null;
+    private volatile boolean imageChannelOpened = false;
+
     public BinaryRecord getImageFileDescriptor() {
         return imageFDR;
     }
@@ -154,6 +164,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final short[] srcLine = new short[sourceWidth];
+            final LineReader lineReader = createLineReader(xpos, srcLine.length * 2, sourceOffsetY, sourceMaxY, sourceStepY);
             short[] destLine = null;
             if (sourceStepX != 1)
                 destLine = new short[destWidth];
@@ -163,9 +174,13 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
+                if (lineReader != null) {
+                    lineReader.read(y, srcLine);
+                } else {
+                    synchronized (binaryReader) {
+                        binaryReader.seek(_imageRecordLength * y + xpos);
+                        binaryReader.read(srcLine);
+                    }
                 }
 
                 // Copy source line into destination buffer
@@ -201,6 +216,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final int[] srcLine = new int[sourceWidth];
+            final LineReader lineReader = createLineReader(xpos, srcLine.length * 4, sourceOffsetY, sourceMaxY, sourceStepY);
             int[] destLine = null;
             if (sourceStepX != 1)
                 destLine = new int[destWidth];
@@ -210,9 +226,13 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
+                if (lineReader != null) {
+                    lineReader.read(y, srcLine);
+                } else {
+                    synchronized (binaryReader) {
+                        binaryReader.seek(_imageRecordLength * y + xpos);
+                        binaryReader.read(srcLine);
+                    }
                 }
 
                 // Copy source line into destination buffer
@@ -245,6 +265,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final float[] srcLine = new float[sourceWidth];
+            final LineReader lineReader = createLineReader(xpos, srcLine.length * 4, sourceOffsetY, sourceMaxY, sourceStepY);
             float[] destLine = null;
             if (sourceStepX != 1)
                 destLine = new float[destWidth];
@@ -254,9 +275,13 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
+                if (lineReader != null) {
+                    lineReader.read(y, srcLine);
+                } else {
+                    synchronized (binaryReader) {
+                        binaryReader.seek(_imageRecordLength * y + xpos);
+                        binaryReader.read(srcLine);
+                    }
                 }
 
                 // Copy source line into destination buffer
@@ -288,6 +313,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final byte[] srcLine = new byte[sourceWidth];
+            final LineReader lineReader = createLineReader(xpos, srcLine.length, sourceOffsetY, sourceMaxY, sourceStepY);
             byte[] destLine = null;
             if (sourceStepX != 1)
                 destLine = new byte[destWidth];
@@ -297,9 +323,13 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
+                if (lineReader != null) {
+                    lineReader.read(y, srcLine);
+                } else {
+                    synchronized (binaryReader) {
+                        binaryReader.seek(_imageRecordLength * y + xpos);
+                        binaryReader.read(srcLine);
+                    }
                 }
 
                 // Copy source line into destination buffer
@@ -332,6 +362,7 @@ public abstract class CEOSImageFile {
 
         try {
             final short[] srcLine = new short[sourceWidth * 2];
+            final LineReader lineReader = createLineReader(xpos, srcLine.length * 2, sourceOffsetY, sourceMaxY, sourceStepY);
             for (int y = sourceOffsetY; y <= sourceMaxY; y += sourceStepY) {
 
                 /*
@@ -359,9 +390,13 @@ public abstract class CEOSImageFile {
                 }   */
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
+                if (lineReader != null) {
+                    lineReader.read(y, srcLine);
+                } else {
+                    synchronized (binaryReader) {
+                        binaryReader.seek(_imageRecordLength * y + xpos);
+                        binaryReader.read(srcLine);
+                    }
                 }
 
                 // Copy source line into destination buffer
@@ -377,7 +412,7 @@ public abstract class CEOSImageFile {
         }
     }
 
-    public synchronized void readBandRasterDataSLCFloat(final int sourceOffsetX, final int sourceOffsetY,
+    public void readBandRasterDataSLCFloat(final int sourceOffsetX, final int sourceOffsetY,
                                            final int sourceWidth, final int sourceHeight,
                                            final int sourceStepX, final int sourceStepY,
                                            final int destWidth, final ProductData destBuffer, boolean oneOf2,
@@ -389,13 +424,18 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final float[] srcLine = new float[sourceWidth * 2];
+            final LineReader lineReader = createLineReader(xpos, srcLine.length * 4, sourceOffsetY, sourceMaxY, sourceStepY);
             final float[] destLine = new float[destWidth];
             for (int y = sourceOffsetY; y <= sourceMaxY; y += sourceStepY) {
                 // Read source line
-                //synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
-                //}
+                if (lineReader != null) {
+                    lineReader.read(y, srcLine);
+                } else {
+                    synchronized (binaryReader) {
+                        binaryReader.seek(_imageRecordLength * y + xpos);
+                        binaryReader.read(srcLine);
+                    }
+                }
 
                 // Copy source line into destination buffer
                 final int currentLineIndex = (y - sourceOffsetY) * destWidth;
@@ -423,6 +463,7 @@ public abstract class CEOSImageFile {
         pm.beginTask("Reading band...", sourceMaxY - sourceOffsetY);
         try {
             final byte[] srcLine = new byte[sourceWidth * 2];
+            final LineReader lineReader = createLineReader(xpos, srcLine.length, sourceOffsetY, sourceMaxY, sourceStepY);
             final byte[] destLine = new byte[destWidth];
             for (int y = sourceOffsetY; y <= sourceMaxY; y += sourceStepY) {
                 if (pm.isCanceled()) {
@@ -430,9 +471,13 @@ public abstract class CEOSImageFile {
                 }
 
                 // Read source line
-                synchronized (binaryReader) {
-                    binaryReader.seek(_imageRecordLength * y + xpos);
-                    binaryReader.read(srcLine);
+                if (lineReader != null) {
+                    lineReader.read(y, srcLine);
+                } else {
+                    synchronized (binaryReader) {
+                        binaryReader.seek(_imageRecordLength * y + xpos);
+                        binaryReader.read(srcLine);
+                    }
                 }
 
                 // Copy source line into destination buffer
@@ -452,6 +497,119 @@ public abstract class CEOSImageFile {
         }
     }
 
+    /**
+     * @return a lock free reader for the lines of a tile or null if the image is not backed by a file
+     */
+    private LineReader createLineReader(final long xpos, final int lineBytes, final int sourceOffsetY,
+                                        final int sourceMaxY, final int sourceStepY) {
+        final FileChannel channel = getImageChannel();
+        if (channel == null) {
+            return null;
+        }
+        return new LineReader(channel, binaryReader.getByteOrder(), _imageRecordLength, xpos, lineBytes,
+                sourceMaxY - sourceOffsetY + 1, sourceMaxY, sourceStepY);
+    }
+
+    private FileChannel getImageChannel() {
+        if (!imageChannelOpened) {
+            synchronized (this) {
+                if (!imageChannelOpened) {
+                    final File file = binaryReader.getFile();
+                    if (file != null) {
+                        try {
+                            imageChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                        } catch (IOException e) {
+                            imageChannel = null;
+                        }
+                    }
+                    imageChannelOpened = true;
+                }
+            }
+        }
+        return imageChannel;
+    }
+
+    /**
+     * Reads image lines with positional reads. With a step of one line, a chunk of consecutive records
+     * is fetched in one call and the samples of each line decoded from it in place, skipping the prefix
+     * and suffix bytes of the records.
+     */
+    private static final class LineReader {
+
+        private static final int MAX_CHUNK_BYTES = 8 * 1024 * 1024;
+
+        private final FileChannel channel;
+        private final long recordLength;
+        private final long xpos;
+        private final int lineBytes;
+        private final int maxY;
+        private final int chunkLines;
+        private final ByteBuffer buffer;
+        private int chunkStart = -1;
+        private int chunkEnd = -1;
+
+        LineReader(final FileChannel channel, final ByteOrder byteOrder, final long recordLength, final long xpos,
+                   final int lineBytes, final int numLines, final int maxY, final int stepY) {
+            this.channel = channel;
+            this.recordLength = recordLength;
+            this.xpos = xpos;
+            this.lineBytes = lineBytes;
+            this.maxY = maxY;
+            if (stepY == 1 && recordLength >= lineBytes) {
+                chunkLines = (int) Math.max(1, Math.min(numLines, (MAX_CHUNK_BYTES - lineBytes) / recordLength + 1));
+            } else {
+                chunkLines = 1;
+            }
+            buffer = ByteBuffer.allocate((int) ((chunkLines - 1) * recordLength + lineBytes)).order(byteOrder);
+        }
+
+        private int position(final int y) throws IOException {
+            if (y < chunkStart || y > chunkEnd) {
+                chunkStart = y;
+                chunkEnd = Math.min(y + chunkLines - 1, maxY);
+                buffer.clear();
+                buffer.limit((int) ((chunkEnd - chunkStart) * recordLength + lineBytes));
+                long pos = recordLength * y + xpos;
+                while (buffer.hasRemaining()) {
+                    final int n = channel.read(buffer, pos);
+                    if (n < 0) {
+                        throw new IOException("Unexpected end of image file");
+                    }
+                    pos += n;
+                }
+            }
+            return (int) ((y - chunkStart) * recordLength);
+        }
+
+        void read(final int y, final short[] line) throws IOException {
+            final int offset = position(y);
+            for (int i = 0; i < line.length; ++i) {
+                line[i] = buffer.getShort(offset + (i << 1));
+            }
+        }
+
+        void read(final int y, final int[] line) throws IOException {
+            final int offset = position(y);
+            for (int i = 0; i < line.length; ++i) {
+                line[i] = buffer.getInt(offset + (i << 2));
+            }
+        }
+
+        void read(final int y, final float[] line) throws IOException {
+            final int offset = position(y);
+            for (int i = 0; i < line.length; ++i) {
+                line[i] = buffer.getFloat(offset + (i << 2));
+            }
+        }
+
+        void read(final int y, final byte[] line) throws IOException {
+            final int offset = position(y);
+            for (int i = 0; i < line.length; ++i) {
+                line[i] = buffer.get(offset + i);
+            }
+        }
+    }
+
     private static void copyLine(final short[] srcLine, final short[] destLine, final int sourceStepX) {
         for (int x = 0, i = 0; x < destLine.length; ++x, i += sourceStepX) {
             destLine[x] = srcLine[i];
@@ -534,6 +692,13 @@ public abstract class CEOSImageFile {
     }
 
     public void close() throws IOException {
+        synchronized (this) {
+            if (imageChannel != null) {
+                imageChannel.close();
+                imageChannel = null;
+            }
+            imageChannelOpened = true;
+        }
         binaryReader.close();
         binaryReader = null;
     }
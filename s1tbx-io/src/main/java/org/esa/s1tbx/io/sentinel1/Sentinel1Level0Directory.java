@@ -45,6 +45,7 @@ public class Sentinel1Level0Directory extends XMLProductDirectory implements Sen
 
     private final transient Map<String, String> imgBandMetadataMap = new HashMap<>(4);
     private String acqMode = "";
+    private Map<String, Sentinel1Level0RecordTable> recordTables = new HashMap<>();
 
     public Sentinel1Level0Directory(final File headerFile) {
         super(headerFile);
@@ -572,6 +573,14 @@ public class Sentinel1Level0Directory extends XMLProductDirectory implements Sen
         final Sentinel1Level0Reader reader = new Sentinel1Level0Reader(getBaseDir(),
                                                                        AbstractMetadata.addOriginalProductMetadata(root));
         reader.readData();
+        recordTables = reader.getRecordTables();
+    }
+
+    /**
+     * @return the annotation and index records by component name
+     */
+    public Map<String, Sentinel1Level0RecordTable> getRecordTables() {
+        return recordTables;
     }
 
     private void addGeoCodingForLevel0Products(final Product product) {
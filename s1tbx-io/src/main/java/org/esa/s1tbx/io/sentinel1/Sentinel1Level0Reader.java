@@ -15,28 +15,25 @@
  */
 package org.esa.s1tbx.io.sentinel1;
 
-import org.esa.s1tbx.commons.io.FileImageInputStreamExtImpl;
-import org.esa.s1tbx.io.binary.BinaryFileReader;
-import org.esa.s1tbx.io.binary.IllegalBinaryFormatException;
 import org.esa.snap.core.datamodel.MetadataAttribute;
 import org.esa.snap.core.datamodel.MetadataElement;
 import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.runtime.Config;
 import org.w3c.dom.Document;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-import javax.imageio.stream.ImageInputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
 import java.io.IOException;
-import java.math.BigInteger;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * TBD
@@ -89,6 +86,10 @@ public class Sentinel1Level0Reader {
     private final String BASE_ATTRIBUTE = "base";
     private final String UNIT_ATTRIBUTE = "unit";
 
+    // When set, records are kept only in the record tables and not added to the metadata
+    private final static boolean columnarRecords =
+            Config.instance().preferences().getBoolean("s1tbx.readers.level0ColumnarRecords", false);
+
     private final class DataElement {
 
         private final String name; // content of attribute "name"
@@ -124,14 +125,16 @@ public class Sentinel1Level0Reader {
 
     private class DataComponent {
 
-        private final BinaryFileReader reader;
+        private final File file;
+        private final String name;
         private final ArrayList<DataElement> elemList;
         private final MetadataElement parentMetadataElem;
         private final long numRecords;
 
-        DataComponent(final BinaryFileReader reader, final ArrayList<DataElement> elemList, final MetadataElement parentMetadataElem, final long numRecords) {
+        DataComponent(final File file, final String name, final ArrayList<DataElement> elemList, final MetadataElement parentMetadataElem, final long numRecords) {
 
-            this.reader = reader;
+            this.file = file;
+            this.name = name;
             this.elemList = elemList;
             this.parentMetadataElem = parentMetadataElem;
             this.numRecords = numRecords;
@@ -139,6 +142,7 @@ public class Sentinel1Level0Reader {
     }
 
     private ArrayList<DataComponent> dataComponents = new ArrayList<>();
+    private final Map<String, Sentinel1Level0RecordTable> recordTables = new LinkedHashMap<>();
 
     public Sentinel1Level0Reader(final File baseDir, final MetadataElement originalProductMetadata) {
 
@@ -199,7 +203,7 @@ public class Sentinel1Level0Reader {
 
             if (dataFilename.contains(ANNOT_PREFIX) || dataFilename.contains(INDEX_PREFIX)) {
 
-                final long numRecs = createBinaryReader(baseDir, dataFilename, recordElem);
+                final long numRecs = createDataComponent(baseDir, dataFilename, componentElem.getName(), recordElem);
                 numRecsAttr.getData().setElemUInt(numRecs);
             }
 
@@ -209,40 +213,24 @@ public class Sentinel1Level0Reader {
 
     }
 
-    private long createBinaryReader(final File baseDir, final String binDataFilename, MetadataElement metadataElement) {
+    private long createDataComponent(final File baseDir, final String binDataFilename, final String componentName,
+                                     final MetadataElement metadataElement) {
 
         final File binDataFile = new File(baseDir.getAbsolutePath() + binDataFilename);
 
         long numRecs = 0;
 
-        try {
-            ImageInputStream imageInputStream = FileImageInputStreamExtImpl.createInputStream(binDataFile);
-
-            final BinaryFileReader binaryReader = new BinaryFileReader(imageInputStream);
-
-            // According to Product Specs, binary data is stored in Big Endian format.
-            binaryReader.setByteOrder(ByteOrder.BIG_ENDIAN);
-
-            DataComponent dataComponent = null;
+        final long filesize = binDataFile.length(); // bytes
 
-            final long filesize = binDataFile.length(); // bytes
-
-            if (binDataFilename.contains(ANNOT_PREFIX)) {
-
-                numRecs = filesize / getTotalNumberOfBytes(annotElemList);
-                dataComponent = new DataComponent(binaryReader, annotElemList, metadataElement, numRecs);
-
-            } else if (binDataFilename.contains(INDEX_PREFIX)) {
-
-                numRecs = filesize / getTotalNumberOfBytes(indexElemList);
-                dataComponent = new DataComponent(binaryReader, indexElemList, metadataElement, numRecs);
-            }
+        if (binDataFilename.contains(ANNOT_PREFIX)) {
 
-            dataComponents.add(dataComponent);
+            numRecs = filesize / getTotalNumberOfBytes(annotElemList);
+            dataComponents.add(new DataComponent(binDataFile, componentName, annotElemList, metadataElement, numRecs));
 
-        } catch (IOException e) {
+        } else if (binDataFilename.contains(INDEX_PREFIX)) {
 
-            System.out.println("Sentinel1Level0Reader.createBinaryReader: IOException " + e.getMessage());
+            numRecs = filesize / getTotalNumberOfBytes(indexElemList);
+            dataComponents.add(new DataComponent(binDataFile, componentName, indexElemList, metadataElement, numRecs));
         }
 
         return numRecs;
@@ -596,151 +584,76 @@ public class Sentinel1Level0Reader {
         }
     }
 
-    private byte readOneBinaryElement(final BinaryFileReader reader,
-                                      final DataElement elem,
-                                      final DataElement prevElem,
-                                      final byte prevByte,
-                                      MetadataElement parentMetadataElem) {
-
-        //System.out.println("Sentinel1Level0Reader.readOneBinaryElement: read " + elem.name + " " + elem.baseType);
+    /**
+     * @return the decoded records of each annotation and index component by component name, available after readData
+     */
+    public Map<String, Sentinel1Level0RecordTable> getRecordTables() {
+        return recordTables;
+    }
 
-        byte lastByteRead = 0;
+    private Sentinel1Level0RecordTable.Layout createLayout(final ArrayList<DataElement> elemList) {
 
-        try {
-            switch (elem.baseType) {
-                case BOOLEAN_TAG_NAME:
-                case UNSIGNED_BYTE_TAG_NAME: {
-                    final int val = reader.readUB1();
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (unsigned byte); pos = " + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_UINT8);
-                    ProductData productData = attr.getData();
-                    productData.setElemInt(val);
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                case UNSIGNED_SHORT_TAG_NAME: {
-                    final int val = reader.readUB2();
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (unsigned short); pos = " + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_UINT16);
-                    ProductData productData = attr.getData();
-                    productData.setElemInt(val);
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                case UNSIGNED_INT_TAG_NAME: {
-                    final long val = getUnsignedInt(reader.readB4());
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (unsigned int); pos = " + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_UINT32);
-                    ProductData productData = attr.getData();
-                    productData.setElemUInt(val);
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                case UNSIGNED_LONG_TAG_NAME: {
-                    final byte[] bytes = new byte[8];
-                    reader.read(bytes);
-                    final BigInteger val = new BigInteger(bytes);
-                    final String valStr = String.valueOf(val);
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (unsigned long);  pos = " + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_ASCII);
-                    ProductData productData = attr.getData();
-                    productData.setElems(valStr);
-                    parentMetadataElem.addAttribute(attr);
-                    // To get back the unsigned long value, one can get the String back and create a BigInteger with it.
-                    // Constructor of BigInteger takes a String.
-                }
-                break;
-                case DOUBLE_TAG_NAME: {
-                    final double val = (double) reader.readB8();
-                    //System.out.println(elem.name + " = " + val + "; " + elem.baseType + " (double); pos" + reader.getCurrentPos());
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_FLOAT64);
-                    ProductData productData = attr.getData();
-                    productData.setElemDouble(val);
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                case BIT_BASE_TYPE: {
-                    if (prevElem == null || elem.startBit == 0) {
-                        final byte[] oneByte = new byte[1];
-                        reader.read(oneByte);
-                        lastByteRead = oneByte[0];
-                        //System.out.println(elem.name + " = "  + Integer.toBinaryString(getInteger(lastByteRead)) + "; " + elem.baseType + " (unsigned int); pos = " + reader.getCurrentPos());
-                    } else {
-                        lastByteRead = prevByte;
-                    }
+        final Sentinel1Level0RecordTable.Layout layout = new Sentinel1Level0RecordTable.Layout();
 
-                    final byte val = extract(lastByteRead, elem.startBit, elem.numBytes);
+        for (DataElement elem : elemList) {
 
-                    MetadataAttribute attr = new MetadataAttribute(elem.name, ProductData.TYPE_UINT8);
-                    ProductData productData = attr.getData();
-                    productData.setElemInt(getInteger(val));
-                    parentMetadataElem.addAttribute(attr);
-                }
-                break;
-                default: {
-                    System.out.println("Sentinel1Level0Reader.readOneBinaryElement: ERROR Unknown baseType = " + elem.baseType);
+            for (int j = 0; j < elem.numOccurrences; j++) {
+                switch (elem.baseType) {
+                    case BOOLEAN_TAG_NAME:
+                    case UNSIGNED_BYTE_TAG_NAME:
+                        layout.addField(elem.name, Sentinel1Level0RecordTable.Type.UINT8);
+                        break;
+                    case UNSIGNED_SHORT_TAG_NAME:
+                        layout.addField(elem.name, Sentinel1Level0RecordTable.Type.UINT16);
+                        break;
+                    case UNSIGNED_INT_TAG_NAME:
+                        layout.addField(elem.name, Sentinel1Level0RecordTable.Type.UINT32);
+                        break;
+                    case UNSIGNED_LONG_TAG_NAME:
+                        layout.addField(elem.name, Sentinel1Level0RecordTable.Type.ULONG);
+                        break;
+                    case DOUBLE_TAG_NAME:
+                        layout.addField(elem.name, Sentinel1Level0RecordTable.Type.DOUBLE);
+                        break;
+                    case BIT_BASE_TYPE:
+                        layout.addBits(elem.name, elem.startBit, elem.numBytes);
+                        break;
+                    default: {
+                        System.out.println("Sentinel1Level0Reader.createLayout: ERROR Unknown baseType = " + elem.baseType);
+                    }
+                    break;
                 }
-                break;
             }
-
-        } catch (IOException e) {
-
-            System.out.println("Sentinel1Level0Reader.readOneBinaryElement: IOException " + e.getMessage());
-
-        } catch (IllegalBinaryFormatException e) {
-
-            System.out.println("Sentinel1Level0Reader.readOneBinaryElement: IllegalBinaryFormatException " + e.getMessage());
         }
 
-        return lastByteRead;
+        return layout;
     }
 
     private void readBinaryData(DataComponent dataComponent) {
 
-        final BinaryFileReader reader = dataComponent.reader;
-        final ArrayList<DataElement> elemList = dataComponent.elemList;
         final MetadataElement parentMetadataElem = dataComponent.parentMetadataElem;
 
-        for (long i = 0; i < dataComponent.numRecords; i++) {
-
-            final String parentName = parentMetadataElem.getName();
-            final MetadataElement recMetaElem = new MetadataElement(parentName.substring(0, parentName.length() - 1) + i);
-            parentMetadataElem.addElement(recMetaElem);
-            /*
-            try {
-                System.out.println("readBinaryData: file pos = " + reader.getCurrentPos());
-            } catch (IOException e) {
-                System.out.println("readBinaryData: file pos = ERROR " + e.getMessage());
-            }
-            */
-            DataElement prevDataElem = null;
-            byte prevByte = 0;
-
-            for (DataElement elem : elemList) {
+        final Sentinel1Level0RecordTable table;
+        try {
+            table = Sentinel1Level0RecordTable.read(dataComponent.file, createLayout(dataComponent.elemList),
+                                                    dataComponent.numRecords);
+        } catch (IOException e) {
 
-                for (int j = 0; j < elem.numOccurrences; j++) {
-                    prevByte = readOneBinaryElement(reader, elem, prevDataElem, prevByte, recMetaElem);
-                    prevDataElem = elem;
-                }
-            }
+            System.out.println("Sentinel1Level0Reader.readBinaryData: IOException " + e.getMessage());
+            return;
         }
-    }
+        recordTables.put(dataComponent.name, table);
 
-    private static long getUnsignedInt(final int x) {
-        return x & 0x00000000ffffffffL;
-    }
-
-    private static int getInteger(final byte b) {
-        return b & 0xFF;
-    }
-
-    private static byte extract(final byte b, final int startBit, final int numBits) {
+        if (columnarRecords) {
+            return;
+        }
 
-        // Assume int is 32-bit, byte is 8-bit
-        int result = getInteger(b) << startBit + 24;
-        result = result >>> (32 - numBits);
+        final String parentName = parentMetadataElem.getName();
+        final String recName = parentName.substring(0, parentName.length() - 1);
+        for (int i = 0; i < table.getNumRecords(); i++) {
 
-        return (byte) result;
+            parentMetadataElem.addElement(table.createRecordElement(recName + i, i));
+        }
     }
 
     private static String extractPolarization(String filename) {
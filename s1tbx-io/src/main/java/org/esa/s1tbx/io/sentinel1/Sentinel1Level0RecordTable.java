@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.sentinel1;
+
+import org.esa.snap.core.datamodel.MetadataAttribute;
+import org.esa.snap.core.datamodel.MetadataElement;
+import org.esa.snap.core.datamodel.ProductData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fixed size records of a Sentinel-1 Level-0 annotation or index file, decoded column by column
+ * from a memory mapped file into one primitive array per field.
+ * Record MetadataElements are only created when asked for.
+ */
+public final class Sentinel1Level0RecordTable {
+
+    public enum Type {
+        UINT8, UINT16, UINT32, ULONG, DOUBLE, BITS
+    }
+
+    private final Column[] columns;
+    private final int numRecords;
+
+    private Sentinel1Level0RecordTable(final Column[] columns, final int numRecords) {
+        this.columns = columns;
+        this.numRecords = numRecords;
+    }
+
+    /**
+     * Describes the fields of one record in the order they are stored
+     */
+    public static final class Layout {
+
+        private final List<Column> columnList = new ArrayList<>();
+        private int recordLength = 0;
+
+        /**
+         * Adds a whole byte field. Its size is given by the type.
+         */
+        public void addField(final String name, final Type type) {
+            if (type == Type.BITS) {
+                throw new IllegalArgumentException("use addBits for " + name);
+            }
+            columnList.add(new Column(name, type, recordLength, 0, 0));
+            recordLength += getSize(type);
+        }
+
+        /**
+         * Adds a bit field.
+         *
+         * @param startBit first bit of the field within its byte, counting from the most significant bit.
+         *                 A start bit of 0 begins a new byte.
+         */
+        public void addBits(final String name, final int startBit, final int numBits) {
+            if (startBit == 0 || recordLength == 0) {
+                ++recordLength;
+            }
+            columnList.add(new Column(name, Type.BITS, recordLength - 1, startBit, numBits));
+        }
+
+        public int getRecordLength() {
+            return recordLength;
+        }
+
+        private static int getSize(final Type type) {
+            switch (type) {
+                case UINT8:
+                    return 1;
+                case UINT16:
+                    return 2;
+                case UINT32:
+                    return 4;
+                default:
+                    return 8;
+            }
+        }
+    }
+
+    private static final class Column {
+        final String name;
+        final Type type;
+        final int offset;
+        final int startBit;
+        final int numBits;
+
+        byte[] bytes;
+        short[] shorts;
+        int[] ints;
+        long[] longs;
+        double[] doubles;
+
+        Column(final String name, final Type type, final int offset, final int startBit, final int numBits) {
+            this.name = name;
+            this.type = type;
+            this.offset = offset;
+            this.startBit = startBit;
+            this.numBits = numBits;
+        }
+
+        Column allocate(final int numRecords) {
+            final Column column = new Column(name, type, offset, startBit, numBits);
+            switch (type) {
+                case UINT8:
+                case BITS:
+                    column.bytes = new byte[numRecords];
+                    break;
+                case UINT16:
+                    column.shorts = new short[numRecords];
+                    break;
+                case UINT32:
+                    column.ints = new int[numRecords];
+                    break;
+                case ULONG:
+                    column.longs = new long[numRecords];
+                    break;
+                case DOUBLE:
+                    column.doubles = new double[numRecords];
+                    break;
+            }
+            return column;
+        }
+
+        void decode(final MappedByteBuffer buffer, final int pos, final int rec) {
+            switch (type) {
+                case UINT8:
+                    bytes[rec] = buffer.get(pos + offset);
+                    break;
+                case BITS:
+                    bytes[rec] = extract(buffer.get(pos + offset), startBit, numBits);
+                    break;
+                case UINT16:
+                    shorts[rec] = buffer.getShort(pos + offset);
+                    break;
+                case UINT32:
+                    ints[rec] = buffer.getInt(pos + offset);
+                    break;
+                case ULONG:
+                    longs[rec] = buffer.getLong(pos + offset);
+                    break;
+                case DOUBLE:
+                    doubles[rec] = (double) buffer.getLong(pos + offset);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads all whole records of a file
+     *
+     * @param file       the annotation or index file
+     * @param layout     the fields of one record
+     * @param numRecords the number of records to read
+     * @return the decoded table
+     * @throws IOException if the file can not be read
+     */
+    public static Sentinel1Level0RecordTable read(final File file, final Layout layout, final long numRecords)
+            throws IOException {
+
+        final int recordLength = layout.getRecordLength();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long availableRecords = recordLength == 0 ? 0 : channel.size() / recordLength;
+            final long n = Math.min(numRecords, availableRecords);
+            if (n > Integer.MAX_VALUE) {
+                throw new IOException("Too many records in " + file.getName());
+            }
+            final int total = (int) n;
+
+            final Column[] columns = new Column[layout.columnList.size()];
+            for (int c = 0; c < columns.length; ++c) {
+                columns[c] = layout.columnList.get(c).allocate(total);
+            }
+
+            // map the file in windows of whole records to stay within the 2GB limit of a mapping
+            final int recordsPerWindow = Math.max(1, Integer.MAX_VALUE / Math.max(1, recordLength));
+            for (int first = 0; first < total; first += recordsPerWindow) {
+                final int count = Math.min(recordsPerWindow, total - first);
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        (long) first * recordLength, (long) count * recordLength);
+                // According to Product Specs, binary data is stored in Big Endian format.
+                buffer.order(ByteOrder.BIG_ENDIAN);
+
+                for (Column column : columns) {
+                    for (int r = 0, pos = 0; r < count; ++r, pos += recordLength) {
+                        column.decode(buffer, pos, first + r);
+                    }
+                }
+            }
+            return new Sentinel1Level0RecordTable(columns, total);
+        }
+    }
+
+    public int getNumRecords() {
+        return numRecords;
+    }
+
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    public String getColumnName(final int column) {
+        return columns[column].name;
+    }
+
+    public Type getColumnType(final int column) {
+        return columns[column].type;
+    }
+
+    /**
+     * @return the first column with the name or -1 if not found
+     */
+    public int getColumnIndex(final String name) {
+        for (int c = 0; c < columns.length; ++c) {
+            if (columns[c].name.equals(name)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the unsigned value of an integer column. Unsigned longs are returned as their bit pattern.
+     */
+    public long getLong(final int column, final int record) {
+        final Column col = columns[column];
+        switch (col.type) {
+            case UINT8:
+            case BITS:
+                return col.bytes[record] & 0xFF;
+            case UINT16:
+                return col.shorts[record] & 0xFFFF;
+            case UINT32:
+                return col.ints[record] & 0xFFFFFFFFL;
+            case ULONG:
+                return col.longs[record];
+            default:
+                return (long) col.doubles[record];
+        }
+    }
+
+    public double getDouble(final int column, final int record) {
+        final Column col = columns[column];
+        return col.type == Type.DOUBLE ? col.doubles[record] : getLong(column, record);
+    }
+
+    /**
+     * Creates the metadata of one record
+     *
+     * @param name   name of the new element
+     * @param record index of the record
+     * @return an element holding one attribute per field
+     */
+    public MetadataElement createRecordElement(final String name, final int record) {
+        final MetadataElement elem = new MetadataElement(name);
+        for (int c = 0; c < columns.length; ++c) {
+            final Column col = columns[c];
+            final MetadataAttribute attr;
+            switch (col.type) {
+                case UINT16:
+                    attr = new MetadataAttribute(col.name, ProductData.TYPE_UINT16);
+                    attr.getData().setElemInt((int) getLong(c, record));
+                    break;
+                case UINT32:
+                    attr = new MetadataAttribute(col.name, ProductData.TYPE_UINT32);
+                    attr.getData().setElemUInt(getLong(c, record));
+                    break;
+                case ULONG:
+                    // To get back the unsigned long value, one can get the String back and create a BigInteger with it.
+                    attr = new MetadataAttribute(col.name, ProductData.TYPE_ASCII);
+                    attr.getData().setElems(String.valueOf(col.longs[record]));
+                    break;
+                case DOUBLE:
+                    attr = new MetadataAttribute(col.name, ProductData.TYPE_FLOAT64);
+                    attr.getData().setElemDouble(col.doubles[record]);
+                    break;
+                default:
+                    attr = new MetadataAttribute(col.name, ProductData.TYPE_UINT8);
+                    attr.getData().setElemInt((int) getLong(c, record));
+                    break;
+            }
+            elem.addAttribute(attr);
+        }
+        return elem;
+    }
+
+    private static byte extract(final byte b, final int startBit, final int numBits) {
+
+        // Assume int is 32-bit, byte is 8-bit
+        int result = (b & 0xFF) << startBit + 24;
+        result = result >>> (32 - numBits);
+
+        return (byte) result;
+    }
+}
@@ -19,6 +19,7 @@ import org.esa.s1tbx.commons.io.ImageIOFile;
 import org.esa.s1tbx.commons.io.JSONProductDirectory;
 import org.esa.s1tbx.commons.io.SARReader;
 import org.esa.s1tbx.commons.io.XMLProductDirectory;
+import org.esa.s1tbx.commons.io.ZipEntryImageInputStream;
 import org.esa.s1tbx.io.geotiffxml.GeoTiffUtils;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.GeoCoding;
@@ -39,11 +40,13 @@ import org.esa.snap.engine_utilities.datamodel.metadata.AbstractMetadataIO;
 import org.esa.snap.engine_utilities.eo.Constants;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.ReaderUtils;
+import org.esa.snap.runtime.Config;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 
+import javax.imageio.ImageIO;
 import javax.imageio.stream.FileCacheImageInputStream;
 import javax.imageio.stream.ImageInputStream;
 import java.awt.Dimension;
@@ -62,9 +65,12 @@ public class Sentinel1Level1Directory extends XMLProductDirectory implements Sen
 
     private final Map<Band, TiePointGeoCoding> bandGeocodingMap = new HashMap<>(5);
     private final transient Map<String, String> imgBandMetadataMap = new HashMap<>(4);
+    private final transient Map<ImageIOFile, Sentinel1TiffStripReader> stripReaderMap = new HashMap<>(4);
     private String acqMode = "";
 
     private final static Double NoDataValue = 0.0;//-9999.0;
+    private final static boolean useTiffStripReader =
+            Config.instance().preferences().getBoolean("s1tbx.readers.useTiffStripReader", true);
 
     public Sentinel1Level1Directory(final File inputFile) {
         super(inputFile);
@@ -83,6 +89,39 @@ public class Sentinel1Level1Directory extends XMLProductDirectory implements Sen
         if ((name.endsWith("tiff"))) {
             try {
                 final Dimension bandDimensions = getBandDimensions(newRoot, imgBandMetadataMap.get(name));
+                if (!isCompressed()) {
+                    final File imgFile = getFile(imgPath);
+                    if (imgFile.length() > 0) {
+                        final ImageInputStream imgStream = ImageIO.createImageInputStream(imgFile);
+                        final ImageIOFile img = new ImageIOFile(name, imgStream, GeoTiffUtils.getTiffIIOReader(imgStream),
+                                1, 1, ProductData.TYPE_INT32, productInputFile, imgFile);
+                        bandImageFileMap.put(img.getName(), img);
+
+                        if (useTiffStripReader) {
+                            final Sentinel1TiffStripReader stripReader = Sentinel1TiffStripReader.create(imgFile);
+                            if (stripReader != null) {
+                                stripReaderMap.put(img, stripReader);
+                            }
+                        }
+                    }
+                    return;
+                }
+                // ESA zips store the measurement tiffs uncompressed so they can be read in place
+                final ZipEntryImageInputStream zipStream = ZipEntryImageInputStream.create(getBaseDir(), imgPath);
+                if (zipStream != null) {
+                    final ImageIOFile img = new ImageIOFile(name, zipStream, GeoTiffUtils.getTiffIIOReader(zipStream),
+                            1, 1, ProductData.TYPE_INT32, productInputFile);
+                    bandImageFileMap.put(img.getName(), img);
+
+                    if (useTiffStripReader) {
+                        final Sentinel1TiffStripReader stripReader =
+                                Sentinel1TiffStripReader.create(getBaseDir(), zipStream.getDataOffset());
+                        if (stripReader != null) {
+                            stripReaderMap.put(img, stripReader);
+                        }
+                    }
+                    return;
+                }
                 final InputStream inStream = getInputStream(imgPath);
                 if(inStream.available() > 0) {
                     final ImageInputStream imgStream = createImageInputStream(inStream, bandDimensions, isSLC());
@@ -97,6 +136,22 @@ public class Sentinel1Level1Directory extends XMLProductDirectory implements Sen
         }
     }
 
+    /**
+     * @return the direct strip reader of an uncompressed measurement file or null if the image must be read with ImageIO
+     */
+    public Sentinel1TiffStripReader getStripReader(final ImageIOFile img) {
+        return stripReaderMap.get(img);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Sentinel1TiffStripReader stripReader : stripReaderMap.values()) {
+            stripReader.close();
+        }
+        stripReaderMap.clear();
+        super.close();
+    }
+
     public static ImageInputStream createImageInputStream(final InputStream inStream, final Dimension bandDimensions,
                                                           final boolean isSLC) throws IOException {
         final long maxMemory = Runtime.getRuntime().maxMemory() / 1024 / 1024;
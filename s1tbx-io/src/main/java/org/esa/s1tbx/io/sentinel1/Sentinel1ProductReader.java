@@ -30,7 +30,6 @@ import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import java.awt.Rectangle;
 import java.awt.image.Raster;
-import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.io.File;
 import java.io.IOException;
@@ -154,6 +153,14 @@ public class Sentinel1ProductReader extends SARReader {
 
         final ImageIOFile.BandInfo bandInfo = dataDir.getBandInfo(destBand);
         if (bandInfo != null && bandInfo.img != null) {
+            if (sourceStepX == 1 && sourceStepY == 1 && dataDir instanceof Sentinel1Level1Directory) {
+                final Sentinel1TiffStripReader stripReader = ((Sentinel1Level1Directory) dataDir).getStripReader(bandInfo.img);
+                if (stripReader != null && stripReader.isComplex() == dataDir.isSLC() &&
+                        stripReader.readRect(destOffsetX, destOffsetY, destWidth, destHeight, bandInfo.isImaginary, destBuffer)) {
+                    return;
+                }
+            }
+
             if (dataDir.isSLC()) {
 
                 readSLCRasterBand(sourceOffsetX, sourceOffsetY, sourceStepX, sourceStepY,
@@ -257,7 +264,7 @@ public class Sentinel1ProductReader extends SARReader {
         }
     }
 
-    private synchronized DataCache.Data readRect(final DataCache.DataKey datakey, final ImageIOFile.BandInfo bandInfo,
+    private DataCache.Data readRect(final DataCache.DataKey datakey, final ImageIOFile.BandInfo bandInfo,
                                          int sourceOffsetX, int sourceOffsetY, int sourceStepX, int sourceStepY,
                                          final Rectangle destRect) {
         try {
@@ -267,9 +274,7 @@ public class Sentinel1ProductReader extends SARReader {
                 readParam.setSourceRegion(destRect);
             }
             readParam.setSourceSubsampling(sourceStepX, sourceStepY, sourceOffsetX % sourceStepX, sourceOffsetY % sourceStepY);
-            final RenderedImage subsampledImage = imageReader.readAsRenderedImage(0, readParam);
-
-            final Raster data = subsampledImage.getData(destRect);
+            final Raster data = bandInfo.img.getData(readParam, destRect);
 
             final SampleModel sampleModel = data.getSampleModel();
             final int destWidth = Math.min((int) destRect.getWidth(), sampleModel.getWidth());
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.sentinel1;
+
+import org.esa.snap.core.datamodel.ProductData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads uncompressed, strip organised Sentinel-1 measurement GeoTIFFs directly from the file.
+ * The strip layout is parsed once and rows are read with positional reads so that several threads
+ * can read from the same file without locking. Complex int16 samples are split into I or Q on the fly.
+ * The tiff may also be an uncompressed entry at a known offset within a zip file.
+ * Use create() which returns null for any layout not supported so that callers can fall back to ImageIO.
+ */
+public class Sentinel1TiffStripReader {
+
+    private static final int TAG_IMAGE_WIDTH = 256;
+    private static final int TAG_IMAGE_LENGTH = 257;
+    private static final int TAG_BITS_PER_SAMPLE = 258;
+    private static final int TAG_COMPRESSION = 259;
+    private static final int TAG_STRIP_OFFSETS = 273;
+    private static final int TAG_SAMPLES_PER_PIXEL = 277;
+    private static final int TAG_ROWS_PER_STRIP = 278;
+    private static final int TAG_STRIP_BYTE_COUNTS = 279;
+    private static final int TAG_PLANAR_CONFIGURATION = 284;
+    private static final int TAG_TILE_OFFSETS = 324;
+    private static final int TAG_SAMPLE_FORMAT = 339;
+
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+
+    private static final int SAMPLE_FORMAT_UINT = 1;
+    private static final int SAMPLE_FORMAT_COMPLEX_INT = 5;
+
+    private final FileChannel channel;
+    private final ByteOrder byteOrder;
+    private final int width;
+    private final int height;
+    private final int rowsPerStrip;
+    private final long[] stripOffsets;
+    private final boolean isComplex;
+    private final int bytesPerPixel;
+
+    private Sentinel1TiffStripReader(final FileChannel channel, final ByteOrder byteOrder,
+                                     final int width, final int height, final int rowsPerStrip,
+                                     final long[] stripOffsets, final boolean isComplex) {
+        this.channel = channel;
+        this.byteOrder = byteOrder;
+        this.width = width;
+        this.height = height;
+        this.rowsPerStrip = rowsPerStrip;
+        this.stripOffsets = stripOffsets;
+        this.isComplex = isComplex;
+        this.bytesPerPixel = isComplex ? 4 : 2;
+    }
+
+    /**
+     * Parses the first image directory of the file.
+     *
+     * @param file the measurement tiff
+     * @return a reader or null if the file is not an uncompressed single sample strip image of uint16 or complex int16
+     */
+    public static Sentinel1TiffStripReader create(final File file) {
+        return create(file, 0);
+    }
+
+    /**
+     * Parses the first image directory of a tiff stored at an offset within the file.
+     *
+     * @param file       the measurement tiff or the zip containing it uncompressed
+     * @param tiffOffset the position of the start of the tiff within the file
+     * @return a reader or null if the layout is not supported
+     */
+    public static Sentinel1TiffStripReader create(final File file, final long tiffOffset) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            final Sentinel1TiffStripReader reader = parse(channel, tiffOffset);
+            if (reader == null) {
+                channel.close();
+            }
+            return reader;
+        } catch (Exception e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignore) {
+                }
+            }
+            return null;
+        }
+    }
+
+    private static Sentinel1TiffStripReader parse(final FileChannel channel, final long base) throws IOException {
+        final ByteBuffer header = readBytes(channel, base, 8, ByteOrder.LITTLE_ENDIAN);
+        final int order = header.getShort(0);
+        final ByteOrder byteOrder;
+        if (order == 0x4949) {
+            byteOrder = ByteOrder.LITTLE_ENDIAN;
+        } else if (order == 0x4D4D) {
+            byteOrder = ByteOrder.BIG_ENDIAN;
+        } else {
+            return null;
+        }
+        header.order(byteOrder);
+        if (header.getShort(2) != 42) {      // BigTIFF or not a tiff
+            return null;
+        }
+
+        final long ifdOffset = base + (header.getInt(4) & 0xFFFFFFFFL);
+        final int numEntries = readBytes(channel, ifdOffset, 2, byteOrder).getShort(0) & 0xFFFF;
+        final ByteBuffer ifd = readBytes(channel, ifdOffset + 2, numEntries * 12, byteOrder);
+
+        int width = 0, height = 0, bitsPerSample = 1, compression = 1, samplesPerPixel = 1;
+        int planarConfiguration = 1, sampleFormat = SAMPLE_FORMAT_UINT, rowsPerStrip = Integer.MAX_VALUE;
+        long[] stripOffsets = null, stripByteCounts = null;
+
+        for (int i = 0; i < numEntries; ++i) {
+            final int pos = i * 12;
+            final int tag = ifd.getShort(pos) & 0xFFFF;
+            switch (tag) {
+                case TAG_IMAGE_WIDTH:
+                    width = (int) getValue(ifd, pos);
+                    break;
+                case TAG_IMAGE_LENGTH:
+                    height = (int) getValue(ifd, pos);
+                    break;
+                case TAG_BITS_PER_SAMPLE:
+                    if (getCount(ifd, pos) != 1)
+                        return null;
+                    bitsPerSample = (int) getValue(ifd, pos);
+                    break;
+                case TAG_COMPRESSION:
+                    compression = (int) getValue(ifd, pos);
+                    break;
+                case TAG_SAMPLES_PER_PIXEL:
+                    samplesPerPixel = (int) getValue(ifd, pos);
+                    break;
+                case TAG_ROWS_PER_STRIP:
+                    rowsPerStrip = (int) getValue(ifd, pos);
+                    break;
+                case TAG_PLANAR_CONFIGURATION:
+                    planarConfiguration = (int) getValue(ifd, pos);
+                    break;
+                case TAG_SAMPLE_FORMAT:
+                    if (getCount(ifd, pos) != 1)
+                        return null;
+                    sampleFormat = (int) getValue(ifd, pos);
+                    break;
+                case TAG_STRIP_OFFSETS:
+                    stripOffsets = getValues(channel, base, ifd, pos, byteOrder);
+                    break;
+                case TAG_STRIP_BYTE_COUNTS:
+                    stripByteCounts = getValues(channel, base, ifd, pos, byteOrder);
+                    break;
+                case TAG_TILE_OFFSETS:
+                    return null;
+            }
+        }
+
+        if (compression != 1 || samplesPerPixel != 1 || planarConfiguration != 1 ||
+                width <= 0 || height <= 0 || stripOffsets == null || stripByteCounts == null) {
+            return null;
+        }
+
+        final boolean isComplex;
+        if (bitsPerSample == 32 && sampleFormat == SAMPLE_FORMAT_COMPLEX_INT) {
+            isComplex = true;
+        } else if (bitsPerSample == 16 && sampleFormat == SAMPLE_FORMAT_UINT) {
+            isComplex = false;
+        } else {
+            return null;
+        }
+
+        rowsPerStrip = Math.min(rowsPerStrip, height);
+        final int numStrips = (height + rowsPerStrip - 1) / rowsPerStrip;
+        if (stripOffsets.length < numStrips || stripByteCounts.length < numStrips) {
+            return null;
+        }
+        final long rowBytes = (long) width * (bitsPerSample / 8);
+        final long fileSize = channel.size();
+        for (int s = 0; s < numStrips; ++s) {
+            stripOffsets[s] += base;
+            final int rowsInStrip = Math.min(rowsPerStrip, height - s * rowsPerStrip);
+            if (stripByteCounts[s] < rowsInStrip * rowBytes || stripOffsets[s] + rowsInStrip * rowBytes > fileSize) {
+                return null;
+            }
+        }
+
+        return new Sentinel1TiffStripReader(channel, byteOrder, width, height, rowsPerStrip, stripOffsets, isComplex);
+    }
+
+    private static long getCount(final ByteBuffer ifd, final int pos) {
+        return ifd.getInt(pos + 4) & 0xFFFFFFFFL;
+    }
+
+    private static long getValue(final ByteBuffer ifd, final int pos) {
+        final int type = ifd.getShort(pos + 2);
+        return type == TYPE_SHORT ? ifd.getShort(pos + 8) & 0xFFFF : ifd.getInt(pos + 8) & 0xFFFFFFFFL;
+    }
+
+    private static long[] getValues(final FileChannel channel, final long base, final ByteBuffer ifd, final int pos,
+                                    final ByteOrder byteOrder) throws IOException {
+        final int type = ifd.getShort(pos + 2);
+        if (type != TYPE_SHORT && type != TYPE_LONG) {
+            return null;
+        }
+        final int count = (int) getCount(ifd, pos);
+        final int size = type == TYPE_SHORT ? 2 : 4;
+        final ByteBuffer data;
+        int offset;
+        if (count * size <= 4) {
+            data = ifd;
+            offset = pos + 8;
+        } else {
+            data = readBytes(channel, base + (ifd.getInt(pos + 8) & 0xFFFFFFFFL), count * size, byteOrder);
+            offset = 0;
+        }
+
+        final long[] values = new long[count];
+        for (int i = 0; i < count; ++i, offset += size) {
+            values[i] = type == TYPE_SHORT ? data.getShort(offset) & 0xFFFF : data.getInt(offset) & 0xFFFFFFFFL;
+        }
+        return values;
+    }
+
+    private static ByteBuffer readBytes(final FileChannel channel, final long position, final int length,
+                                        final ByteOrder byteOrder) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(byteOrder);
+        readFully(channel, buffer, position);
+        return buffer;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += n;
+        }
+    }
+
+    public boolean isComplex() {
+        return isComplex;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Reads a region at full resolution into the destination buffer.
+     *
+     * @param imaginary for complex data, true to return the Q samples and false for the I samples
+     * @return false if the region or destination buffer is not supported and nothing was read
+     */
+    public boolean readRect(final int x, final int y, final int w, final int h, final boolean imaginary,
+                            final ProductData destBuffer) throws IOException {
+        if (x < 0 || y < 0 || w <= 0 || h <= 0 || x + w > width || y + h > height) {
+            return false;
+        }
+        final Object dest = destBuffer.getElems();
+        if (!(dest instanceof short[] || dest instanceof int[]) || destBuffer.getNumElems() < w * h) {
+            return false;
+        }
+
+        final ByteBuffer rowBuffer = ByteBuffer.allocate(w * bytesPerPixel).order(byteOrder);
+        // complex samples are read as one int like the ImageIO reader, I in the low and Q in the high 16 bits
+        final int shift = imaginary ? 16 : 0;
+        int destIdx = 0;
+        for (int row = y; row < y + h; ++row) {
+            final int strip = row / rowsPerStrip;
+            final long position = stripOffsets[strip] +
+                    ((long) (row - strip * rowsPerStrip) * width + x) * bytesPerPixel;
+            rowBuffer.clear();
+            readFully(channel, rowBuffer, position);
+
+            if (dest instanceof short[]) {
+                final short[] destArray = (short[]) dest;
+                if (isComplex) {
+                    for (int i = 0; i < w; ++i) {
+                        destArray[destIdx++] = (short) (rowBuffer.getInt(i << 2) >> shift);
+                    }
+                } else {
+                    rowBuffer.flip();
+                    rowBuffer.asShortBuffer().get(destArray, destIdx, w);
+                    destIdx += w;
+                }
+            } else {
+                final int[] destArray = (int[]) dest;
+                if (isComplex) {
+                    for (int i = 0; i < w; ++i) {
+                        destArray[destIdx++] = (short) (rowBuffer.getInt(i << 2) >> shift);
+                    }
+                } else {
+                    for (int i = 0; i < w; ++i) {
+                        destArray[destIdx++] = rowBuffer.getShort(i << 1) & 0xFFFF;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DataCacheTest {
+
+    @Test
+    public void testKeyHashing() {
+        final Set<Integer> hashes = new HashSet<>();
+        final int numTiles = 10000;
+        for (int i = 0; i < numTiles; ++i) {
+            final Rectangle rect = new Rectangle((i % 100) * 512, (i / 100) * 512, 512, 512);
+            hashes.add(new DataCache.DataKey(null, rect).hashCode());
+        }
+        assertEquals(numTiles, hashes.size());
+
+        final DataCache.DataKey key1 = new DataCache.DataKey(null, new Rectangle(0, 512, 512, 256));
+        final DataCache.DataKey key2 = new DataCache.DataKey(null, new Rectangle(0, 512, 512, 256));
+        assertEquals(key1, key2);
+        assertEquals(key1.hashCode(), key2.hashCode());
+        assertNotEquals(key1, new DataCache.DataKey(null, new Rectangle(0, 512, 512, 512)));
+    }
+
+    @Test
+    public void testLookupWithManyTiles() {
+        final DataCache cache = new DataCache(1024L * 1024L * 1024L);
+        final int numTiles = 10000;
+        for (int i = 0; i < numTiles; ++i) {
+            cache.put(new DataCache.DataKey(null, new Rectangle(i * 16, 0, 16, 1)), new DataCache.Data(new int[16]));
+        }
+        assertEquals(numTiles, cache.size());
+
+        for (int i = 0; i < numTiles; ++i) {
+            final DataCache.Data data = cache.get(new DataCache.DataKey(null, new Rectangle(i * 16, 0, 16, 1)));
+            assertNotNull(data);
+            assertTrue(data.valid);
+        }
+        assertNull(cache.get(new DataCache.DataKey(null, new Rectangle(0, 1, 16, 1))));
+
+        assertEquals(numTiles, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testBoundedByBytes() {
+        final int tileBytes = 64 * 1024;
+        final long maxBytes = 1024L * 1024L;
+        final DataCache cache = new DataCache(maxBytes);
+        for (int i = 0; i < 100; ++i) {
+            cache.put(new DataCache.DataKey(null, new Rectangle(i * 128, 0, 128, 128)),
+                    new DataCache.Data(new int[tileBytes / Integer.BYTES]));
+        }
+        assertTrue(cache.size() > 0);
+        assertTrue(cache.size() * tileBytes <= maxBytes);
+    }
+}
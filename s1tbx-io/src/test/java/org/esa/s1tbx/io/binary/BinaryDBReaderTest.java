@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.binary;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.junit.Test;
+
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Decodes a synthetic leader file with thousands of records through the compiled record plan
+ */
+public class BinaryDBReaderTest {
+
+    private static final int NUM_RECORDS = 5000;
+    private static final int NUM_CORNERS = 4;
+
+    @Test
+    public void testReadRecords() throws IOException {
+        final Document recordDef = createRecordDefinition();
+        final MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
+
+        final long[] recordPos = new long[NUM_RECORDS];
+        for (int r = 0; r < NUM_RECORDS; r++) {
+            recordPos[r] = ios.getStreamPosition();
+            writeRecord(ios, r);
+        }
+        final long fileLength = ios.getStreamPosition();
+
+        final BinaryFileReader reader = new BinaryFileReader(ios);
+        reader.seek(0);
+        for (int r = 0; r < NUM_RECORDS; r++) {
+            final BinaryRecord record = new BinaryRecord(reader, -1, recordDef, "test");
+            assertEquals(recordPos[r], record.getStartPos());
+            assertEquals(recordLength(r), record.getRecordLength());
+            checkRecord(record, r);
+        }
+        assertEquals(fileLength, reader.getCurrentPos());
+    }
+
+    @Test
+    public void testSetOverridesAndMissingValues() throws IOException {
+        final MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
+        writeRecord(ios, 3);
+
+        final BinaryFileReader reader = new BinaryFileReader(ios);
+        final BinaryRecord record = new BinaryRecord(reader, 0, createRecordDefinition(), "test");
+        final BinaryDBReader db = record.getBinaryDatabase();
+
+        assertNull(db.getAttributeString("Not a field"));
+        assertEquals(0, (int) db.getAttributeInt("Not a field"));
+        assertEquals(0.0, db.getAttributeDouble("Not a field"), 0.0);
+        assertNull(db.getAttributeString("Point x 4"));
+
+        db.set("Number of lines", 42);
+        assertEquals(42, (int) db.getAttributeInt("Number of lines"));
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        final MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
+        writeRecord(ios, 2);
+        ios.seek(0);
+        final byte[] header = new byte[30];
+        ios.readFully(header);
+
+        final MemoryCacheImageOutputStream truncated = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
+        truncated.write(header);
+        final BinaryFileReader reader = new BinaryFileReader(truncated);
+        final BinaryRecord record = new BinaryRecord(reader, 0, createRecordDefinition(), "test");
+
+        assertEquals(recordLength(2), record.getRecordLength());
+        assertEquals("REC00002", record.getAttributeString("Record Name"));
+        assertNull(record.getAttributeString("Scene Centre Time"));
+        assertEquals(30, reader.getCurrentPos());
+    }
+
+    @Test
+    public void testCeosRecordsMatchFieldByFieldDecoding() throws Exception {
+        checkCeosRecord("image_record.xml");
+        checkCeosRecord("platform_position_record.xml");
+        checkCeosRecord("detailed_processing_record.xml");
+    }
+
+    /**
+     * Writes a record for a ceos_db definition and compares the decoded record with the values read
+     * field by field from the stream, the way BinaryDBReader decoded records before the record plans.
+     */
+    private static void checkCeosRecord(final String fileName) throws Exception {
+        final Document recordDef = BinaryDBReader.loadDefinitionFile("ceos", fileName);
+        assertNotNull(recordDef);
+
+        final MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
+        final Set<String> loopNames = new HashSet<>();
+        for (Element child : recordDef.getRootElement().getChildren("struct")) {
+            if (child.getAttribute("loop") != null) {
+                loopNames.add(child.getAttributeValue("loop"));
+            }
+        }
+        writeCeosRecord(ios, recordDef.getRootElement(), loopNames, new HashMap<>(), new Random(fileName.hashCode()));
+        final long recordEnd = ios.getStreamPosition();
+
+        final BinaryFileReader expectedReader = new BinaryFileReader(ios);
+        expectedReader.seek(0);
+        final Map<String, Object> expected = readFieldByField(expectedReader, recordDef.getRootElement());
+        assertEquals(recordEnd, expectedReader.getCurrentPos());
+
+        final BinaryFileReader reader = new BinaryFileReader(ios);
+        final BinaryRecord record = new BinaryRecord(reader, 0, recordDef, fileName);
+        assertEquals(recordEnd, reader.getCurrentPos());
+
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            final String name = entry.getKey();
+            final Object value = entry.getValue();
+            if (value instanceof String) {
+                assertEquals(name, value, record.getAttributeString(name));
+            } else if (value instanceof Double) {
+                assertEquals(name, (Double) value, record.getAttributeDouble(name), 0.0);
+            } else {
+                assertEquals(name, ((Number) value).intValue(), (int) record.getAttributeInt(name));
+            }
+        }
+    }
+
+    private static void writeCeosRecord(final MemoryCacheImageOutputStream ios, final Element parent,
+                                        final Set<String> loopNames, final Map<String, Integer> loops,
+                                        final Random random) throws IOException {
+        for (Element child : parent.getChildren()) {
+            if (child.getName().equals("struct")) {
+                final int loop = child.getAttribute("loop") != null ?
+                        loops.get(child.getAttributeValue("loop")) :
+                        Integer.parseInt(child.getAttributeValue("nloop"));
+                for (int l = 0; l < loop; l++) {
+                    writeCeosRecord(ios, child, loopNames, loops, random);
+                }
+                continue;
+            }
+            final String name = child.getAttributeValue("name");
+            final int type = Integer.parseInt(child.getAttributeValue("type"));
+            final int num = Integer.parseInt(child.getAttributeValue("num"));
+            switch (type) {
+                case BinaryDBReader.An: {
+                    final StringBuilder str = new StringBuilder();
+                    for (int i = 0; i < num; i++) {
+                        str.append((char) ('A' + random.nextInt(26)));
+                    }
+                    writeString(ios, str.toString(), num);
+                    break;
+                }
+                case BinaryDBReader.In: {
+                    final int value = loopNames.contains(name) ? 3 : random.nextInt(num < 9 ? (int) Math.pow(10, num - 1) : 100000000);
+                    loops.put(name, value);
+                    writeString(ios, String.format("%" + num + 'd', value), num);
+                    break;
+                }
+                case BinaryDBReader.Fn:
+                    writeString(ios, String.format(Locale.US, "%" + num + ".3f", random.nextDouble() * 2000 - 1000), num);
+                    break;
+                case BinaryDBReader.B1:
+                    ios.writeByte(random.nextInt(256));
+                    break;
+                case BinaryDBReader.B2:
+                    ios.writeShort(random.nextInt());
+                    break;
+                case BinaryDBReader.B4:
+                    ios.writeInt(random.nextInt());
+                    break;
+                case BinaryDBReader.B8:
+                    ios.writeLong(random.nextLong());
+                    break;
+                default:
+                    ios.write(new byte[num]);
+            }
+        }
+    }
+
+    // the element walk of the original BinaryDBReader.DecodeElement
+    private static Map<String, Object> readFieldByField(final BinaryFileReader reader, final Element root)
+            throws Exception {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        for (Element child : root.getChildren()) {
+            if (child.getName().equals("struct")) {
+                final int loop = child.getAttribute("loop") != null ?
+                        (Integer) values.get(child.getAttributeValue("loop")) :
+                        Integer.parseInt(child.getAttributeValue("nloop"));
+                for (int l = 1; l <= loop; l++) {
+                    for (Element structChild : child.getChildren()) {
+                        readField(reader, structChild, " " + l, values);
+                    }
+                }
+            } else {
+                readField(reader, child, "", values);
+            }
+        }
+        return values;
+    }
+
+    private static void readField(final BinaryFileReader reader, final Element elem, final String suffix,
+                                  final Map<String, Object> values) throws Exception {
+        final String name = elem.getAttributeValue("name") + suffix;
+        final int type = Integer.parseInt(elem.getAttributeValue("type"));
+        final int num = Integer.parseInt(elem.getAttributeValue("num"));
+        switch (type) {
+            case BinaryDBReader.Skip:
+                reader.skipBytes(num);
+                break;
+            case BinaryDBReader.An:
+                values.put(name, reader.readAn(num));
+                break;
+            case BinaryDBReader.In:
+                values.put(name, (int) reader.readIn(num));
+                break;
+            case BinaryDBReader.B1:
+                values.put(name, reader.readB1());
+                break;
+            case BinaryDBReader.B2:
+                values.put(name, reader.readB2());
+                break;
+            case BinaryDBReader.B4:
+                values.put(name, reader.readB4());
+                break;
+            case BinaryDBReader.B8:
+                values.put(name, reader.readB8());
+                break;
+            case BinaryDBReader.Fn:
+                values.put(name, reader.readFn(num));
+                break;
+            case BinaryDBReader.En:
+                values.put(name, reader.readEn(num));
+                break;
+        }
+    }
+
+    private static void checkRecord(final BinaryRecord record, final int r) {
+        assertEquals(String.format("REC%05d", r), record.getAttributeString("Record Name"));
+        assertEquals(r * 3 - 7, (int) record.getAttributeInt("Record Number"));
+        assertEquals(r % 256, (int) record.getAttributeInt("Flag"));
+        assertEquals(r * 0.25 - 11.5, record.getAttributeDouble("Scene Centre Time"), 1e-10);
+        assertEquals(numPoints(r), (int) record.getAttributeInt("Number of data points"));
+        for (int c = 1; c <= NUM_CORNERS; c++) {
+            assertEquals(r * 10 + c, (int) record.getAttributeInt("Corner " + c));
+        }
+        for (int p = 1; p <= numPoints(r); p++) {
+            assertEquals(r + p / 8.0, record.getAttributeDouble("Point x " + p), 1e-10);
+            assertEquals((short) (r - p), Short.parseShort(record.getAttributeString("Point sample " + p)));
+        }
+        assertNull(record.getAttributeString("Point x " + (numPoints(r) + 1)));
+        assertEquals(r, (int) record.getAttributeInt("Trailer"));
+    }
+
+    private static int numPoints(final int r) {
+        return r % 4;
+    }
+
+    private static int recordLength(final int r) {
+        return 4 + 8 + 6 + 1 + 2 + 12 + 3 + NUM_CORNERS * 4 + numPoints(r) * (16 + 2) + 4;
+    }
+
+    private static void writeRecord(final MemoryCacheImageOutputStream ios, final int r) throws IOException {
+        ios.writeInt(recordLength(r));
+        writeString(ios, String.format("REC%05d", r), 8);
+        writeString(ios, String.format("%6d", r * 3 - 7), 6);
+        ios.writeByte(r % 256);
+        ios.write(new byte[2]);
+        writeString(ios, String.format(Locale.US, "%12.5E", r * 0.25 - 11.5).replace('E', 'D'), 12);
+        writeString(ios, String.format("%3d", numPoints(r)), 3);
+        for (int c = 1; c <= NUM_CORNERS; c++) {
+            ios.writeInt(r * 10 + c);
+        }
+        for (int p = 1; p <= numPoints(r); p++) {
+            writeString(ios, String.format(Locale.US, "%16.6f", r + p / 8.0), 16);
+            ios.writeShort(r - p);
+        }
+        ios.writeInt(r);
+    }
+
+    private static void writeString(final MemoryCacheImageOutputStream ios, final String str, final int n)
+            throws IOException {
+        assertEquals(n, str.length());
+        ios.writeBytes(str);
+    }
+
+    private static Document createRecordDefinition() {
+        final Element root = new Element("record");
+        root.addContent(field("Record Length", BinaryDBReader.B4, 1));
+        root.addContent(field("Record Name", BinaryDBReader.An, 8));
+        root.addContent(field("Record Number", BinaryDBReader.In, 6));
+        root.addContent(field("Flag", BinaryDBReader.B1, 1));
+        root.addContent(field("spare", BinaryDBReader.Skip, 2));
+        root.addContent(field("Scene Centre Time", BinaryDBReader.Fn, 12));
+        root.addContent(field("Number of data points", BinaryDBReader.In, 3));
+
+        final Element corners = new Element("struct");
+        corners.setAttribute("nloop", String.valueOf(NUM_CORNERS));
+        corners.addContent(field("Corner", BinaryDBReader.B4, 1));
+        root.addContent(corners);
+
+        final Element points = new Element("struct");
+        points.setAttribute("loop", "Number of data points");
+        points.addContent(field("Point x", BinaryDBReader.Fn, 16));
+        points.addContent(field("Point sample", BinaryDBReader.B2, 1));
+        root.addContent(points);
+
+        root.addContent(field("Trailer", BinaryDBReader.B4, 1));
+        return new Document(root);
+    }
+
+    private static Element field(final String name, final int type, final int num) {
+        final Element elem = new Element("field");
+        elem.setAttribute("name", name);
+        elem.setAttribute("type", String.valueOf(type));
+        elem.setAttribute("num", String.valueOf(num));
+        return elem;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.ceos;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.commons.io.FileImageInputStreamExtImpl;
+import org.esa.s1tbx.io.binary.BinaryFileReader;
+import org.esa.s1tbx.io.binary.BinaryRecord;
+import org.esa.snap.core.datamodel.ProductData;
+import org.junit.Test;
+
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the positional line reads of a file backed CEOS image with reads through the shared stream
+ */
+public class TestCEOSImageFile {
+
+    private static final int HEADER = 720;
+    private static final int PREFIX = 12;
+    private static final int SUFFIX = 4;
+    private static final int WIDTH = 50;
+    private static final int HEIGHT = 40;
+
+    @Test
+    public void testReadShort() throws IOException {
+        final byte[] bytes = createImage(2);
+        final CEOSImageFile fileImage = createImageFile(bytes, 2, true);
+        final CEOSImageFile streamImage = createImageFile(bytes, 2, false);
+        try {
+            compareShort(fileImage, streamImage, 3, 5, 20, 30, 1, 1);
+            compareShort(fileImage, streamImage, 0, 0, WIDTH, HEIGHT, 1, 1);
+            compareShort(fileImage, streamImage, 1, 2, 40, 37, 3, 2);
+        } finally {
+            fileImage.close();
+            streamImage.close();
+        }
+    }
+
+    @Test
+    public void testReadSLCFloat() throws IOException {
+        final byte[] bytes = createImage(8);
+        final CEOSImageFile fileImage = createImageFile(bytes, 8, true);
+        final CEOSImageFile streamImage = createImageFile(bytes, 8, false);
+        try {
+            for (boolean oneOf2 : new boolean[]{true, false}) {
+                final int w = 17, h = 23;
+                final ProductData expected = ProductData.createInstance(ProductData.TYPE_FLOAT32, w * h);
+                final ProductData actual = ProductData.createInstance(ProductData.TYPE_FLOAT32, w * h);
+                streamImage.readBandRasterDataSLCFloat(4, 9, w, h, 1, 1, w, expected, oneOf2, ProgressMonitor.NULL);
+                fileImage.readBandRasterDataSLCFloat(4, 9, w, h, 1, 1, w, actual, oneOf2, ProgressMonitor.NULL);
+                for (int i = 0; i < w * h; i++) {
+                    assertEquals(expected.getElemFloatAt(i), actual.getElemFloatAt(i), 0.0f);
+                }
+            }
+        } finally {
+            fileImage.close();
+            streamImage.close();
+        }
+    }
+
+    private static void compareShort(final CEOSImageFile fileImage, final CEOSImageFile streamImage,
+                                     final int x, final int y, final int w, final int h,
+                                     final int stepX, final int stepY) {
+        final int destWidth = (w - 1) / stepX + 1;
+        final int destHeight = (h - 1) / stepY + 1;
+        final ProductData expected = ProductData.createInstance(ProductData.TYPE_INT16, destWidth * destHeight);
+        final ProductData actual = ProductData.createInstance(ProductData.TYPE_INT16, destWidth * destHeight);
+        streamImage.readBandRasterDataShort(x, y, w, h, stepX, stepY, destWidth, expected, ProgressMonitor.NULL);
+        fileImage.readBandRasterDataShort(x, y, w, h, stepX, stepY, destWidth, actual, ProgressMonitor.NULL);
+        for (int i = 0; i < destWidth * destHeight; i++) {
+            assertEquals(expected.getElemIntAt(i), actual.getElemIntAt(i));
+        }
+    }
+
+    private static int recordLength(final int bytesPerPixel) {
+        return PREFIX + WIDTH * bytesPerPixel + SUFFIX;
+    }
+
+    private static byte[] createImage(final int bytesPerPixel) {
+        final int recordLength = recordLength(bytesPerPixel);
+        final ByteBuffer buf = ByteBuffer.allocate(HEADER + HEIGHT * recordLength);
+        for (int y = 0; y < HEIGHT; y++) {
+            final int recordPos = HEADER + y * recordLength;
+            for (int i = 0; i < PREFIX; i++) {
+                buf.put(recordPos + i, (byte) 0x7F);
+            }
+            for (int x = 0; x < WIDTH; x++) {
+                final int pos = recordPos + PREFIX + x * bytesPerPixel;
+                if (bytesPerPixel == 2) {
+                    buf.putShort(pos, (short) (y * 1000 - x));
+                } else {
+                    buf.putFloat(pos, y + x / 100f);
+                    buf.putFloat(pos + 4, -y - x / 100f);
+                }
+            }
+        }
+        return buf.array();
+    }
+
+    private static CEOSImageFile createImageFile(final byte[] bytes, final int bytesPerPixel,
+                                                 final boolean fileBacked) throws IOException {
+        final BinaryFileReader reader;
+        if (fileBacked) {
+            final File file = File.createTempFile("ceos", ".img");
+            file.deleteOnExit();
+            Files.write(file.toPath(), bytes);
+            reader = new BinaryFileReader(new FileImageInputStreamExtImpl(file));
+        } else {
+            reader = new BinaryFileReader(new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes)));
+        }
+
+        final CEOSImageFile imageFile = new CEOSImageFile() {
+            @Override
+            protected BinaryRecord createNewImageRecord(int line) {
+                return null;
+            }
+        };
+        imageFile.binaryReader = reader;
+        imageFile._imageRecordLength = recordLength(bytesPerPixel);
+        imageFile.startPosImageRecords = HEADER;
+        imageFile.imageHeaderLength = PREFIX;
+        return imageFile;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.sentinel1;
+
+import org.esa.snap.core.datamodel.MetadataElement;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Decodes synthetic Level-0 annotation records into columns
+ */
+public class TestSentinel1Level0RecordTable {
+
+    private static final int NUM_RECORDS = 20000;
+
+    @Test
+    public void testReadColumns() throws IOException {
+        final Sentinel1Level0RecordTable.Layout layout = new Sentinel1Level0RecordTable.Layout();
+        layout.addField("sensingTime", Sentinel1Level0RecordTable.Type.ULONG);
+        layout.addField("frames", Sentinel1Level0RecordTable.Type.UINT16);
+        layout.addBits("flag", 0, 1);
+        layout.addBits("mode", 1, 3);
+        layout.addBits("spare", 4, 4);
+        layout.addField("size", Sentinel1Level0RecordTable.Type.UINT32);
+        layout.addField("valid", Sentinel1Level0RecordTable.Type.UINT8);
+        layout.addField("time", Sentinel1Level0RecordTable.Type.DOUBLE);
+        assertEquals(8 + 2 + 1 + 4 + 1 + 8, layout.getRecordLength());
+
+        final File file = File.createTempFile("s1l0", "-annot.dat");
+        file.deleteOnExit();
+        final ByteBuffer buf = ByteBuffer.allocate(NUM_RECORDS * layout.getRecordLength() + 5);
+        for (int r = 0; r < NUM_RECORDS; r++) {
+            buf.putLong(-1L - r);
+            buf.putShort((short) (60000 + r));
+            buf.put((byte) ((r % 2) << 7 | (r % 8) << 4 | (r % 16)));
+            buf.putInt(0xF0000000 + r);
+            buf.put((byte) (r % 256));
+            buf.putLong(r * 3L);
+        }
+        // partial record at the end of the file is ignored
+        Files.write(file.toPath(), buf.array());
+
+        final Sentinel1Level0RecordTable table = Sentinel1Level0RecordTable.read(file, layout, NUM_RECORDS + 1);
+        assertEquals(NUM_RECORDS, table.getNumRecords());
+        assertEquals(8, table.getNumColumns());
+
+        final int mode = table.getColumnIndex("mode");
+        assertEquals(Sentinel1Level0RecordTable.Type.BITS, table.getColumnType(mode));
+        for (int r = 0; r < NUM_RECORDS; r++) {
+            assertEquals(-1L - r, table.getLong(0, r));
+            assertEquals((60000 + r) & 0xFFFF, table.getLong(1, r));
+            assertEquals(r % 2, table.getLong(2, r));
+            assertEquals(r % 8, table.getLong(mode, r));
+            assertEquals(r % 16, table.getLong(4, r));
+            assertEquals(0xF0000000L + r, table.getLong(5, r));
+            assertEquals(r % 256, table.getLong(6, r));
+            assertEquals(r * 3.0, table.getDouble(7, r), 0.0);
+        }
+
+        final MetadataElement recElem = table.createRecordElement("record5", 5);
+        assertEquals(8, recElem.getNumAttributes());
+        assertEquals(String.valueOf(-6L), recElem.getAttributeString("sensingTime"));
+        assertEquals(5, recElem.getAttributeInt("mode"));
+    }
+}
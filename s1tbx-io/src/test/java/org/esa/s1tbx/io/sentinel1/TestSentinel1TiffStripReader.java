@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.io.sentinel1;
+
+import org.esa.s1tbx.commons.io.ZipEntryImageInputStream;
+import org.esa.snap.core.datamodel.ProductData;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reads small hand written strip tiffs with the direct reader
+ */
+public class TestSentinel1TiffStripReader {
+
+    private static final int WIDTH = 7;
+    private static final int HEIGHT = 5;
+    private static final int ROWS_PER_STRIP = 2;
+
+    @Test
+    public void testComplexStrips() throws IOException {
+        final File file = writeTiff(32, 5, 1);
+        final Sentinel1TiffStripReader reader = Sentinel1TiffStripReader.create(file);
+        assertNotNull(reader);
+        try {
+            assertTrue(reader.isComplex());
+            assertEquals(WIDTH, reader.getWidth());
+            assertEquals(HEIGHT, reader.getHeight());
+
+            final ProductData iData = ProductData.createInstance(ProductData.TYPE_INT16, 12);
+            final ProductData qData = ProductData.createInstance(ProductData.TYPE_INT16, 12);
+            assertTrue(reader.readRect(2, 1, 3, 4, false, iData));
+            assertTrue(reader.readRect(2, 1, 3, 4, true, qData));
+
+            int i = 0;
+            for (int y = 1; y < 5; ++y) {
+                for (int x = 2; x < 5; ++x, ++i) {
+                    assertEquals(realValue(x, y), iData.getElemIntAt(i));
+                    assertEquals(imaginaryValue(x, y), qData.getElemIntAt(i));
+                }
+            }
+
+            assertFalse(reader.readRect(5, 0, 3, 1, false, iData));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testUnsignedStrips() throws IOException {
+        final File file = writeTiff(16, 1, 1);
+        final Sentinel1TiffStripReader reader = Sentinel1TiffStripReader.create(file);
+        assertNotNull(reader);
+        try {
+            assertFalse(reader.isComplex());
+
+            final ProductData data = ProductData.createInstance(ProductData.TYPE_INT32, WIDTH * HEIGHT);
+            assertTrue(reader.readRect(0, 0, WIDTH, HEIGHT, false, data));
+            for (int y = 0; y < HEIGHT; ++y) {
+                for (int x = 0; x < WIDTH; ++x) {
+                    assertEquals(unsignedValue(x, y), data.getElemIntAt(y * WIDTH + x));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testUnsignedStripsToShortBuffer() throws IOException {
+        final File file = writeTiff(16, 1, 1);
+        final Sentinel1TiffStripReader reader = Sentinel1TiffStripReader.create(file);
+        assertNotNull(reader);
+        try {
+            final ProductData uint16Data = ProductData.createInstance(ProductData.TYPE_UINT16, 12);
+            final ProductData int16Data = ProductData.createInstance(ProductData.TYPE_INT16, 12);
+            assertTrue(reader.readRect(3, 1, 4, 3, false, uint16Data));
+            assertTrue(reader.readRect(3, 1, 4, 3, false, int16Data));
+
+            int i = 0;
+            for (int y = 1; y < 4; ++y) {
+                for (int x = 3; x < 7; ++x, ++i) {
+                    assertEquals(unsignedValue(x, y), uint16Data.getElemIntAt(i));
+                    assertEquals((short) unsignedValue(x, y), int16Data.getElemIntAt(i));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testStripsInZip() throws IOException {
+        final byte[] tiff = Files.readAllBytes(writeTiff(16, 1, 1).toPath());
+        final File zipFile = File.createTempFile("s1strip", ".zip");
+        zipFile.deleteOnExit();
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile))) {
+            final ZipEntry entry = new ZipEntry("S1A.SAFE/measurement/s1a.tiff");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(tiff.length);
+            final CRC32 crc = new CRC32();
+            crc.update(tiff);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(tiff);
+            zip.closeEntry();
+        }
+
+        final ZipEntryImageInputStream stream = ZipEntryImageInputStream.create(zipFile, "S1A.SAFE/measurement/s1a.tiff");
+        assertNotNull(stream);
+        final long offset = stream.getDataOffset();
+        stream.close();
+
+        final Sentinel1TiffStripReader reader = Sentinel1TiffStripReader.create(zipFile, offset);
+        assertNotNull(reader);
+        try {
+            final ProductData data = ProductData.createInstance(ProductData.TYPE_INT32, 6);
+            assertTrue(reader.readRect(4, 2, 3, 2, false, data));
+            int i = 0;
+            for (int y = 2; y < 4; ++y) {
+                for (int x = 4; x < 7; ++x, ++i) {
+                    assertEquals(unsignedValue(x, y), data.getElemIntAt(i));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testCompressedNotSupported() throws IOException {
+        assertNull(Sentinel1TiffStripReader.create(writeTiff(16, 1, 8)));
+    }
+
+    private static short realValue(final int x, final int y) {
+        return (short) (-100 * y - x);
+    }
+
+    private static short imaginaryValue(final int x, final int y) {
+        return (short) (100 * y + x);
+    }
+
+    private static int unsignedValue(final int x, final int y) {
+        return 60000 + y * WIDTH + x;
+    }
+
+    private static File writeTiff(final int bitsPerSample, final int sampleFormat, final int compression) throws IOException {
+        final int bytesPerPixel = bitsPerSample / 8;
+        final int numStrips = (HEIGHT + ROWS_PER_STRIP - 1) / ROWS_PER_STRIP;
+        final int numEntries = 10;
+        final int ifdOffset = 8;
+        final int offsetsPos = ifdOffset + 2 + numEntries * 12 + 4;
+        final int countsPos = offsetsPos + numStrips * 4;
+        final int dataPos = countsPos + numStrips * 4;
+        final int stripBytes = ROWS_PER_STRIP * WIDTH * bytesPerPixel;
+
+        final ByteBuffer buf = ByteBuffer.allocate(dataPos + numStrips * stripBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(ifdOffset);
+        buf.putShort((short) numEntries);
+        putEntry(buf, 256, 3, 1, WIDTH);
+        putEntry(buf, 257, 3, 1, HEIGHT);
+        putEntry(buf, 258, 3, 1, bitsPerSample);
+        putEntry(buf, 259, 3, 1, compression);
+        putEntry(buf, 273, 4, numStrips, offsetsPos);
+        putEntry(buf, 277, 3, 1, 1);
+        putEntry(buf, 278, 3, 1, ROWS_PER_STRIP);
+        putEntry(buf, 279, 4, numStrips, countsPos);
+        putEntry(buf, 284, 3, 1, 1);
+        putEntry(buf, 339, 3, 1, sampleFormat);
+        buf.putInt(0);
+
+        for (int s = 0; s < numStrips; ++s) {
+            buf.putInt(dataPos + s * stripBytes);
+        }
+        for (int s = 0; s < numStrips; ++s) {
+            buf.putInt(stripBytes);
+        }
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                if (bitsPerSample == 32) {
+                    buf.putShort(realValue(x, y)).putShort(imaginaryValue(x, y));
+                } else {
+                    buf.putShort((short) unsignedValue(x, y));
+                }
+            }
+        }
+
+        final File file = File.createTempFile("s1strip", ".tiff");
+        file.deleteOnExit();
+        Files.write(file.toPath(), buf.array());
+        return file;
+    }
+
+    private static void putEntry(final ByteBuffer buf, final int tag, final int type, final int count, final int value) {
+        buf.putShort((short) tag).putShort((short) type).putInt(count);
+        if (type == 3 && count == 1) {
+            buf.putShort((short) value).putShort((short) 0);
+        } else {
+            buf.putInt(value);
+        }
+    }
+}
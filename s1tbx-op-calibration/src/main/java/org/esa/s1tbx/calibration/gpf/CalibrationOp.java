@@ -33,7 +33,9 @@ import org.esa.snap.engine_utilities.gpf.InputProductValidator;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.StackUtils;
 
+import java.awt.Rectangle;
 import java.io.File;
+import java.util.Map;
 
 /**
  * Calibration for all data products.
@@ -145,6 +147,10 @@ public class CalibrationOp extends Operator {
             targetProduct = calibrator.createTargetProduct(sourceProduct, sourceBandNames);
             calibrator.initialize(this, sourceProduct, targetProduct, false, true);
 
+            if (calibrator instanceof Sentinel1Calibrator) {
+                deactivateComputeTileMethod();
+            }
+
             if (!(calibrator instanceof Sentinel1Calibrator)) {
                 if (createGammaBand) {
                     createGammaVirtualBand(targetProduct, outputImageScaleInDb);
@@ -193,6 +199,31 @@ public class CalibrationOp extends Operator {
         }
     }
 
+    /**
+     * Called by the framework in order to compute the stack of tiles for the given target bands.
+     * <p>For Sentinel-1 the calibration LUT interpolation is shared by all target bands of the tile.</p>
+     *
+     * @param targetTileMap   The current tiles to be computed for each target band.
+     * @param targetRectangle The area in pixel coordinates to be computed (same for all rasters in <code>targetRasters</code>).
+     * @param pm              A progress monitor which should be used to determine computation cancelation requests.
+     * @throws OperatorException if an error occurs during computation of the target rasters.
+     */
+    @Override
+    public void computeTileStack(Map<Band, Tile> targetTileMap, Rectangle targetRectangle, ProgressMonitor pm)
+            throws OperatorException {
+        try {
+            if (calibrator instanceof Sentinel1Calibrator) {
+                ((Sentinel1Calibrator) calibrator).computeTileStack(targetTileMap, targetRectangle, pm);
+            } else {
+                for (Map.Entry<Band, Tile> entry : targetTileMap.entrySet()) {
+                    calibrator.computeTile(entry.getKey(), entry.getValue(), pm);
+                }
+            }
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException(getId(), e);
+        }
+    }
+
     /**
      * Create Gamma image as a virtual band.
      *
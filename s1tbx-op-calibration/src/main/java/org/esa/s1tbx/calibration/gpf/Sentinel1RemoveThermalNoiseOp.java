@@ -16,6 +16,9 @@
 package org.esa.s1tbx.calibration.gpf;
 
 import com.bc.ceres.core.ProgressMonitor;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import org.esa.s1tbx.calibration.gpf.calibrators.Sentinel1Calibrator;
 import org.esa.s1tbx.commons.Sentinel1Utils;
 import org.esa.snap.core.datamodel.Band;
@@ -40,13 +43,16 @@ import org.esa.snap.engine_utilities.gpf.InputProductValidator;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 import org.esa.snap.engine_utilities.util.Maths;
+import org.esa.snap.runtime.Config;
 
 import java.awt.Rectangle;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Apply thermal noise correction to Sentinel-1 Level-1 products.
@@ -73,6 +79,19 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
     @Parameter(description = "Re-introduce thermal noise", defaultValue = "false", label = "Re-Introduce Thermal Noise")
     private Boolean reIntroduceThermalNoise = false;
 
+    @Parameter(description = "Calibrate the noise removed intensities in the same pass", defaultValue = "false",
+            label = "Apply Calibration")
+    private Boolean applyCalibration = false;
+
+    @Parameter(description = "Output sigma0 band when calibrating", defaultValue = "true", label = "Output sigma0 band")
+    private Boolean outputSigmaBand = true;
+
+    @Parameter(description = "Output gamma0 band when calibrating", defaultValue = "false", label = "Output gamma0 band")
+    private Boolean outputGammaBand = false;
+
+    @Parameter(description = "Output beta0 band when calibrating", defaultValue = "false", label = "Output beta0 band")
+    private Boolean outputBetaBand = false;
+
     private MetadataElement absRoot = null;
     private MetadataElement origMetadataRoot = null;
     private boolean absoluteCalibrationPerformed = false;
@@ -98,6 +117,15 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
 
     private static final String PRODUCT_SUFFIX = "_NR";
 
+    private static final long NOISE_CACHE_SIZE_MB =
+            Config.instance().preferences().getLong("s1tbx.calibration.noiseLUTCacheSizeMB", 64);
+
+    private final Cache<NoiseBlockKey, float[]> noiseBlockCache = CacheBuilder.newBuilder()
+            .maximumWeight(NOISE_CACHE_SIZE_MB * 1024L * 1024L)
+            .weigher((Weigher<NoiseBlockKey, float[]>) (key, value) -> value.length * Float.BYTES)
+            .recordStats()
+            .build();
+
     private static class TimeMaps {
         private final HashMap<String, Double> t0Map = new HashMap<>();
         private final HashMap<String, Double> deltaTsMap = new HashMap<>();
@@ -155,10 +183,16 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
 
             if (absoluteCalibrationPerformed) {
                 getCalibrationVectors();
+            } else if (applyCalibration) {
+                getOutputCalibrationVectors();
             }
 
             createTargetProduct();
 
+            if (isFusedCalibration()) {
+                deactivateComputeTileMethod();
+            }
+
             updateTargetProductMetadata();
 
         } catch (Throwable e) {
@@ -322,6 +356,27 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
                 inputDNBand);
     }
 
+    /**
+     * Get the calibration vectors for the calibrated output bands.
+     */
+    private void getOutputCalibrationVectors() throws IOException {
+
+        if (reIntroduceThermalNoise) {
+            throw new OperatorException("Calibration can only be applied when removing thermal noise");
+        }
+        if (!outputSigmaBand && !outputGammaBand && !outputBetaBand) {
+            outputSigmaBand = true;
+        }
+
+        calibration = Sentinel1Calibrator.getCalibrationVectors(
+                sourceProduct,
+                selectedPolList,
+                outputSigmaBand,
+                outputBetaBand,
+                outputGammaBand,
+                false);
+    }
+
     /**
      * Set user selected polarisations.
      */
@@ -399,26 +454,57 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
                 continue;
             }
 
-            final String targetBandName = createTargetBandName(srcBandNames[0]);
-            if (targetProduct.getBand(targetBandName) == null) {
+            for (String targetBandName : createTargetBandNames(srcBandNames[0])) {
+                if (targetProduct.getBand(targetBandName) == null) {
 
-                targetBandNameToSourceBandName.put(targetBandName, srcBandNames);
+                    targetBandNameToSourceBandName.put(targetBandName, srcBandNames);
 
-                final Band targetBand = new Band(
-                        targetBandName,
-                        ProductData.TYPE_FLOAT32,
-                        srcBand.getRasterWidth(),
-                        srcBand.getRasterHeight());
+                    final Band targetBand = new Band(
+                            targetBandName,
+                            ProductData.TYPE_FLOAT32,
+                            srcBand.getRasterWidth(),
+                            srcBand.getRasterHeight());
 
-                targetBand.setUnit(Unit.INTENSITY);
-                targetBand.setDescription(srcBand.getDescription());
-                targetBand.setNoDataValue(srcBand.getNoDataValue());
-                targetBand.setNoDataValueUsed(true);
-                targetProduct.addBand(targetBand);
+                    targetBand.setUnit(Unit.INTENSITY);
+                    targetBand.setDescription(srcBand.getDescription());
+                    targetBand.setNoDataValue(srcBand.getNoDataValue());
+                    targetBand.setNoDataValueUsed(true);
+                    targetProduct.addBand(targetBand);
+                }
             }
         }
     }
 
+    /**
+     * Create target band names for given source band name.
+     *
+     * @param sourceBandName Source band name string.
+     * @return Target band names, one for each selected calibration type when calibrating.
+     */
+    private String[] createTargetBandNames(final String sourceBandName) {
+
+        if (!isFusedCalibration()) {
+            return new String[]{createTargetBandName(sourceBandName)};
+        }
+
+        final String pol = sourceBandName.substring(sourceBandName.indexOf('_'));
+        final List<String> targetBandNames = new ArrayList<>(3);
+        if (outputSigmaBand) {
+            targetBandNames.add("Sigma0" + pol);
+        }
+        if (outputGammaBand) {
+            targetBandNames.add("Gamma0" + pol);
+        }
+        if (outputBetaBand) {
+            targetBandNames.add("Beta0" + pol);
+        }
+        return targetBandNames.toArray(new String[0]);
+    }
+
+    private boolean isFusedCalibration() {
+        return applyCalibration && !absoluteCalibrationPerformed;
+    }
+
     /**
      * Create target band name for given source bane name.
      *
@@ -449,6 +535,11 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
         final String[] targetBandNames = targetProduct.getBandNames();
         Sentinel1Utils.updateBandNames(abs, selectedPolList, targetBandNames);
 
+        if (isFusedCalibration()) {
+            abs.getAttribute(AbstractMetadata.abs_calibration_flag).getData().setElemBoolean(true);
+            abs.setAttributeString(AbstractMetadata.SAMPLE_TYPE, "DETECTED");
+        }
+
         final MetadataElement origMetadataRoot = AbstractMetadata.getOriginalProductMetadata(targetProduct);
         final MetadataElement annotationElem = origMetadataRoot.getElement("annotation");
         final MetadataElement[] annotationDataSetListElem = annotationElem.getElements();
@@ -466,6 +557,50 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
         }
     }
 
+    /**
+     * Get the noise of a tile from the cache or build it. The noise only depends on the polarisation, swath and
+     * tile rectangle (and therefore the bursts covered) so it is shared by all target bands and repeated requests.
+     *
+     * @return the noise block of h rows by w samples or null if not available
+     */
+    private float[] getNoiseAzimuthBlock(
+            final int x0, final int y0, final int w, final int h, final String targetBandName) {
+
+        final NoiseBlockKey key = new NoiseBlockKey(
+                getBandPol(targetBandName), getBandSwath(targetBandName), new Rectangle(x0, y0, w, h));
+        float[] noiseBlock = noiseBlockCache.getIfPresent(key);
+        if (noiseBlock == null) {
+            final double[][] noiseMatrix = populateNoiseAzimuthBlock(x0, y0, w, h, targetBandName);
+            if (noiseMatrix == null) {
+                return null;
+            }
+            noiseBlock = new float[h * w];
+            for (int yy = 0; yy < h; ++yy) {
+                final double[] row = noiseMatrix[yy];
+                final int offset = yy * w;
+                for (int xx = 0; xx < w; ++xx) {
+                    noiseBlock[offset + xx] = (float) row[xx];
+                }
+            }
+            noiseBlockCache.put(key, noiseBlock);
+        }
+        return noiseBlock;
+    }
+
+    /**
+     * @return hit and miss statistics of the noise LUT cache
+     */
+    public String getNoiseLUTCacheStats() {
+        return noiseBlockCache.stats().toString();
+    }
+
+    @Override
+    public void dispose() {
+        SystemUtils.LOG.fine("Noise LUT cache " + getNoiseLUTCacheStats());
+        noiseBlockCache.invalidateAll();
+        super.dispose();
+    }
+
     private double[][] populateNoiseAzimuthBlock(
             final int x0, final int y0, final int w, final int h, final String targetBandName) {
 
@@ -493,119 +628,180 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
     @Override
     public void computeTile(Band targetBand, Tile targetTile, ProgressMonitor pm) throws OperatorException {
 
-        final Rectangle targetTileRectangle = targetTile.getRectangle();
+        try {
+            computeTiles(new Band[]{targetBand}, new Tile[]{targetTile}, targetTile.getRectangle());
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException(getId(), e);
+        }
+    }
+
+    /**
+     * Called by the framework in order to compute the stack of tiles for the given target bands.
+     * Target bands computed from the same source bands share the source intensities and the noise LUT.
+     *
+     * @param targetTiles     The current tiles to be computed for each target band.
+     * @param targetRectangle The area in pixel coordinates to be computed.
+     * @param pm              A progress monitor which should be used to determine computation cancelation requests.
+     * @throws OperatorException If an error occurs during computation of the target rasters.
+     */
+    @Override
+    public void computeTileStack(Map<Band, Tile> targetTiles, Rectangle targetRectangle, ProgressMonitor pm)
+            throws OperatorException {
+
+        try {
+            final Map<String, List<Band>> sourceToTargetBands = new LinkedHashMap<>();
+            for (Band targetBand : targetTiles.keySet()) {
+                final String[] srcBandNames = targetBandNameToSourceBandName.get(targetBand.getName());
+                if (srcBandNames != null) {
+                    sourceToTargetBands.computeIfAbsent(srcBandNames[0], k -> new ArrayList<>()).add(targetBand);
+                }
+            }
+
+            for (List<Band> targetBandList : sourceToTargetBands.values()) {
+                final Band[] targetBands = targetBandList.toArray(new Band[0]);
+                final Tile[] tiles = new Tile[targetBands.length];
+                for (int b = 0; b < targetBands.length; ++b) {
+                    tiles[b] = targetTiles.get(targetBands[b]);
+                }
+                computeTiles(targetBands, tiles, targetRectangle);
+            }
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException(getId(), e);
+        }
+    }
+
+    /**
+     * Compute the tiles of target bands which are all computed from the same source bands.
+     */
+    private void computeTiles(final Band[] targetBands, final Tile[] targetTiles, final Rectangle targetTileRectangle) {
+
         final int x0 = targetTileRectangle.x;
         final int y0 = targetTileRectangle.y;
         final int w = targetTileRectangle.width;
         final int h = targetTileRectangle.height;
         //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h + ", target band = " + targetBand.getName());
 
-        try {
-            final String targetBandName = targetBand.getName();
+        // polarisation and swath and therefore the noise are the same for all target bands
+        final String targetBandName = targetBands[0].getName();
 
-            double[][] noiseBlock = null;
-            if (version >= 2.9) {
-                noiseBlock = populateNoiseAzimuthBlock(x0, y0, w, h, targetBandName);
-            }
+        float[] noiseBlock = null;
+        if (version >= 2.9) {
+            noiseBlock = getNoiseAzimuthBlock(x0, y0, w, h, targetBandName);
+        }
 
-            Tile sourceRaster1 = null;
-            ProductData srcData1 = null;
-            ProductData srcData2 = null;
-            Band sourceBand1 = null;
+        Tile sourceRaster1 = null;
+        ProductData srcData1 = null;
+        ProductData srcData2 = null;
+        Band sourceBand1 = null;
 
-            final String[] srcBandNames = targetBandNameToSourceBandName.get(targetBandName);
-            if (srcBandNames.length == 1) {
-                sourceBand1 = sourceProduct.getBand(srcBandNames[0]);
-                sourceRaster1 = getSourceTile(sourceBand1, targetTileRectangle);
-                srcData1 = sourceRaster1.getDataBuffer();
-            } else {
-                sourceBand1 = sourceProduct.getBand(srcBandNames[0]);
-                final Band sourceBand2 = sourceProduct.getBand(srcBandNames[1]);
-                sourceRaster1 = getSourceTile(sourceBand1, targetTileRectangle);
-                final Tile sourceRaster2 = getSourceTile(sourceBand2, targetTileRectangle);
-                srcData1 = sourceRaster1.getDataBuffer();
-                srcData2 = sourceRaster2.getDataBuffer();
-            }
-
-            final double srcNoDataValue = sourceBand1.getNoDataValue();
-            final Unit.UnitType bandUnit = Unit.getUnitType(sourceBand1);
-            final ProductData trgData = targetTile.getDataBuffer();
-            final TileIndex srcIndex = new TileIndex(sourceRaster1);
-            final TileIndex tgtIndex = new TileIndex(targetTile);
-            final int maxY = y0 + h;
-            final int maxX = x0 + w;
+        final String[] srcBandNames = targetBandNameToSourceBandName.get(targetBandName);
+        if (srcBandNames.length == 1) {
+            sourceBand1 = sourceProduct.getBand(srcBandNames[0]);
+            sourceRaster1 = getSourceTile(sourceBand1, targetTileRectangle);
+            srcData1 = sourceRaster1.getDataBuffer();
+        } else {
+            sourceBand1 = sourceProduct.getBand(srcBandNames[0]);
+            final Band sourceBand2 = sourceProduct.getBand(srcBandNames[1]);
+            sourceRaster1 = getSourceTile(sourceBand1, targetTileRectangle);
+            final Tile sourceRaster2 = getSourceTile(sourceBand2, targetTileRectangle);
+            srcData1 = sourceRaster1.getDataBuffer();
+            srcData2 = sourceRaster2.getDataBuffer();
+        }
+
+        final double srcNoDataValue = sourceBand1.getNoDataValue();
+        final Unit.UnitType bandUnit = Unit.getUnitType(sourceBand1);
+        final TileIndex srcIndex = new TileIndex(sourceRaster1);
+        final int maxY = y0 + h;
+        final int maxX = x0 + w;
 
-            final boolean complexData = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
+        final boolean complexData = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
+
+        final int numBands = targetBands.length;
+        final ProductData[] trgData = new ProductData[numBands];
+        final TileIndex[] tgtIndex = new TileIndex[numBands];
+        for (int b = 0; b < numBands; ++b) {
+            trgData[b] = targetTiles[b].getDataBuffer();
+            tgtIndex[b] = new TileIndex(targetTiles[b]);
+        }
 
-            String key = "";
-            if (version >= 2.9 && isTOPS) {
-                if (complexData) { // SLC
-                    key = targetBandName.substring(10).toLowerCase();
-                } else { // GRD
-                    key = getBandPol(targetBandName);
+        final boolean fusedCalibration = isFusedCalibration();
+        Sentinel1Calibrator.CalibrationInfo calInfo = null;
+        final Sentinel1Calibrator.CALTYPE[] calTypes = new Sentinel1Calibrator.CALTYPE[numBands];
+        final double[][] calFactors = new double[Sentinel1Calibrator.CALTYPE.values().length][];
+        if (absoluteCalibrationPerformed || fusedCalibration) {
+            calInfo = getCalInfo(targetBandName);
+            for (int b = 0; b < numBands; ++b) {
+                calTypes[b] = Sentinel1Calibrator.getCalibrationType(targetBands[b].getName());
+                if (fusedCalibration && calFactors[calTypes[b].ordinal()] == null) {
+                    calFactors[calTypes[b].ordinal()] = new double[w];
+                }
+            }
+        }
+
+        final double[] lut = new double[w];
+        final double[] dn2Row = new double[w];
+        double dn, i, q;
+        for (int y = y0; y < maxY; ++y) {
+            srcIndex.calculateStride(y);
+
+            for (int x = x0; x < maxX; ++x) {
+                final int srcIdx = srcIndex.getIndex(x);
+                if (bandUnit == Unit.UnitType.AMPLITUDE) {
+                    dn = srcData1.getElemDoubleAt(srcIdx);
+                    dn2Row[x - x0] = dn * dn;
+                } else if (complexData) {
+                    i = srcData1.getElemDoubleAt(srcIdx);
+                    q = srcData2.getElemDoubleAt(srcIdx);
+                    dn2Row[x - x0] = i * i + q * q;
+                } else if (bandUnit == Unit.UnitType.INTENSITY) {
+                    dn2Row[x - x0] = srcData1.getElemDoubleAt(srcIdx);
+                } else {
+                    throw new OperatorException("Unhandled unit");
                 }
             }
 
-            Sentinel1Calibrator.CalibrationInfo calInfo = null;
-            Sentinel1Calibrator.CALTYPE calType = null;
             if (absoluteCalibrationPerformed) {
-                calInfo = getCalInfo(targetBandName);
-                calType = Sentinel1Calibrator.getCalibrationType(targetBandName);
-            }
-
-            double dn, dn2, i, q;
-            int srcIdx, tgtIdx;
-            for (int y = y0; y < maxY; ++y) {
-                srcIndex.calculateStride(y);
-                tgtIndex.calculateStride(y);
-
-                double[] lut = new double[w];
-                if (absoluteCalibrationPerformed) {
-                    final int calVecIdx = calInfo.getCalibrationVectorIndex(y);
-                    final Sentinel1Utils.CalibrationVector vec0 = calInfo.getCalibrationVector(calVecIdx);
-                    final Sentinel1Utils.CalibrationVector vec1 = calInfo.getCalibrationVector(calVecIdx + 1);
-                    final float[] vec0LUT = Sentinel1Calibrator.getVector(calType, vec0);
-                    final float[] vec1LUT = Sentinel1Calibrator.getVector(calType, vec1);
-                    final Sentinel1Utils.CalibrationVector calVec = calInfo.calibrationVectorList[calVecIdx];
-                    final int pixelIdx0 = calVec.getPixelIndex(x0);
-
-                    if (version < 2.9) {
-                        final ThermalNoiseInfo noiseInfo = getNoiseInfo(targetBandName);
-                        computeTileScaledNoiseLUT(y, x0, w, noiseInfo, calInfo, vec0.timeMJD, vec1.timeMJD,
-                                vec0LUT, vec1LUT, vec0.pixels, pixelIdx0, lut);
-                    } else {
-                        computeTileScaledNoiseLUT(y, x0, y0, w, noiseBlock, calInfo, vec0.timeMJD, vec1.timeMJD,
-                                vec0LUT, vec1LUT, vec0.pixels, pixelIdx0, lut);
-                    }
+                final int calVecIdx = calInfo.getCalibrationVectorIndex(y);
+                final Sentinel1Utils.CalibrationVector vec0 = calInfo.getCalibrationVector(calVecIdx);
+                final Sentinel1Utils.CalibrationVector vec1 = calInfo.getCalibrationVector(calVecIdx + 1);
+                final float[] vec0LUT = Sentinel1Calibrator.getVector(calTypes[0], vec0);
+                final float[] vec1LUT = Sentinel1Calibrator.getVector(calTypes[0], vec1);
+                final Sentinel1Utils.CalibrationVector calVec = calInfo.calibrationVectorList[calVecIdx];
+                final int pixelIdx0 = calVec.getPixelIndex(x0);
+
+                if (version < 2.9) {
+                    final ThermalNoiseInfo noiseInfo = getNoiseInfo(targetBandName);
+                    computeTileScaledNoiseLUT(y, x0, w, noiseInfo, calInfo, vec0.timeMJD, vec1.timeMJD,
+                            vec0LUT, vec1LUT, vec0.pixels, pixelIdx0, lut);
+                } else {
+                    computeTileScaledNoiseLUT(y, x0, y0, w, noiseBlock, calInfo, vec0.timeMJD, vec1.timeMJD,
+                            vec0LUT, vec1LUT, vec0.pixels, pixelIdx0, lut);
+                }
 
+            } else {
+                if (version < 2.9) {
+                    final ThermalNoiseInfo noiseInfo = getNoiseInfo(targetBandName);
+                    computeTileNoiseLUT(y, x0, w, noiseInfo, lut);
                 } else {
-                    if (version < 2.9) {
-                        final ThermalNoiseInfo noiseInfo = getNoiseInfo(targetBandName);
-                        computeTileNoiseLUT(y, x0, w, noiseInfo, lut);
-                    } else {
-                        computeTileNoiseLUT(y - y0, x0, w, noiseBlock, lut);
-                    }
+                    computeTileNoiseLUT(y - y0, x0, w, noiseBlock, lut);
+                }
+
+                if (fusedCalibration) {
+                    computeTileCalibrationFactors(y, x0, w, calInfo, calFactors);
                 }
+            }
+
+            for (int b = 0; b < numBands; ++b) {
+                tgtIndex[b].calculateStride(y);
+                final double[] bandCalFactors = fusedCalibration ? calFactors[calTypes[b].ordinal()] : null;
 
                 for (int x = x0; x < maxX; ++x) {
                     final int xx = x - x0;
-                    srcIdx = srcIndex.getIndex(x);
-                    tgtIdx = tgtIndex.getIndex(x);
-                    if (bandUnit == Unit.UnitType.AMPLITUDE) {
-                        dn = srcData1.getElemDoubleAt(srcIdx);
-                        dn2 = dn * dn;
-                    } else if (complexData) {
-                        i = srcData1.getElemDoubleAt(srcIdx);
-                        q = srcData2.getElemDoubleAt(srcIdx);
-                        dn2 = i * i + q * q;
-                    } else if (bandUnit == Unit.UnitType.INTENSITY) {
-                        dn2 = srcData1.getElemDoubleAt(srcIdx);
-                    } else {
-                        throw new OperatorException("Unhandled unit");
-                    }
+                    final int tgtIdx = tgtIndex[b].getIndex(x);
+                    final double dn2 = dn2Row[xx];
 
                     if(dn2 == srcNoDataValue) {
-                        trgData.setElemDoubleAt(tgtIdx, srcNoDataValue);
+                        trgData[b].setElemDoubleAt(tgtIdx, srcNoDataValue);
                         continue;
                     }
 
@@ -616,11 +812,63 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
                         // Eq-1 in Section 6 of MPC-0392 DI-MPC-TN Issue 1.1 2017,Nov.28 "Thermal Denoising of Products Generated by the S-1 IPF"
                         value = (dn2 == 0.0?trgFloorValue:dn2);
                     }
-                    trgData.setElemDoubleAt(tgtIdx, value);
+
+                    if (bandCalFactors != null) {
+                        // calibrate the value as written by the noise removal to give the same result as chaining
+                        value = calibrate((float) value, bandCalFactors[xx]);
+                    }
+                    trgData[b].setElemDoubleAt(tgtIdx, value);
                 }
             }
-        } catch (Throwable e) {
-            throw new OperatorException(e.getMessage());
+        }
+    }
+
+    /**
+     * Calibrate a noise removed intensity as done by the Sentinel-1 calibrator.
+     *
+     * @param dn                The noise removed intensity.
+     * @param calibrationFactor The reciprocal of the squared calibration LUT value.
+     * @return The calibrated value.
+     */
+    private static double calibrate(double dn, final double calibrationFactor) {
+        double calValue = dn * calibrationFactor;
+        if (dn == trgFloorValue) {
+            while ((float) calValue < 0.00001) {
+                dn *= 2;
+                calValue = dn * calibrationFactor;
+            }
+        }
+        return calValue;
+    }
+
+    /**
+     * Compute the calibration factors 1/LUT^2 of the given range line for each calibration type in use.
+     *
+     * @param y          Index of the given range line.
+     * @param x0         X coordinate of the upper left corner pixel of the given tile.
+     * @param w          Tile width.
+     * @param calInfo    Object of CalibrationInfo class.
+     * @param calFactors The factors indexed by calibration type, null for types not in use.
+     */
+    private static void computeTileCalibrationFactors(final int y, final int x0, final int w,
+                                                      final Sentinel1Calibrator.CalibrationInfo calInfo,
+                                                      final double[][] calFactors) {
+        final int calVecIdx = calInfo.getCalibrationVectorIndex(y);
+        final Sentinel1Utils.CalibrationVector vec0 = calInfo.getCalibrationVector(calVecIdx);
+        final Sentinel1Utils.CalibrationVector vec1 = calInfo.getCalibrationVector(calVecIdx + 1);
+        final int pixelIdx0 = calInfo.calibrationVectorList[calVecIdx].getPixelIndex(x0);
+
+        for (Sentinel1Calibrator.CALTYPE calType : Sentinel1Calibrator.CALTYPE.values()) {
+            final double[] factors = calFactors[calType.ordinal()];
+            if (factors == null) {
+                continue;
+            }
+            computeTileCalibrationLUTs(y, x0, w, calInfo, vec0.timeMJD, vec1.timeMJD,
+                    Sentinel1Calibrator.getVector(calType, vec0), Sentinel1Calibrator.getVector(calType, vec1),
+                    vec0.pixels, pixelIdx0, factors);
+            for (int i = 0; i < w; i++) {
+                factors[i] = 1.0 / (factors[i] * factors[i]);
+            }
         }
     }
 
@@ -707,7 +955,7 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
     }
 
     private void computeTileScaledNoiseLUT(final int y, final int x0, final int y0, final int w,
-                                           final double[][] noiseBlock,
+                                           final float[] noiseBlock,
                                            final Sentinel1Calibrator.CalibrationInfo calInfo,
                                            final double azT0, final double azT1,
                                            final float[] vec0LUT, final float[] vec1LUT,
@@ -718,14 +966,14 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
         computeTileCalibrationLUTs(y, x0, w, calInfo, azT0, azT1,
                 vec0LUT, vec1LUT, vec0Pixels, pixelIdx0, calLut);
 
-        final int yy = y - y0;
+        final int offset = (y - y0) * w;
         if (removeThermalNoise) {
             for (int i = 0; i < w; i++) {
-                lut[i] = noiseBlock[yy][i] / (calLut[i]*calLut[i]);
+                lut[i] = noiseBlock[offset + i] / (calLut[i]*calLut[i]);
             }
         } else { // reIntroduceThermalNoise
             for (int i = 0; i < w; i++) {
-                lut[i] = -noiseBlock[yy][i] / (calLut[i]*calLut[i]);
+                lut[i] = -noiseBlock[offset + i] / (calLut[i]*calLut[i]);
             }
         }
     }
@@ -816,12 +1064,11 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
     }
 
     private static void computeTileNoiseLUT(final int yy, final int x0, final int w,
-                                            final double[][] noiseBlock, final double[] lut) {
+                                            final float[] noiseBlock, final double[] lut) {
         try {
-            final int maxX = x0 + w;
-            for (int x = x0; x < maxX; x++) {
-                final int xx = x - x0;
-                lut[xx] = noiseBlock[yy][xx];
+            final int offset = yy * w;
+            for (int xx = 0; xx < w; xx++) {
+                lut[xx] = noiseBlock[offset + xx];
             }
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException("computeTileNoiseLUT", e);
@@ -1460,6 +1707,37 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
         }
     }
 
+    private final static class NoiseBlockKey {
+        private final String pol;
+        private final String swath;
+        private final Rectangle rect;
+        private final int hash;
+
+        NoiseBlockKey(final String pol, final String swath, final Rectangle rect) {
+            this.pol = pol;
+            this.swath = swath;
+            this.rect = rect;
+            this.hash = 31 * (31 * pol.hashCode() + swath.hashCode()) + rect.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof NoiseBlockKey)) {
+                return false;
+            }
+            final NoiseBlockKey key = (NoiseBlockKey) obj;
+            return rect.equals(key.rect) && pol.equals(key.pol) && swath.equals(key.swath);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
     private final static class NoiseAzimuthBlock {
         final int firstAzimuthLine;
         final int firstRangeSample;
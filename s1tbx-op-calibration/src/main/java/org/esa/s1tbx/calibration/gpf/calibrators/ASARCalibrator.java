@@ -19,6 +19,8 @@ import com.bc.ceres.core.ProgressMonitor;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.calibration.gpf.CalibrationOp;
 import org.esa.s1tbx.calibration.gpf.support.BaseCalibrator;
+import org.esa.s1tbx.calibration.gpf.support.BilinearGrid;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationHandle;
 import org.esa.s1tbx.calibration.gpf.support.Calibrator;
 import org.esa.s1tbx.calibration.gpf.support.TiePointInterpolator;
 import org.esa.snap.core.datamodel.*;
@@ -37,6 +39,7 @@ import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 import org.esa.snap.engine_utilities.util.Maths;
 import org.esa.snap.engine_utilities.util.Settings;
+import org.esa.snap.runtime.Config;
 
 import java.awt.*;
 import java.io.File;
@@ -96,6 +99,15 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
     private float[][] newAntennaPatternSingleSwath = null; // new antenna pattern gains for single swath product, in dB
     private float[][] newAntennaPatternWideSwath = null; // new antenna pattern gains for single swath product, in dB
 
+    // the antenna pattern gains above converted to linear scale
+    private double[][] oldAntennaGainSingleSwath = null;
+    private double[][] oldAntennaGainWideSwath = null;
+    private double[][] newAntennaGainSingleSwath = null;
+    private double[][] newAntennaGainWideSwath = null;
+
+    private BilinearGrid geometryGrid = null; // slant range and scene to Earth centre distance for the product
+    private volatile boolean geometryGridComputed = false;
+
     private TiePointInterpolator incidenceTPGInterp = null;
     private TiePointInterpolator slantRangeTPGInterp = null;
 
@@ -111,6 +123,15 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
     private static final double refSlantRange800km = 800000.0; //  m
     private static final int INVALID_SUB_SWATH_INDEX = -1;
 
+    // spacing in pixels of the product wide grid used for the antenna pattern of a tile, 0 computes every pixel
+    private static final int GEOMETRY_GRID_STEP =
+            Config.instance().preferences().getInt("s1tbx.calibration.antennaPatternGridStep", 16);
+    // largest interpolation error in m accepted for the slant range and the distance to the Earth centre.
+    // 1 m changes the elevation angle by about 2e-4 degree.
+    private static final double MAX_GEOMETRY_GRID_ERROR = 1.0;
+    private static final int GRID_SLANT_RANGE = 0;
+    private static final int GRID_SCENE_TO_EARTH_CENTRE = 1;
+
     public ASARCalibrator() {
     }
 
@@ -347,6 +368,7 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
             oldAntennaPatternWideSwath = new float[5][numOfGains]; // antenna pattern gain for 5 sub swathes
             getWideSwathAntennaPatternGainFromAuxData(
                     xcaFilePath, mdsPolar[0], numOfGains, oldRefElevationAngle, oldAntennaPatternWideSwath);
+            oldAntennaGainWideSwath = toLinearScale(oldAntennaPatternWideSwath);
 
         } else {
 
@@ -354,6 +376,7 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
             oldAntennaPatternSingleSwath = new float[2][numOfGains]; // antenna pattern gain for 2 bands
             getSingleSwathAntennaPatternGainFromAuxData(
                     xcaFilePath, swath, mdsPolar, numOfGains, oldRefElevationAngle, oldAntennaPatternSingleSwath);
+            oldAntennaGainSingleSwath = toLinearScale(oldAntennaPatternSingleSwath);
         }
     }
 
@@ -686,6 +709,7 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
             newAntennaPatternWideSwath = new float[5][numOfGains]; // antenna pattern gain for 5 sub swathes
             getWideSwathAntennaPatternGainFromAuxData(
                     newXCAFilePath, mdsPolar[0], numOfGains, newRefElevationAngle, newAntennaPatternWideSwath);
+            newAntennaGainWideSwath = toLinearScale(newAntennaPatternWideSwath);
 
         } else {
 
@@ -693,7 +717,25 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
             newAntennaPatternSingleSwath = new float[2][numOfGains];  // antenna pattern gain for 2 bands
             getSingleSwathAntennaPatternGainFromAuxData(
                     newXCAFilePath, swath, mdsPolar, numOfGains, newRefElevationAngle, newAntennaPatternSingleSwath);
+            newAntennaGainSingleSwath = toLinearScale(newAntennaPatternSingleSwath);
+        }
+    }
+
+    /**
+     * Convert antenna pattern gains from dB to linear scale.
+     *
+     * @param antPatArray The antenna pattern gains in dB.
+     * @return The antenna pattern gains in linear scale.
+     */
+    private static double[][] toLinearScale(final float[][] antPatArray) {
+        final double[][] gains = new double[antPatArray.length][];
+        for (int i = 0; i < antPatArray.length; i++) {
+            gains[i] = new double[antPatArray[i].length];
+            for (int k = 0; k < antPatArray[i].length; k++) {
+                gains[i][k] = FastMath.pow(10, (double) antPatArray[i][k] / 10.0);
+            }
         }
+        return gains;
     }
 
     /**
@@ -1031,39 +1073,29 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
                                                                 final int band,
                                                                 final TiePointInterpolator slantRangeTPGInterp) {
 
+        final double[] sceneToEarthCentre = new double[w];
         final int yMax = y0 + h;
         for (int y = y0; y < yMax; y++) {
 
-            final double zeroDopplerTime = firstLineUTC + y * lineTimeInterval;
-            final double satelliteHeight = computeSatelliteHeight(zeroDopplerTime, orbitStateVectors);
-
-            AbstractMetadata.SRGRCoefficientList srgrConvParam = null;
-            if (srgrFlag) {
-                srgrConvParam = getSRGRCoefficientsForARangeLine(zeroDopplerTime);
-            }
-
             final int yy = y - y0;
-            final int xMax = x0 + w;
-            for (int x = x0; x < xMax; x++) {
-
-                final int xx = x - x0;
-                targetTileSlantRange[yy][xx] = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp); // in m
+            final double satelliteHeight =
+                    computeRowGeometry(x0, y, w, slantRangeTPGInterp, targetTileSlantRange[yy], sceneToEarthCentre);
 
-                final double localEarthRadius = getEarthRadius(x, y);
+            for (int xx = 0; xx < w; xx++) {
 
                 final double theta = computeElevationAngle(
-                        targetTileSlantRange[yy][xx], satelliteHeight, avgSceneHeight + localEarthRadius); // in degree
+                        targetTileSlantRange[yy][xx], satelliteHeight, sceneToEarthCentre[xx]); // in degree
                 /*
                 double alpha = incidenceAngle.getPixelDouble(x, y); // in degree
                 double gamma = Math.asin(targetTileSlantRange[yy][xx]*Math.sin(alpha*MathUtils.DTOR)/satelitteHeight)*MathUtils.RTOD; // in degree
                 double theta = alpha - gamma; // in degree
                 */
                 targetTileNewAntPat[yy][xx] = computeAntPatGain(
-                        theta, newRefElevationAngle[0], newAntennaPatternSingleSwath[band]);
+                        theta, newRefElevationAngle[0], newAntennaGainSingleSwath[band]);
 
                 if (retroCalibrationFlag) {
                     targetTileOldAntPat[yy][xx] = computeAntPatGain(
-                            theta, oldRefElevationAngle[0], oldAntennaPatternSingleSwath[band]);
+                            theta, oldRefElevationAngle[0], oldAntennaGainSingleSwath[band]);
                 }
             }
         }
@@ -1084,44 +1116,123 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
                                                               final double[][] targetTileSlantRange,
                                                               final TiePointInterpolator slantRangeTPGInterp) {
 
+        final double[] sceneToEarthCentre = new double[w];
         final int yMax = y0 + h;
         for (int y = y0; y < yMax; y++) {
 
-            final double zeroDopplerTime = firstLineUTC + y * lineTimeInterval;
-            final double satelitteHeight = computeSatelliteHeight(zeroDopplerTime, orbitStateVectors);
-
-            AbstractMetadata.SRGRCoefficientList srgrConvParam = null;
-            if (srgrFlag) {
-                srgrConvParam = getSRGRCoefficientsForARangeLine(zeroDopplerTime);
-            }
-
             final int yy = y - y0;
-            final int xMax = x0 + w;
-            for (int x = x0; x < xMax; x++) {
-
-                final int xx = x - x0;
-                targetTileSlantRange[yy][xx] = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp); // in m
+            final double satelitteHeight =
+                    computeRowGeometry(x0, y, w, slantRangeTPGInterp, targetTileSlantRange[yy], sceneToEarthCentre);
 
-                final double localEarthRadius = getEarthRadius(x, y);
+            for (int xx = 0; xx < w; xx++) {
 
                 final double theta = computeElevationAngle(
-                        targetTileSlantRange[yy][xx], satelitteHeight, avgSceneHeight + localEarthRadius); // in degree
+                        targetTileSlantRange[yy][xx], satelitteHeight, sceneToEarthCentre[xx]); // in degree
 
                 int subSwathIndex = findSubSwath(theta, newRefElevationAngle);
 
                 targetTileNewAntPat[yy][xx] = computeAntPatGain(
-                        theta, newRefElevationAngle[subSwathIndex], newAntennaPatternWideSwath[subSwathIndex]);
+                        theta, newRefElevationAngle[subSwathIndex], newAntennaGainWideSwath[subSwathIndex]);
 
                 if (retroCalibrationFlag) {
                     subSwathIndex = findSubSwath(theta, oldRefElevationAngle);
 
                     targetTileOldAntPat[yy][xx] = computeAntPatGain(
-                            theta, oldRefElevationAngle[subSwathIndex], oldAntennaPatternWideSwath[subSwathIndex]);
+                            theta, oldRefElevationAngle[subSwathIndex], oldAntennaGainWideSwath[subSwathIndex]);
                 }
             }
         }
     }
 
+    /**
+     * Compute slant range and distance from scene to Earth centre for the pixels of a range line in a tile.
+     * The values are interpolated from the product geometry grid if one is available.
+     *
+     * @param x0                 The x coordinate of the first pixel.
+     * @param y                  The y coordinate of the range line.
+     * @param w                  The number of pixels.
+     * @param slantRange         The slant range (in m) of the pixels.
+     * @param sceneToEarthCentre The distance (in m) from the pixels to the Earth centre.
+     * @return The distance from satellite to the Earth centre (in m) for the range line.
+     */
+    private double computeRowGeometry(final int x0, final int y, final int w,
+                                      final TiePointInterpolator slantRangeTPGInterp,
+                                      final double[] slantRange, final double[] sceneToEarthCentre) {
+
+        final double zeroDopplerTime = firstLineUTC + y * lineTimeInterval;
+        final double satelliteHeight = computeSatelliteHeight(zeroDopplerTime, orbitStateVectors);
+
+        final BilinearGrid grid = getGeometryGrid();
+        if (grid != null) {
+            grid.getRow(GRID_SLANT_RANGE, x0, y, w, slantRange);
+            grid.getRow(GRID_SCENE_TO_EARTH_CENTRE, x0, y, w, sceneToEarthCentre);
+            return satelliteHeight;
+        }
+
+        AbstractMetadata.SRGRCoefficientList srgrConvParam = null;
+        if (srgrFlag) {
+            srgrConvParam = getSRGRCoefficientsForARangeLine(zeroDopplerTime);
+        }
+
+        for (int xx = 0; xx < w; xx++) {
+            final int x = x0 + xx;
+            slantRange[xx] = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp); // in m
+            sceneToEarthCentre[xx] = avgSceneHeight + getEarthRadius(x, y);
+        }
+        return satelliteHeight;
+    }
+
+    /**
+     * Get the slant range and scene to Earth centre distance of the product sampled on a coarse grid.
+     * The grid is computed once and shared by all tiles and bands.
+     *
+     * @return The grid or null if the geometry must be computed for every pixel.
+     */
+    private BilinearGrid getGeometryGrid() {
+        if (!geometryGridComputed) {
+            synchronized (this) {
+                if (!geometryGridComputed) {
+                    geometryGrid = createGeometryGrid();
+                    geometryGridComputed = true;
+                }
+            }
+        }
+        return geometryGrid;
+    }
+
+    private BilinearGrid createGeometryGrid() {
+
+        if (GEOMETRY_GRID_STEP <= 0) {
+            return null;
+        }
+
+        final BilinearGrid grid = BilinearGrid.create(
+                sourceProduct.getSceneRasterWidth(), sourceProduct.getSceneRasterHeight(), GEOMETRY_GRID_STEP, 2,
+                new BilinearGrid.Sampler() {
+                    private int srgrLine = -1;
+                    private AbstractMetadata.SRGRCoefficientList srgrConvParam = null;
+
+                    @Override
+                    public void sample(final int x, final int y, final double[] values) {
+                        if (srgrFlag && y != srgrLine) {
+                            srgrConvParam = getSRGRCoefficientsForARangeLine(firstLineUTC + y * lineTimeInterval);
+                            srgrLine = y;
+                        }
+                        values[GRID_SLANT_RANGE] = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp);
+                        values[GRID_SCENE_TO_EARTH_CENTRE] = avgSceneHeight + getEarthRadius(x, y);
+                    }
+                });
+
+        final double slantRangeError = grid.getMaxError(GRID_SLANT_RANGE);
+        final double earthCentreError = grid.getMaxError(GRID_SCENE_TO_EARTH_CENTRE);
+        if (slantRangeError > MAX_GEOMETRY_GRID_ERROR || earthCentreError > MAX_GEOMETRY_GRID_ERROR) {
+            SystemUtils.LOG.fine("ASAR antenna pattern geometry grid not used, slant range error = " +
+                    slantRangeError + " m, scene to Earth centre error = " + earthCentreError + " m");
+            return null;
+        }
+        return grid;
+    }
+
     /**
      * Get Earth radius (in m) for given pixel.
      *
@@ -1173,11 +1284,11 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
      *
      * @param elevAngle         The elevation angle (in degree) of a given pixel.
      * @param refElevationAngle The reference elevation angle (in degree).
-     * @param antPatArray       The antenna pattern array.
+     * @param antPatArray       The antenna pattern array in linear scale.
      * @return The antenna pattern gain (in linear scale).
      */
     private static double computeAntPatGain(final double elevAngle, final double refElevationAngle,
-                                            final float[] antPatArray) {
+                                            final double[] antPatArray) {
 
         final double delta = 0.05;
         int k0 = (int) ((elevAngle - refElevationAngle + 5.0) / delta);
@@ -1188,8 +1299,8 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
         }
         final double theta0 = refElevationAngle - 5.0 + k0 * delta;
         final double theta1 = theta0 + delta;
-        final double gain0 = FastMath.pow(10, (double) antPatArray[k0] / 10.0); // convert dB to linear scale
-        final double gain1 = FastMath.pow(10, (double) antPatArray[k0 + 1] / 10.0);
+        final double gain0 = antPatArray[k0];
+        final double gain1 = antPatArray[k0 + 1];
         final double mu = (elevAngle - theta0) / (theta1 - theta0);
 
         return Maths.interpolationLinear(gain0, gain1, mu);
@@ -1359,21 +1470,28 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
         final double zeroDopplerTime = firstLineUTC + y * lineTimeInterval;
         final double satelitteHeight = computeSatelliteHeight(zeroDopplerTime, orbitStateVectors);
 
-        AbstractMetadata.SRGRCoefficientList srgrConvParam = null;
-        if (srgrFlag) {
-            srgrConvParam = getSRGRCoefficientsForARangeLine(zeroDopplerTime);
-        }
+        final double slantRange, sceneToEarthCentre; // in m
+        final BilinearGrid grid = getGeometryGrid();
+        if (grid != null) {
+            slantRange = grid.getValue(GRID_SLANT_RANGE, x, y);
+            sceneToEarthCentre = grid.getValue(GRID_SCENE_TO_EARTH_CENTRE, x, y);
+        } else {
+            AbstractMetadata.SRGRCoefficientList srgrConvParam = null;
+            if (srgrFlag) {
+                srgrConvParam = getSRGRCoefficientsForARangeLine(zeroDopplerTime);
+            }
 
-        final TiePointInterpolator slantRangeTPGInterp = new TiePointInterpolator(slantRangeTime);
-        final double slantRange = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp); // in m
-        final double elevationAngle = computeElevationAngle(slantRange, satelitteHeight, avgSceneHeight + getEarthRadius(x, y));
+            slantRange = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp);
+            sceneToEarthCentre = avgSceneHeight + getEarthRadius(x, y);
+        }
+        final double elevationAngle = computeElevationAngle(slantRange, satelitteHeight, sceneToEarthCentre);
 
         double gain = 0.0;
         if (wideSwathProductFlag) {
             gain = getAntennaPatternGain(
-                    elevationAngle, bandPolarIdx, oldRefElevationAngle, oldAntennaPatternWideSwath, true, subSwathIndex);
+                    elevationAngle, bandPolarIdx, oldRefElevationAngle, oldAntennaGainWideSwath, true, subSwathIndex);
         } else {
-            gain = computeAntPatGain(elevationAngle, oldRefElevationAngle[0], oldAntennaPatternSingleSwath[bandPolarIdx]);
+            gain = computeAntPatGain(elevationAngle, oldRefElevationAngle[0], oldAntennaGainSingleSwath[bandPolarIdx]);
         }
 
         if (bandUnit == Unit.UnitType.AMPLITUDE) {
@@ -1403,7 +1521,7 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
      * @return The antenna pattern gain value.
      */
     private static double getAntennaPatternGain(double elevationAngle, int bandPolar, double[] refElevationAngle,
-                                                float[][] antennaPattern, boolean compSubSwathIdx, int[] subSwathIndex) {
+                                                double[][] antennaPattern, boolean compSubSwathIdx, int[] subSwathIndex) {
 
         if (refElevationAngle.length == 1) { // single swath
 
@@ -1439,10 +1557,53 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
             final double satelliteHeight, final double sceneToEarthCentre, final double localIncidenceAngle,
             final String bandName, final String bandPolar, final Unit.UnitType bandUnit, int[] subSwathIndex) {
 
-        int bandPolarIdx = 0;
+        return calibratePixel(v, rangeIndex, azimuthIndex, slantRange, satelliteHeight, sceneToEarthCentre,
+                localIncidenceAngle, getBandPolarIndex(bandPolar), bandUnit, subSwathIndex);
+    }
+
+    private int getBandPolarIndex(final String bandPolar) {
         if (bandPolar != null && mdsPolar[1] != null && mdsPolar[1].contains(bandPolar)) {
-            bandPolarIdx = 1;
+            return 1;
         }
+        return 0;
+    }
+
+    @Override
+    public CalibrationHandle getCalibrationHandle(final String bandName, final String bandPolar,
+                                                  final Unit.UnitType bandUnit) {
+        return new ASARCalibrationHandle(bandName, bandPolar, bandUnit, getBandPolarIndex(bandPolar));
+    }
+
+    /**
+     * Calibrates a batch of pixels with the polarization resolved once.
+     */
+    @Override
+    public void applyCalibration(
+            final CalibrationHandle handle, final double[] v, final double[] rangeIndex, final double[] azimuthIndex,
+            final double[] slantRange, final double[] satelliteHeight, final double[] sceneToEarthCentre,
+            final double[] localIncidenceAngle, final int[] subSwathIndex, final int count) {
+
+        if (!(handle instanceof ASARCalibrationHandle)) {
+            Calibrator.super.applyCalibration(handle, v, rangeIndex, azimuthIndex, slantRange, satelliteHeight,
+                    sceneToEarthCentre, localIncidenceAngle, subSwathIndex, count);
+            return;
+        }
+
+        final ASARCalibrationHandle asarHandle = (ASARCalibrationHandle) handle;
+        final int[] pixelSubSwathIndex = new int[1];
+        for (int i = 0; i < count; ++i) {
+            pixelSubSwathIndex[0] = subSwathIndex[i];
+            v[i] = calibratePixel(v[i], rangeIndex[i], azimuthIndex[i], slantRange[i], satelliteHeight[i],
+                    sceneToEarthCentre[i], localIncidenceAngle[i], asarHandle.bandPolarIdx, handle.bandUnit,
+                    pixelSubSwathIndex);
+            subSwathIndex[i] = pixelSubSwathIndex[0];
+        }
+    }
+
+    private double calibratePixel(
+            final double v, final double rangeIndex, final double azimuthIndex, final double slantRange,
+            final double satelliteHeight, final double sceneToEarthCentre, final double localIncidenceAngle,
+            final int bandPolarIdx, final Unit.UnitType bandUnit, final int[] subSwathIndex) {
 
         double sigma = 0.0;
         if (bandUnit == Unit.UnitType.AMPLITUDE) {
@@ -1474,14 +1635,13 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
             double gain;
             if (wideSwathProductFlag) {
                 if (subSwathIndex[0] == INVALID_SUB_SWATH_INDEX) { // Rem(AP+RSL)/ApplyADC Op is used
-                    final TiePointInterpolator slantRangeTPGInterp = new TiePointInterpolator(slantRangeTime);
                     computeSubSwathIndex(rangeIndex, azimuthIndex, newRefElevationAngle, subSwathIndex, slantRangeTPGInterp);
                 }
                 gain = getAntennaPatternGain(
-                        elevationAngle, bandPolarIdx, newRefElevationAngle, newAntennaPatternWideSwath, false, subSwathIndex);
+                        elevationAngle, bandPolarIdx, newRefElevationAngle, newAntennaGainWideSwath, false, subSwathIndex);
             } else {
                 gain = computeAntPatGain(
-                        elevationAngle, newRefElevationAngle[0], newAntennaPatternSingleSwath[bandPolarIdx]);
+                        elevationAngle, newRefElevationAngle[0], newAntennaGainSingleSwath[bandPolarIdx]);
             }
 
             sigma /= gain;
@@ -1540,8 +1700,6 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
         final double[][] targetTileSlantRange = new double[h][w];
         final double[][] targetTileOldAntPat = new double[h][w];
 
-        final TiePointInterpolator slantRangeTPGInterp = new TiePointInterpolator(slantRangeTime);
-
         if (wideSwathProductFlag) {
             computeWideSwathAntennaPatternForCurrentTile(x0, y0, w, h,
                     targetTileOldAntPat, targetTileNewAntPat, targetTileSlantRange, slantRangeTPGInterp);
@@ -1578,4 +1736,13 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
         }
     }
 
+    private static final class ASARCalibrationHandle extends CalibrationHandle {
+        final int bandPolarIdx;
+
+        ASARCalibrationHandle(final String bandName, final String bandPolar, final Unit.UnitType bandUnit,
+                              final int bandPolarIdx) {
+            super(bandName, bandPolar, bandUnit);
+            this.bandPolarIdx = bandPolarIdx;
+        }
+    }
 }
@@ -17,6 +17,8 @@ package org.esa.s1tbx.calibration.gpf.calibrators;
 import com.bc.ceres.core.ProgressMonitor;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.calibration.gpf.support.BaseCalibrator;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationFactorHandle;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationHandle;
 import org.esa.s1tbx.calibration.gpf.support.Calibrator;
 import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.MetadataElement;
@@ -231,6 +233,23 @@ public class CosmoSkymedCalibrator extends BaseCalibrator implements Calibrator
             Ks = calibrationFactor.get(bandPolar.toUpperCase());
         }
 
+        return calibratePixel(v, localIncidenceAngle, bandUnit, Ks);
+    }
+
+    @Override
+    public CalibrationHandle getCalibrationHandle(final String bandName, final String bandPolar,
+                                                  final Unit.UnitType bandUnit) {
+        final Double Ks = !applyConstantCorrection ? Double.valueOf(1.0) :
+                bandPolar == null ? null : calibrationFactor.get(bandPolar.toUpperCase());
+        if (Ks == null) {
+            return Calibrator.super.getCalibrationHandle(bandName, bandPolar, bandUnit);
+        }
+        return new CalibrationFactorHandle(bandName, bandPolar, bandUnit, Ks, this::calibratePixel);
+    }
+
+    private double calibratePixel(final double v, final double localIncidenceAngle, final Unit.UnitType bandUnit,
+                                  final double Ks) {
+
         double sigma;
         if (bandUnit == Unit.UnitType.AMPLITUDE) {
             sigma = v * v;
@@ -149,6 +149,7 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
     private double[] rangeSpreadingLoss = null; // for a complete range line
     private double[] antennaPatternCorrFactor = null; // for a range line in current tile, in linear scale
     private double[] antennaPatternGain = null; // used in ADC, for a range line in current tile, in linear scale
+    private volatile double[] newAntennaPatternGainSquare = null; // used by RD, for a complete range line
     private double[][] appendixF1 = null; // ERS-1 SAR ADC Power Loss Correction Look-up Table, in dB
     private double[][] appendixF2 = null; // ERS-2 SAR ADC Power Loss Correction Look-up Table, in dB
     private double[][] appendixG1 = null; // initial ERS-1 SAR antenna pattern gain, in dB
@@ -2400,7 +2401,7 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
         sigma *= FastMath.sin(Math.abs(localIncidenceAngle) * Constants.DTOR) /
                 FastMath.sin(referenceIncidenceAngle);
 
-        sigma /= getNewAntennaPatternGainSquare((int) rangeIndex);
+        sigma /= getNewAntennaPatternGainSquare()[(int) rangeIndex];
 
         sigma *= rangeSpreadingLoss[(int) rangeIndex];
 
@@ -2411,6 +2412,32 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
         return sigma;
     }
 
+    /**
+     * Get the new antenna pattern gain square for a complete range line. It is computed once and shared by
+     * all bands and threads.
+     *
+     * @return The antenna pattern gain square for each range pixel.
+     */
+    private double[] getNewAntennaPatternGainSquare() {
+        final double[] gainSquare = newAntennaPatternGainSquare;
+        if (gainSquare != null) {
+            return gainSquare;
+        }
+        return computeNewAntennaPatternGainSquare();
+    }
+
+    private synchronized double[] computeNewAntennaPatternGainSquare() {
+
+        if (newAntennaPatternGainSquare == null) {
+            final double[] gainSquare = new double[lookAngles.length];
+            for (int x = 0; x < gainSquare.length; x++) {
+                gainSquare[x] = getNewAntennaPatternGainSquare(x);
+            }
+            newAntennaPatternGainSquare = gainSquare;
+        }
+        return newAntennaPatternGainSquare;
+    }
+
     /**
      * Get the new antenna pattern gain square for a given pixel.
      *
@@ -18,6 +18,8 @@ package org.esa.s1tbx.calibration.gpf.calibrators;
 import com.bc.ceres.core.ProgressMonitor;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.calibration.gpf.support.BaseCalibrator;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationFactorHandle;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationHandle;
 import org.esa.s1tbx.calibration.gpf.support.Calibrator;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.gpf.Operator;
@@ -277,6 +279,23 @@ public class Risat1Calibrator extends BaseCalibrator implements Calibrator {
         final String pol = bandName.substring(bandName.lastIndexOf("_"));
         final double Ks = calibrationFactor.get(pol);
 
+        return calibratePixel(v, localIncidenceAngle, bandUnit, Ks);
+    }
+
+    @Override
+    public CalibrationHandle getCalibrationHandle(final String bandName, final String bandPolar,
+                                                  final Unit.UnitType bandUnit) {
+        final int polIdx = bandName.lastIndexOf("_");
+        final Double Ks = polIdx < 0 ? null : calibrationFactor.get(bandName.substring(polIdx));
+        if (Ks == null) {
+            return Calibrator.super.getCalibrationHandle(bandName, bandPolar, bandUnit);
+        }
+        return new CalibrationFactorHandle(bandName, bandPolar, bandUnit, Ks, this::calibratePixel);
+    }
+
+    private double calibratePixel(final double v, final double localIncidenceAngle, final Unit.UnitType bandUnit,
+                                  final double Ks) {
+
         double sigma = 0.0;
         if (bandUnit == Unit.UnitType.AMPLITUDE) {
             sigma = v * v;
@@ -19,6 +19,7 @@ import com.bc.ceres.core.ProgressMonitor;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.calibration.gpf.Sentinel1RemoveThermalNoiseOp;
 import org.esa.s1tbx.calibration.gpf.support.BaseCalibrator;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationHandle;
 import org.esa.s1tbx.calibration.gpf.support.Calibrator;
 import org.esa.s1tbx.commons.Sentinel1Utils;
 import org.esa.snap.core.datamodel.Band;
@@ -43,7 +44,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Calibration for Sentinel1 data products.
@@ -179,6 +182,19 @@ public final class Sentinel1Calibrator extends BaseCalibrator implements Calibra
         }
     }
 
+    /**
+     * Initializes the calibrator with the given calibration vectors instead of those in the product metadata.
+     */
+    void initialize(final Operator op, final Product srcProduct, final Product tgtProduct,
+                    final Map<String, String[]> targetBandNameToSourceBandName,
+                    final Map<String, CalibrationInfo> targetBandToCalInfo) {
+        this.calibrationOp = op;
+        this.sourceProduct = srcProduct;
+        this.targetProduct = tgtProduct;
+        this.targetBandNameToSourceBandName.putAll(targetBandNameToSourceBandName);
+        this.targetBandToCalInfo.putAll(targetBandToCalInfo);
+    }
+
     private boolean priorToIPFV234() throws OperatorException {
         final String procSysId = absRoot.getAttributeString(AbstractMetadata.ProcessingSystemIdentifier);
         final float version = Float.valueOf(procSysId.substring(procSysId.lastIndexOf(" ")));
@@ -674,8 +690,224 @@ public final class Sentinel1Calibrator extends BaseCalibrator implements Calibra
         }
     }
 
+    /**
+     * Computes all target bands of a tile together. The interpolation weights of the calibration vectors are
+     * computed once per row and column of the tile and the calibration factors once per calibration type,
+     * then shared by all target bands of the same polarisation and swath.
+     *
+     * @param targetTiles     The current tiles to be computed for each target band.
+     * @param targetRectangle The area in pixel coordinates to be computed.
+     * @param pm              A progress monitor which should be used to determine computation cancelation requests.
+     * @throws OperatorException If an error occurs during computation of the target rasters.
+     */
+    public void computeTileStack(final Map<Band, Tile> targetTiles, final Rectangle targetRectangle,
+                                 final ProgressMonitor pm) throws OperatorException {
+
+        final int x0 = targetRectangle.x;
+        final int y0 = targetRectangle.y;
+        final int w = targetRectangle.width;
+        final int h = targetRectangle.height;
+
+        try {
+            final Map<CalibrationInfo, List<TileBand>> calInfoToTileBands = new LinkedHashMap<>();
+            final Map<String, Tile> sourceTiles = new HashMap<>();
+            for (Map.Entry<Band, Tile> entry : targetTiles.entrySet()) {
+                final String targetBandName = entry.getKey().getName();
+                final String[] srcBandNames = targetBandNameToSourceBandName.get(targetBandName);
+                if (srcBandNames == null) {
+                    continue;
+                }
+                final CalibrationInfo calInfo = targetBandToCalInfo.get(targetBandName);
+                if (calInfo == null) {
+                    throw new OperatorException("Calibration information not found.");
+                }
+                calInfoToTileBands.computeIfAbsent(calInfo, k -> new ArrayList<>()).add(
+                        new TileBand(entry.getKey(), entry.getValue(), srcBandNames, sourceTiles, targetRectangle));
+            }
+
+            final int[] pixelIdx = new int[w];
+            final double[] muX = new double[w];
+            final double[][] calFactors = new double[CALTYPE.values().length][];
+            final double[] retroFactors = new double[w];
+            final float trgFloorValue = Sentinel1RemoveThermalNoiseOp.trgFloorValue;
+            final int maxY = y0 + h;
+
+            for (Map.Entry<CalibrationInfo, List<TileBand>> entry : calInfoToTileBands.entrySet()) {
+                final CalibrationInfo calInfo = entry.getKey();
+                final List<TileBand> tileBands = entry.getValue();
+
+                boolean needRetroFactors = false;
+                for (TileBand tileBand : tileBands) {
+                    if (calFactors[tileBand.calType.ordinal()] == null) {
+                        calFactors[tileBand.calType.ordinal()] = new double[w];
+                    }
+                    needRetroFactors |= dataType != null && tileBand.isUnitIntensity;
+                }
+
+                int lastCalVecIdx = -2;
+                for (int y = y0; y < maxY; ++y) {
+                    final int calVecIdx = calInfo.getCalibrationVectorIndex(subsetOffsetY + y);
+                    final Sentinel1Utils.CalibrationVector vec0 = calInfo.getCalibrationVector(calVecIdx);
+                    final Sentinel1Utils.CalibrationVector vec1 = calInfo.getCalibrationVector(calVecIdx + 1);
+                    if (calVecIdx != lastCalVecIdx) {
+                        computePixelWeights(vec0, subsetOffsetX + x0, pixelIdx, muX);
+                        lastCalVecIdx = calVecIdx;
+                    }
+
+                    final double azTime = calInfo.firstLineTime + (subsetOffsetY + y) * calInfo.lineTimeInterval;
+                    final double muY = (azTime - vec0.timeMJD) / (vec1.timeMJD - vec0.timeMJD);
+
+                    for (CALTYPE calType : CALTYPE.values()) {
+                        final double[] factors = calFactors[calType.ordinal()];
+                        if (factors != null) {
+                            interpolateRow(getVector(calType, vec0), getVector(calType, vec1), muY, pixelIdx, muX, factors);
+                            for (int i = 0; i < w; ++i) {
+                                factors[i] = 1.0 / (factors[i] * factors[i]);
+                            }
+                        }
+                    }
+                    if (needRetroFactors) {
+                        interpolateRow(getVector(dataType, vec0), getVector(dataType, vec1), muY, pixelIdx, muX, retroFactors);
+                    }
+
+                    for (TileBand tileBand : tileBands) {
+                        tileBand.computeRow(y, x0, w, calFactors[tileBand.calType.ordinal()], retroFactors, trgFloorValue);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException("Sentinel1Calibrator", e);
+        } finally {
+            pm.done();
+        }
+    }
+
+    private static void computePixelWeights(final Sentinel1Utils.CalibrationVector calVec, final int xStart,
+                                            final int[] pixelIdx, final double[] muX) {
+        final int[] pixels = calVec.pixels;
+        int idx = -1;
+        for (int i = 0; i < pixelIdx.length; ++i) {
+            final int x = xStart + i;
+            idx = getPixelIndex(calVec, idx, x);
+            pixelIdx[i] = idx;
+            muX[i] = (x - pixels[idx]) / (double) (pixels[idx + 1] - pixels[idx]);
+        }
+    }
+
+    private static void interpolateRow(final float[] vec0LUT, final float[] vec1LUT, final double muY,
+                                       final int[] pixelIdx, final double[] muX, final double[] lutValues) {
+        for (int i = 0; i < lutValues.length; ++i) {
+            final int idx = pixelIdx[i];
+            final double mu = muX[i];
+            lutValues[i] = (1 - muY) * ((1 - mu) * vec0LUT[idx] + mu * vec0LUT[idx + 1]) +
+                    muY * ((1 - mu) * vec1LUT[idx] + mu * vec1LUT[idx + 1]);
+        }
+    }
+
+    /**
+     * Source and target data of one target band within a tile stack.
+     */
+    private final class TileBand {
+        final CALTYPE calType;
+        final ProductData srcData1;
+        final ProductData srcData2;
+        final ProductData tgtData;
+        final TileIndex srcIndex;
+        final TileIndex trgIndex;
+        final boolean isUnitAmplitude;
+        final boolean isUnitIntensity;
+        final boolean isUnitReal;
+        final boolean isUnitIntensitydB;
+        final Unit.UnitType tgtBandUnit;
+
+        TileBand(final Band targetBand, final Tile targetTile, final String[] srcBandNames,
+                 final Map<String, Tile> sourceTiles, final Rectangle targetRectangle) {
+            this.calType = getCalibrationType(targetBand.getName());
+
+            final Band sourceBand1 = sourceProduct.getBand(srcBandNames[0]);
+            final Tile sourceRaster1 = getSourceTile(srcBandNames[0], sourceTiles, targetRectangle);
+            srcData1 = sourceRaster1.getDataBuffer();
+            srcData2 = srcBandNames.length > 1 ?
+                    getSourceTile(srcBandNames[1], sourceTiles, targetRectangle).getDataBuffer() : null;
+            tgtData = targetTile.getDataBuffer();
+            srcIndex = new TileIndex(sourceRaster1);
+            trgIndex = new TileIndex(targetTile);
+
+            final Unit.UnitType srcBandUnit = Unit.getUnitType(sourceBand1);
+            isUnitAmplitude = srcBandUnit == Unit.UnitType.AMPLITUDE;
+            isUnitIntensity = srcBandUnit == Unit.UnitType.INTENSITY;
+            isUnitReal = srcBandUnit == Unit.UnitType.REAL;
+            isUnitIntensitydB = srcBandUnit == Unit.UnitType.INTENSITY_DB;
+            tgtBandUnit = Unit.getUnitType(targetBand);
+        }
+
+        private Tile getSourceTile(final String srcBandName, final Map<String, Tile> sourceTiles,
+                                   final Rectangle targetRectangle) {
+            Tile sourceTile = sourceTiles.get(srcBandName);
+            if (sourceTile == null) {
+                sourceTile = calibrationOp.getSourceTile(sourceProduct.getBand(srcBandName), targetRectangle);
+                sourceTiles.put(srcBandName, sourceTile);
+            }
+            return sourceTile;
+        }
+
+        void computeRow(final int y, final int x0, final int w, final double[] calFactors,
+                        final double[] retroFactors, final float trgFloorValue) {
+            srcIndex.calculateStride(y);
+            trgIndex.calculateStride(y);
+
+            double dn, i, q, calibrationFactor, calValue, phaseTerm = 0.0;
+            for (int k = 0; k < w; ++k) {
+                final int x = x0 + k;
+                final int srcIdx = srcIndex.getIndex(x);
+                dn = srcData1.getElemDoubleAt(srcIdx);
+                calibrationFactor = calFactors[k];
+
+                if (isUnitAmplitude) {
+                    dn *= dn;
+                } else if (isUnitIntensity) {
+                    if (dataType != null) {
+                        calibrationFactor *= retroFactors[k];
+                    }
+                } else if (isUnitReal) {
+                    i = dn;
+                    q = srcData2.getElemDoubleAt(srcIdx);
+                    dn = i * i + q * q;
+                    if (dn > 0.0) {
+                        if (tgtBandUnit == Unit.UnitType.REAL) {
+                            phaseTerm = i / Math.sqrt(dn);
+                        } else if (tgtBandUnit == Unit.UnitType.IMAGINARY) {
+                            phaseTerm = q / Math.sqrt(dn);
+                        }
+                    } else {
+                        phaseTerm = 0.0;
+                    }
+                } else if (isUnitIntensitydB) {
+                    dn = FastMath.pow(10, dn / 10.0); // convert dB to linear scale
+                } else {
+                    throw new OperatorException("Sentinel-1 Calibration: unhandled unit");
+                }
+
+                calValue = dn * calibrationFactor;
+
+                if (dn == trgFloorValue) {
+                    while ((float) calValue < 0.00001) {
+                        dn *= 2;
+                        calValue = dn * calibrationFactor;
+                    }
+                }
+
+                if (isComplex && outputImageInComplex) {
+                    calValue = Math.sqrt(calValue) * phaseTerm;
+                }
+
+                tgtData.setElemDoubleAt(trgIndex.getIndex(x), calValue);
+            }
+        }
+    }
+
     private static int getPixelIndex(final Sentinel1Utils.CalibrationVector calVec, final int lastIndex, final int x) {
-        if(lastIndex >= 0 && lastIndex < calVec.pixels.length-1 && x >- calVec.pixels[lastIndex] && x < calVec.pixels[lastIndex+1]) {
+        if(lastIndex >= 0 && lastIndex < calVec.pixels.length-1 && x >= calVec.pixels[lastIndex] && x < calVec.pixels[lastIndex+1]) {
             return lastIndex;
         }
         int index = Arrays.binarySearch(calVec.pixels, x);
@@ -741,6 +973,11 @@ public final class Sentinel1Calibrator extends BaseCalibrator implements Calibra
                 (1 - muY) * ((1 - muX) * vec0LUT[pixelIdx] + muX * vec0LUT[pixelIdx + 1]) +
                         muY * ((1 - muX) * vec1LUT[pixelIdx] + muX * vec1LUT[pixelIdx + 1]);
 
+        return applyLUT(v, lutVal, bandUnit);
+    }
+
+    private static double applyLUT(final double v, final double lutVal, final Unit.UnitType bandUnit) {
+
         double sigma = 0.0;
         if (bandUnit == Unit.UnitType.AMPLITUDE) {
             sigma = v*v / (lutVal*lutVal);
@@ -757,6 +994,80 @@ public final class Sentinel1Calibrator extends BaseCalibrator implements Calibra
         return sigma;
     }
 
+    @Override
+    public CalibrationHandle getCalibrationHandle(final String bandName, final String bandPolar,
+                                                  final Unit.UnitType bandUnit) {
+        return new Sentinel1CalibrationHandle(bandName, bandPolar, bandUnit,
+                targetBandToCalInfo.get(bandName), getCalibrationType(bandName));
+    }
+
+    /**
+     * Calibrates a batch of pixels with the vector and pixel searches of the previous pixel reused
+     * while the pixels stay between the same calibration vectors and vector pixels.
+     */
+    @Override
+    public void applyCalibration(
+            final CalibrationHandle handle, final double[] v, final double[] rangeIndex, final double[] azimuthIndex,
+            final double[] slantRange, final double[] satelliteHeight, final double[] sceneToEarthCentre,
+            final double[] localIncidenceAngle, final int[] subSwathIndex, final int count) {
+
+        if (!(handle instanceof Sentinel1CalibrationHandle)) {
+            Calibrator.super.applyCalibration(handle, v, rangeIndex, azimuthIndex, slantRange, satelliteHeight,
+                    sceneToEarthCentre, localIncidenceAngle, subSwathIndex, count);
+            return;
+        }
+
+        final Sentinel1CalibrationHandle s1Handle = (Sentinel1CalibrationHandle) handle;
+        final CalibrationInfo calInfo = s1Handle.calInfo;
+        final Sentinel1Utils.CalibrationVector[] vectors = calInfo.calibrationVectorList;
+
+        int calVecIdx = -1, pixelIdx = -1;
+        Sentinel1Utils.CalibrationVector vec0 = null, vec1 = null;
+        float[] vec0LUT = null, vec1LUT = null;
+        int[] pixels = null;
+
+        for (int i = 0; i < count; ++i) {
+            final int y = (int) azimuthIndex[i];
+            if (calVecIdx < 0 || y < vec0.line || y >= vec1.line) {
+                calVecIdx = calInfo.getCalibrationVectorIndex(y);
+                vec0 = calInfo.getCalibrationVector(calVecIdx);
+                vec1 = calInfo.getCalibrationVector(calVecIdx + 1);
+                vec0LUT = getVector(s1Handle.calType, vec0);
+                vec1LUT = getVector(s1Handle.calType, vec1);
+                pixels = vec0.pixels;
+                pixelIdx = -1;
+            }
+
+            final int x = (int) rangeIndex[i];
+            if (pixelIdx < 0 || x < pixels[pixelIdx] || (x >= pixels[pixelIdx + 1] && pixelIdx != pixels.length - 2)) {
+                pixelIdx = vectors[calVecIdx].getPixelIndex(x);
+            }
+
+            final double azTime = calInfo.firstLineTime + azimuthIndex[i] * calInfo.lineTimeInterval;
+            final double muY = (azTime - vec0.timeMJD) / (vec1.timeMJD - vec0.timeMJD);
+            final double muX =
+                    (rangeIndex[i] - pixels[pixelIdx]) / (double)(pixels[pixelIdx + 1] - pixels[pixelIdx]);
+
+            final double lutVal =
+                    (1 - muY) * ((1 - muX) * vec0LUT[pixelIdx] + muX * vec0LUT[pixelIdx + 1]) +
+                            muY * ((1 - muX) * vec1LUT[pixelIdx] + muX * vec1LUT[pixelIdx + 1]);
+
+            v[i] = applyLUT(v[i], lutVal, handle.bandUnit);
+        }
+    }
+
+    private static final class Sentinel1CalibrationHandle extends CalibrationHandle {
+        final CalibrationInfo calInfo;
+        final CALTYPE calType;
+
+        Sentinel1CalibrationHandle(final String bandName, final String bandPolar, final Unit.UnitType bandUnit,
+                                   final CalibrationInfo calInfo, final CALTYPE calType) {
+            super(bandName, bandPolar, bandUnit);
+            this.calInfo = calInfo;
+            this.calType = calType;
+        }
+    }
+
     public double applyRetroCalibration(
             int x, int y, double v, String bandPolar, final Unit.UnitType bandUnit, int[] subSwathIndex) {
 
@@ -18,6 +18,8 @@ package org.esa.s1tbx.calibration.gpf.calibrators;
 import com.bc.ceres.core.ProgressMonitor;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.calibration.gpf.support.BaseCalibrator;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationFactorHandle;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationHandle;
 import org.esa.s1tbx.calibration.gpf.support.Calibrator;
 import org.esa.snap.core.dataio.ProductIO;
 import org.esa.snap.core.datamodel.*;
@@ -534,6 +536,23 @@ public class TerraSARXCalibrator extends BaseCalibrator implements Calibrator {
             final double satelliteHeight, final double sceneToEarthCentre, final double localIncidenceAngle,
             final String bandName, final String bandPolar, final Unit.UnitType bandUnit, int[] subSwathIndex) {
 
+        final double Ks = calibrationFactor.get(bandPolar.toUpperCase());
+        return calibratePixel(v, localIncidenceAngle, bandUnit, Ks);
+    }
+
+    @Override
+    public CalibrationHandle getCalibrationHandle(final String bandName, final String bandPolar,
+                                                  final Unit.UnitType bandUnit) {
+        final Double Ks = bandPolar == null ? null : calibrationFactor.get(bandPolar.toUpperCase());
+        if (Ks == null) {
+            return Calibrator.super.getCalibrationHandle(bandName, bandPolar, bandUnit);
+        }
+        return new CalibrationFactorHandle(bandName, bandPolar, bandUnit, Ks, this::calibratePixel);
+    }
+
+    private double calibratePixel(final double v, final double localIncidenceAngle, final Unit.UnitType bandUnit,
+                                  final double Ks) {
+
         double sigma = 0.0;
         if (bandUnit == Unit.UnitType.AMPLITUDE) {
             sigma = v * v;
@@ -545,7 +564,6 @@ public class TerraSARXCalibrator extends BaseCalibrator implements Calibrator {
             throw new OperatorException("TerraSARXCalibrator: Unknown band unit");
         }
 
-        final double Ks = calibrationFactor.get(bandPolar.toUpperCase());
         sigma *= Ks * FastMath.sin(localIncidenceAngle * Constants.DTOR);
         return sigma;
     }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf.support;
+
+/**
+ * Smooth per pixel quantities of an image sampled on a coarse regular grid and bilinearly interpolated.
+ * The interpolation error is measured at the centre of every grid cell when the grid is created.
+ * A grid is immutable once created and can be shared by all threads.
+ */
+public final class BilinearGrid {
+
+    /**
+     * Computes the exact values of a pixel
+     */
+    public interface Sampler {
+        void sample(final int x, final int y, final double[] values);
+    }
+
+    private final int step;
+    private final int[] nodeX;
+    private final int[] nodeY;
+    private final double[][] nodeValues; // [value][row * nodeX.length + col]
+    private final double[] maxError;
+
+    private BilinearGrid(final int step, final int[] nodeX, final int[] nodeY, final double[][] nodeValues) {
+        this.step = step;
+        this.nodeX = nodeX;
+        this.nodeY = nodeY;
+        this.nodeValues = nodeValues;
+        this.maxError = new double[nodeValues.length];
+    }
+
+    /**
+     * Samples the grid nodes every step pixels, plus the last row and column of the image.
+     *
+     * @param width     image width
+     * @param height    image height
+     * @param step      grid spacing in pixels
+     * @param numValues number of values of a pixel
+     * @param sampler   computes the exact values
+     * @return the grid
+     */
+    public static BilinearGrid create(final int width, final int height, final int step, final int numValues,
+                                      final Sampler sampler) {
+        if (step < 1) {
+            throw new IllegalArgumentException("step must be positive");
+        }
+        final int[] nodeX = getNodes(width, step);
+        final int[] nodeY = getNodes(height, step);
+        final int numCols = nodeX.length;
+
+        final double[][] nodeValues = new double[numValues][numCols * nodeY.length];
+        final double[] values = new double[numValues];
+        for (int r = 0; r < nodeY.length; ++r) {
+            for (int c = 0; c < numCols; ++c) {
+                sampler.sample(nodeX[c], nodeY[r], values);
+                for (int v = 0; v < numValues; ++v) {
+                    nodeValues[v][r * numCols + c] = values[v];
+                }
+            }
+        }
+
+        final BilinearGrid grid = new BilinearGrid(step, nodeX, nodeY, nodeValues);
+        grid.measureError(sampler);
+        return grid;
+    }
+
+    private static int[] getNodes(final int size, final int step) {
+        final int last = Math.max(size - 1, 0);
+        final int n = Math.max((last + step - 1) / step, 1) + 1;
+        final int[] nodes = new int[n];
+        for (int i = 0; i < n; ++i) {
+            nodes[i] = Math.min(i * step, last);
+        }
+        return nodes;
+    }
+
+    private void measureError(final Sampler sampler) {
+        final double[] exact = new double[nodeValues.length];
+        for (int r = 0; r < nodeY.length - 1; ++r) {
+            final int y = (nodeY[r] + nodeY[r + 1]) / 2;
+            for (int c = 0; c < nodeX.length - 1; ++c) {
+                final int x = (nodeX[c] + nodeX[c + 1]) / 2;
+                sampler.sample(x, y, exact);
+                for (int v = 0; v < nodeValues.length; ++v) {
+                    maxError[v] = Math.max(maxError[v], Math.abs(getValue(v, x, y) - exact[v]));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the largest difference between the interpolated and the exact values found at the cell centres
+     */
+    public double getMaxError(final int value) {
+        return maxError[value];
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public double getValue(final int value, final int x, final int y) {
+        final int r = getCell(nodeY, y);
+        final int c = getCell(nodeX, x);
+        final double muY = getWeight(nodeY, r, y);
+        final double muX = getWeight(nodeX, c, x);
+
+        final double[] values = nodeValues[value];
+        final int i0 = r * nodeX.length + c;
+        final int i1 = i0 + nodeX.length;
+        return (1 - muY) * ((1 - muX) * values[i0] + muX * values[i0 + 1]) +
+                muY * ((1 - muX) * values[i1] + muX * values[i1 + 1]);
+    }
+
+    /**
+     * Interpolates a value along part of an image row
+     *
+     * @param value the index of the value
+     * @param x0    the first pixel
+     * @param y     the row
+     * @param w     number of pixels
+     * @param array receives the w values
+     */
+    public void getRow(final int value, final int x0, final int y, final int w, final double[] array) {
+        final int r = getCell(nodeY, y);
+        final double muY = getWeight(nodeY, r, y);
+        final double[] values = nodeValues[value];
+        final int row0 = r * nodeX.length;
+        final int row1 = row0 + nodeX.length;
+
+        int c = -1;
+        double v0 = 0, v1 = 0;
+        for (int i = 0; i < w; ++i) {
+            final int x = x0 + i;
+            final int cell = getCell(nodeX, x);
+            if (cell != c) {
+                c = cell;
+                v0 = (1 - muY) * values[row0 + c] + muY * values[row1 + c];
+                v1 = (1 - muY) * values[row0 + c + 1] + muY * values[row1 + c + 1];
+            }
+            final double muX = getWeight(nodeX, c, x);
+            array[i] = (1 - muX) * v0 + muX * v1;
+        }
+    }
+
+    private int getCell(final int[] nodes, final int pos) {
+        return Math.max(0, Math.min(pos / step, nodes.length - 2));
+    }
+
+    private static double getWeight(final int[] nodes, final int cell, final int pos) {
+        final int span = nodes[cell + 1] - nodes[cell];
+        return span == 0 ? 0.0 : (pos - nodes[cell]) / (double) span;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf.support;
+
+import org.esa.snap.engine_utilities.datamodel.Unit;
+
+/**
+ * A band with its polarization dependent calibration factor already looked up,
+ * and the calibrator's per pixel calibration with that factor
+ */
+public class CalibrationFactorHandle extends CalibrationHandle {
+
+    public final double factor;
+    public final PixelCalibration pixelCalibration;
+
+    public CalibrationFactorHandle(final String bandName, final String bandPolar, final Unit.UnitType bandUnit,
+                                   final double factor, final PixelCalibration pixelCalibration) {
+        super(bandName, bandPolar, bandUnit);
+        this.factor = factor;
+        this.pixelCalibration = pixelCalibration;
+    }
+
+    /**
+     * Calibrates one pixel value with the calibration factor of its band
+     */
+    @FunctionalInterface
+    public interface PixelCalibration {
+        double calibratePixel(final double v, final double localIncidenceAngle, final Unit.UnitType bandUnit,
+                              final double factor);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf.support;
+
+import org.esa.snap.engine_utilities.datamodel.Unit;
+
+/**
+ * A band resolved by a Calibrator for calibrating many pixels.
+ * Calibrators extend it to hold what they would otherwise look up by band name or polarization on every pixel.
+ */
+public class CalibrationHandle {
+
+    public final String bandName;
+    public final String bandPolar;
+    public final Unit.UnitType bandUnit;
+
+    public CalibrationHandle(final String bandName, final String bandPolar, final Unit.UnitType bandUnit) {
+        this.bandName = bandName;
+        this.bandPolar = bandPolar;
+        this.bandUnit = bandUnit;
+    }
+}
@@ -66,6 +66,48 @@ public interface Calibrator {
             final double satelliteHeight, final double sceneToEarthCentre, final double localIncidenceAngle,
             final String bandName, final String bandPolar, final Unit.UnitType bandUnit, int[] subSwathIndex);
 
+    /**
+     * Resolves a band once for the batch applyCalibration, e.g. once per tile
+     */
+    default CalibrationHandle getCalibrationHandle(final String bandName, final String bandPolar,
+                                                   final Unit.UnitType bandUnit) {
+        return new CalibrationHandle(bandName, bandPolar, bandUnit);
+    }
+
+    /**
+     * Calibrates the first count pixels of a batch, e.g. of a tile row, in place.
+     * The geometry arrays hold the per pixel arguments of the single pixel applyCalibration.
+     * A CalibrationFactorHandle is calibrated with its factor and per pixel calibration.
+     *
+     * @param handle        the band from getCalibrationHandle
+     * @param v             the pixel values, replaced by the calibrated values
+     * @param subSwathIndex the sub-swath index of each pixel, may be updated
+     * @param count         number of pixels to calibrate
+     */
+    default void applyCalibration(
+            final CalibrationHandle handle, final double[] v, final double[] rangeIndex, final double[] azimuthIndex,
+            final double[] slantRange, final double[] satelliteHeight, final double[] sceneToEarthCentre,
+            final double[] localIncidenceAngle, final int[] subSwathIndex, final int count) {
+
+        if (handle instanceof CalibrationFactorHandle) {
+            final CalibrationFactorHandle factorHandle = (CalibrationFactorHandle) handle;
+            for (int i = 0; i < count; ++i) {
+                v[i] = factorHandle.pixelCalibration.calibratePixel(
+                        v[i], localIncidenceAngle[i], handle.bandUnit, factorHandle.factor);
+            }
+            return;
+        }
+
+        final int[] pixelSubSwathIndex = new int[1];
+        for (int i = 0; i < count; ++i) {
+            pixelSubSwathIndex[0] = subSwathIndex[i];
+            v[i] = applyCalibration(v[i], rangeIndex[i], azimuthIndex[i], slantRange[i], satelliteHeight[i],
+                    sceneToEarthCentre[i], localIncidenceAngle[i], handle.bandName, handle.bandPolar,
+                    handle.bandUnit, pixelSubSwathIndex);
+            subSwathIndex[i] = pixelSubSwathIndex[0];
+        }
+    }
+
     void removeFactorsForCurrentTile(final Band targetBand, final Tile targetTile, final String srcBandName);
 
     Product createTargetProduct(final Product sourceProduct, final String[] sourceBandNames);
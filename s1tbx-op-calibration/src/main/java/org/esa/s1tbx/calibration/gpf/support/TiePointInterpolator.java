@@ -4,24 +4,48 @@ import Jama.Matrix;
 import com.bc.ceres.core.ProgressMonitor;
 import org.esa.snap.core.datamodel.TiePointGrid;
 
+import java.util.function.Supplier;
+
 /**
  * Created by lveci on 06/08/2014.
+ * The polynomial coefficients are computed when the interpolator is created. It is immutable afterwards and
+ * can be shared by all threads without locking.
  */
 public class TiePointInterpolator {
 
     private final TiePointGrid tpg;
     private final float[] tiePoints;
-    private final int rasterWidth;
 
-    private double[][] quadraticInterpCoeffs = null; // 2 order quadratic polynomial coefficients
-    private double[] biquadraticInterpCoeffs = null; // 2 order biquadratic polynomial coefficients
+    private final double[][] quadraticInterpCoeffs; // 2 order quadratic polynomial coefficients
+    private final double[] biquadraticInterpCoeffs; // 2 order biquadratic polynomial coefficients
 
     public enum InterpMode {BILINEAR, QUADRATIC, BIQUADRATIC}
 
+    private static final int FORWARD_DIFFERENCE_SPAN = 64;
+
     public TiePointInterpolator(final TiePointGrid tpg) {
         this.tpg = tpg;
         this.tiePoints = tpg.getTiePoints();
-        this.rasterWidth = tpg.getRasterWidth();
+        this.quadraticInterpCoeffs = fitPolynomial(this::computeQuadraticInterpCoeffs);
+        this.biquadraticInterpCoeffs = fitPolynomial(this::computeBiquadraticInterpCoeffs);
+    }
+
+    /**
+     * @return the coefficients or null if the tie points do not determine the polynomial, e.g. a grid with
+     * fewer than 3 columns. The error is then reported when the interpolation mode is used.
+     */
+    private static <T> T fitPolynomial(final Supplier<T> fit) {
+        try {
+            return fit.get();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void checkCoeffs(final Object coeffs, final InterpMode interpMethod) {
+        if (coeffs == null) {
+            throw new IllegalStateException(interpMethod + " interpolation is not possible for " + tpg.getName());
+        }
     }
 
     /**=========================== Quadratic/Biquadratic Interpolations ================================**/
@@ -30,9 +54,7 @@ public class TiePointInterpolator {
      * are computed. The 3 coefficients are saved in a row in _quadraticInterpCoeffs as {a0, a1, a2}. The
      * quadratic polynomial is given as f(x) = a0 + a1*x + a2*x^2.
      */
-    private synchronized void computeQuadraticInterpCoeffs() {
-
-        if (quadraticInterpCoeffs != null) return;
+    private double[][] computeQuadraticInterpCoeffs() {
 
         final int numCoeff = 3;
         final int width = tpg.getGridWidth();
@@ -47,7 +69,7 @@ public class TiePointInterpolator {
         }
         final Matrix A = new Matrix(sampleIndexArray);
 
-        quadraticInterpCoeffs = new double[height][numCoeff];
+        final double[][] quadraticInterpCoeffs = new double[height][numCoeff];
         final double[] tiePointArray = new double[width];
         for (int r = 0; r < height; r++) {
             final int rwidth = r * width;
@@ -58,6 +80,7 @@ public class TiePointInterpolator {
             final Matrix x = A.solve(b);
             quadraticInterpCoeffs[r] = x.getColumnPackedCopy();
         }
+        return quadraticInterpCoeffs;
     }
 
     /**
@@ -65,9 +88,7 @@ public class TiePointInterpolator {
      * _biquadraticInterpCoeffs = {a0, a1, a2, a3, a4, a5} and the biquadratic polynomial is given as
      * f(x,y) = a0 + a1*x + a2*y + a3*x^2 + a4*y*x + a5*y^2.
      */
-    private synchronized void computeBiquadraticInterpCoeffs() {
-
-        if (biquadraticInterpCoeffs != null) return;
+    private double[] computeBiquadraticInterpCoeffs() {
 
         final int numCoeff = 6;
         final int w = tpg.getGridWidth();
@@ -94,15 +115,15 @@ public class TiePointInterpolator {
         final Matrix A = new Matrix(sampleIndexArray);
 
         // prepare matrix b
-        final float[] tiePoints = tpg.getTiePoints();
-
         final double[] tiePointArray = new double[n];
-        System.arraycopy(tiePoints, 0, tiePointArray, 0, n);
+        for (int k = 0; k < n; k++) {
+            tiePointArray[k] = tiePoints[k];
+        }
         final Matrix b = new Matrix(tiePointArray, n);
 
         // compute coefficients
         final Matrix x = A.solve(b);
-        biquadraticInterpCoeffs = x.getColumnPackedCopy();
+        return x.getColumnPackedCopy();
     }
 
 
@@ -127,20 +148,13 @@ public class TiePointInterpolator {
 
         } else if (interpMethod == InterpMode.QUADRATIC) {
 
-            if (quadraticInterpCoeffs == null) {
-                computeQuadraticInterpCoeffs();
-            }
-            int r = (int) ((y - tpg.getOffsetY()) / tpg.getSubSamplingY());
-            if (r >= quadraticInterpCoeffs.length) {
-                r = quadraticInterpCoeffs.length - 1;
-            }
-            return quadraticInterpCoeffs[r][0] + quadraticInterpCoeffs[r][1] * x + quadraticInterpCoeffs[r][2] * x * x;
+            checkCoeffs(quadraticInterpCoeffs, interpMethod);
+            final double[] coeffs = quadraticInterpCoeffs[getQuadraticRow(y)];
+            return coeffs[0] + coeffs[1] * x + coeffs[2] * x * x;
 
         } else if (interpMethod == InterpMode.BIQUADRATIC) {
 
-            if (biquadraticInterpCoeffs == null) {
-                computeBiquadraticInterpCoeffs();
-            }
+            checkCoeffs(biquadraticInterpCoeffs, interpMethod);
             return biquadraticInterpCoeffs[0] + biquadraticInterpCoeffs[1] * x + biquadraticInterpCoeffs[2] * y
                     + biquadraticInterpCoeffs[3] * x * x + biquadraticInterpCoeffs[4] * x * y + biquadraticInterpCoeffs[5] * y * y;
 
@@ -172,13 +186,24 @@ public class TiePointInterpolator {
 
         } else if (interpMethod == InterpMode.QUADRATIC || interpMethod == InterpMode.BIQUADRATIC) {
 
-            int k = 0;
+            checkCoeffs(interpMethod == InterpMode.QUADRATIC ? quadraticInterpCoeffs : biquadraticInterpCoeffs,
+                    interpMethod);
+            final double[] b = biquadraticInterpCoeffs;
             final int maxY = y0 + h;
-            final int maxX = x0 + w;
-            for (int y = y0; y < maxY; y++) {
-                for (int x = x0; x < maxX; x++) {
-                    pixels[k++] = getPixelDouble(x, y, interpMethod);
+            for (int y = y0, k = 0; y < maxY; y++, k += w) {
+                // both polynomials are quadratic in x along a row: f(x) = c0 + c1*x + c2*x^2
+                final double c0, c1, c2;
+                if (interpMethod == InterpMode.QUADRATIC) {
+                    final double[] coeffs = quadraticInterpCoeffs[getQuadraticRow(y)];
+                    c0 = coeffs[0];
+                    c1 = coeffs[1];
+                    c2 = coeffs[2];
+                } else {
+                    c0 = b[0] + b[2] * y + b[5] * y * y;
+                    c1 = b[1] + b[4] * y;
+                    c2 = b[3];
                 }
+                getRowPixels(x0, w, c0, c1, c2, pixels, k);
             }
             return pixels;
 
@@ -187,6 +212,32 @@ public class TiePointInterpolator {
         }
     }
 
+    private int getQuadraticRow(final double y) {
+        final int r = (int) ((y - tpg.getOffsetY()) / tpg.getSubSamplingY());
+        return Math.min(r, quadraticInterpCoeffs.length - 1);
+    }
+
+    /**
+     * Evaluate f(x) = c0 + c1*x + c2*x^2 for w consecutive pixels by forward differences, i.e. with two additions
+     * per pixel. The polynomial is evaluated directly every FORWARD_DIFFERENCE_SPAN pixels to bound rounding errors.
+     */
+    private static void getRowPixels(final int x0, final int w, final double c0, final double c1, final double c2,
+                                     final double[] pixels, final int offset) {
+
+        final double d2 = 2.0 * c2;
+        for (int start = 0; start < w; start += FORWARD_DIFFERENCE_SPAN) {
+            final int end = Math.min(start + FORWARD_DIFFERENCE_SPAN, w);
+            final double x = x0 + start;
+            double f = c0 + c1 * x + c2 * x * x;
+            double d1 = c1 + c2 * (2.0 * x + 1.0); // f(x + 1) - f(x)
+            for (int i = offset + start, maxI = offset + end; i < maxI; i++) {
+                pixels[i] = f;
+                f += d1;
+                d1 += d2;
+            }
+        }
+    }
+
     protected static double[] ensureMinLengthArray(double[] array, int length) {
         if (array == null) {
             return new double[length];
@@ -30,6 +30,7 @@ import java.io.File;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assume.assumeTrue;
 
 /**
@@ -89,6 +90,61 @@ public class TestRemoveThermalNoiseOp {
         assertEquals(6065.0, floatValues[2], 0.0001);
     }
 
+    @Test
+    public void testProcessingS1_GRD_Calibrated() throws Exception {
+        processFileCalibrated(inputFile1, 100, 100);
+    }
+
+    @Test
+    public void testProcessingS1_StripmapSLC_Calibrated() throws Exception {
+        processFileCalibrated(inputFile2, 0, 0);
+    }
+
+    /**
+     * Removes the noise and calibrates in one pass and compares it to the noise removal followed by the calibration.
+     * All outputs of a polarisation come from the same source bands, so the fused bands are computed as a tile stack.
+     *
+     * @param inputFile the path to the input product
+     * @param x0        the x coordinate of the compared pixels
+     * @param y0        the y coordinate of the compared pixels
+     * @throws Exception general exception
+     */
+    private static void processFileCalibrated(final File inputFile, final int x0, final int y0) throws Exception {
+        final Product sourceProduct = TestUtils.readSourceProduct(inputFile);
+
+        final Sentinel1RemoveThermalNoiseOp fusedOp = (Sentinel1RemoveThermalNoiseOp) spi.createOperator();
+        fusedOp.setSourceProduct(sourceProduct);
+        fusedOp.setParameter("applyCalibration", true);
+        fusedOp.setParameter("outputGammaBand", true);
+        fusedOp.setParameter("outputBetaBand", true);
+        final Product fusedProduct = fusedOp.getTargetProduct();
+        TestUtils.verifyProduct(fusedProduct, true, true, true);
+        assertNull(fusedProduct.getBand("Intensity_VV"));
+
+        final Sentinel1RemoveThermalNoiseOp noiseOp = (Sentinel1RemoveThermalNoiseOp) spi.createOperator();
+        noiseOp.setSourceProduct(sourceProduct);
+        final CalibrationOp calOp = new CalibrationOp();
+        calOp.setSourceProduct(noiseOp.getTargetProduct());
+        calOp.setParameter("outputGammaBand", true);
+        calOp.setParameter("outputBetaBand", true);
+        final Product chainedProduct = calOp.getTargetProduct();
+
+        for (String bandName : new String[]{"Sigma0_VV", "Gamma0_VV", "Beta0_VV"}) {
+            final Band fusedBand = fusedProduct.getBand(bandName);
+            final Band chainedBand = chainedProduct.getBand(bandName);
+            assertNotNull(fusedBand);
+            assertNotNull(chainedBand);
+
+            final float[] fusedValues = new float[8];
+            final float[] chainedValues = new float[8];
+            fusedBand.readPixels(x0, y0, 4, 2, fusedValues, ProgressMonitor.NULL);
+            chainedBand.readPixels(x0, y0, 4, 2, chainedValues, ProgressMonitor.NULL);
+            for (int i = 0; i < fusedValues.length; ++i) {
+                assertEquals(chainedValues[i], fusedValues[i], Math.abs(chainedValues[i]) * 1e-5);
+            }
+        }
+    }
+
     /**
      * Processes a product and compares it to processed product known to be correct
      *
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf.calibrators;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationHandle;
+import org.esa.s1tbx.commons.Sentinel1Utils;
+import org.esa.snap.core.datamodel.Band;
+import org.esa.snap.core.datamodel.Product;
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.core.gpf.Operator;
+import org.esa.snap.core.gpf.OperatorException;
+import org.esa.snap.core.gpf.Tile;
+import org.esa.snap.core.gpf.annotations.SourceProduct;
+import org.esa.snap.core.gpf.annotations.TargetProduct;
+import org.esa.snap.engine_utilities.datamodel.Unit;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for Sentinel1Calibrator with synthetic calibration vectors.
+ */
+public class TestSentinel1Calibrator {
+
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+    private static final double FIRST_LINE_TIME = 7000.0;
+    private static final double LINE_TIME_INTERVAL = 1e-5;
+
+    // vector pixels and lines are unevenly spaced and cross the 16 x 16 tile boundaries
+    private static final int[] PIXELS = {0, 7, 15, 23, 31, 39};
+    private static final int[] LINES = {0, 10, 20, 40};
+
+    private static final String[] TARGET_BAND_NAMES = {"Sigma0_VV", "Beta0_VV", "Sigma0_VH"};
+
+    @Test
+    public void testTileStackMatchesComputeTile() {
+        final Product sourceProduct = createSourceProduct();
+
+        final float[][] perBand = calibrate(sourceProduct, false);
+        final float[][] stack = calibrate(sourceProduct, true);
+
+        for (int b = 0; b < TARGET_BAND_NAMES.length; ++b) {
+            for (int i = 0; i < WIDTH * HEIGHT; ++i) {
+                assertEquals(TARGET_BAND_NAMES[b] + " pixel " + i, perBand[b][i], stack[b][i], 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void testTileStackMatchesPixelCalibration() {
+        final Product sourceProduct = createSourceProduct();
+        final float[][] stack = calibrate(sourceProduct, true);
+
+        final Sentinel1Calibrator calibrator = createCalibrator(null, sourceProduct, null);
+        final String[] srcBandNames = {"Intensity_VV", "Intensity_VV", "Amplitude_VH"};
+        final Unit.UnitType[] units = {Unit.UnitType.INTENSITY, Unit.UnitType.INTENSITY, Unit.UnitType.AMPLITUDE};
+        final float[] dn = new float[WIDTH * HEIGHT];
+
+        for (int b = 0; b < TARGET_BAND_NAMES.length; ++b) {
+            sourceProduct.getBand(srcBandNames[b]).readPixels(0, 0, WIDTH, HEIGHT, dn, ProgressMonitor.NULL);
+            for (int y = 0; y < HEIGHT; ++y) {
+                for (int x = 0; x < WIDTH; ++x) {
+                    final double expected = calibrator.applyCalibration(dn[y * WIDTH + x], x, y, 0, 0, 0, 0,
+                            TARGET_BAND_NAMES[b], null, units[b], null);
+                    assertEquals(TARGET_BAND_NAMES[b] + " x " + x + " y " + y,
+                            (float) expected, stack[b][y * WIDTH + x], Math.abs(expected) * 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatchCalibrationMatchesPixelCalibration() {
+        final Sentinel1Calibrator calibrator = createCalibrator(null, createSourceProduct(), null);
+
+        // a geocoded row runs across the vector lines 10 and 20 and across the vector pixels, forwards and back
+        final int count = 200;
+        final double[] rangeIndex = new double[count];
+        final double[] azimuthIndex = new double[count];
+        final double[] v = new double[count];
+        final Random random = new Random(7);
+        for (int i = 0; i < count; ++i) {
+            final double t = i / (count - 1.0);
+            rangeIndex[i] = i < count / 2 ? 2 * t * (WIDTH - 1) : 2 * (1 - t) * (WIDTH - 1);
+            azimuthIndex[i] = 5.5 + t * 20.0;
+            v[i] = 1.0 + 1000.0 * random.nextDouble();
+        }
+        rangeIndex[10] = PIXELS[1];
+        azimuthIndex[10] = LINES[1];
+        rangeIndex[count - 1] = PIXELS[PIXELS.length - 1];
+
+        final Unit.UnitType[] units = {Unit.UnitType.INTENSITY, Unit.UnitType.INTENSITY, Unit.UnitType.AMPLITUDE};
+        for (int b = 0; b < TARGET_BAND_NAMES.length; ++b) {
+            final double[] batch = v.clone();
+            final CalibrationHandle handle = calibrator.getCalibrationHandle(TARGET_BAND_NAMES[b], null, units[b]);
+            calibrator.applyCalibration(handle, batch, rangeIndex, azimuthIndex, new double[count], new double[count],
+                    new double[count], new double[count], new int[count], count);
+
+            for (int i = 0; i < count; ++i) {
+                final double expected = calibrator.applyCalibration(v[i], rangeIndex[i], azimuthIndex[i], 0, 0, 0, 0,
+                        TARGET_BAND_NAMES[b], null, units[b], null);
+                assertEquals(TARGET_BAND_NAMES[b] + " pixel " + i, expected, batch[i], Math.abs(expected) * 1e-12);
+            }
+        }
+    }
+
+    private static float[][] calibrate(final Product sourceProduct, final boolean computeTileStack) {
+        final CalibratorOp op = new CalibratorOp(computeTileStack);
+        op.setSourceProduct(sourceProduct);
+        final Product targetProduct = op.getTargetProduct();
+
+        final float[][] values = new float[TARGET_BAND_NAMES.length][WIDTH * HEIGHT];
+        for (int b = 0; b < TARGET_BAND_NAMES.length; ++b) {
+            targetProduct.getBand(TARGET_BAND_NAMES[b]).readPixels(0, 0, WIDTH, HEIGHT, values[b], ProgressMonitor.NULL);
+        }
+        return values;
+    }
+
+    private static Product createSourceProduct() {
+        final Product product = new Product("S1", "GRD", WIDTH, HEIGHT);
+        final Random random = new Random(42);
+
+        final Band intensity = product.addBand("Intensity_VV", ProductData.TYPE_FLOAT32);
+        intensity.setUnit(Unit.INTENSITY);
+        final float[] intensityData = new float[WIDTH * HEIGHT];
+        for (int i = 0; i < intensityData.length; ++i) {
+            intensityData[i] = 1.0f + 1000.0f * random.nextFloat();
+        }
+        intensity.setData(ProductData.createInstance(intensityData));
+
+        final Band amplitude = product.addBand("Amplitude_VH", ProductData.TYPE_UINT16);
+        amplitude.setUnit(Unit.AMPLITUDE);
+        final short[] amplitudeData = new short[WIDTH * HEIGHT];
+        for (int i = 0; i < amplitudeData.length; ++i) {
+            amplitudeData[i] = (short) (1 + random.nextInt(60000));
+        }
+        amplitude.setData(ProductData.createInstance(ProductData.TYPE_UINT16, amplitudeData));
+
+        return product;
+    }
+
+    private static Sentinel1Calibrator createCalibrator(final Operator op, final Product sourceProduct,
+                                                        final Product targetProduct) {
+        final Map<String, String[]> targetBandNameToSourceBandName = new HashMap<>();
+        targetBandNameToSourceBandName.put("Sigma0_VV", new String[]{"Intensity_VV"});
+        targetBandNameToSourceBandName.put("Beta0_VV", new String[]{"Intensity_VV"});
+        targetBandNameToSourceBandName.put("Sigma0_VH", new String[]{"Amplitude_VH"});
+
+        final Sentinel1Calibrator.CalibrationInfo vvInfo = createCalibrationInfo("VV", 500.0f);
+        final Map<String, Sentinel1Calibrator.CalibrationInfo> targetBandToCalInfo = new HashMap<>();
+        targetBandToCalInfo.put("Sigma0_VV", vvInfo);
+        targetBandToCalInfo.put("Beta0_VV", vvInfo);
+        targetBandToCalInfo.put("Sigma0_VH", createCalibrationInfo("VH", 300.0f));
+
+        final Sentinel1Calibrator calibrator = new Sentinel1Calibrator();
+        calibrator.initialize(op, sourceProduct, targetProduct, targetBandNameToSourceBandName, targetBandToCalInfo);
+        return calibrator;
+    }
+
+    private static Sentinel1Calibrator.CalibrationInfo createCalibrationInfo(final String pol, final float base) {
+        final Sentinel1Utils.CalibrationVector[] vectors = new Sentinel1Utils.CalibrationVector[LINES.length];
+        for (int v = 0; v < LINES.length; ++v) {
+            final float[] sigma = new float[PIXELS.length];
+            final float[] beta = new float[PIXELS.length];
+            for (int p = 0; p < PIXELS.length; ++p) {
+                sigma[p] = base + 10.0f * p - 3.0f * v + (p % 2) * 7.0f;
+                beta[p] = base + 50.0f + 2.0f * v;
+            }
+            vectors[v] = new Sentinel1Utils.CalibrationVector(
+                    new ProductData.UTC(FIRST_LINE_TIME + LINES[v] * LINE_TIME_INTERVAL), LINES[v],
+                    PIXELS.clone(), sigma, beta, null, null);
+        }
+        return new Sentinel1Calibrator.CalibrationInfo("IW", pol, FIRST_LINE_TIME,
+                FIRST_LINE_TIME + (HEIGHT - 1) * LINE_TIME_INTERVAL, HEIGHT, vectors.length, vectors);
+    }
+
+    /**
+     * Runs the calibrator either band by band or on the whole tile stack.
+     */
+    private static class CalibratorOp extends Operator {
+
+        @SourceProduct
+        private Product sourceProduct;
+        @TargetProduct
+        private Product targetProduct;
+
+        private final boolean computeTileStack;
+        private Sentinel1Calibrator calibrator;
+
+        CalibratorOp(final boolean computeTileStack) {
+            this.computeTileStack = computeTileStack;
+        }
+
+        @Override
+        public void initialize() throws OperatorException {
+            targetProduct = new Product("S1_Cal", "GRD", WIDTH, HEIGHT);
+            targetProduct.setPreferredTileSize(16, 16);
+            for (String bandName : TARGET_BAND_NAMES) {
+                targetProduct.addBand(bandName, ProductData.TYPE_FLOAT32).setUnit(Unit.INTENSITY);
+            }
+            calibrator = createCalibrator(this, sourceProduct, targetProduct);
+            if (computeTileStack) {
+                deactivateComputeTileMethod();
+            }
+        }
+
+        @Override
+        public void computeTile(Band targetBand, Tile targetTile, ProgressMonitor pm) throws OperatorException {
+            calibrator.computeTile(targetBand, targetTile, pm);
+        }
+
+        @Override
+        public void computeTileStack(Map<Band, Tile> targetTiles, Rectangle targetRectangle, ProgressMonitor pm)
+                throws OperatorException {
+            calibrator.computeTileStack(targetTiles, targetRectangle, pm);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf.support;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for BilinearGrid.
+ */
+public class TestBilinearGrid {
+
+    private static final int WIDTH = 1001;
+    private static final int HEIGHT = 517;
+
+    @Test
+    public void testBilinearValuesAreExact() {
+        final BilinearGrid grid = BilinearGrid.create(WIDTH, HEIGHT, 16, 2, (x, y, values) -> {
+            values[0] = 800000.0 + 12.5 * x - 0.25 * y + 0.001 * x * y;
+            values[1] = 6370000.0 + 0.5 * y;
+        });
+
+        assertEquals(0.0, grid.getMaxError(0), 1e-6);
+        assertEquals(0.0, grid.getMaxError(1), 1e-6);
+
+        final double[] row = new double[300];
+        for (int y : new int[]{0, 15, 16, 17, 500, HEIGHT - 1}) {
+            grid.getRow(0, WIDTH - row.length, y, row.length, row);
+            for (int i = 0; i < row.length; i++) {
+                final int x = WIDTH - row.length + i;
+                final double expected = 800000.0 + 12.5 * x - 0.25 * y + 0.001 * x * y;
+                assertEquals(expected, row[i], 1e-6);
+                assertEquals(expected, grid.getValue(0, x, y), 1e-6);
+            }
+            assertEquals(6370000.0 + 0.5 * y, grid.getValue(1, 3, y), 1e-6);
+        }
+    }
+
+    @Test
+    public void testErrorBound() {
+        final BilinearGrid grid = BilinearGrid.create(WIDTH, HEIGHT, 32, 1,
+                (x, y, values) -> values[0] = 1e-4 * x * x);
+
+        // bilinear interpolation of a quadratic is off by curvature * step^2 / 8 at the cell centre
+        final double bound = 2e-4 * 32 * 32 / 8;
+        assertEquals(bound, grid.getMaxError(0), 1e-9);
+
+        double maxError = 0;
+        for (int x = 0; x < WIDTH; x++) {
+            maxError = Math.max(maxError, Math.abs(grid.getValue(0, x, 100) - 1e-4 * x * x));
+        }
+        assertTrue(maxError <= bound + 1e-9);
+    }
+
+    @Test
+    public void testSinglePixel() {
+        final BilinearGrid grid = BilinearGrid.create(1, 1, 16, 1, (x, y, values) -> values[0] = 42.0);
+        final double[] row = new double[1];
+        grid.getRow(0, 0, 0, 1, row);
+        assertEquals(42.0, row[0], 0.0);
+        assertEquals(0.0, grid.getMaxError(0), 0.0);
+    }
+}
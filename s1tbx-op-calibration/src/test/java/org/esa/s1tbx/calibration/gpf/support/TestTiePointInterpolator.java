@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf.support;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.core.datamodel.TiePointGrid;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for TiePointInterpolator.
+ */
+public class TestTiePointInterpolator {
+
+    private static final int GRID_WIDTH = 11;
+    private static final int GRID_HEIGHT = 9;
+    private static final int SUB_SAMPLING = 100;
+
+    private static TiePointGrid createSlantRangeTimeGrid() {
+        final float[] tiePoints = new float[GRID_WIDTH * GRID_HEIGHT];
+        for (int r = 0; r < GRID_HEIGHT; r++) {
+            for (int c = 0; c < GRID_WIDTH; c++) {
+                final double x = c * SUB_SAMPLING;
+                final double y = r * SUB_SAMPLING;
+                tiePoints[r * GRID_WIDTH + c] = (float) (5.5e6 + 3.0 * x + 1e-4 * x * x + 0.01 * y);
+            }
+        }
+        return new TiePointGrid("slant_range_time", GRID_WIDTH, GRID_HEIGHT, 0.5, 0.5,
+                SUB_SAMPLING, SUB_SAMPLING, tiePoints);
+    }
+
+    @Test
+    public void testRowsMatchPixels() {
+        final TiePointInterpolator interp = new TiePointInterpolator(createSlantRangeTimeGrid());
+
+        final int x0 = 7, y0 = 13, w = 600, h = 5;
+        for (TiePointInterpolator.InterpMode mode : new TiePointInterpolator.InterpMode[]{
+                TiePointInterpolator.InterpMode.QUADRATIC, TiePointInterpolator.InterpMode.BIQUADRATIC}) {
+
+            final double[] pixels = interp.getPixels(x0, y0, w, h, null, ProgressMonitor.NULL, mode);
+            for (int y = y0, k = 0; y < y0 + h; y++) {
+                for (int x = x0; x < x0 + w; x++, k++) {
+                    final double expected = interp.getPixelDouble(x, y, mode);
+                    assertEquals(mode + " at " + x + ',' + y, expected, pixels[k], Math.abs(expected) * 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testQuadraticFit() {
+        final TiePointInterpolator interp = new TiePointInterpolator(createSlantRangeTimeGrid());
+
+        // the tie points of a row lie on a quadratic
+        final double y = 2 * SUB_SAMPLING + 0.5;
+        for (int x = 0; x < 1000; x += 37) {
+            final double expected = 5.5e6 + 3.0 * x + 1e-4 * x * x + 0.01 * 2 * SUB_SAMPLING;
+            assertEquals(expected, interp.getPixelDouble(x, y, TiePointInterpolator.InterpMode.QUADRATIC), 1.0);
+        }
+    }
+}
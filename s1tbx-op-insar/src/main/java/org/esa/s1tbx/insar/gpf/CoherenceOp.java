@@ -44,7 +44,6 @@ import org.esa.snap.engine_utilities.gpf.TileIndex;
 import org.jblas.ComplexDouble;
 import org.jblas.ComplexDoubleMatrix;
 import org.jblas.DoubleMatrix;
-import org.jblas.MatrixFunctions;
 import org.jlinda.core.GeoPoint;
 import org.jlinda.core.Orbit;
 import org.jlinda.core.Point;
@@ -733,23 +732,13 @@ public class CoherenceOp extends Operator {
 
                 final ProductContainer product = targetMap.get(cohKey);
 
-                final Tile mstTileReal = getSourceTile(product.sourceMaster.realBand, extRect, border);
-                final Tile mstTileImag = getSourceTile(product.sourceMaster.imagBand, extRect, border);
-                final ComplexDoubleMatrix dataMaster = TileUtilsDoris.pullComplexDoubleMatrix(mstTileReal, mstTileImag);
-
-                final Tile slvTileReal = getSourceTile(product.sourceSlave.realBand, extRect, border);
-                final Tile slvTileImag = getSourceTile(product.sourceSlave.imagBand, extRect, border);
-                final ComplexDoubleMatrix dataSlave = TileUtilsDoris.pullComplexDoubleMatrix(slvTileReal, slvTileImag);
-
+                double[] phase = null;
                 if (subtractFlatEarthPhase) {
                     final DoubleMatrix flatEarthPhase = computeFlatEarthPhase(
                             cohx0, cohx0 + cohw - 1, cohw, cohy0, cohy0 + cohh - 1, cohh,
                             0, sourceImageWidth - 1, 0, sourceImageHeight - 1, product.sourceSlave.name);
 
-                    final ComplexDoubleMatrix complexReferencePhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(flatEarthPhase), MatrixFunctions.sin(flatEarthPhase));
-
-                    dataSlave.muli(complexReferencePhase);
+                    phase = addPhase(phase, flatEarthPhase);
 
                     if (OUTPUT_PHASE) {
                         saveFlatEarthPhase(x0, xN, y0, yN, flatEarthPhase, product, targetTileMap);
@@ -760,26 +749,16 @@ public class CoherenceOp extends Operator {
                     final TopoPhase topoPhase = TopoPhase.computeTopoPhase(
                             product, tileWindow, demTile, false);
 
-                    final ComplexDoubleMatrix ComplexTopoPhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(new DoubleMatrix(topoPhase.demPhase)),
-                            MatrixFunctions.sin(new DoubleMatrix(topoPhase.demPhase)));
-
-                    dataSlave.muli(ComplexTopoPhase);
+                    phase = addPhase(phase, topoPhase.demPhase);
 
                     if (OUTPUT_PHASE) {
                         saveTopoPhase(x0, xN, y0, yN, topoPhase.demPhase, product, targetTileMap);
                     }
                 }
 
-                for (int i = 0; i < dataMaster.length; i++) {
-                    double tmp = norm(dataMaster.get(i));
-                    dataMaster.put(i, dataMaster.get(i).mul(dataSlave.get(i).conj()));
-                    dataSlave.put(i, new ComplexDouble(norm(dataSlave.get(i)), tmp));
-                }
-
-                DoubleMatrix cohMatrix = SarUtils.coherence2(dataMaster, dataSlave, cohWinAz, cohWinRg);
+                final float[] cohData = computeCoherence(product, extRect, border, phase);
 
-                saveCoherence(cohMatrix, product, targetTileMap, targetRectangle);
+                saveCoherence(cohData, product, targetTileMap, targetRectangle);
             }
 
         } catch (Throwable e) {
@@ -845,13 +824,14 @@ public class CoherenceOp extends Operator {
         }
     }
 
-    private void saveCoherence(final DoubleMatrix cohMatrix, final ProductContainer product,
+    private void saveCoherence(final float[] cohData, final ProductContainer product,
                                final Map<Band, Tile> targetTileMap, final Rectangle targetRectangle) {
 
         final int x0 = targetRectangle.x;
         final int y0 = targetRectangle.y;
         final int maxX = x0 + targetRectangle.width;
         final int maxY = y0 + targetRectangle.height;
+        final int w = targetRectangle.width;
 
         final Band coherenceBand = targetProduct.getBand(product.getBandName(Unit.COHERENCE));
         final Tile coherenceTile = targetTileMap.get(coherenceBand);
@@ -866,21 +846,95 @@ public class CoherenceOp extends Operator {
         for (int y = y0; y < maxY; y++) {
             tgtIndex.calculateStride(y);
             srcSlvIndex.calculateStride(y);
-            final int yy = y - y0;
+            final int offset = (y - y0) * w - x0;
             for (int x = x0; x < maxX; x++) {
                 final int tgtIdx = tgtIndex.getIndex(x);
-                final int xx = x - x0;
 
                 if (srcSlvData.getElemDoubleAt(srcSlvIndex.getIndex(x)) == srcNoDataValue) {
                     coherenceData.setElemFloatAt(tgtIdx, (float) srcNoDataValue);
                 } else {
-                    final double coh = cohMatrix.get(yy, xx);
-                    coherenceData.setElemFloatAt(tgtIdx, (float) coh);
+                    coherenceData.setElemFloatAt(tgtIdx, cohData[offset + x]);
                 }
             }
         }
     }
 
+    /**
+     * Computes the coherence of one master/slave pair for the extended source rectangle.
+     *
+     * @param phase optional phase in radians, row major over extRect, removed from the slave before estimation
+     * @return coherence of the target rectangle, row major
+     */
+    private float[] computeCoherence(final ProductContainer product, final Rectangle extRect,
+                                     final BorderExtender border, final double[] phase) {
+
+        final ProductData mstReal = getSourceTile(product.sourceMaster.realBand, extRect, border).getRawSamples();
+        final ProductData mstImag = getSourceTile(product.sourceMaster.imagBand, extRect, border).getRawSamples();
+        final ProductData slvReal = getSourceTile(product.sourceSlave.realBand, extRect, border).getRawSamples();
+        final ProductData slvImag = getSourceTile(product.sourceSlave.imagBand, extRect, border).getRawSamples();
+
+        final int size = extRect.width * extRect.height;
+        final double[] crossRe = new double[size];
+        final double[] crossIm = new double[size];
+        final double[] mstPower = new double[size];
+        final double[] slvPower = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            final double mr = mstReal.getElemDoubleAt(i);
+            final double mi = mstImag.getElemDoubleAt(i);
+            double sr = slvReal.getElemDoubleAt(i);
+            double si = slvImag.getElemDoubleAt(i);
+            if (phase != null) {
+                final double c = FastMath.cos(phase[i]);
+                final double s = FastMath.sin(phase[i]);
+                final double tmp = sr * c - si * s;
+                si = sr * s + si * c;
+                sr = tmp;
+            }
+            crossRe[i] = mr * sr + mi * si;
+            crossIm[i] = mi * sr - mr * si;
+            mstPower[i] = mr * mr + mi * mi;
+            slvPower[i] = sr * sr + si * si;
+        }
+
+        final float[] cohData = new float[(extRect.width - cohWinRg + 1) * (extRect.height - cohWinAz + 1)];
+        coherence(crossRe, crossIm, mstPower, slvPower, cohWinAz, cohWinRg, extRect.width, extRect.height, cohData);
+        return cohData;
+    }
+
+    private static double[] addPhase(double[] phase, final DoubleMatrix phaseMatrix) {
+
+        final int rows = phaseMatrix.rows;
+        final int cols = phaseMatrix.columns;
+        if (phase == null) {
+            phase = new double[rows * cols];
+        }
+        for (int r = 0; r < rows; r++) {
+            final int stride = r * cols;
+            for (int c = 0; c < cols; c++) {
+                phase[stride + c] += phaseMatrix.get(r, c);
+            }
+        }
+        return phase;
+    }
+
+    private static double[] addPhase(double[] phase, final double[][] phaseArray) {
+
+        final int rows = phaseArray.length;
+        final int cols = phaseArray[0].length;
+        if (phase == null) {
+            phase = new double[rows * cols];
+        }
+        for (int r = 0; r < rows; r++) {
+            final double[] row = phaseArray[r];
+            final int stride = r * cols;
+            for (int c = 0; c < cols; c++) {
+                phase[stride + c] += row[c];
+            }
+        }
+        return phase;
+    }
+
     private void computeTileForTOPSARProduct(
             final Map<Band, Tile> targetTileMap, final Rectangle targetRectangle, final ProgressMonitor pm)
             throws OperatorException {
@@ -972,24 +1026,14 @@ public class CoherenceOp extends Operator {
                 updateSlvMetaData(product, burstIndex, slvMeta);
                 final Orbit slvOrbit = product.sourceSlave.orbit;
 
-                final Tile mstTileReal = getSourceTile(product.sourceMaster.realBand, extRect, border);
-                final Tile mstTileImag = getSourceTile(product.sourceMaster.imagBand, extRect, border);
-                final ComplexDoubleMatrix dataMaster = TileUtilsDoris.pullComplexDoubleMatrix(mstTileReal, mstTileImag);
-
-                final Tile slvTileReal = getSourceTile(product.sourceSlave.realBand, extRect, border);
-                final Tile slvTileImag = getSourceTile(product.sourceSlave.imagBand, extRect, border);
-                final ComplexDoubleMatrix dataSlave = TileUtilsDoris.pullComplexDoubleMatrix(slvTileReal, slvTileImag);
-
+                double[] phase = null;
                 final String polynomialName = product.sourceSlave.name + '_' + (subSwathIndex - 1) + '_' + burstIndex;
                 if (subtractFlatEarthPhase) {
                     final DoubleMatrix flatEarthPhase = computeFlatEarthPhase(
                             cohx0, cohx0 + cohw - 1, cohw, cohy0 - firstLineIdx, cohy0 + cohh - 1 - firstLineIdx, cohh,
                             minPixel, maxPixel, minLine, maxLine, polynomialName);
 
-                    final ComplexDoubleMatrix complexReferencePhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(flatEarthPhase), MatrixFunctions.sin(flatEarthPhase));
-
-                    dataSlave.muli(complexReferencePhase);
+                    phase = addPhase(phase, flatEarthPhase);
 
                     if (OUTPUT_PHASE) {
                         saveFlatEarthPhase(x0, xN, y0, yN, flatEarthPhase, product, targetTileMap);
@@ -1000,26 +1044,16 @@ public class CoherenceOp extends Operator {
                     TopoPhase topoPhase = TopoPhase.computeTopoPhase(
                             mstMeta, mstOrbit, slvMeta, slvOrbit, tileWindow, demTile, false);
 
-                    final ComplexDoubleMatrix ComplexTopoPhase = new ComplexDoubleMatrix(
-                            MatrixFunctions.cos(new DoubleMatrix(topoPhase.demPhase)),
-                            MatrixFunctions.sin(new DoubleMatrix(topoPhase.demPhase)));
-
-                    dataSlave.muli(ComplexTopoPhase);
+                    phase = addPhase(phase, topoPhase.demPhase);
 
                     if (OUTPUT_PHASE) {
                         saveTopoPhase(x0, xN, y0, yN, topoPhase.demPhase, product, targetTileMap);
                     }
                 }
 
-                for (int i = 0; i < dataMaster.length; i++) {
-                    double tmp = norm(dataMaster.get(i));
-                    dataMaster.put(i, dataMaster.get(i).mul(dataSlave.get(i).conj()));
-                    dataSlave.put(i, new ComplexDouble(norm(dataSlave.get(i)), tmp));
-                }
-
-                DoubleMatrix cohMatrix = SarUtils.coherence2(dataMaster, dataSlave, cohWinAz, cohWinRg);
+                final float[] cohData = computeCoherence(product, extRect, border, phase);
 
-                saveCoherence(cohMatrix, product, targetTileMap, targetRectangle);
+                saveCoherence(cohData, product, targetTileMap, targetRectangle);
             }
 
         } catch (Throwable e) {
@@ -1078,14 +1112,6 @@ public class CoherenceOp extends Operator {
         return new GeoPoint(lat / (2*cols), lon / (2*cols));
     }
 
-    private static double norm(final ComplexDouble number) {
-        return number.real() * number.real() + number.imag() * number.imag();
-    }
-
-    private static double norm(final double real, final double imag) {
-        return real * real + imag * imag;
-    }
-
     public static DoubleMatrix coherence(final double[] iMst, final double[] qMst, final double[] iSlv,
                                          final double[] qSlv, final int winL, final int winP, int w, int h) {
 
@@ -1156,6 +1182,84 @@ public class CoherenceOp extends Operator {
         return result;
     }
 
+    /**
+     * Coherence estimation with a separable box sum. The window sums are kept as running sums, first down
+     * each column over winL lines and then along the line over winP columns, so the cost per pixel does not
+     * depend on the window size and no objects are created.
+     *
+     * @param crossRe  real part of master times conjugate slave, row major w x h
+     * @param crossIm  imaginary part of master times conjugate slave
+     * @param mstPower master intensity
+     * @param slvPower slave intensity
+     * @param winL     window size in azimuth
+     * @param winP     window size in range
+     * @param result   output of (w - winP + 1) x (h - winL + 1) values, row major
+     */
+    public static void coherence(final double[] crossRe, final double[] crossIm, final double[] mstPower,
+                                 final double[] slvPower, final int winL, final int winP, final int w, final int h,
+                                 final float[] result) {
+
+        final int outW = w - winP + 1;
+        final int outH = h - winL + 1;
+        if (outW <= 0 || outH <= 0 || result.length < outW * outH) {
+            throw new IllegalArgumentException("coherence: window larger than input or output too small.");
+        }
+
+        final double[] colRe = new double[w];
+        final double[] colIm = new double[w];
+        final double[] colMst = new double[w];
+        final double[] colSlv = new double[w];
+
+        for (int k = 0; k < winL; k++) {
+            final int stride = k * w;
+            for (int x = 0; x < w; x++) {
+                colRe[x] += crossRe[stride + x];
+                colIm[x] += crossIm[stride + x];
+                colMst[x] += mstPower[stride + x];
+                colSlv[x] += slvPower[stride + x];
+            }
+        }
+
+        for (int i = 0; i < outH; i++) {
+            if (i > 0) {
+                final int oldStride = (i - 1) * w;
+                final int newStride = (i + winL - 1) * w;
+                for (int x = 0; x < w; x++) {
+                    colRe[x] += crossRe[newStride + x] - crossRe[oldStride + x];
+                    colIm[x] += crossIm[newStride + x] - crossIm[oldStride + x];
+                    colMst[x] += mstPower[newStride + x] - mstPower[oldStride + x];
+                    colSlv[x] += slvPower[newStride + x] - slvPower[oldStride + x];
+                }
+            }
+
+            double sumRe = 0, sumIm = 0, sumMst = 0, sumSlv = 0;
+            for (int l = 0; l < winP; l++) {
+                sumRe += colRe[l];
+                sumIm += colIm[l];
+                sumMst += colMst[l];
+                sumSlv += colSlv[l];
+            }
+
+            final int outStride = i * outW;
+            result[outStride] = (float) coherenceProduct(sumRe, sumIm, sumMst, sumSlv);
+            for (int j = 1; j < outW; j++) {
+                final int in = j + winP - 1;
+                final int out = j - 1;
+                sumRe += colRe[in] - colRe[out];
+                sumIm += colIm[in] - colIm[out];
+                sumMst += colMst[in] - colMst[out];
+                sumSlv += colSlv[in] - colSlv[out];
+                result[outStride + j] = (float) coherenceProduct(sumRe, sumIm, sumMst, sumSlv);
+            }
+        }
+    }
+
+    private static double coherenceProduct(final double sumRe, final double sumIm,
+                                           final double sumMst, final double sumSlv) {
+        final double product = sumMst * sumSlv;
+        return (product > 0.0) ? Math.sqrt(sumRe * sumRe + sumIm * sumIm) / Math.sqrt(product) : 0.0;
+    }
+
     static double coherenceProduct(final ComplexDouble sum, final ComplexDouble power) {
         final double product = power.real() * power.imag();
 //        return (product > 0.0) ? Math.sqrt(Math.pow(sum.abs(),2) / product) : 0.0;
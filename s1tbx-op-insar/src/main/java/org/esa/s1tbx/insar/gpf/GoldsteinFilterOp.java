@@ -35,6 +35,7 @@ import org.esa.snap.engine_utilities.gpf.InputProductValidator;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.ReaderUtils;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
+import org.jlinda.core.utils.SpectralUtils;
 
 import java.awt.*;
 import java.util.HashMap;
@@ -251,6 +252,10 @@ public class GoldsteinFilterOp extends Operator {
                 final double[][] fltSpec = new double[FFTSize][FFTSize];
                 final int colMax = I[0].length;
 
+                // FFT workspaces: interleaved rows of the imagette and one column
+                final double[] complexData = new double[2 * FFTSize * FFTSize];
+                final double[] colArray = new double[2 * FFTSize];
+
                 // arrays saving filtered I/Q data for the tile, note tile size could be different from 512x512 on boundary
                 final float[] iBandFiltered = new float[w * h];
                 final float[] qBandFiltered = new float[w * h];
@@ -279,13 +284,13 @@ public class GoldsteinFilterOp extends Operator {
                             continue;
                         }
 
-                        perform2DFFT(I, Q, specI, specQ);
+                        perform2DFFT(I, Q, specI, specQ, complexData, colArray);
 
                         getPowerSpectrum(specI, specQ, pwrSpec);
 
                         getFilteredPowerSpectrum(pwrSpec, fltSpec, alpha, halfWindowSize);
 
-                        performInverse2DFFT(specI, specQ, fltSpec, I, Q);
+                        performInverse2DFFT(specI, specQ, fltSpec, I, Q, complexData, colArray);
 
                         updateFilteredBands(x0, y0, w, h, x, y, I, Q, mask, iBandFiltered, qBandFiltered);
                     }
@@ -376,42 +381,35 @@ public class GoldsteinFilterOp extends Operator {
     }
 
     private static void perform2DFFT(final double[][] I, final double[][] Q,
-                                     final double[][] specI, final double[][] specQ) {
+                                     final double[][] specI, final double[][] specQ,
+                                     final double[] complexData, final double[] colArray) {
 
         final int rowMax = I.length;
         final int colMax = I[0].length;
+        final int rowStride = 2 * colMax;
 
-        // perform 1-D FFT to each row
-        final int rowFFTSize = colMax;
-        final int colFFTSize = rowMax;
-        final DoubleFFT_1D row_fft = new DoubleFFT_1D(rowFFTSize);
-        final double[][] complexDataI = new double[colFFTSize][rowFFTSize];
-        final double[][] complexDataQ = new double[colFFTSize][rowFFTSize];
-        final double[] rowArray = new double[2 * rowFFTSize];
+        // perform 1-D FFT to each row, in place
+        final DoubleFFT_1D row_fft = SpectralUtils.getFFTPlan(colMax);
         for (int r = 0; r < rowMax; r++) {
-            int k = 0;
+            final int offset = r * rowStride;
+            int k = offset;
             for (int c = 0; c < colMax; c++) {
-                rowArray[k++] = Q[r][c];
-                rowArray[k++] = I[r][c];
-            }
-            row_fft.complexForward(rowArray);
-            for (int c = 0; c < rowFFTSize; c++) {
-                complexDataQ[r][c] = rowArray[c + c];
-                complexDataI[r][c] = rowArray[c + c + 1];
+                complexData[k++] = Q[r][c];
+                complexData[k++] = I[r][c];
             }
+            row_fft.complexForward(complexData, offset);
         }
 
         // perform 1-D FFT to each column
-        final DoubleFFT_1D col_fft = new DoubleFFT_1D(colFFTSize);
-        final double[] colArray = new double[2 * colFFTSize];
+        final DoubleFFT_1D col_fft = SpectralUtils.getFFTPlan(rowMax);
         for (int c = 0; c < colMax; c++) {
             int k = 0;
-            for (int r = 0; r < rowMax; r++) {
-                colArray[k++] = complexDataQ[r][c];
-                colArray[k++] = complexDataI[r][c];
+            for (int r = 0, i = c + c; r < rowMax; r++, i += rowStride) {
+                colArray[k++] = complexData[i];
+                colArray[k++] = complexData[i + 1];
             }
             col_fft.complexForward(colArray);
-            for (int r = 0; r < colFFTSize; r++) {
+            for (int r = 0; r < rowMax; r++) {
                 specQ[r][c] = colArray[r + r];
                 specI[r][c] = colArray[r + r + 1];
             }
@@ -462,19 +460,15 @@ public class GoldsteinFilterOp extends Operator {
     }
 
     private static void performInverse2DFFT(final double[][] specI, final double[][] specQ, final double[][] fltSpec,
-                                            final double[][] I, final double[][] Q) {
+                                            final double[][] I, final double[][] Q,
+                                            final double[] complexData, final double[] colArray) {
 
         final int rowMax = I.length;
         final int colMax = I[0].length;
-
-        final int rowFFTSize = colMax;
-        final int colFFTSize = rowMax;
-        final double[][] complexDataI = new double[colFFTSize][rowFFTSize];
-        final double[][] complexDataQ = new double[colFFTSize][rowFFTSize];
+        final int rowStride = 2 * colMax;
 
         // perform 1-D FFT to each column
-        final DoubleFFT_1D col_fft = new DoubleFFT_1D(colFFTSize);
-        final double[] colArray = new double[2 * colFFTSize];
+        final DoubleFFT_1D col_fft = SpectralUtils.getFFTPlan(rowMax);
         for (int c = 0; c < colMax; c++) {
             int k = 0;
             for (int r = 0; r < rowMax; r++) {
@@ -482,25 +476,21 @@ public class GoldsteinFilterOp extends Operator {
                 colArray[k++] = specI[r][c] * fltSpec[r][c];
             }
             col_fft.complexInverse(colArray, false);
-            for (int r = 0; r < colFFTSize; r++) {
-                complexDataQ[r][c] = colArray[r + r];
-                complexDataI[r][c] = colArray[r + r + 1];
+            for (int r = 0, i = c + c; r < rowMax; r++, i += rowStride) {
+                complexData[i] = colArray[r + r];
+                complexData[i + 1] = colArray[r + r + 1];
             }
         }
 
-        // perform 1-D FFT to each row
-        final DoubleFFT_1D row_fft = new DoubleFFT_1D(rowFFTSize);
-        final double[] rowArray = new double[2 * rowFFTSize];
+        // perform 1-D FFT to each row, in place
+        final DoubleFFT_1D row_fft = SpectralUtils.getFFTPlan(colMax);
         for (int r = 0; r < rowMax; r++) {
-            int k = 0;
+            final int offset = r * rowStride;
+            row_fft.complexInverse(complexData, offset, false);
+            int k = offset;
             for (int c = 0; c < colMax; c++) {
-                rowArray[k++] = complexDataQ[r][c];
-                rowArray[k++] = complexDataI[r][c];
-            }
-            row_fft.complexInverse(rowArray, false);
-            for (int c = 0; c < rowFFTSize; c++) {
-                Q[r][c] = rowArray[c + c];
-                I[r][c] = rowArray[c + c + 1];
+                Q[r][c] = complexData[k++];
+                I[r][c] = complexData[k++];
             }
         }
     }
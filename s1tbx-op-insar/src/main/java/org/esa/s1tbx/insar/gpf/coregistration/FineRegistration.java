@@ -18,6 +18,7 @@ package org.esa.s1tbx.insar.gpf.coregistration;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.snap.engine_utilities.eo.Constants;
+import org.jlinda.core.utils.SpectralUtils;
 
 /**
  * Created by luis on 17/02/2016.
@@ -484,67 +485,19 @@ public class FineRegistration {
     private static void getComplexSlaveImagette(final ComplexCoregData compleData,
                                                 final double[] point) {
 
-        compleData.sII = new double[compleData.fWindowHeight][compleData.fWindowWidth];
-        compleData.sIQ = new double[compleData.fWindowHeight][compleData.fWindowWidth];
-
-        final double[][] sII0data = compleData.sII0;
-        final double[][] sIQ0data = compleData.sIQ0;
-        final double[][] sIIdata = compleData.sII;
-        final double[][] sIQdata = compleData.sIQ;
+        // the imagette is recomputed for every coherence evaluation, keep the arrays
+        if (compleData.sII == null) {
+            compleData.sII = new double[compleData.fWindowHeight][compleData.fWindowWidth];
+            compleData.sIQ = new double[compleData.fWindowHeight][compleData.fWindowWidth];
+        }
 
         final int x0 = (int) (compleData.point0[0] + 0.5);
         final int y0 = (int) (compleData.point0[1] + 0.5);
 
         final double xShift = x0 - point[0];
         final double yShift = y0 - point[1];
-        //System.out.println("xShift = " + xShift);
-        //System.out.println("yShift = " + yShift);
 
-        final double[] rowArray = new double[compleData.fTwoWindowWidth];
-        final double[] rowPhaseArray = new double[compleData.fTwoWindowWidth];
-        final DoubleFFT_1D row_fft = new DoubleFFT_1D(compleData.fWindowWidth);
-
-        int signalLength = rowArray.length / 2;
-        computeShiftPhaseArray(xShift, signalLength, rowPhaseArray);
-        for (int r = 0; r < compleData.fWindowHeight; r++) {
-            int k = 0;
-            final double[] sII = sII0data[r];
-            final double[] sIQ = sIQ0data[r];
-            for (int c = 0; c < compleData.fWindowWidth; c++) {
-                rowArray[k++] = sII[c];
-                rowArray[k++] = sIQ[c];
-            }
-
-            row_fft.complexForward(rowArray);
-            multiplySpectrumByShiftFactor(rowArray, rowPhaseArray);
-            row_fft.complexInverse(rowArray, true);
-            for (int c = 0; c < compleData.fWindowWidth; c++) {
-                sIIdata[r][c] = rowArray[2 * c];
-                sIQdata[r][c] = rowArray[2 * c + 1];
-            }
-        }
-
-        final double[] colArray = new double[compleData.fTwoWindowHeight];
-        final double[] colPhaseArray = new double[compleData.fTwoWindowHeight];
-        final DoubleFFT_1D col_fft = new DoubleFFT_1D(compleData.fWindowHeight);
-
-        signalLength = colArray.length / 2;
-        computeShiftPhaseArray(yShift, signalLength, colPhaseArray);
-        for (int c = 0; c < compleData.fWindowWidth; c++) {
-            int k = 0;
-            for (int r = 0; r < compleData.fWindowHeight; r++) {
-                colArray[k++] = sIIdata[r][c];
-                colArray[k++] = sIQdata[r][c];
-            }
-
-            col_fft.complexForward(colArray);
-            multiplySpectrumByShiftFactor(colArray, colPhaseArray);
-            col_fft.complexInverse(colArray, true);
-            for (int r = 0; r < compleData.fWindowHeight; r++) {
-                sIIdata[r][c] = colArray[2 * r];
-                sIQdata[r][c] = colArray[2 * r + 1];
-            }
-        }
+        getShiftedData(compleData, compleData.sII0, compleData.sIQ0, xShift, yShift, compleData.sII, compleData.sIQ);
     }
 
     private static void computeShiftPhaseArray(final double shift, final int signalLength, final double[] phaseArray) {
@@ -588,9 +541,9 @@ public class FineRegistration {
                                        final double xShift, final double yShift,
                                        final double[][] tgtI, final double[][] tgtQ) {
 
-        final double[] rowArray = new double[complexData.fTwoWindowWidth];
-        final double[] rowPhaseArray = new double[complexData.fTwoWindowWidth];
-        final DoubleFFT_1D row_fft = new DoubleFFT_1D(complexData.fWindowWidth);
+        final double[] rowArray = complexData.rowArray;
+        final double[] rowPhaseArray = complexData.rowPhaseArray;
+        final DoubleFFT_1D row_fft = SpectralUtils.getFFTPlan(complexData.fWindowWidth);
 
         int signalLength = rowArray.length / 2;
         computeShiftPhaseArray(xShift, signalLength, rowPhaseArray);
@@ -612,9 +565,9 @@ public class FineRegistration {
             }
         }
 
-        final double[] colArray = new double[complexData.fTwoWindowHeight];
-        final double[] colPhaseArray = new double[complexData.fTwoWindowHeight];
-        final DoubleFFT_1D col_fft = new DoubleFFT_1D(complexData.fWindowHeight);
+        final double[] colArray = complexData.colArray;
+        final double[] colPhaseArray = complexData.colPhaseArray;
+        final DoubleFFT_1D col_fft = SpectralUtils.getFFTPlan(complexData.fWindowHeight);
 
         signalLength = colArray.length / 2;
         computeShiftPhaseArray(yShift, signalLength, colPhaseArray);
@@ -674,6 +627,12 @@ public class FineRegistration {
 
         public final boolean useSlidingWindow;
 
+        // FFT workspaces for shifting the imagettes
+        private final double[] rowArray;
+        private final double[] rowPhaseArray;
+        private final double[] colArray;
+        private final double[] colPhaseArray;
+
         public ComplexCoregData(final int coherenceWindowSize, final double coherenceFuncToler,
                                 final double coherenceValueToler,
                                 final int fWindowWidth, final int fWindowHeight, final boolean useSlidingWindow) {
@@ -689,6 +648,11 @@ public class FineRegistration {
             this.fTwoWindowHeight = fWindowHeight * 2;
 
             this.useSlidingWindow = useSlidingWindow;
+
+            this.rowArray = new double[fTwoWindowWidth];
+            this.rowPhaseArray = new double[fTwoWindowWidth];
+            this.colArray = new double[fTwoWindowHeight];
+            this.colPhaseArray = new double[fTwoWindowHeight];
         }
 
         public void dispose() {
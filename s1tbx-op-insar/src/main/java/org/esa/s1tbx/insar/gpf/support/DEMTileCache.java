@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf.support;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.esa.snap.core.datamodel.GeoCoding;
+import org.esa.snap.core.datamodel.GeoPos;
+import org.esa.snap.core.datamodel.PixelPos;
+import org.esa.snap.core.datamodel.Product;
+import org.esa.snap.core.dataop.dem.ElevationModel;
+import org.esa.snap.dem.dataio.DEMFactory;
+import org.esa.snap.engine_utilities.gpf.TileGeoreferencing;
+import org.esa.snap.runtime.Config;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Process wide cache of the DEM tiles resampled by DEMFactory.getLocalDEM.
+ * Operators of a graph that work on the same image geometry share the resampled tiles instead of resampling
+ * the DEM again. A tile is identified by the DEM, the resampling method, the geometry of the image and the
+ * tile rectangle. An external DEM is identified by its absolute path and whether the EGM is applied to it. Tiles are stored as float and the cache is bounded by s1tbx.dem.tileCacheSizeMB.
+ */
+public final class DEMTileCache {
+
+    private static final long CACHE_SIZE_MB =
+            Config.instance().preferences().getLong("s1tbx.dem.tileCacheSizeMB", 256);
+
+    private static final Cache<TileKey, DEMTile> tileCache = CacheBuilder.newBuilder()
+            .maximumWeight(Math.max(CACHE_SIZE_MB, 0) * 1024L * 1024L)
+            .weigher((Weigher<TileKey, DEMTile>) (key, value) -> value.elevations.length * Float.BYTES)
+            .recordStats()
+            .build();
+
+    private static final Map<Product, String> geometryIds = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private DEMTileCache() {
+    }
+
+    /**
+     * Get the DEM of a tile, see DEMFactory.getLocalDEM.
+     *
+     * @param demName             name of the DEM
+     * @param externalDEMFile     the external DEM file or null
+     * @param externalDEMApplyEGM true if the earth gravitational model is applied to the external DEM
+     * @param geometryProduct     the product tileGeoRef was created for
+     * @param sourceProduct       the source product passed to DEMFactory.getLocalDEM
+     * @param localDEM            receives the (tileHeight + 2) by (tileWidth + 2) elevations
+     * @return false if the DEM does not cover the tile
+     * @throws Exception from DEMFactory.getLocalDEM
+     */
+    public static boolean getLocalDEM(final String demName, final File externalDEMFile,
+                                      final boolean externalDEMApplyEGM, final ElevationModel dem,
+                                      final double demNoDataValue,
+                                      final String demResamplingMethod, final Product geometryProduct,
+                                      final TileGeoreferencing tileGeoRef, final int x0, final int y0,
+                                      final int tileWidth, final int tileHeight, final Product sourceProduct,
+                                      final boolean nodataValueAtSea, final double[][] localDEM) throws Exception {
+
+        if (CACHE_SIZE_MB <= 0) {
+            return DEMFactory.getLocalDEM(dem, demNoDataValue, demResamplingMethod, tileGeoRef, x0, y0,
+                    tileWidth, tileHeight, sourceProduct, nodataValueAtSea, localDEM);
+        }
+
+        final TileKey key = createKey(demName, externalDEMFile, externalDEMApplyEGM, demResamplingMethod,
+                geometryProduct, sourceProduct, x0, y0, tileWidth, tileHeight, localDEM.length, localDEM[0].length,
+                nodataValueAtSea, demNoDataValue);
+
+        return getLocalDEM(key, demNoDataValue, localDEM, () -> DEMFactory.getLocalDEM(dem, demNoDataValue,
+                demResamplingMethod, tileGeoRef, x0, y0, tileWidth, tileHeight, sourceProduct, nodataValueAtSea,
+                localDEM));
+    }
+
+    static TileKey createKey(final String demName, final File externalDEMFile, final boolean externalDEMApplyEGM,
+                             final String demResamplingMethod, final Product geometryProduct,
+                             final Product sourceProduct, final int x0, final int y0, final int tileWidth,
+                             final int tileHeight, final int rows, final int columns, final boolean nodataValueAtSea,
+                             final double demNoDataValue) {
+        final String demId = externalDEMFile != null ? externalDEMFile.getAbsolutePath() : demName;
+        return new TileKey(demId, externalDEMFile != null && externalDEMApplyEGM, demResamplingMethod,
+                getGeometryId(geometryProduct), getGeometryId(sourceProduct), x0, y0, tileWidth, tileHeight,
+                rows, columns, nodataValueAtSea, demNoDataValue);
+    }
+
+    /**
+     * @param resampler fills localDEM and returns false if the DEM does not cover the tile
+     */
+    static boolean getLocalDEM(final TileKey key, final double demNoDataValue, final double[][] localDEM,
+                               final Callable<Boolean> resampler) throws Exception {
+        final DEMTile tile;
+        try {
+            // only one thread resamples a tile, the others wait for it
+            tile = tileCache.get(key, () -> new DEMTile(localDEM, resampler.call()));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            final Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+
+        tile.copyTo(localDEM, demNoDataValue);
+        return tile.valid;
+    }
+
+    /**
+     * @return hit and miss statistics of the cache
+     */
+    public static String getCacheStats() {
+        return tileCache.stats().toString();
+    }
+
+    public static void clear() {
+        tileCache.invalidateAll();
+    }
+
+    /**
+     * Images have the same geometry if they have the same size and their geocodings give the same positions
+     * at the corners and the centre.
+     */
+    private static String getGeometryId(final Product product) {
+        return geometryIds.computeIfAbsent(product, p -> {
+            final int w = p.getSceneRasterWidth();
+            final int h = p.getSceneRasterHeight();
+            final StringBuilder id = new StringBuilder().append(w).append('x').append(h);
+            final GeoCoding geoCoding = p.getSceneGeoCoding();
+            if (geoCoding == null) {
+                // no way to compare, keep the product to itself
+                return id.append('@').append(System.identityHashCode(p)).toString();
+            }
+            id.append(':').append(geoCoding.getClass().getSimpleName());
+            final double[][] pixels = {{0.5, 0.5}, {w - 0.5, 0.5}, {0.5, h - 0.5}, {w - 0.5, h - 0.5}, {w / 2.0, h / 2.0}};
+            final GeoPos geoPos = new GeoPos();
+            for (double[] pixel : pixels) {
+                geoCoding.getGeoPos(new PixelPos(pixel[0], pixel[1]), geoPos);
+                id.append(';').append(geoPos.lat).append(',').append(geoPos.lon);
+            }
+            return id.toString();
+        });
+    }
+
+    private static final class DEMTile {
+        final float[] elevations;
+        final int width;
+        final boolean valid;
+
+        DEMTile(final double[][] localDEM, final boolean valid) {
+            this.width = localDEM[0].length;
+            this.valid = valid;
+            this.elevations = new float[localDEM.length * width];
+            for (int r = 0; r < localDEM.length; ++r) {
+                final double[] row = localDEM[r];
+                final int offset = r * width;
+                for (int c = 0; c < width; ++c) {
+                    elevations[offset + c] = (float) row[c];
+                }
+            }
+        }
+
+        void copyTo(final double[][] localDEM, final double demNoDataValue) {
+            final float noDataValue = (float) demNoDataValue;
+            for (int r = 0; r < localDEM.length; ++r) {
+                final double[] row = localDEM[r];
+                final int offset = r * width;
+                for (int c = 0; c < width; ++c) {
+                    final float value = elevations[offset + c];
+                    // keep the exact no data value, callers compare against it
+                    row[c] = value == noDataValue ? demNoDataValue : value;
+                }
+            }
+        }
+    }
+
+    static final class TileKey {
+        private final String demId;
+        private final boolean applyEGM;
+        private final String resamplingMethod;
+        private final String geometryId;
+        private final String sourceGeometryId;
+        private final int x0, y0, tileWidth, tileHeight, rows, columns;
+        private final boolean nodataValueAtSea;
+        private final double demNoDataValue;
+        private final int hash;
+
+        TileKey(final String demId, final boolean applyEGM, final String resamplingMethod, final String geometryId,
+                final String sourceGeometryId, final int x0, final int y0, final int tileWidth, final int tileHeight,
+                final int rows, final int columns, final boolean nodataValueAtSea, final double demNoDataValue) {
+            this.demId = demId;
+            this.applyEGM = applyEGM;
+            this.resamplingMethod = resamplingMethod;
+            this.geometryId = geometryId;
+            this.sourceGeometryId = sourceGeometryId;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.tileWidth = tileWidth;
+            this.tileHeight = tileHeight;
+            this.rows = rows;
+            this.columns = columns;
+            this.nodataValueAtSea = nodataValueAtSea;
+            this.demNoDataValue = demNoDataValue;
+            this.hash = Objects.hash(demId, applyEGM, resamplingMethod, geometryId, sourceGeometryId,
+                    x0, y0, tileWidth, tileHeight, rows, columns, nodataValueAtSea, demNoDataValue);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            final TileKey key = (TileKey) obj;
+            return x0 == key.x0 && y0 == key.y0 && tileWidth == key.tileWidth && tileHeight == key.tileHeight &&
+                    rows == key.rows && columns == key.columns && nodataValueAtSea == key.nodataValueAtSea &&
+                    applyEGM == key.applyEGM &&
+                    Double.compare(demNoDataValue, key.demNoDataValue) == 0 &&
+                    Objects.equals(demId, key.demId) && Objects.equals(resamplingMethod, key.resamplingMethod) &&
+                    geometryId.equals(key.geometryId) && sourceGeometryId.equals(key.sourceGeometryId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
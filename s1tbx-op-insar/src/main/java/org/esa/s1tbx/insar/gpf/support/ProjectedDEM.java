@@ -122,9 +122,9 @@ public class ProjectedDEM {
 
             double[][] localDEM = new double[h + 2][w + 2];
 
-            final boolean valid = DEMFactory.getLocalDEM(
-                    dem, demNoDataValue, demResamplingMethod, tileGeoRef, x0, y0, w, h, sourceProduct,
-                    false, localDEM);
+            final boolean valid = DEMTileCache.getLocalDEM(
+                    demName, null, false, dem, demNoDataValue, demResamplingMethod, targetProduct, tileGeoRef,
+                    x0, y0, w, h, sourceProduct, false, localDEM);
             if (!valid) {
                 return;
             }
@@ -23,6 +23,8 @@ import org.esa.snap.engine_utilities.util.Maths;
 
 /**
  * Compute azimuth and range indices in SAR image for a given target point on the Earth's surface.
+ * The zero Doppler time of each target point is searched starting from the line of the previous point,
+ * so an instance should be used by one thread for neighbouring points, e.g. within one tile.
  */
 public class SARPosition {
 
@@ -39,6 +41,7 @@ public class SARPosition {
     private final AbstractMetadata.SRGRCoefficientList[] srgrConvParams;
 
     private int x0, y0, w, h;
+    private int zeroDopplerLine = -1;
 
     public static class PositionData {
         public final PosVector earthPoint = new PosVector();
@@ -86,11 +89,12 @@ public class SARPosition {
 
         final double zeroDopplerTime = SARGeocoding.getEarthPointZeroDopplerTime(
                 firstLineTime, lineTimeInterval, wavelength, data.earthPoint,
-                orbit.sensorPosition, orbit.sensorVelocity);
+                orbit.sensorPosition, orbit.sensorVelocity, zeroDopplerLine);
 
         if (zeroDopplerTime == SARGeocoding.NonValidZeroDopplerTime) {
             return false;
         }
+        zeroDopplerLine = (int) ((zeroDopplerTime - firstLineTime) / lineTimeInterval);
 
         data.slantRange = SARGeocoding.computeSlantRange(
                 zeroDopplerTime, orbit, data.earthPoint, data.sensorPos);
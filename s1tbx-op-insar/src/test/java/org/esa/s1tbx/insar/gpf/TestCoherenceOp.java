@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import org.jblas.DoubleMatrix;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the box sum coherence kernel with the matrix based estimation
+ */
+public class TestCoherenceOp {
+
+    private static final int W = 67;
+    private static final int H = 53;
+
+    @Test
+    public void testKernelMatchesMatrixCoherence() {
+        checkWindow(10, 3);
+        checkWindow(3, 10);
+        checkWindow(5, 5);
+        checkWindow(1, 1);
+    }
+
+    private static void checkWindow(final int winL, final int winP) {
+        final Random random = new Random(42);
+        final int size = W * H;
+        final double[] crossRe = new double[size];
+        final double[] crossIm = new double[size];
+        final double[] mstPower = new double[size];
+        final double[] slvPower = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            final double mr = random.nextGaussian() * 100;
+            final double mi = random.nextGaussian() * 100;
+            final double sr = mr + random.nextGaussian() * 50;
+            final double si = mi + random.nextGaussian() * 50;
+            crossRe[i] = mr * sr + mi * si;
+            crossIm[i] = mi * sr - mr * si;
+            mstPower[i] = mr * mr + mi * mi;
+            slvPower[i] = sr * sr + si * si;
+        }
+
+        final int outW = W - winP + 1;
+        final int outH = H - winL + 1;
+        final float[] result = new float[outW * outH];
+        CoherenceOp.coherence(crossRe, crossIm, mstPower, slvPower, winL, winP, W, H, result);
+
+        final DoubleMatrix expected = CoherenceOp.coherence(crossRe, crossIm, slvPower, mstPower, winL, winP, W, H);
+        assertEquals(outH, expected.rows);
+        assertEquals(outW, expected.columns);
+        for (int y = 0; y < outH; y++) {
+            for (int x = 0; x < outW; x++) {
+                assertEquals(expected.get(y, x), result[y * outW + x], 1e-5);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf.support;
+
+import org.esa.snap.core.datamodel.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for DEMTileCache.
+ */
+public class TestDEMTileCache {
+
+    private static final double NO_DATA = -32768.0;
+    private static final String EXTERNAL_DEM = "External DEM";
+
+    private final Product product = new Product("product", "type", 100, 100);
+    private int resampleCount;
+
+    @Before
+    public void setUp() {
+        DEMTileCache.clear();
+        resampleCount = 0;
+    }
+
+    @Test
+    public void testSameTileIsResampledOnce() throws Exception {
+        final double first = getElevation(key("SRTM 3Sec", null, false, 0), true);
+        final double second = getElevation(key("SRTM 3Sec", null, false, 0), true);
+
+        assertEquals(1, resampleCount);
+        assertEquals(first, second, 0.0);
+    }
+
+    @Test
+    public void testOtherTilesAndDEMsAreResampled() throws Exception {
+        getElevation(key("SRTM 3Sec", null, false, 0), true);
+        getElevation(key("SRTM 3Sec", null, false, 32), true);
+        getElevation(key("SRTM 1Sec HGT", null, false, 0), true);
+
+        assertEquals(3, resampleCount);
+    }
+
+    @Test
+    public void testInvalidTileIsCached() throws Exception {
+        final double[][] localDEM = new double[3][3];
+        final DEMTileCache.TileKey key = key("SRTM 3Sec", null, false, 0);
+
+        assertFalse(DEMTileCache.getLocalDEM(key, NO_DATA, localDEM, () -> resample(localDEM, false)));
+        assertFalse(DEMTileCache.getLocalDEM(key, NO_DATA, localDEM, () -> resample(localDEM, false)));
+        assertEquals(1, resampleCount);
+        assertEquals(NO_DATA, localDEM[1][1], 0.0);
+    }
+
+    @Test
+    public void testExternalDEMsWithSameFileNameDoNotAlias() throws Exception {
+        final File dem1 = new File("first" + File.separator + "dem.tif");
+        final File dem2 = new File("second" + File.separator + "dem.tif");
+
+        final double elevation1 = getElevation(key(EXTERNAL_DEM, dem1, true, 0), true);
+        final double elevation2 = getElevation(key(EXTERNAL_DEM, dem2, true, 0), true);
+
+        assertEquals(2, resampleCount);
+        assertTrue(elevation1 != elevation2);
+
+        // the same file given by its absolute path is the same DEM
+        assertEquals(elevation1, getElevation(key(EXTERNAL_DEM, dem1.getAbsoluteFile(), true, 0), true), 0.0);
+        assertEquals(2, resampleCount);
+    }
+
+    @Test
+    public void testExternalDEMWithAndWithoutEGMDoNotAlias() throws Exception {
+        final File dem = new File("dem.tif");
+
+        final double withEGM = getElevation(key(EXTERNAL_DEM, dem, true, 0), true);
+        final double withoutEGM = getElevation(key(EXTERNAL_DEM, dem, false, 0), true);
+
+        assertEquals(2, resampleCount);
+        assertTrue(withEGM != withoutEGM);
+    }
+
+    private DEMTileCache.TileKey key(final String demName, final File externalDEMFile, final boolean applyEGM,
+                                     final int x0) {
+        return DEMTileCache.createKey(demName, externalDEMFile, applyEGM, "BILINEAR_INTERPOLATION",
+                product, product, x0, 0, 32, 32, 34, 34, false, NO_DATA);
+    }
+
+    private double getElevation(final DEMTileCache.TileKey key, final boolean valid) throws Exception {
+        final double[][] localDEM = new double[34][34];
+        assertEquals(valid, DEMTileCache.getLocalDEM(key, NO_DATA, localDEM, () -> resample(localDEM, valid)));
+        return localDEM[17][17];
+    }
+
+    // every resampling gives different elevations so that an aliased tile is noticed
+    private boolean resample(final double[][] localDEM, final boolean valid) {
+        ++resampleCount;
+        for (double[] row : localDEM) {
+            Arrays.fill(row, valid ? 100.0 + resampleCount : NO_DATA);
+        }
+        return valid;
+    }
+}
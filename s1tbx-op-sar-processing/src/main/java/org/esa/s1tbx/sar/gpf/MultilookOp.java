@@ -35,6 +35,7 @@ import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 
 import java.awt.*;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -85,6 +86,10 @@ public final class MultilookOp extends Operator {
     @Parameter(description = "Use ground square pixel", defaultValue = "true", label = "GR Square Pixel")
     private Boolean grSquarePixel = true;
 
+    @Parameter(description = "Output the multilooked bands as float32 instead of the source data type",
+            defaultValue = "false", label = "Output Float32")
+    private Boolean outputFloat32 = false;
+
     private MetadataElement absRoot = null;
 
     private double azimuthLooks; // original azimuth_looks from metadata
@@ -206,7 +211,6 @@ public final class MultilookOp extends Operator {
             final boolean isdB = bandUnit == Unit.UnitType.INTENSITY_DB || bandUnit == Unit.UnitType.AMPLITUDE_DB;
             final boolean isComplex = outputIntensity && (bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY);
 
-            double meanValue;
             final int maxy = ty0 + th;
             final int maxx = tx0 + tw;
             if (nRgLooks == 1 && nAzLooks == 1) {
@@ -230,12 +234,20 @@ public final class MultilookOp extends Operator {
                     }
                 }
             } else {
-                for (int ty = ty0; ty < maxy; ty++) {
+                final double[] meanValues = new double[tw * th];
+                getMeanValues(srcData1, srcData2, sourceRaster1.getDataBufferIndex(x0, y0),
+                        sourceRaster1.getScanlineStride(), tw, th, nRgLooks, nAzLooks,
+                        isdB, isComplex && !isPolsar && srcData2 != null, meanValues);
+
+                final float[] trgFloats = trgData.getType() == ProductData.TYPE_FLOAT32 ? (float[]) trgData.getElems() : null;
+                for (int ty = ty0, k = 0; ty < maxy; ty++) {
                     trgIndex.calculateStride(ty);
-                    for (int tx = tx0; tx < maxx; tx++) {
-                        meanValue = getMeanValue(
-                                tx, ty, srcData1, srcData2, srcIndex, nRgLooks, nAzLooks, isdB, isComplex, isPolsar);
-                        trgData.setElemDoubleAt(trgIndex.getIndex(tx), meanValue);
+                    for (int tx = tx0; tx < maxx; tx++, k++) {
+                        if (trgFloats != null) {
+                            trgFloats[trgIndex.getIndex(tx)] = (float) meanValues[k];
+                        } else {
+                            trgData.setElemDoubleAt(trgIndex.getIndex(tx), meanValues[k]);
+                        }
                     }
                 }
             }
@@ -296,6 +308,10 @@ public final class MultilookOp extends Operator {
         OperatorUtils.addSelectedBands(
                 sourceProduct, sourceBandNames, targetProduct, targetBandNameToSourceBandName, outputIntensity, false);
 
+        if (outputFloat32 != null && outputFloat32) {
+            convertBandsToFloat32();
+        }
+
         if (!outputIntensity && noBandsSelected) { // add virtual bands
 
             final Band[] bands = sourceProduct.getBands();
@@ -331,6 +347,26 @@ public final class MultilookOp extends Operator {
         updateTargetProductMetadata();
     }
 
+    /**
+     * Replace the target bands that are not float32 with float32 bands at the same position in the product.
+     */
+    private void convertBandsToFloat32() {
+
+        final Band[] bands = targetProduct.getBands();
+        for (int i = 0; i < bands.length; i++) {
+            final Band band = bands[i];
+            if (band instanceof VirtualBand || band.getDataType() == ProductData.TYPE_FLOAT32) {
+                continue;
+            }
+            final Band floatBand = new Band(band.getName(), ProductData.TYPE_FLOAT32,
+                    band.getRasterWidth(), band.getRasterHeight());
+            ProductUtils.copyRasterDataNodeProperties(band, floatBand);
+            ProductUtils.copySpectralBandProperties(band, floatBand);
+            targetProduct.removeBand(band);
+            targetProduct.getBandGroup().add(i, floatBand);
+        }
+    }
+
     private void addGeoCoding() {
 
         final int gridWidth = 11;
@@ -392,61 +428,119 @@ public final class MultilookOp extends Operator {
     }
 
     /**
-     * Compute the mean value of pixels of the source image in the sliding window.
+     * Compute the mean values of the look windows of a target tile. The source lines are read one at a time into
+     * primitive arrays, detected if complex and added to the sums of their target line, so every source sample is
+     * read once.
      *
-     * @param tx       The x coordinate of a pixel in the current target tile.
-     * @param ty       The y coordinate of a pixel in the current target tile.
-     * @param srcData1 The product data for i band in case of complex product.
-     * @param srcData2 The product data for q band in case of complex product.
-     * @param nRgLooks number of range looks
-     * @param nAzLooks number of azimuth looks
-     * @return The mean value.
+     * @param srcData1    The product data for i band in case of complex product.
+     * @param srcData2    The product data for q band in case of complex product.
+     * @param srcIndex0   The index in the source data of the first sample of the first look window.
+     * @param srcStride   The scanline stride of the source data.
+     * @param tw          The target tile width.
+     * @param th          The target tile height.
+     * @param nRgLooks    number of range looks
+     * @param nAzLooks    number of azimuth looks
+     * @param isIntensity true to average the intensity of srcData1 and srcData2
+     * @param meanValues  receives the tw * th mean values
      */
-    private static double getMeanValue(final int tx, final int ty,
-                                       final ProductData srcData1, final ProductData srcData2,
-                                       final TileIndex srcIndex,
-                                       final int nRgLooks, final int nAzLooks,
-                                       final boolean isdB, final boolean isComplex, final boolean isPolsar) {
-
-        final int xStart = tx * nRgLooks;
-        final int yStart = ty * nAzLooks;
-        final int xEnd = xStart + nRgLooks;
-        final int yEnd = yStart + nAzLooks;
-
-        double meanValue = 0.0;
-        int offset;
-        if (isdB) {
-            for (int y = yStart; y < yEnd; y++) {
-                offset = srcIndex.calculateStride(y);
-                for (int x = xStart; x < xEnd; x++) {
-                    meanValue += FastMath.pow(10, srcData1.getElemDoubleAt(x - offset) / 10.0); // dB to linear
+    static void getMeanValues(final ProductData srcData1, final ProductData srcData2,
+                              final int srcIndex0, final int srcStride, final int tw, final int th,
+                              final int nRgLooks, final int nAzLooks,
+                              final boolean isdB, final boolean isIntensity, final double[] meanValues) {
+
+        final int w = tw * nRgLooks;
+        final int numLooks = nRgLooks * nAzLooks;
+        final double[] line1 = new double[w];
+        final double[] line2 = isIntensity ? new double[w] : null;
+        final double[] sums = new double[tw];
+
+        for (int ty = 0; ty < th; ty++) {
+            Arrays.fill(sums, 0.0);
+            for (int y = ty * nAzLooks; y < (ty + 1) * nAzLooks; y++) {
+                final int lineIndex = srcIndex0 + y * srcStride;
+                readLine(srcData1, lineIndex, line1);
+                if (isIntensity) {
+                    readLine(srcData2, lineIndex, line2);
                 }
-            }
 
-            meanValue /= (nRgLooks * nAzLooks);
-            return 10.0 * Math.log10(meanValue); // linear to dB
-        } else if (isComplex && !isPolsar) { // COMPLEX
-            double i, q;
-            int index;
-            for (int y = yStart; y < yEnd; y++) {
-                offset = srcIndex.calculateStride(y);
-                for (int x = xStart; x < xEnd; x++) {
-                    index = x - offset;
-                    i = srcData1.getElemDoubleAt(index);
-                    q = srcData2.getElemDoubleAt(index);
-                    meanValue += i * i + q * q;
+                // add the samples in the same order as the window is scanned so the sums do not depend on
+                // how the tile is split into lines
+                for (int tx = 0, x = 0; tx < tw; tx++) {
+                    double sum = sums[tx];
+                    final int xEnd = x + nRgLooks;
+                    if (isdB) {
+                        for (; x < xEnd; x++) {
+                            sum += FastMath.pow(10, line1[x] / 10.0); // dB to linear
+                        }
+                    } else if (isIntensity) {
+                        for (; x < xEnd; x++) {
+                            final double i = line1[x];
+                            final double q = line2[x];
+                            sum += i * i + q * q;
+                        }
+                    } else {
+                        for (; x < xEnd; x++) {
+                            sum += line1[x];
+                        }
+                    }
+                    sums[tx] = sum;
                 }
             }
-        } else {
-            for (int y = yStart; y < yEnd; y++) {
-                offset = srcIndex.calculateStride(y);
-                for (int x = xStart; x < xEnd; x++) {
-                    meanValue += srcData1.getElemDoubleAt(x - offset);
+
+            final int offset = ty * tw;
+            for (int tx = 0; tx < tw; tx++) {
+                if (isdB) {
+                    meanValues[offset + tx] = 10.0 * Math.log10(sums[tx] / numLooks); // linear to dB
+                } else {
+                    meanValues[offset + tx] = sums[tx] / numLooks;
                 }
             }
         }
+    }
 
-        return meanValue / (nRgLooks * nAzLooks);
+    /**
+     * Copy line.length samples of a data buffer, starting at index, into a double array.
+     */
+    private static void readLine(final ProductData data, final int index, final double[] line) {
+
+        final int n = line.length;
+        switch (data.getType()) {
+            case ProductData.TYPE_INT16: {
+                final short[] elems = (short[]) data.getElems();
+                for (int i = 0; i < n; i++) {
+                    line[i] = elems[index + i];
+                }
+                break;
+            }
+            case ProductData.TYPE_UINT16: {
+                final short[] elems = (short[]) data.getElems();
+                for (int i = 0; i < n; i++) {
+                    line[i] = elems[index + i] & 0xFFFF;
+                }
+                break;
+            }
+            case ProductData.TYPE_INT32: {
+                final int[] elems = (int[]) data.getElems();
+                for (int i = 0; i < n; i++) {
+                    line[i] = elems[index + i];
+                }
+                break;
+            }
+            case ProductData.TYPE_FLOAT32: {
+                final float[] elems = (float[]) data.getElems();
+                for (int i = 0; i < n; i++) {
+                    line[i] = elems[index + i];
+                }
+                break;
+            }
+            case ProductData.TYPE_FLOAT64:
+                System.arraycopy((double[]) data.getElems(), index, line, 0, n);
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    line[i] = data.getElemDoubleAt(index + i);
+                }
+        }
     }
 
     /**
@@ -32,6 +32,7 @@ import org.esa.snap.engine_utilities.datamodel.Unit;
 import org.esa.snap.engine_utilities.gpf.FilterWindow;
 import org.esa.snap.engine_utilities.gpf.InputProductValidator;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
+import org.esa.snap.engine_utilities.gpf.TileIndex;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -324,11 +325,11 @@ public class MultiTemporalSpeckleFilterOp extends Operator {
 
         try {
             final Band[] targetBands = targetProduct.getBands();
-            final int numBands = targetBands.length;
 
-            final List<double[][]> filteredTileList = new ArrayList<>();;
-            double[][] sum = new double[h][w];
-            int[][] count = new int[h][w];
+            // pass one: write the filtered bands and accumulate the temporal ratio sum band by band,
+            // so only one filtered band is held at a time whatever the depth of the stack
+            final double[] ratioSum = new double[w * h];
+            final int[] count = new int[w * h];
             for (Band tgtBand : targetBands) {
                 final Band srcBand = sourceProduct.getBand(tgtBand.getName());
                 final Tile srcTile = getSourceTile(srcBand, targetRectangle);
@@ -336,44 +337,49 @@ public class MultiTemporalSpeckleFilterOp extends Operator {
                 final double bandNoDataValues = srcBand.getNoDataValue();
                 final String[] srcBandNames = {srcBand.getName()};
 
-                final double[][] filteredTile = speckleFilter.performFiltering(x0, y0, w, h, srcBandNames);
+                final Tile targetTile = targetTiles.get(tgtBand);
+                final ProductData targetData = targetTile.getDataBuffer();
+                final TileIndex srcIndex = new TileIndex(srcTile);
+                final TileIndex tgtIndex = new TileIndex(targetTile);
 
-                filteredTileList.add(filteredTile);
+                final double[][] filteredTile = speckleFilter.performFiltering(x0, y0, w, h, srcBandNames);
 
                 for (int y = y0; y < yMax; ++y) {
                     final int yy = y - y0;
-                    for (int x = x0; x < xMax; ++x) {
-                        final int xx = x - x0;
-                        if (filteredTile[yy][xx] != 0.0) {
-                            final int sourceIndex = srcTile.getDataBufferIndex(x, y);
-                            final double srcDataValue = srcData.getElemDoubleAt(sourceIndex);
+                    final double[] filteredRow = filteredTile[yy];
+                    srcIndex.calculateStride(y);
+                    tgtIndex.calculateStride(y);
+                    for (int x = x0, k = yy * w; x < xMax; ++x, ++k) {
+                        final double filteredValue = filteredRow[x - x0];
+                        targetData.setElemDoubleAt(tgtIndex.getIndex(x), filteredValue);
+                        if (filteredValue != 0.0) {
+                            final double srcDataValue = srcData.getElemDoubleAt(srcIndex.getIndex(x));
                             if (srcDataValue != bandNoDataValues) {
-                                sum[yy][xx] += srcDataValue / filteredTile[yy][xx];
-                                count[yy][xx]++;
+                                ratioSum[k] += srcDataValue / filteredValue;
+                                count[k]++;
                             }
                         }
                     }
                 }
             }
 
-            for (int yy = 0; yy < h; ++yy) {
-                for (int xx = 0; xx < w; ++xx) {
-                    if (count[yy][xx] > 0) {
-                        sum[yy][xx] /= count[yy][xx];
-                    }
+            final float[] meanRatio = new float[w * h];
+            for (int k = 0; k < meanRatio.length; ++k) {
+                if (count[k] > 0) {
+                    meanRatio[k] = (float) (ratioSum[k] / count[k]);
                 }
             }
 
-            for (int i = 0; i < numBands; i++) {
-                Tile targetTile = targetTiles.get(targetBands[i]);
+            // pass two: scale the filtered bands by the mean ratio
+            for (Band tgtBand : targetBands) {
+                final Tile targetTile = targetTiles.get(tgtBand);
                 final ProductData targetData = targetTile.getDataBuffer();
-                final double[][] filteredTile = filteredTileList.get(i);
-                for (int y = y0; y < yMax; y++) {
-                    final int yy = y - y0;
-                    for (int x = x0; x < xMax; x++) {
-                        final int xx = x - x0;
-                        final int targetIndex = targetTile.getDataBufferIndex(x, y);
-                        targetData.setElemDoubleAt(targetIndex, filteredTile[yy][xx] * sum[yy][xx]);
+                final TileIndex tgtIndex = new TileIndex(targetTile);
+                for (int y = y0; y < yMax; ++y) {
+                    tgtIndex.calculateStride(y);
+                    for (int x = x0, k = (y - y0) * w; x < xMax; ++x, ++k) {
+                        final int targetIndex = tgtIndex.getIndex(x);
+                        targetData.setElemDoubleAt(targetIndex, targetData.getElemDoubleAt(targetIndex) * meanRatio[k]);
                     }
                 }
             }
@@ -35,6 +35,7 @@ import org.esa.snap.engine_utilities.gpf.FilterWindow;
 import org.esa.snap.engine_utilities.gpf.InputProductValidator;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 
+import java.awt.*;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -106,6 +107,10 @@ public class SpeckleFilterOp extends Operator {
             label = "Adaptive Neighbourhood Size")
     private int anSize = 50;
 
+    @Parameter(description = "Compute the Refined Lee and IDAN weights once from the span of all bands",
+            defaultValue = "false", label = "Use Span of All Bands")
+    private boolean useSpan = false;
+
     private final Map<String, String[]> targetBandNameToSourceBandName = new HashMap<>();
 
     public static final String NONE = "None";
@@ -188,6 +193,11 @@ public class SpeckleFilterOp extends Operator {
 
             speckleFilter = createFilter();
 
+            if (useSpan && (filter.equals(LEE_REFINED_FILTER) || filter.equals(IDAN_FILTER))) {
+                // all bands of a tile are filtered together in computeTileStack
+                deactivateComputeTileMethod();
+            }
+
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException(getId(), e);
         }
@@ -296,6 +306,31 @@ public class SpeckleFilterOp extends Operator {
         }
     }
 
+    /**
+     * Called by the framework in order to compute the stack of tiles for the given target bands.
+     * Only used if the bands are filtered with the weights of their span.
+     *
+     * @param targetTiles     The current tiles to be computed for each target band.
+     * @param targetRectangle The area in pixel coordinates to be computed (same for all rasters in targetRasters).
+     * @param pm              A progress monitor which should be used to determine computation cancelation requests.
+     * @throws OperatorException if an error occurs during computation of the target rasters.
+     */
+    @Override
+    public void computeTileStack(Map<Band, Tile> targetTiles, Rectangle targetRectangle, ProgressMonitor pm)
+            throws OperatorException {
+
+        try {
+            if (speckleFilter instanceof RefinedLee) {
+                ((RefinedLee) speckleFilter).computeTileStack(targetTiles, targetRectangle, pm);
+            } else if (speckleFilter instanceof IDAN) {
+                ((IDAN) speckleFilter).computeTileStack(targetTiles, targetRectangle, pm);
+            }
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException(getId(), e);
+        } finally {
+            pm.done();
+        }
+    }
 
     /**
      * The SPI is used to register this operator in the graph processing framework
@@ -120,25 +120,17 @@ public class Boxcar implements SpeckleFilter {
         final Unit.UnitType bandUnit = Unit.getUnitType(sourceBand1);
         final double noDataValue = sourceBand1.getNoDataValue();
         final TileIndex srcIndex = new TileIndex(sourceTile1);
-        final double[] neighborValues = new double[windowSizeX * windowSizeY];
         final boolean isComplex = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
 
-        final int xMax = x0 + w;
-        final int yMax = y0 + h;
-        for (int y = y0; y < yMax; ++y) {
-            final int yy = y - y0;
-            for (int x = x0; x < xMax; ++x) {
-                final int xx = x - x0;
-
-                final int numSamples = getNeighborValues(
-                        x, y, sourceData1, sourceData2, srcIndex, noDataValue, isComplex,
-                        windowSizeX, windowSizeY, sourceImageWidth, sourceImageHeight, neighborValues);
-
-                if (numSamples > 0) {
-                    filteredTile[yy][xx] = getMeanValue(neighborValues, numSamples, noDataValue);
-                } else {
-                    filteredTile[yy][xx] = noDataValue;
-                }
+        final WindowStatistics stats = new WindowStatistics(
+                sourceData1, sourceData2, srcIndex, sourceTileRectangle, noDataValue, isComplex);
+        final int[] numSamples = new int[w * h];
+        final double[] mean = new double[w * h];
+        stats.computeMoments(x0, y0, w, h, windowSizeX, windowSizeY, numSamples, mean, null);
+
+        for (int yy = 0, k = 0; yy < h; ++yy) {
+            for (int xx = 0; xx < w; ++xx, ++k) {
+                filteredTile[yy][xx] = mean[k];
             }
         }
 
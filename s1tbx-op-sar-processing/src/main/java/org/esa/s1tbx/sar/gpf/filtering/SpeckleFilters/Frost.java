@@ -132,17 +132,23 @@ public class Frost implements SpeckleFilter {
         final double[] mask = new double[windowSizeX * windowSizeY];
         getFrostMask(mask);
 
+        final WindowStatistics stats = new WindowStatistics(
+                sourceData1, sourceData2, srcIndex, sourceTileRectangle, noDataValue, isComplex);
+        final int[] numSamples = new int[w * h];
+        final double[] mean = new double[w * h];
+        final double[] variance = new double[w * h];
+        stats.computeMoments(x0, y0, w, h, windowSizeX, windowSizeY, numSamples, mean, variance);
+
+        int k = 0;
         for (int y = y0; y < yMax; ++y) {
             final int yy = y - y0;
-            for (int x = x0; x < xMax; ++x) {
+            for (int x = x0; x < xMax; ++x, ++k) {
                 final int xx = x - x0;
 
-                final int numSamples = getNeighborValues(
-                        x, y, sourceData1, sourceData2, srcIndex, noDataValue, isComplex,
-                        windowSizeX, windowSizeY, sourceImageWidth, sourceImageHeight, neighborValues);
-
-                if (numSamples > 0) {
-                    filteredTile[yy][xx] = getFrostValue(neighborValues, numSamples, noDataValue, mask);
+                if (numSamples[k] > 0) {
+                    filteredTile[yy][xx] = getFrostValue(
+                            x, y, sourceData1, sourceData2, srcIndex, noDataValue, isComplex,
+                            mean[k], variance[k], neighborValues, mask);
                 } else {
                     filteredTile[yy][xx] = noDataValue;
                 }
@@ -173,27 +179,33 @@ public class Frost implements SpeckleFilter {
 
     /**
      * Get the Frost filtered pixel intensity for pixels in a given rectangular region.
+     * The pixel values are only read for windows that are not flat.
      *
+     * @param x              X coordinate of the centre pixel.
+     * @param y              Y coordinate of the centre pixel.
+     * @param mean           The mean of the pixel values in the region.
+     * @param var            The variance of the pixel values in the region.
      * @param neighborValues Array holding the pixel values.
-     * @param numSamples     The number of samples.
-     * @param noDataValue    Place holder for no data value.
      * @param mask           Array holding Frost filter mask values.
      * @return val The Frost filtered value.
      * @throws OperatorException If an error occurs in computation of the Frost filtered value.
      */
-    private double getFrostValue(
-            final double[] neighborValues, final int numSamples, final double noDataValue, final double[] mask) {
+    private double getFrostValue(final int x, final int y, final ProductData srcData1, final ProductData srcData2,
+                                 final TileIndex srcIndex, final double noDataValue, final boolean isComplex,
+                                 final double mean, final double var, final double[] neighborValues,
+                                 final double[] mask) {
 
-        final double mean = getMeanValue(neighborValues, numSamples, noDataValue);
         if (mean <= Double.MIN_VALUE) {
             return mean;
         }
 
-        final double var = getVarianceValue(neighborValues, numSamples, mean, noDataValue);
         if (var <= Double.MIN_VALUE) {
             return mean;
         }
 
+        getNeighborValues(x, y, srcData1, srcData2, srcIndex, noDataValue, isComplex,
+                windowSizeX, windowSizeY, sourceImageWidth, sourceImageHeight, neighborValues);
+
         final double k = dampingFactor * var / (mean * mean);
 
         double sum = 0.0;
@@ -157,6 +157,66 @@ public class IDAN implements SpeckleFilter {
         return filteredTile;
     }
 
+    /**
+     * Filter all bands with the adaptive neighbourhoods of their span. The neighbourhood and the MMSE weight are
+     * computed once per pixel from the span and applied to the intensities of every band.
+     */
+    public void computeTileStack(Map<Band, Tile> targetTiles, Rectangle targetRectangle, ProgressMonitor pm) {
+
+        try {
+            final int x0 = targetRectangle.x;
+            final int y0 = targetRectangle.y;
+            final int w = targetRectangle.width;
+            final int h = targetRectangle.height;
+            final int xMax = x0 + w;
+            final int yMax = y0 + h;
+
+            final Rectangle sourceTileRectangle = getSourceTileRectangle(
+                    x0, y0, w, h, halfSizeX, halfSizeY, sourceImageWidth, sourceImageHeight);
+            final SpanTile spanTile = new SpanTile(operator, sourceProduct, targetBandNameToSourceBandName,
+                    targetTiles.keySet(), sourceTileRectangle, true);
+            final int numBands = spanTile.getNumBands();
+
+            final ProductData[] tgtData = new ProductData[numBands];
+            final TileIndex[] tgtIndex = new TileIndex[numBands];
+            for (int i = 0; i < numBands; ++i) {
+                final Tile targetTile = targetTiles.get(spanTile.targetBands[i]);
+                tgtData[i] = targetTile.getDataBuffer();
+                tgtIndex[i] = new TileIndex(targetTile);
+            }
+
+            final int sx0 = sourceTileRectangle.x;
+            final int sy0 = sourceTileRectangle.y;
+            final int sw = sourceTileRectangle.width;
+            final int sh = sourceTileRectangle.height;
+            final double[][] span = spanTile.span;
+            final double noDataValue = spanTile.noDataValue;
+
+            for (int y = y0; y < yMax; ++y) {
+                for (int i = 0; i < numBands; ++i) {
+                    tgtIndex[i].calculateStride(y);
+                }
+                for (int x = x0; x < xMax; ++x) {
+
+                    final double seed = getInitialSeed(x, y, sx0, sy0, sw, sh, span, noDataValue);
+
+                    final Pix[] anPixelList = getIDANPixels(x, y, sx0, sy0, sw, sh, span, noDataValue, seed);
+
+                    final double b = computeFilterScaleParam(sx0, sy0, anPixelList, span);
+
+                    for (int i = 0; i < numBands; ++i) {
+                        tgtData[i].setElemDoubleAt(tgtIndex[i].getIndex(x), getIDANFilteredValue(
+                                x, y, sx0, sy0, anPixelList, spanTile.bandValues[i], spanTile.bandUnits[i], b));
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException("IDAN", e);
+        } finally {
+            pm.done();
+        }
+    }
+
     private static double[][] getSourceTileIntensity(
             final int sx0, final int sy0, final int sw, final int sh, final ProductData srcData1,
             final ProductData srcData2, final TileIndex srcIndex, final double noDataValue, final Unit.UnitType unit) {
@@ -136,22 +136,25 @@ public class Lee implements SpeckleFilter {
         final double cu = 1.0 / Math.sqrt(n);
         final double cu2 = cu * cu;
 
-        final double[] neighborValues = new double[windowSizeX * windowSizeY];
         final boolean isComplex = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
+        final WindowStatistics stats = new WindowStatistics(
+                sourceData1, sourceData2, srcIndex, sourceTileRectangle, noDataValue, isComplex);
+        final int[] numSamples = new int[w * h];
+        final double[] mean = new double[w * h];
+        final double[] variance = new double[w * h];
+        stats.computeMoments(x0, y0, w, h, windowSizeX, windowSizeY, numSamples, mean, variance);
+
         final int xMax = x0 + w;
         final int yMax = y0 + h;
 
+        int k = 0;
         for (int y = y0; y < yMax; ++y) {
             final int yy = y - y0;
-            for (int x = x0; x < xMax; ++x) {
+            for (int x = x0; x < xMax; ++x, ++k) {
                 final int xx = x - x0;
 
-                final int numSamples = getNeighborValues(
-                        x, y, sourceData1, sourceData2, srcIndex, noDataValue, isComplex,
-                        windowSizeX, windowSizeY, sourceImageWidth, sourceImageHeight, neighborValues);
-
-                if (numSamples > 0) {
-                    filteredTile[yy][xx] = getLeeValue(neighborValues, numSamples, noDataValue, cu, cu2);
+                if (numSamples[k] > 0) {
+                    filteredTile[yy][xx] = getLeeValue(mean[k], variance[k], stats.getCentreValue(x, y, windowSizeX, windowSizeY), cu, cu2);
                 } else {
                     filteredTile[yy][xx] = noDataValue;
                 }
@@ -164,21 +167,19 @@ public class Lee implements SpeckleFilter {
     /**
      * Get the Lee filtered pixel intensity for pixels in a given rectangular region.
      *
-     * @param neighborValues Array holding the pixel values.
-     * @param numSamples     The number of samples.
-     * @param noDataValue    Place holder for no data value.
+     * @param mean The mean of the pixel values in the region.
+     * @param var  The variance of the pixel values in the region.
+     * @param cp   The centre pixel value.
      * @return val The Lee filtered value.
      * @throws OperatorException If an error occurs in computation of the Lee filtered value.
      */
-    private double getLeeValue(final double[] neighborValues, final int numSamples, final double noDataValue,
-                               final double cu, final double cu2) {
+    private static double getLeeValue(final double mean, final double var, final double cp,
+                                      final double cu, final double cu2) {
 
-        final double mean = getMeanValue(neighborValues, numSamples, noDataValue);
         if (Double.compare(mean, Double.MIN_VALUE) <= 0) {
             return mean;
         }
 
-        final double var = getVarianceValue(neighborValues, numSamples, mean, noDataValue);
         if (Double.compare(var, Double.MIN_VALUE) <= 0) {
             return mean;
         }
@@ -188,7 +189,6 @@ public class Lee implements SpeckleFilter {
             return mean;
         }
 
-        final double cp = neighborValues[neighborValues.length / 2];
         final double w = 1 - cu2 / (ci * ci);
 
         return cp * w + mean * (1 - w);
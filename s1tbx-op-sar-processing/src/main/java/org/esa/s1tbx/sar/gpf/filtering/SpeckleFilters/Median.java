@@ -20,14 +20,12 @@ import org.esa.snap.core.datamodel.Band;
 import org.esa.snap.core.datamodel.Product;
 import org.esa.snap.core.datamodel.ProductData;
 import org.esa.snap.core.gpf.Operator;
-import org.esa.snap.core.gpf.OperatorException;
 import org.esa.snap.core.gpf.Tile;
 import org.esa.snap.engine_utilities.datamodel.Unit;
 import org.esa.snap.engine_utilities.gpf.OperatorUtils;
 import org.esa.snap.engine_utilities.gpf.TileIndex;
 
 import java.awt.*;
-import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -121,51 +119,20 @@ public class Median implements SpeckleFilter {
         final Unit.UnitType bandUnit = Unit.getUnitType(sourceBand1);
         final double noDataValue = sourceBand1.getNoDataValue();
         final TileIndex srcIndex = new TileIndex(sourceTile1);
-        final double[] neighborValues = new double[windowSizeX * windowSizeY];
         final boolean isComplex = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
-        final int xMax = x0 + w;
-        final int yMax = y0 + h;
-
-        for (int y = y0; y < yMax; ++y) {
-            final int yy = y - y0;
-            for (int x = x0; x < xMax; ++x) {
-                final int xx = x - x0;
-
-                final int numSamples = getNeighborValues(
-                        x, y, sourceData1, sourceData2, srcIndex, noDataValue, isComplex,
-                        windowSizeX, windowSizeY, sourceImageWidth, sourceImageHeight, neighborValues);
-
-                if (numSamples > 0) {
-                    filteredTile[yy][xx] = getMedianValue(neighborValues, numSamples, noDataValue);
-                } else {
-                    filteredTile[yy][xx] = noDataValue;
-                }
-            }
-        }
 
-        return filteredTile;
-    }
+        final WindowStatistics stats = new WindowStatistics(
+                sourceData1, sourceData2, srcIndex, sourceTileRectangle, noDataValue, isComplex);
+        final int[] numSamples = new int[w * h];
+        final double[] median = new double[w * h];
+        stats.computeMedians(x0, y0, w, h, windowSizeX, windowSizeY, numSamples, median);
 
-    /**
-     * Get the median value of pixel intensities in a given rectangular region.
-     *
-     * @param neighborValues Array holding pixel values.
-     * @param numSamples     The number of samples.
-     * @param noDataValue    Place holder for no data value.
-     * @return median The median value.
-     * @throws OperatorException If an error occurs in computation of the median value.
-     */
-    private static double getMedianValue(
-            final double[] neighborValues, final int numSamples, final double noDataValue) {
-
-        double[] tmp = new double[numSamples];
-        int k = 0;
-        for (double v : neighborValues) {
-            if (Double.compare(v, noDataValue) != 0) {
-                tmp[k++] = v;
+        for (int yy = 0, k = 0; yy < h; ++yy) {
+            for (int xx = 0; xx < w; ++xx, ++k) {
+                filteredTile[yy][xx] = median[k];
             }
         }
-        Arrays.sort(tmp);
-        return tmp[numSamples / 2];
+
+        return filteredTile;
     }
 }
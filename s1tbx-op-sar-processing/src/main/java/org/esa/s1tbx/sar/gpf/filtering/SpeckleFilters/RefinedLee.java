@@ -120,24 +120,33 @@ public class RefinedLee implements SpeckleFilter {
         final Unit.UnitType bandUnit = Unit.getUnitType(sourceBand1);
         final double noDataValue = sourceBand1.getNoDataValue();
         final TileIndex srcIndex = new TileIndex(sourceTile1);
-        final double[][] neighborPixelValues = new double[windowSizeX][windowSizeY];
+        final double[][] neighborPixelValues = new double[windowSizeY][windowSizeX];
         final int xMax = x0 + w;
         final int yMax = y0 + h;
 
+        final boolean isComplex = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
+        final WindowStatistics stats = new WindowStatistics(
+                sourceData1, sourceData2, srcIndex, sourceTileRectangle, noDataValue, isComplex);
+        final BoxStatistics box = new BoxStatistics(stats, x0, y0, w, h);
+
+        int k = 0;
         for (int y = y0; y < yMax; ++y) {
             final int yy = y - y0;
-            for (int x = x0; x < xMax; ++x) {
+            for (int x = x0; x < xMax; ++x, ++k) {
                 final int xx = x - x0;
 
-                final int numSamples = getNeighborValuesWithoutBorderExt(
-                        x, y, sourceData1, sourceData2, srcIndex, noDataValue, bandUnit, sourceTileRectangle,
-                        windowSizeX, windowSizeY, neighborPixelValues);
-
-                if (numSamples > 0) {
-                    filteredTile[yy][xx] = getRefinedLeeValueUsingEdgeThreshold(
-                            windowSizeX, windowSizeY, numSamples, noDataValue, neighborPixelValues);
-                } else {
+                final int numSamples = box.numSamples[k];
+                if (numSamples == 0) {
                     filteredTile[yy][xx] = noDataValue;
+                } else if (numSamples < windowSizeX * windowSizeY) {
+                    filteredTile[yy][xx] = computePixelValueUsingLocalStatistics(
+                            box, x, y, stats.getValue(x, y), noDataValue);
+                } else {
+                    getNeighborValuesWithoutBorderExt(
+                            x, y, sourceData1, sourceData2, srcIndex, noDataValue, bandUnit, sourceTileRectangle,
+                            windowSizeX, windowSizeY, neighborPixelValues);
+                    filteredTile[yy][xx] = computePixelValueUsingEdgeDetection(
+                            box, x, y, neighborPixelValues, noDataValue);
                 }
             }
         }
@@ -145,58 +154,211 @@ public class RefinedLee implements SpeckleFilter {
     }
 
     /**
-     * Compute filtered pixel value using refined Lee filter.
-     *
-     * @param numSamples          The number of valid pixel in the neighborhood.
-     * @param noDataValue         The place holder for no data.
-     * @param neighborPixelValues The neighbor pixel values.
-     * @return The filtered pixel value.
+     * Filter all bands with the weights of their span. The span is the sum of the band intensities. The edge
+     * direction and the MMSE weight are computed once per pixel from the span and applied to the intensities of
+     * every band. Amplitude bands get the square root of their filtered intensity.
      */
-    public double getRefinedLeeValueUsingEdgeThreshold(
-            final int filterSizeX, final int filterSizeY, final int numSamples, final double noDataValue,
-            final double[][] neighborPixelValues) {
+    public void computeTileStack(Map<Band, Tile> targetTiles, Rectangle targetRectangle, ProgressMonitor pm) {
 
-        if (numSamples < filterSizeX * filterSizeY) {
-            return computePixelValueUsingLocalStatistics(neighborPixelValues, noDataValue);
+        try {
+            final int x0 = targetRectangle.x;
+            final int y0 = targetRectangle.y;
+            final int w = targetRectangle.width;
+            final int h = targetRectangle.height;
+            final int xMax = x0 + w;
+            final int yMax = y0 + h;
+
+            final Rectangle sourceTileRectangle = getSourceTileRectangle(
+                    x0, y0, w, h, halfWindowSizeX, halfWindowSizeY, sourceImageWidth, sourceImageHeight);
+            final SpanTile spanTile = new SpanTile(operator, sourceProduct, targetBandNameToSourceBandName,
+                    targetTiles.keySet(), sourceTileRectangle, true);
+            final int numBands = spanTile.getNumBands();
+            final WindowStatistics spanStats =
+                    new WindowStatistics(sourceTileRectangle, spanTile.noDataValue, spanTile.span);
+            final BoxStatistics box = new BoxStatistics(spanStats, x0, y0, w, h);
+            final double[][] bandMeans = new double[numBands][];
+            for (int b = 0; b < numBands; ++b) {
+                bandMeans[b] = computeBandMeans(spanTile, b, x0, y0, w, h);
+            }
+
+            final ProductData[] tgtData = new ProductData[numBands];
+            final TileIndex[] tgtIndex = new TileIndex[numBands];
+            for (int b = 0; b < numBands; ++b) {
+                final Tile targetTile = targetTiles.get(spanTile.targetBands[b]);
+                tgtData[b] = targetTile.getDataBuffer();
+                tgtIndex[b] = new TileIndex(targetTile);
+            }
+
+            final double[][] spanWindow = new double[windowSizeY][windowSizeX];
+            final double[][] bandWindow = new double[windowSizeY][windowSizeX];
+            final double[] pixels = new double[28];
+            final int[] direction = new int[1];
+
+            int k = 0;
+            for (int y = y0; y < yMax; ++y) {
+                for (int b = 0; b < numBands; ++b) {
+                    tgtIndex[b].calculateStride(y);
+                }
+                for (int x = x0; x < xMax; ++x, ++k) {
+
+                    final boolean fullWindow = box.numSamples[k] == windowSizeX * windowSizeY;
+                    if (fullWindow) {
+                        SpanTile.getWindow(spanTile.span, sourceTileRectangle, x, y, spanTile.noDataValue, spanWindow);
+                    }
+
+                    final double weight = computeSpanWeight(
+                            box, x, y, spanStats.getValue(x, y), spanTile.noDataValue, spanWindow, pixels, direction);
+
+                    for (int b = 0; b < numBands; ++b) {
+                        final double bandNoDataValue = spanTile.bandNoDataValues[b];
+                        double value = bandNoDataValue;
+                        if (!Double.isNaN(weight)) {
+                            final double mean;
+                            if (direction[0] < 0) {
+                                mean = bandMeans[b][k];
+                            } else {
+                                getBandWindow(spanTile, b, x, y, spanWindow, bandWindow);
+                                getNonEdgeAreaPixelValues(bandWindow, direction[0], pixels);
+                                mean = getMeanValue(pixels, pixels.length, bandNoDataValue);
+                            }
+                            final double centre =
+                                    spanTile.bandValues[b][y - sourceTileRectangle.y][x - sourceTileRectangle.x];
+                            value = mean + weight * (centre - mean);
+                            if (spanTile.bandUnits[b] == Unit.UnitType.AMPLITUDE) {
+                                value = Math.sqrt(value);
+                            }
+                        }
+                        tgtData[b].setElemDoubleAt(tgtIndex[b].getIndex(x), value);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException("RefinedLee", e);
+        } finally {
+            pm.done();
         }
+    }
 
-        /*
-        final double var = getLocalVarianceValue(
-                getLocalMeanValue(neighborPixelValues, noDataValue), neighborPixelValues, noDataValue);
-        if (var < edgeThreshold) {
-            return computePixelValueUsingLocalStatistics(neighborPixelValues, noDataValue);
-        }*/
+    /**
+     * Compute the window means of a band, leaving out the pixels where the span has no data.
+     */
+    private double[] computeBandMeans(final SpanTile spanTile, final int band,
+                                      final int x0, final int y0, final int w, final int h) {
+
+        final double bandNoDataValue = spanTile.bandNoDataValues[band];
+        final double[][] values = new double[spanTile.span.length][];
+        for (int r = 0; r < values.length; ++r) {
+            values[r] = spanTile.bandValues[band][r].clone();
+            for (int c = 0; c < values[r].length; ++c) {
+                if (Double.compare(spanTile.span[r][c], spanTile.noDataValue) == 0) {
+                    values[r][c] = bandNoDataValue;
+                }
+            }
+        }
 
-        final double[][] subAreaMeans = new double[3][3];
-        computeSubAreaMeans(neighborPixelValues, subAreaMeans);
+        final double[] mean = new double[w * h];
+        new WindowStatistics(spanTile.sourceRectangle, bandNoDataValue, values).computeMoments(
+                x0, y0, w, h, windowSizeX, windowSizeY, new int[w * h], mean, null);
+        return mean;
+    }
 
-        final double[] gradients = new double[4];
-        computeGradients(subAreaMeans, gradients);
+    /**
+     * Get the window of a band, leaving out the pixels where the span has no data.
+     */
+    private static void getBandWindow(final SpanTile spanTile, final int band, final int x, final int y,
+                                      final double[][] spanWindow, final double[][] bandWindow) {
+
+        final double bandNoDataValue = spanTile.bandNoDataValues[band];
+        SpanTile.getWindow(spanTile.bandValues[band], spanTile.sourceRectangle, x, y, bandNoDataValue, bandWindow);
+        for (int j = 0; j < bandWindow.length; ++j) {
+            for (int i = 0; i < bandWindow[j].length; ++i) {
+                if (Double.compare(spanWindow[j][i], spanTile.noDataValue) == 0) {
+                    bandWindow[j][i] = bandNoDataValue;
+                }
+            }
+        }
+    }
 
-        return computePixelValueUsingEdgeDetection(neighborPixelValues, noDataValue, subAreaMeans, gradients);
+    /**
+     * Compute the MMSE weight for the span in the neighborhood, choosing the pixels as in
+     * performFiltering.
+     *
+     * @param box         The box statistics of the span.
+     * @param x           X coordinate of the pixel.
+     * @param y           Y coordinate of the pixel.
+     * @param centre      The span of the pixel.
+     * @param noDataValue The place holder for no data.
+     * @param spanWindow  The span in the neighborhood, only read if the neighborhood has no invalid pixel.
+     * @param pixels      Array for the pixels of the non-edge area.
+     * @param direction   Receives the direction index of the non-edge area, -1 if all pixels are used.
+     * @return The weight or NaN if the pixel has no data.
+     */
+    private double computeSpanWeight(final BoxStatistics box, final int x, final int y, final double centre,
+                                     final double noDataValue, final double[][] spanWindow,
+                                     final double[] pixels, final int[] direction) {
+
+        final int k = box.getIndex(x, y);
+        final int numSamples = box.numSamples[k];
+        final double meanY, varY;
+        if (numSamples < windowSizeX * windowSizeY) {
+            direction[0] = -1;
+            if (Double.compare(centre, noDataValue) == 0) {
+                return Double.NaN;
+            }
+            if (numSamples < 2) {
+                return 0.0;
+            }
+            meanY = box.mean[k];
+            varY = box.variance[k];
+        } else {
+            final double[][] subAreaMeans = new double[3][3];
+            computeSubAreaMeans(box, x, y, subAreaMeans);
+
+            final double[] gradients = new double[4];
+            computeGradients(subAreaMeans, gradients);
+
+            direction[0] = getEdgeDirection(subAreaMeans, gradients);
+            getNonEdgeAreaPixelValues(spanWindow, direction[0], pixels);
+            meanY = getMeanValue(pixels, pixels.length, noDataValue);
+            varY = getVarianceValue(pixels, pixels.length, meanY, noDataValue);
+        }
+
+        if (varY == 0.0) {
+            return 0.0;
+        }
+        final double sigmaV = getLocalNoiseVarianceValue(box, x, y);
+        double varX = (varY - meanY * meanY * sigmaV) / (1 + sigmaV);
+        if (varX < 0) {
+            varX = 0.0;
+        }
+        return varX / varY;
     }
 
     /**
      * Compute filtered pixel value using Local Statistics filter.
      *
-     * @param neighborPixelValues The pixel values in the neighborhood.
-     * @param noDataValue         The place holder for no data.
+     * @param box         The box statistics of the tile.
+     * @param x           X coordinate of the pixel.
+     * @param y           Y coordinate of the pixel.
+     * @param centre      The pixel value.
+     * @param noDataValue The place holder for no data.
      * @return The filtered pixel value.
      */
     private double computePixelValueUsingLocalStatistics(
-            final double[][] neighborPixelValues, final Double noDataValue) {
+            final BoxStatistics box, final int x, final int y, final double centre, final Double noDataValue) {
 
-        if (noDataValue.equals(neighborPixelValues[neighborPixelValues.length/2][neighborPixelValues[0].length/2])) {
+        if (noDataValue.equals(centre)) {
             return noDataValue;
         }
 
         // y is the pixel amplitude or intensity and x is the pixel reflectance before degradation
-        final double meanY = getLocalMeanValue(neighborPixelValues, noDataValue);
+        final int k = box.getIndex(x, y);
+        final double meanY = box.mean[k];
         if (noDataValue.equals(meanY)) {
             return noDataValue;
         }
 
-        final double varY = getLocalVarianceValue(meanY, neighborPixelValues, noDataValue);
+        final double varY = box.numSamples[k] > 1 ? box.variance[k] : noDataValue;
         if (varY == 0.0) {
             return meanY;
         }
@@ -205,96 +367,29 @@ public class RefinedLee implements SpeckleFilter {
             return noDataValue;
         }
 
-        final double sigmaV = getLocalNoiseVarianceValue(neighborPixelValues, noDataValue);
+        final double sigmaV = getLocalNoiseVarianceValue(box, x, y);
         double varX = (varY - meanY * meanY * sigmaV) / (1 + sigmaV);
         if (varX < 0) {
             varX = 0.0;
         }
         final double b = varX / varY;
-        return meanY + b * (neighborPixelValues[3][3] - meanY);
-    }
-
-    /**
-     * Compute local mean for pixels in the neighborhood.
-     *
-     * @param neighborPixelValues The pixel values in the neighborhood.
-     * @param noDataValue         The place holder for no data.
-     * @return The local mean.
-     */
-    private static double getLocalMeanValue(final double[][] neighborPixelValues, final double noDataValue) {
-
-        int k = 0;
-        double mean = 0;
-        for (double[] neighborPixelValue : neighborPixelValues) {
-            for (int i = 0; i < neighborPixelValues[0].length; ++i) {
-                if (Double.compare(neighborPixelValue[i], noDataValue) != 0) {
-                    mean += neighborPixelValue[i];
-                    k++;
-                }
-            }
-        }
-
-        if (k > 0) {
-            return mean / k;
-        }
-
-        return noDataValue;
+        return meanY + b * (centre - meanY);
     }
 
     /**
-     * Compute local variance for pixels in the neighborhood.
+     * Get mean values for the 9 3x3 sub-areas in the 7x7 neighborhood.
      *
-     * @param mean                The mean value for pixels in the neighborhood.
-     * @param neighborPixelValues The pixel values in the neighborhood.
-     * @param noDataValue         The place holder for no data.
-     * @return The local variance.
-     */
-    private static double getLocalVarianceValue(
-            final double mean, final double[][] neighborPixelValues, final double noDataValue) {
-
-        int k = 0;
-        double var = 0.0;
-        for (double[] neighborPixelValue : neighborPixelValues) {
-            for (int i = 0; i < neighborPixelValues[0].length; ++i) {
-                if (Double.compare(neighborPixelValue[i], noDataValue) != 0) {
-                    final double diff = neighborPixelValue[i] - mean;
-                    var += diff * diff;
-                    k++;
-                }
-            }
-        }
-
-        if (k > 1) {
-            return var / (k - 1);
-        }
-
-        return noDataValue;
-    }
-
-    /**
-     * Compute mean values for the 9 3x3 sub-areas in the 7x7 neighborhood.
-     *
-     * @param neighborPixelValues The pixel values in the 7x7 neighborhood.
-     * @param subAreaMeans        The 9 mean values.
+     * @param box          The box statistics of the tile.
+     * @param x            X coordinate of the pixel.
+     * @param y            Y coordinate of the pixel.
+     * @param subAreaMeans The 9 mean values.
      */
     private static void computeSubAreaMeans(
-            final double[][] neighborPixelValues, double[][] subAreaMeans) {
+            final BoxStatistics box, final int x, final int y, double[][] subAreaMeans) {
 
         for (int j = 0; j < 3; j++) {
-            final int y0 = 2 * j;
             for (int i = 0; i < 3; i++) {
-                final int x0 = 2 * i;
-
-                int k = 0;
-                double mean = 0.0;
-                for (int y = y0; y < y0 + 3; y++) {
-                    for (int x = x0; x < x0 + 3; x++) {
-                        mean += neighborPixelValues[y][x];
-                        k++;
-                    }
-                }
-
-                subAreaMeans[j][i] = mean / k;
+                subAreaMeans[j][i] = box.subAreaMean[box.getSubAreaIndex(x, y, i, j)];
             }
         }
     }
@@ -310,13 +405,50 @@ public class RefinedLee implements SpeckleFilter {
     /**
      * Compute filtered pixel value using refined Lee filter.
      *
+     * @param box                 The box statistics of the tile.
+     * @param x                   X coordinate of the pixel.
+     * @param y                   Y coordinate of the pixel.
      * @param neighborPixelValues The pixel values in the neighborhood.
      * @param noDataValue         The place holder for no data.
      * @return The filtered pixel value.
      */
     private double computePixelValueUsingEdgeDetection(
-            final double[][] neighborPixelValues, final double noDataValue,
-            final double[][] subAreaMeans, final double[] gradients) {
+            final BoxStatistics box, final int x, final int y,
+            final double[][] neighborPixelValues, final double noDataValue) {
+
+        final double[][] subAreaMeans = new double[3][3];
+        computeSubAreaMeans(box, x, y, subAreaMeans);
+
+        final double[] gradients = new double[4];
+        computeGradients(subAreaMeans, gradients);
+
+        final int d = getEdgeDirection(subAreaMeans, gradients);
+
+        final double[] pixels = new double[28];
+        getNonEdgeAreaPixelValues(neighborPixelValues, d, pixels);
+
+        final double meanY = getMeanValue(pixels, pixels.length, noDataValue);
+        final double varY = getVarianceValue(pixels, pixels.length, meanY, noDataValue);
+        if (varY == 0.0) {
+            return 0.0;
+        }
+        final double sigmaV = getLocalNoiseVarianceValue(box, x, y);
+        double varX = (varY - meanY * meanY * sigmaV) / (1 + sigmaV);
+        if (varX < 0) {
+            varX = 0.0;
+        }
+        final double b = varX / varY;
+        return meanY + b * (neighborPixelValues[3][3] - meanY);
+    }
+
+    /**
+     * Find the direction of the non-edge area from the sub-area means and gradients.
+     *
+     * @param subAreaMeans The 9 sub-area mean values.
+     * @param gradients    The gradients in the 4 directions.
+     * @return The direction index.
+     */
+    private static int getEdgeDirection(final double[][] subAreaMeans, final double[] gradients) {
 
         int direction = 0;
         double maxGradient = -Double.MAX_VALUE;
@@ -361,56 +493,28 @@ public class RefinedLee implements SpeckleFilter {
             }
         }
 
-        final double[] pixels = new double[28];
-        getNonEdgeAreaPixelValues(neighborPixelValues, d, pixels);
-
-        final double meanY = getMeanValue(pixels, pixels.length, noDataValue);
-        final double varY = getVarianceValue(pixels, pixels.length, meanY, noDataValue);
-        if (varY == 0.0) {
-            return 0.0;
-        }
-        final double sigmaV = getLocalNoiseVarianceValue(neighborPixelValues, noDataValue);
-        double varX = (varY - meanY * meanY * sigmaV) / (1 + sigmaV);
-        if (varX < 0) {
-            varX = 0.0;
-        }
-        final double b = varX / varY;
-        return meanY + b * (neighborPixelValues[3][3] - meanY);
+        return d;
     }
 
     /**
      * Compute local noise variance for pixels in the neighborhood.
      *
-     * @param neighborPixelValues The pixel values in the neighborhood.
-     * @param noDataValue         The place holder for no data.
+     * @param box The box statistics of the tile.
+     * @param x   X coordinate of the pixel.
+     * @param y   Y coordinate of the pixel.
      * @return The local noise variance.
      */
-    private double getLocalNoiseVarianceValue(final double[][] neighborPixelValues, final double noDataValue) {
+    private static double getLocalNoiseVarianceValue(final BoxStatistics box, final int x, final int y) {
 
         final double[] subAreaVariances = new double[9];
-        final double[] subArea = new double[9];
         int numSubArea = 0;
         for (int j = 0; j < 3; j++) {
-            final int y0 = 2 * j;
             for (int i = 0; i < 3; i++) {
-                final int x0 = 2 * i;
-
-                int k = 0;
-                for (int y = y0; y < y0 + 3; y++) {
-                    final int yy = (y - y0) * 3;
-                    for (int x = x0; x < x0 + 3; x++) {
-                        if (Double.compare(neighborPixelValues[y][x], noDataValue) != 0) {
-                            subArea[yy + (x - x0)] = neighborPixelValues[y][x];
-                            k++;
-                        }
-                    }
-                }
-
-                if (k == 9) {
-                    final double subAreaMean = getMeanValue(subArea, k, noDataValue);
+                final int k = box.getSubAreaIndex(x, y, i, j);
+                if (box.subAreaNumSamples[k] == 9) {
+                    final double subAreaMean = box.subAreaMean[k];
                     if (subAreaMean > 0) {
-                        subAreaVariances[numSubArea] =
-                                getVarianceValue(subArea, k, subAreaMean, noDataValue) / (subAreaMean * subAreaMean);
+                        subAreaVariances[numSubArea] = box.subAreaVariance[k] / (subAreaMean * subAreaMean);
                     } else {
                         subAreaVariances[numSubArea] = 0.0;
                     }
@@ -532,6 +636,46 @@ public class RefinedLee implements SpeckleFilter {
         }
     }
 
+    /**
+     * Box statistics of a tile from WindowStatistics: the 7x7 window of every pixel and the 3x3 sub-areas of
+     * those windows. The sub-area statistics are kept for the 3x3 boxes centred at every pixel of the tile
+     * extended by 2 pixels on each side.
+     */
+    private static final class BoxStatistics {
+        final int x0, y0, w, subAreaW;
+        final int[] numSamples;
+        final double[] mean, variance;
+        final int[] subAreaNumSamples;
+        final double[] subAreaMean, subAreaVariance;
+
+        BoxStatistics(final WindowStatistics stats, final int x0, final int y0, final int w, final int h) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.w = w;
+            numSamples = new int[w * h];
+            mean = new double[w * h];
+            variance = new double[w * h];
+            stats.computeMoments(x0, y0, w, h, 7, 7, numSamples, mean, variance);
+
+            subAreaW = w + 4;
+            final int subAreaH = h + 4;
+            subAreaNumSamples = new int[subAreaW * subAreaH];
+            subAreaMean = new double[subAreaW * subAreaH];
+            subAreaVariance = new double[subAreaW * subAreaH];
+            stats.computeMoments(x0 - 2, y0 - 2, subAreaW, subAreaH, 3, 3,
+                    subAreaNumSamples, subAreaMean, subAreaVariance);
+        }
+
+        int getIndex(final int x, final int y) {
+            return (y - y0) * w + x - x0;
+        }
+
+        // sub-area (i, j) of the window centred at (x, y) is centred at (x - 2 + 2i, y - 2 + 2j)
+        int getSubAreaIndex(final int x, final int y, final int i, final int j) {
+            return (y - y0 + 2 * j) * subAreaW + x - x0 + 2 * i;
+        }
+    }
+
     /*
     public double getRefinedLeeValueUsingGradientThreshold(
             final int filterSizeX, final int filterSizeY, final double gradThreshold,
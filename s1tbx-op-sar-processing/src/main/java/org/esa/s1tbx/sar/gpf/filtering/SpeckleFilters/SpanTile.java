@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sar.gpf.filtering.SpeckleFilters;
+
+import org.esa.snap.core.datamodel.Band;
+import org.esa.snap.core.datamodel.Product;
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.core.gpf.Operator;
+import org.esa.snap.core.gpf.Tile;
+import org.esa.snap.engine_utilities.datamodel.Unit;
+import org.esa.snap.engine_utilities.gpf.TileIndex;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The source data of all target bands of a tile and their span, for filters that compute their weights once
+ * from the span and apply them to every band.
+ * Complex bands are read as intensity. Amplitude bands are read as intensity if asked for, otherwise as they are.
+ * The span is the sum of the band values and has no data where a band has no data.
+ */
+final class SpanTile {
+
+    final Rectangle sourceRectangle;
+    final Band[] targetBands;
+    final Unit.UnitType[] bandUnits;
+    final double[] bandNoDataValues;
+    final double[][][] bandValues;   // [band][row][column] of the source rectangle
+    final double[][] span;
+    final double noDataValue;
+
+    SpanTile(final Operator operator, final Product sourceProduct,
+             final Map<String, String[]> targetBandNameToSourceBandName, final Iterable<Band> targetBands,
+             final Rectangle sourceRectangle, final boolean amplitudeAsIntensity) {
+
+        this.sourceRectangle = sourceRectangle;
+        final int sx0 = sourceRectangle.x;
+        final int sy0 = sourceRectangle.y;
+        final int sw = sourceRectangle.width;
+        final int sh = sourceRectangle.height;
+
+        final List<Band> bands = new ArrayList<>();
+        final List<Unit.UnitType> units = new ArrayList<>();
+        final List<Double> noDataValues = new ArrayList<>();
+        final List<double[][]> values = new ArrayList<>();
+
+        for (Band targetBand : targetBands) {
+            final String[] srcBandNames = targetBandNameToSourceBandName.get(targetBand.getName());
+            if (srcBandNames == null) {
+                continue;
+            }
+
+            final Band sourceBand1 = sourceProduct.getBand(srcBandNames[0]);
+            final Tile sourceTile1 = operator.getSourceTile(sourceBand1, sourceRectangle);
+            final ProductData srcData1 = sourceTile1.getDataBuffer();
+            ProductData srcData2 = null;
+            if (srcBandNames.length > 1) {
+                srcData2 = operator.getSourceTile(sourceProduct.getBand(srcBandNames[1]), sourceRectangle)
+                        .getDataBuffer();
+            }
+            final Unit.UnitType unit = Unit.getUnitType(sourceBand1);
+            final double bandNoDataValue = sourceBand1.getNoDataValue();
+            final boolean isComplex = unit == Unit.UnitType.REAL || unit == Unit.UnitType.IMAGINARY;
+            final boolean square = amplitudeAsIntensity && unit == Unit.UnitType.AMPLITUDE;
+            final TileIndex srcIndex = new TileIndex(sourceTile1);
+
+            final double[][] data = new double[sh][sw];
+            for (int y = sy0; y < sy0 + sh; ++y) {
+                srcIndex.calculateStride(y);
+                final double[] row = data[y - sy0];
+                for (int x = sx0; x < sx0 + sw; ++x) {
+                    final int idx = srcIndex.getIndex(x);
+                    if (isComplex) {
+                        final double I = srcData1.getElemDoubleAt(idx);
+                        final double Q = srcData2.getElemDoubleAt(idx);
+                        if (Double.compare(I, bandNoDataValue) != 0 && Double.compare(Q, bandNoDataValue) != 0) {
+                            row[x - sx0] = I * I + Q * Q;
+                        } else {
+                            row[x - sx0] = bandNoDataValue;
+                        }
+                    } else {
+                        final double v = srcData1.getElemDoubleAt(idx);
+                        row[x - sx0] = square && Double.compare(v, bandNoDataValue) != 0 ? v * v : v;
+                    }
+                }
+            }
+
+            bands.add(targetBand);
+            units.add(unit);
+            noDataValues.add(bandNoDataValue);
+            values.add(data);
+        }
+
+        this.targetBands = bands.toArray(new Band[0]);
+        this.bandUnits = units.toArray(new Unit.UnitType[0]);
+        this.bandValues = values.toArray(new double[0][][]);
+        this.bandNoDataValues = noDataValues.stream().mapToDouble(Double::doubleValue).toArray();
+        this.noDataValue = bandNoDataValues.length > 0 ? bandNoDataValues[0] : 0.0;
+
+        span = new double[sh][sw];
+        for (int r = 0; r < sh; ++r) {
+            for (int c = 0; c < sw; ++c) {
+                double sum = 0.0;
+                for (int b = 0; b < bandValues.length; ++b) {
+                    final double v = bandValues[b][r][c];
+                    if (Double.compare(v, bandNoDataValues[b]) == 0) {
+                        sum = noDataValue;
+                        break;
+                    }
+                    sum += v;
+                }
+                span[r][c] = sum;
+            }
+        }
+    }
+
+    int getNumBands() {
+        return bandValues.length;
+    }
+
+    /**
+     * Get the values of a window centred at the given pixel. Pixels outside of the source rectangle get the
+     * no data value.
+     *
+     * @return The number of valid pixels.
+     */
+    static int getWindow(final double[][] data, final Rectangle sourceRectangle, final int x, final int y,
+                         final double noDataValue, final double[][] window) {
+
+        final int sizeY = window.length;
+        final int sizeX = window[0].length;
+        final int minX = x - sizeX / 2;
+        final int minY = y - sizeY / 2;
+        int numSamples = 0;
+        for (int j = 0; j < sizeY; ++j) {
+            final int r = minY + j - sourceRectangle.y;
+            for (int i = 0; i < sizeX; ++i) {
+                final int c = minX + i - sourceRectangle.x;
+                if (r < 0 || r >= sourceRectangle.height || c < 0 || c >= sourceRectangle.width) {
+                    window[j][i] = noDataValue;
+                } else {
+                    window[j][i] = data[r][c];
+                    if (Double.compare(window[j][i], noDataValue) != 0) {
+                        numSamples++;
+                    }
+                }
+            }
+        }
+        return numSamples;
+    }
+}
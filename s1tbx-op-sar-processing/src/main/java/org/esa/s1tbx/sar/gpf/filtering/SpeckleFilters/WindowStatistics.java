@@ -0,0 +1,512 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sar.gpf.filtering.SpeckleFilters;
+
+import org.esa.snap.core.datamodel.ProductData;
+import org.esa.snap.engine_utilities.gpf.TileIndex;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Sliding window statistics of the pixel intensities of a source tile.
+ * The windows are placed as in SpeckleFilter.getNeighborValues and pixels outside of the source tile or with
+ * no data value are left out.
+ * Mean and variance come from running sums: the column sums of the window rows are updated when the window
+ * moves down and the window sums when it moves right, so a pixel costs the same for any window size.
+ * The sums of squares are taken about the tile mean to avoid cancellation.
+ * The median splits the valid values of the window into a max-heap of the lower half and a min-heap of the
+ * upper half, so replacing a column when the window moves right costs log(windowSizeX * windowSizeY) per value.
+ */
+public final class WindowStatistics {
+
+    private final int sx0;
+    private final int sy0;
+    private final int sw;
+    private final int sh;
+    private final double noDataValue;
+    private final double[] values;      // intensities of the source tile, row by row
+    private final boolean[] valid;
+
+    /**
+     * @param srcData1            The source ProductData for 1st band.
+     * @param srcData2            The source ProductData for 2nd band.
+     * @param srcIndex            The source tile index.
+     * @param sourceTileRectangle The source tile rectangle.
+     * @param noDataValue         Place holder for no data value.
+     * @param isComplex           True if it has i and q, otherwise false.
+     */
+    public WindowStatistics(final ProductData srcData1, final ProductData srcData2, final TileIndex srcIndex,
+                            final Rectangle sourceTileRectangle, final double noDataValue, final boolean isComplex) {
+
+        this(sourceTileRectangle, noDataValue);
+
+        int k = 0;
+        for (int y = sy0; y < sy0 + sh; ++y) {
+            srcIndex.calculateStride(y);
+            for (int x = sx0; x < sx0 + sw; ++x, ++k) {
+                final int idx = srcIndex.getIndex(x);
+                if (isComplex) {
+                    final double I = srcData1.getElemDoubleAt(idx);
+                    final double Q = srcData2.getElemDoubleAt(idx);
+                    valid[k] = Double.compare(I, noDataValue) != 0 && Double.compare(Q, noDataValue) != 0;
+                    values[k] = valid[k] ? I * I + Q * Q : noDataValue;
+                } else {
+                    values[k] = srcData1.getElemDoubleAt(idx);
+                    valid[k] = Double.compare(values[k], noDataValue) != 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param sourceTileRectangle The source tile rectangle.
+     * @param noDataValue         Place holder for no data value.
+     * @param intensities         The pixel intensities of the source tile, row by row.
+     */
+    WindowStatistics(final Rectangle sourceTileRectangle, final double noDataValue, final double[] intensities) {
+
+        this(sourceTileRectangle, noDataValue);
+
+        System.arraycopy(intensities, 0, values, 0, values.length);
+        for (int k = 0; k < values.length; ++k) {
+            valid[k] = Double.compare(values[k], noDataValue) != 0;
+        }
+    }
+
+    /**
+     * @param sourceTileRectangle The source tile rectangle.
+     * @param noDataValue         Place holder for no data value.
+     * @param intensities         The pixel intensities of the source tile as [row][column].
+     */
+    WindowStatistics(final Rectangle sourceTileRectangle, final double noDataValue, final double[][] intensities) {
+
+        this(sourceTileRectangle, noDataValue);
+
+        for (int r = 0; r < sh; ++r) {
+            System.arraycopy(intensities[r], 0, values, r * sw, sw);
+        }
+        for (int k = 0; k < values.length; ++k) {
+            valid[k] = Double.compare(values[k], noDataValue) != 0;
+        }
+    }
+
+    private WindowStatistics(final Rectangle sourceTileRectangle, final double noDataValue) {
+        this.sx0 = sourceTileRectangle.x;
+        this.sy0 = sourceTileRectangle.y;
+        this.sw = sourceTileRectangle.width;
+        this.sh = sourceTileRectangle.height;
+        this.noDataValue = noDataValue;
+        this.values = new double[sw * sh];
+        this.valid = new boolean[sw * sh];
+    }
+
+    /**
+     * Get the pixel intensity, or the no data value for pixels outside of the source tile.
+     */
+    public double getValue(final int x, final int y) {
+        if (x < sx0 || x >= sx0 + sw || y < sy0 || y >= sy0 + sh) {
+            return noDataValue;
+        }
+        return values[(y - sy0) * sw + x - sx0];
+    }
+
+    /**
+     * Get the value found in the middle of the array filled by SpeckleFilter.getNeighborValues.
+     * That is the centre pixel for odd window sizes.
+     */
+    public double getCentreValue(final int x, final int y, final int windowSizeX, final int windowSizeY) {
+        final int k = windowSizeX * windowSizeY / 2;
+        return getValue(x - windowSizeX / 2 + k % windowSizeX, y - windowSizeY / 2 + k / windowSizeX);
+    }
+
+    /**
+     * Compute number of valid samples, mean and variance of the windows centred at the pixels of a tile.
+     * The results are stored row by row. The variance is that of SpeckleFilter.getVarianceValue.
+     *
+     * @param x0          X coordinate of the upper left corner point of the target tile rectangle.
+     * @param y0          Y coordinate of the upper left corner point of the target tile rectangle.
+     * @param w           The width of the target tile rectangle.
+     * @param h           The height of the target tile rectangle.
+     * @param windowSizeX The sliding window width.
+     * @param windowSizeY The sliding window height.
+     * @param numSamples  Array receiving the numbers of valid samples.
+     * @param mean        Array receiving the means.
+     * @param variance    Array receiving the variances, may be null.
+     */
+    public void computeMoments(final int x0, final int y0, final int w, final int h,
+                               final int windowSizeX, final int windowSizeY,
+                               final int[] numSamples, final double[] mean, final double[] variance) {
+
+        final double shift = getShift();
+        final int halfSizeX = windowSizeX / 2;
+        final int halfSizeY = windowSizeY / 2;
+        final RunningSums columns = new RunningSums(sw);
+        final RunningSums window = new RunningSums(1);
+
+        int k = 0;
+        for (int y = y0; y < y0 + h; ++y) {
+            final int minY = y - halfSizeY;
+            final int maxY = minY + windowSizeY - 1;
+
+            if (y == y0) {
+                for (int r = minY; r <= maxY; ++r) {
+                    addRow(r, 1.0, shift, columns);
+                }
+            } else {
+                addRow(minY - 1, -1.0, shift, columns);
+                addRow(maxY, 1.0, shift, columns);
+            }
+
+            for (int x = x0; x < x0 + w; ++x, ++k) {
+                final int minC = x - halfSizeX - sx0;
+                final int maxC = minC + windowSizeX - 1;
+
+                if (x == x0) {
+                    window.clear();
+                    for (int c = Math.max(minC, 0); c <= Math.min(maxC, sw - 1); ++c) {
+                        window.add(0, columns, c, 1.0);
+                    }
+                } else {
+                    final int c0 = minC - 1;
+                    if (c0 >= 0 && c0 < sw) {
+                        window.add(0, columns, c0, -1.0);
+                    }
+                    if (maxC >= 0 && maxC < sw) {
+                        window.add(0, columns, maxC, 1.0);
+                    }
+                }
+
+                final int count = window.count[0];
+                numSamples[k] = count;
+                if (count > 0) {
+                    mean[k] = window.getSum(0) / count;
+                } else {
+                    mean[k] = noDataValue;
+                }
+                if (variance != null) {
+                    if (count > 1) {
+                        final double sumD = window.getSumD(0);
+                        variance[k] = Math.max((window.getSumD2(0) - sumD * sumD / count) / (count - 1), 0.0);
+                    } else {
+                        variance[k] = 0.0;
+                    }
+                }
+            }
+        }
+    }
+
+    private void addRow(final int y, final double sign, final double shift, final RunningSums columns) {
+        if (y < sy0 || y >= sy0 + sh) {
+            return;
+        }
+        final int offset = (y - sy0) * sw;
+        for (int c = 0; c < sw; ++c) {
+            if (valid[offset + c]) {
+                final double v = values[offset + c];
+                columns.add(c, sign, v, v - shift);
+            }
+        }
+    }
+
+    /**
+     * The sums of squares are taken about the mean of the tile.
+     */
+    private double getShift() {
+        double sum = 0.0;
+        int count = 0;
+        for (int k = 0; k < values.length; ++k) {
+            if (valid[k]) {
+                sum += values[k];
+                ++count;
+            }
+        }
+        return count > 0 ? sum / count : 0.0;
+    }
+
+    /**
+     * Compute number of valid samples and median of the windows centred at the pixels of a tile.
+     * The results are stored row by row. The median is the middle element of the sorted valid values.
+     *
+     * @param x0          X coordinate of the upper left corner point of the target tile rectangle.
+     * @param y0          Y coordinate of the upper left corner point of the target tile rectangle.
+     * @param w           The width of the target tile rectangle.
+     * @param h           The height of the target tile rectangle.
+     * @param windowSizeX The sliding window width.
+     * @param windowSizeY The sliding window height.
+     * @param numSamples  Array receiving the numbers of valid samples.
+     * @param median      Array receiving the medians.
+     */
+    public void computeMedians(final int x0, final int y0, final int w, final int h,
+                               final int windowSizeX, final int windowSizeY,
+                               final int[] numSamples, final double[] median) {
+
+        final int halfSizeX = windowSizeX / 2;
+        final int halfSizeY = windowSizeY / 2;
+        final IndexHeap lower = new IndexHeap(values, windowSizeX * windowSizeY, false);
+        final IndexHeap upper = new IndexHeap(values, windowSizeX * windowSizeY, true);
+
+        int k = 0;
+        for (int y = y0; y < y0 + h; ++y) {
+            final int minR = Math.max(y - halfSizeY - sy0, 0);
+            final int maxR = Math.min(y - halfSizeY + windowSizeY - 1 - sy0, sh - 1);
+
+            lower.clear();
+            upper.clear();
+            for (int x = x0; x < x0 + w; ++x, ++k) {
+                final int minC = x - halfSizeX - sx0;
+                final int maxC = minC + windowSizeX - 1;
+
+                if (x == x0) {
+                    for (int r = minR; r <= maxR; ++r) {
+                        for (int c = Math.max(minC, 0); c <= Math.min(maxC, sw - 1); ++c) {
+                            final int idx = r * sw + c;
+                            if (valid[idx]) {
+                                insert(lower, upper, idx);
+                            }
+                        }
+                    }
+                } else {
+                    final int c0 = minC - 1;
+                    if (c0 >= 0 && c0 < sw) {
+                        for (int r = minR; r <= maxR; ++r) {
+                            final int idx = r * sw + c0;
+                            if (valid[idx]) {
+                                remove(lower, upper, idx);
+                            }
+                        }
+                    }
+                    if (maxC >= 0 && maxC < sw) {
+                        for (int r = minR; r <= maxR; ++r) {
+                            final int idx = r * sw + maxC;
+                            if (valid[idx]) {
+                                insert(lower, upper, idx);
+                            }
+                        }
+                    }
+                }
+
+                final int n = lower.size + upper.size;
+                numSamples[k] = n;
+                median[k] = n > 0 ? values[upper.peek()] : noDataValue;
+            }
+        }
+    }
+
+    private void insert(final IndexHeap lower, final IndexHeap upper, final int idx) {
+        if (upper.size > 0 && Double.compare(values[idx], values[upper.peek()]) < 0) {
+            lower.push(idx);
+        } else {
+            upper.push(idx);
+        }
+        balance(lower, upper);
+    }
+
+    private static void remove(final IndexHeap lower, final IndexHeap upper, final int idx) {
+        if (lower.contains(idx)) {
+            lower.remove(idx);
+        } else {
+            upper.remove(idx);
+        }
+        balance(lower, upper);
+    }
+
+    /**
+     * Keep the n / 2 smallest values in the lower heap, so the top of the upper heap is the middle element.
+     */
+    private static void balance(final IndexHeap lower, final IndexHeap upper) {
+        final int half = (lower.size + upper.size) / 2;
+        while (lower.size > half) {
+            upper.push(lower.pop());
+        }
+        while (lower.size < half) {
+            lower.push(upper.pop());
+        }
+    }
+
+    /**
+     * Binary heap of indices into the tile values, ordered as Arrays.sort orders the values.
+     * The heap position of every index is kept, so any index can be removed.
+     */
+    private static final class IndexHeap {
+        final double[] values;
+        final int[] heap;
+        final int[] position;   // heap position of a value index, -1 if not in the heap
+        final boolean minHeap;
+        int size;
+
+        IndexHeap(final double[] values, final int capacity, final boolean minHeap) {
+            this.values = values;
+            this.heap = new int[capacity];
+            this.position = new int[values.length];
+            this.minHeap = minHeap;
+            Arrays.fill(position, -1);
+        }
+
+        void clear() {
+            for (int i = 0; i < size; ++i) {
+                position[heap[i]] = -1;
+            }
+            size = 0;
+        }
+
+        boolean contains(final int idx) {
+            return position[idx] >= 0;
+        }
+
+        int peek() {
+            return heap[0];
+        }
+
+        void push(final int idx) {
+            set(size++, idx);
+            siftUp(size - 1);
+        }
+
+        int pop() {
+            final int idx = heap[0];
+            remove(idx);
+            return idx;
+        }
+
+        void remove(final int idx) {
+            final int i = position[idx];
+            position[idx] = -1;
+            if (i == --size) {
+                return;
+            }
+            set(i, heap[size]);
+            if (i > 0 && before(i, (i - 1) / 2)) {
+                siftUp(i);
+            } else {
+                siftDown(i);
+            }
+        }
+
+        private boolean before(final int i, final int j) {
+            final int cmp = Double.compare(values[heap[i]], values[heap[j]]);
+            return minHeap ? cmp < 0 : cmp > 0;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                final int parent = (i - 1) / 2;
+                if (!before(i, parent)) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(child + 1, child)) {
+                    ++child;
+                }
+                if (!before(child, i)) {
+                    break;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(final int i, final int j) {
+            final int idx = heap[i];
+            set(i, heap[j]);
+            set(j, idx);
+        }
+
+        private void set(final int i, final int idx) {
+            heap[i] = idx;
+            position[idx] = i;
+        }
+    }
+
+    /**
+     * Sums of values, of differences to the shift and of squared differences.
+     * The rounding errors of the updates are kept (Neumaier), so removing a large value leaves no residual.
+     */
+    private static final class RunningSums {
+        final int[] count;
+        final double[] sum, sumD, sumD2;
+        final double[] err, errD, errD2;
+
+        RunningSums(final int n) {
+            count = new int[n];
+            sum = new double[n];
+            sumD = new double[n];
+            sumD2 = new double[n];
+            err = new double[n];
+            errD = new double[n];
+            errD2 = new double[n];
+        }
+
+        void clear() {
+            Arrays.fill(count, 0);
+            Arrays.fill(sum, 0.0);
+            Arrays.fill(sumD, 0.0);
+            Arrays.fill(sumD2, 0.0);
+            Arrays.fill(err, 0.0);
+            Arrays.fill(errD, 0.0);
+            Arrays.fill(errD2, 0.0);
+        }
+
+        void add(final int i, final double sign, final double v, final double d) {
+            count[i] += (int) sign;
+            add(sum, err, i, sign * v);
+            add(sumD, errD, i, sign * d);
+            add(sumD2, errD2, i, sign * d * d);
+        }
+
+        void add(final int i, final RunningSums src, final int j, final double sign) {
+            count[i] += (int) sign * src.count[j];
+            add(sum, err, i, sign * src.sum[j]);
+            add(sumD, errD, i, sign * src.sumD[j]);
+            add(sumD2, errD2, i, sign * src.sumD2[j]);
+            err[i] += sign * src.err[j];
+            errD[i] += sign * src.errD[j];
+            errD2[i] += sign * src.errD2[j];
+        }
+
+        double getSum(final int i) {
+            return sum[i] + err[i];
+        }
+
+        double getSumD(final int i) {
+            return sumD[i] + errD[i];
+        }
+
+        double getSumD2(final int i) {
+            return sumD2[i] + errD2[i];
+        }
+
+        private static void add(final double[] s, final double[] e, final int i, final double v) {
+            final double t = s[i] + v;
+            if (Math.abs(s[i]) >= Math.abs(v)) {
+                e[i] += (s[i] - t) + v;
+            } else {
+                e[i] += (v - t) + s[i];
+            }
+            s[i] = t;
+        }
+    }
+}
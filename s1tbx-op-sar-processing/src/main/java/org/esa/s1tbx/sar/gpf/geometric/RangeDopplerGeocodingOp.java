@@ -20,11 +20,13 @@ import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.calibration.gpf.CalibrationOp;
 import org.esa.s1tbx.calibration.gpf.calibrators.Sentinel1Calibrator;
 import org.esa.s1tbx.calibration.gpf.support.CalibrationFactory;
+import org.esa.s1tbx.calibration.gpf.support.CalibrationHandle;
 import org.esa.s1tbx.calibration.gpf.support.Calibrator;
 import org.esa.s1tbx.commons.CRSGeoCodingHandler;
 import org.esa.s1tbx.commons.OrbitStateVectors;
 import org.esa.s1tbx.commons.SARGeocoding;
 import org.esa.s1tbx.commons.SARUtils;
+import org.esa.s1tbx.insar.gpf.support.DEMTileCache;
 import org.esa.s1tbx.insar.gpf.support.SARPosition;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.dem.ElevationModel;
@@ -52,7 +54,6 @@ import org.esa.snap.engine_utilities.datamodel.PosVector;
 import org.esa.snap.engine_utilities.datamodel.Unit;
 import org.esa.snap.engine_utilities.eo.Constants;
 import org.esa.snap.engine_utilities.eo.GeoUtils;
-import org.esa.snap.engine_utilities.eo.LocalGeometry;
 import org.esa.snap.engine_utilities.gpf.*;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -366,6 +367,7 @@ public class RangeDopplerGeocodingOp extends Operator {
         if (dem != null) {
             dem.dispose();
         }
+        SystemUtils.LOG.fine("DEM tile cache " + DEMTileCache.getCacheStats());
 
         if (!orthoDataProduced && processingStarted) {
             final String errMsg = getId() + " error: no valid output was produced. Please verify the DEM";
@@ -878,9 +880,10 @@ public class RangeDopplerGeocodingOp extends Operator {
             if (useAvgSceneHeight) {
                 DEMFactory.fillDEM(localDEM, avgSceneHeight);
             } else {
-                final boolean valid = DEMFactory.getLocalDEM(
-                        dem, demNoDataValue, demResamplingMethod, tileGeoRef, x0, y0, w, h, sourceProduct,
-                        nodataValueAtSea, localDEM);
+                final boolean valid = DEMTileCache.getLocalDEM(demName,
+                        dem instanceof FileElevationModel ? externalDEMFile : null, externalDEMApplyEGM,
+                        dem, demNoDataValue, demResamplingMethod, targetProduct, tileGeoRef, x0, y0, w, h,
+                        sourceProduct, nodataValueAtSea, localDEM);
                 if (!valid && nodataValueAtSea) {
                     for (Band targetBand : targetTiles.keySet()) {
                         ProductData data = targetTiles.get(targetBand).getRawSamples();
@@ -983,28 +986,43 @@ public class RangeDopplerGeocodingOp extends Operator {
             final GeoPos posLast = targetProduct.getSceneGeoCoding().getGeoPos(new PixelPos(0,targetImageHeight), null);
             int diffLat = (int)Math.abs(posFirst.lat - posLast.lat);
 
+            // per tile scratch buffers, reused for every pixel and band of the tile
+            final boolean computeLocalIncidenceAngles =
+                    saveLocalIncidenceAngle || saveProjectedLocalIncidenceAngle || saveSigmaNought;
+            final double[][] tileLat = new double[h + 2][w + 2];
+            final double[][] tileLon = new double[h + 2][w + 2];
+            getTileLatLon(tileGeoRef, x0, y0, w, h, computeLocalIncidenceAngles, geoPos, tileLat, tileLon);
+
+            final PosVector[] incidenceAngleWorkspace = {new PosVector(), new PosVector(), new PosVector(), new PosVector()};
+            final double[] localIncidenceAngles = new double[2];
+            final int[] subSwathIndex = new int[1];
+            final GeoCoding srcGeoCoding = sourceProduct.getSceneGeoCoding();
+            final boolean checkDEMNoData = !useAvgSceneHeight;
+
             for (int y = y0; y < maxY; y++) {
                 final int yy = y - y0 + 1;
+                final double[] demRow = localDEM[yy];
+                final double[] latRow = tileLat[yy];
+                final double[] lonRow = tileLon[yy];
                 for (int x = x0; x < maxX; x++) {
+                    final int xx = x - x0 + 1;
                     final int index = tgtTiles[0].targetTile.getDataBufferIndex(x, y);
 
-                    Double alt = localDEM[yy][x - x0 + 1];
-                    if (alt.equals(demNoDataValue) && !useAvgSceneHeight) {
-                        if (nodataValueAtSea) {
-                            saveNoDataValueToTarget(index, tgtTiles, demBuffer);
-                            continue;
-                        }
+                    double alt = demRow[xx];
+                    final boolean isDEMNoData = Double.compare(alt, demNoDataValue) == 0;
+                    if (isDEMNoData && checkDEMNoData && nodataValueAtSea) {
+                        saveNoDataValueToTarget(index, tgtTiles, demBuffer);
+                        continue;
                     }
 
-                    tileGeoRef.getGeoPos(x, y, geoPos);
-                    final double lat = geoPos.lat;
-                    double lon = geoPos.lon;
+                    final double lat = latRow[xx];
+                    double lon = lonRow[xx];
                     if (lon >= 180.0) {
                         lon -= 360.0;
                     }
 
-                    if (alt.equals(demNoDataValue) && !nodataValueAtSea) { // get corrected elevation for 0
-                        alt = (double) egm.getEGM(lat, lon);
+                    if (isDEMNoData && !nodataValueAtSea) { // get corrected elevation for 0
+                        alt = egm.getEGM(lat, lon);
                     }
 
                     if (!getPosition(lat, lon, alt, posData)) {
@@ -1013,21 +1031,20 @@ public class RangeDopplerGeocodingOp extends Operator {
                     }
 
                     if (!SARGeocoding.isValidCell(posData.rangeIndex, posData.azimuthIndex, lat, lon, diffLat,
-                            sourceProduct.getSceneGeoCoding(), srcMaxRange, srcMaxAzimuth, posData.sensorPos)) {
+                            srcGeoCoding, srcMaxRange, srcMaxAzimuth, posData.sensorPos)) {
                         saveNoDataValueToTarget(index, tgtTiles, demBuffer);
                     } else {
 
-                        final double[] localIncidenceAngles = {SARGeocoding.NonValidIncidenceAngle,
-                                SARGeocoding.NonValidIncidenceAngle};
-
-                        if (saveLocalIncidenceAngle || saveProjectedLocalIncidenceAngle || saveSigmaNought) {
+                        localIncidenceAngles[0] = SARGeocoding.NonValidIncidenceAngle;
+                        localIncidenceAngles[1] = SARGeocoding.NonValidIncidenceAngle;
 
-                            final LocalGeometry localGeometry = new LocalGeometry(
-                                    x, y, tileGeoRef, posData.earthPoint, posData.sensorPos);
+                        if (computeLocalIncidenceAngles) {
 
                             SARGeocoding.computeLocalIncidenceAngle(
-                                    localGeometry, demNoDataValue, saveLocalIncidenceAngle, saveProjectedLocalIncidenceAngle,
-                                    saveSigmaNought, x0, y0, x, y, localDEM, localIncidenceAngles); // in degrees
+                                    tileLat, tileLon, localDEM, demNoDataValue, x - x0, y - y0,
+                                    posData.earthPoint, posData.sensorPos, saveLocalIncidenceAngle,
+                                    saveProjectedLocalIncidenceAngle, saveSigmaNought, incidenceAngleWorkspace,
+                                    localIncidenceAngles); // in degrees
 
                             if (saveLocalIncidenceAngle && localIncidenceAngles[0] != SARGeocoding.NonValidIncidenceAngle) {
                                 localIncidenceAngleBuffer.setElemDoubleAt(index, localIncidenceAngles[0]);
@@ -1068,16 +1085,17 @@ public class RangeDopplerGeocodingOp extends Operator {
                         }
 
                         for (TileData tileData : tgtTiles) {
-                            int[] subSwathIndex = {INVALID_SUB_SWATH_INDEX};
+                            subSwathIndex[0] = INVALID_SUB_SWATH_INDEX;
                             double v = getPixelValue(posData.azimuthIndex, posData.rangeIndex, tileData, subSwathIndex);
 
                             if (v != tileData.noDataValue && tileData.applyRadiometricNormalization) {
                                 if (localIncidenceAngles[1] != SARGeocoding.NonValidIncidenceAngle) {
-                                    v = calibrator.applyCalibration(
-                                            v, posData.rangeIndex, posData.azimuthIndex, posData.slantRange,
+                                    // calibrated with the rest of the row, use projected incidence angle
+                                    tileData.calibrationBatch.add(
+                                            index, v, posData.rangeIndex, posData.azimuthIndex, posData.slantRange,
                                             satelliteHeight, sceneToEarthCentre, localIncidenceAngles[1],
-                                            tileData.bandName, tileData.bandPolar, tileData.bandUnit, subSwathIndex);
-                                    // use projected incidence angle
+                                            subSwathIndex[0]);
+                                    continue;
                                 } else {
                                     //v = tileData.noDataValue;
                                     saveNoDataValueToTarget(index, tgtTiles, demBuffer);
@@ -1090,6 +1108,10 @@ public class RangeDopplerGeocodingOp extends Operator {
                         orthoDataProduced = true;
                     }
                 }
+
+                for (TileData tileData : tgtTiles) {
+                    tileData.applyCalibrationBatch();
+                }
             }
             localDEM = null;
 
@@ -1127,8 +1149,10 @@ public class RangeDopplerGeocodingOp extends Operator {
                         final double[][] localDEM = new double[h + 2][w + 2];
                         final TileGeoreferencing tileGeoRef = new TileGeoreferencing(sourceProduct, x0, y0, w, h);
                         try {
-                            final boolean valid = DEMFactory.getLocalDEM(dem, demNoDataValue, demResamplingMethod,
-                                    tileGeoRef, x0, y0, w, h, sourceProduct, true, localDEM);
+                            final boolean valid = DEMTileCache.getLocalDEM(demName,
+                                    dem instanceof FileElevationModel ? externalDEMFile : null, externalDEMApplyEGM,
+                                    dem, demNoDataValue, demResamplingMethod, sourceProduct, tileGeoRef, x0, y0, w, h,
+                                    sourceProduct, true, localDEM);
 
                             if (!valid) {
                                 saveLayoverShadowMask = false;
@@ -1341,6 +1365,27 @@ public class RangeDopplerGeocodingOp extends Operator {
         }
     }
 
+    /**
+     * Get latitude and longitude of all pixels in the target tile once, so that the per pixel loop and the local
+     * incidence angle computation can read them from primitive arrays. The arrays have a one pixel border which is
+     * only filled when the neighbouring pixels are needed for the local incidence angle.
+     */
+    private static void getTileLatLon(final TileGeoreferencing tileGeoRef, final int x0, final int y0,
+                                      final int w, final int h, final boolean includeBorder, final GeoPos geoPos,
+                                      final double[][] tileLat, final double[][] tileLon) {
+
+        final int border = includeBorder ? 1 : 0;
+        for (int yy = 1 - border; yy <= h + border; ++yy) {
+            final double[] latRow = tileLat[yy];
+            final double[] lonRow = tileLon[yy];
+            for (int xx = 1 - border; xx <= w + border; ++xx) {
+                tileGeoRef.getGeoPos(x0 + xx - 1, y0 + yy - 1, geoPos);
+                latRow[xx] = geoPos.lat;
+                lonRow[xx] = geoPos.lon;
+            }
+        }
+    }
+
     private void saveNoDataValueToTarget(final int index, final TileData[] tgtTiles, final ProductData demBuffer) {
         if (saveDEM) {
             demBuffer.setElemDoubleAt(index, demNoDataValue);
@@ -1485,11 +1530,13 @@ public class RangeDopplerGeocodingOp extends Operator {
         GeoUtils.geo2xyzWGS84(lat, lon, alt, data.earthPoint);
 
         double zeroDopplerTime = SARGeocoding.getEarthPointZeroDopplerTime(firstLineUTC,
-                                                                           lineTimeInterval, wavelength, data.earthPoint, orbit.sensorPosition, orbit.sensorVelocity);
+                                                                           lineTimeInterval, wavelength, data.earthPoint, orbit.sensorPosition, orbit.sensorVelocity,
+                                                                           data.zeroDopplerLine);
 
         if (Double.compare(zeroDopplerTime, SARGeocoding.NonValidZeroDopplerTime) == 0) {
             return false;
         }
+        data.zeroDopplerLine = (int) ((zeroDopplerTime - firstLineUTC) / lineTimeInterval);
 
         data.slantRange = SARGeocoding.computeSlantRange(zeroDopplerTime, orbit, data.earthPoint, data.sensorPos);
 
@@ -1620,6 +1667,9 @@ public class RangeDopplerGeocodingOp extends Operator {
         final Tile sourceTileI;
         final Tile sourceTileQ;
 
+        final CalibrationBatch calibrationBatch = new CalibrationBatch();
+        private CalibrationHandle calibrationHandle = null;
+
         TileData(final Tile tile, final Band[] srcBands, final boolean isPolsar, final boolean outputComplex,
                  final String name, final Unit.UnitType unit, final MetadataElement absRoot, final Calibrator calibrator,
                  final Resampling imgResampling, final Tile sourceTileI, final Tile sourceTileQ) {
@@ -1641,6 +1691,71 @@ public class RangeDopplerGeocodingOp extends Operator {
             this.sourceTileI = sourceTileI;
             this.sourceTileQ = sourceTileQ;
         }
+
+        /**
+         * Calibrates the pixels added to the calibration batch and writes them to the target tile
+         */
+        void applyCalibrationBatch() {
+            if (calibrationBatch.count == 0) {
+                return;
+            }
+            if (calibrationHandle == null) {
+                calibrationHandle = calibrator.getCalibrationHandle(bandName, bandPolar, bandUnit);
+            }
+            calibrationBatch.apply(calibrator, calibrationHandle, tileDataBuffer);
+        }
+    }
+
+    /**
+     * The pixels of a target tile row waiting to be calibrated together
+     */
+    public static class CalibrationBatch {
+        private int count = 0;
+        private int[] index = new int[0];
+        private double[] v = new double[0];
+        private double[] rangeIndex = new double[0];
+        private double[] azimuthIndex = new double[0];
+        private double[] slantRange = new double[0];
+        private double[] satelliteHeight = new double[0];
+        private double[] sceneToEarthCentre = new double[0];
+        private double[] localIncidenceAngle = new double[0];
+        private int[] subSwathIndex = new int[0];
+
+        void add(final int idx, final double value, final double rangeIdx, final double azimuthIdx,
+                 final double range, final double satHeight, final double earthCentre, final double incidenceAngle,
+                 final int subSwathIdx) {
+            if (count == index.length) {
+                final int size = Math.max(64, 2 * count);
+                index = Arrays.copyOf(index, size);
+                v = Arrays.copyOf(v, size);
+                rangeIndex = Arrays.copyOf(rangeIndex, size);
+                azimuthIndex = Arrays.copyOf(azimuthIndex, size);
+                slantRange = Arrays.copyOf(slantRange, size);
+                satelliteHeight = Arrays.copyOf(satelliteHeight, size);
+                sceneToEarthCentre = Arrays.copyOf(sceneToEarthCentre, size);
+                localIncidenceAngle = Arrays.copyOf(localIncidenceAngle, size);
+                subSwathIndex = Arrays.copyOf(subSwathIndex, size);
+            }
+            index[count] = idx;
+            v[count] = value;
+            rangeIndex[count] = rangeIdx;
+            azimuthIndex[count] = azimuthIdx;
+            slantRange[count] = range;
+            satelliteHeight[count] = satHeight;
+            sceneToEarthCentre[count] = earthCentre;
+            localIncidenceAngle[count] = incidenceAngle;
+            subSwathIndex[count] = subSwathIdx;
+            ++count;
+        }
+
+        void apply(final Calibrator calibrator, final CalibrationHandle handle, final ProductData targetBuffer) {
+            calibrator.applyCalibration(handle, v, rangeIndex, azimuthIndex, slantRange, satelliteHeight,
+                    sceneToEarthCentre, localIncidenceAngle, subSwathIndex, count);
+            for (int i = 0; i < count; ++i) {
+                targetBuffer.setElemDoubleAt(index[i], v[i]);
+            }
+            count = 0;
+        }
     }
 
     public static class ResamplingRaster implements Resampling.Raster {
@@ -1654,6 +1769,8 @@ public class RangeDopplerGeocodingOp extends Operator {
         private ProductData dataBufferI = null;
         private ProductData dataBufferQ = null;
         private int subSwathIndex = -1;
+        private final int[] pixelSubSwathIndex = new int[1];
+        private int[][] subSwathIndices = null;
 
         ResamplingRaster(final TileData tileData) {
             this.tileData = tileData;
@@ -1688,7 +1805,14 @@ public class RangeDopplerGeocodingOp extends Operator {
 
         public boolean getSamples(final int[] x, final int[] y, final double[][] samples) {
 
-            final int[][] subSwathIndices = new int[y.length][x.length];
+            if (subSwathIndices == null || subSwathIndices.length != y.length || subSwathIndices[0].length != x.length) {
+                subSwathIndices = new int[y.length][x.length];
+            } else {
+                for (int[] row : subSwathIndices) {
+                    Arrays.fill(row, 0);
+                }
+            }
+            final int[] subSwathIndex = pixelSubSwathIndex;
             boolean allPixelsFromSameSubSwath = true;
             boolean allValid = true;
 
@@ -1717,7 +1841,7 @@ public class RangeDopplerGeocodingOp extends Operator {
                         samples[i][j] = v * v + vq * vq;
                     }
 
-                    final int[] subSwathIndex = {-1};
+                    subSwathIndex[0] = -1;
                     if (tileData.applyRetroCalibration) {
                         samples[i][j] = tileData.calibrator.applyRetroCalibration(
                                 x[j], y[i], samples[i][j], tileData.bandPolar, tileData.bandUnit, subSwathIndex);
@@ -1824,6 +1948,7 @@ public class RangeDopplerGeocodingOp extends Operator {
         double azimuthIndex;
         double rangeIndex;
         double slantRange;
+        int zeroDopplerLine = -1; // start line for the zero Doppler search of the next pixel
     }
 
     /**
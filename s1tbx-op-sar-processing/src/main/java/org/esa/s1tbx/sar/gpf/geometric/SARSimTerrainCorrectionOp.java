@@ -23,6 +23,7 @@ import org.esa.s1tbx.calibration.gpf.support.Calibrator;
 import org.esa.s1tbx.commons.OrbitStateVectors;
 import org.esa.s1tbx.insar.gpf.coregistration.GCPManager;
 import org.esa.s1tbx.insar.gpf.coregistration.WarpData;
+import org.esa.s1tbx.insar.gpf.support.DEMTileCache;
 import org.esa.s1tbx.commons.CRSGeoCodingHandler;
 import org.esa.s1tbx.commons.SARGeocoding;
 import org.esa.s1tbx.commons.SARUtils;
@@ -207,6 +208,7 @@ public class SARSimTerrainCorrectionOp extends Operator {
     private boolean fileOutput = false;
 
     private String demName = null;
+    private File externalDEMFile = null;
     private Band elevationBand = null;
 
     private int sourceImageWidth = 0;
@@ -474,9 +476,9 @@ public class SARSimTerrainCorrectionOp extends Operator {
         final ElevationModelDescriptor demDescriptor = elevationModelRegistry.getDescriptor(demName);
         if (demDescriptor == null) {
 
-            final File externalDemFile = new File(demName);
-            dem = new FileElevationModel(externalDemFile, demResamplingMethod, demNoDataValue);
-            demName = externalDemFile.getName();
+            externalDEMFile = new File(demName);
+            dem = new FileElevationModel(externalDEMFile, demResamplingMethod, demNoDataValue);
+            demName = externalDEMFile.getName();
             demNoDataValue = absRoot.getAttributeDouble("external DEM no data value");
         } else {
             dem = DEMFactory.createElevationModel(demName, demResamplingMethod);
@@ -961,8 +963,9 @@ public class SARSimTerrainCorrectionOp extends Operator {
             if (useAvgSceneHeight) {
                 DEMFactory.fillDEM(localDEM, avgSceneHeight);
             } else {
-                final boolean valid = DEMFactory.getLocalDEM(
-                        dem, demNoDataValue, demResamplingMethod, tileGeoRef, x0, y0, w, h, sourceProduct, true, localDEM);
+                // the EGM setting of the external FileElevationModel is left at its default
+                final boolean valid = DEMTileCache.getLocalDEM(demName, externalDEMFile, true, dem, demNoDataValue,
+                        demResamplingMethod, targetProduct, tileGeoRef, x0, y0, w, h, sourceProduct, true, localDEM);
                 if (!valid) {
                     return;
                 }
@@ -1074,7 +1077,6 @@ public class SARSimTerrainCorrectionOp extends Operator {
 
                         for (RangeDopplerGeocodingOp.TileData tileData : trgTiles) {
 
-                            final Unit.UnitType bandUnit = getBandUnit(tileData.bandName);
                             final String[] srcBandName = targetBandNameToSourceBandName.get(tileData.bandName);
                             final Band srcBand = sourceProduct.getBand(srcBandName[0]);
                             final PixelPos pixelPos = new PixelPos();
@@ -1101,10 +1103,11 @@ public class SARSimTerrainCorrectionOp extends Operator {
                                     final double sceneToEarthCentre = Math.sqrt(
                                             earthPoint.x * earthPoint.x + earthPoint.y * earthPoint.y + earthPoint.z * earthPoint.z);
 
-                                    v = calibrator.applyCalibration(
-                                            v, rangeIndex, azimuthIndex, slantRange, satelliteHeight, sceneToEarthCentre,
-                                            localIncidenceAngles[1], tileData.bandName, tileData.bandPolar, bandUnit,
-                                            subSwathIndex); // use projected incidence angle
+                                    // calibrated with the rest of the row, use projected incidence angle
+                                    tileData.calibrationBatch.add(
+                                            index, v, rangeIndex, azimuthIndex, slantRange, satelliteHeight,
+                                            sceneToEarthCentre, localIncidenceAngles[1], subSwathIndex[0]);
+                                    continue;
                                 } else {
                                     v = tileData.noDataValue;
                                 }
@@ -1115,6 +1118,10 @@ public class SARSimTerrainCorrectionOp extends Operator {
                         orthoDataProduced = true;
                     }
                 }
+
+                for (RangeDopplerGeocodingOp.TileData tileData : trgTiles) {
+                    tileData.applyCalibrationBatch();
+                }
             }
         } catch (Throwable e) {
             orthoDataProduced = true; //to prevent multiple error messages
@@ -21,6 +21,7 @@ import org.esa.s1tbx.commons.OrbitStateVectors;
 import org.esa.s1tbx.commons.SARGeocoding;
 import org.esa.s1tbx.insar.gpf.support.SARPosition;
 import org.esa.s1tbx.commons.SARUtils;
+import org.esa.s1tbx.insar.gpf.support.DEMTileCache;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.dem.ElevationModel;
 import org.esa.snap.core.dataop.resamp.ResamplingFactory;
@@ -717,9 +718,10 @@ public final class SARSimulationOp extends Operator {
                     }
                 } else {
 
-                    final boolean valid = DEMFactory.getLocalDEM(
-                            dem, demNoDataValue, demResamplingMethod, tileGeoRef, xmin, ymin, widthExt, heightExt,
-                            sourceProduct, true, localDEM);
+                    final boolean valid = DEMTileCache.getLocalDEM(demName,
+                            dem instanceof FileElevationModel ? externalDEMFile : null, externalDEMApplyEGM,
+                            dem, demNoDataValue, demResamplingMethod, targetProduct, tileGeoRef,
+                            xmin, ymin, widthExt, heightExt, sourceProduct, true, localDEM);
 
                     if (!valid)
                         return;
@@ -722,11 +722,12 @@ public final class TerrainFlatteningOp extends Operator {
                                 final PositionData data) {
 
         final double zeroDopplerTime = SARGeocoding.getZeroDopplerTime(
-                lineTimeInterval, wavelength, data.earthPoint, orbit);
+                lineTimeInterval, wavelength, data.earthPoint, orbit, data.zeroDopplerTime);
 
         if (zeroDopplerTime == SARGeocoding.NonValidZeroDopplerTime) {
             return false;
         }
+        data.zeroDopplerTime = zeroDopplerTime;
 
         data.slantRange = SARGeocoding.computeSlantRange(zeroDopplerTime, orbit, data.earthPoint, data.sensorPos);
 
@@ -1377,6 +1378,7 @@ public final class TerrainFlatteningOp extends Operator {
         double azimuthIndex;
         double rangeIndex;
         double slantRange;
+        double zeroDopplerTime = SARGeocoding.NonValidZeroDopplerTime; // start time for the search of the next point
     }
 
     private static class OverlapPercentage {
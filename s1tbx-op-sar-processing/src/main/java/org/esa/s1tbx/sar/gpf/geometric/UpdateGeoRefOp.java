@@ -20,6 +20,7 @@ import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.commons.OrbitStateVectors;
 import org.esa.s1tbx.commons.SARGeocoding;
 import org.esa.s1tbx.commons.SARUtils;
+import org.esa.s1tbx.insar.gpf.support.DEMTileCache;
 import org.esa.snap.core.datamodel.*;
 import org.esa.snap.core.dataop.dem.ElevationModel;
 import org.esa.snap.core.dataop.resamp.ResamplingFactory;
@@ -472,8 +473,10 @@ public final class UpdateGeoRefOp extends Operator {
                 final double[][] localDEM = new double[ymax - ymin + 2][w + 2];
                 final TileGeoreferencing tileGeoRef = new TileGeoreferencing(sourceProduct, x0, ymin, w, ymax - ymin);
 
-                final boolean valid = DEMFactory.getLocalDEM(dem, demNoDataValue, demResamplingMethod, tileGeoRef,
-                        x0, ymin, w, ymax - ymin, sourceProduct, true, localDEM);
+                // the EGM setting of the external FileElevationModel is left at its default
+                final boolean valid = DEMTileCache.getLocalDEM(demName, externalDEMFile, true, dem, demNoDataValue,
+                        demResamplingMethod, sourceProduct, tileGeoRef, x0, ymin, w, ymax - ymin, sourceProduct, true,
+                        localDEM);
 
                 if (!valid) {
                     return;
@@ -633,6 +636,7 @@ public final class UpdateGeoRefOp extends Operator {
         double azimuthIndex;
         double rangeIndex;
         double slantRange;
+        double zeroDopplerTime = SARGeocoding.NonValidZeroDopplerTime; // start time for the search of the next point
     }
 
     private boolean getPosition(final double lat, final double lon, final double alt,
@@ -642,11 +646,12 @@ public final class UpdateGeoRefOp extends Operator {
         GeoUtils.geo2xyzWGS84(lat, lon, alt, data.earthPoint);
 
         final double zeroDopplerTime = SARGeocoding.getEarthPointZeroDopplerTimeNewton(
-                lineTimeInterval, wavelength, data.earthPoint, orbit);
+                lineTimeInterval, wavelength, data.earthPoint, orbit, data.zeroDopplerTime);
 
         if (zeroDopplerTime == SARGeocoding.NonValidZeroDopplerTime) {
             return false;
         }
+        data.zeroDopplerTime = zeroDopplerTime;
 
         data.slantRange = SARGeocoding.computeSlantRange(zeroDopplerTime, orbit, data.earthPoint, data.sensorPos);
 
@@ -16,6 +16,7 @@
 package org.esa.s1tbx.sar.gpf;
 
 import com.bc.ceres.core.ProgressMonitor;
+import org.apache.commons.math3.util.FastMath;
 import org.esa.s1tbx.commons.test.S1TBXTests;
 import org.esa.s1tbx.commons.test.TestData;
 import org.esa.snap.core.datamodel.*;
@@ -30,7 +31,9 @@ import org.junit.Test;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Random;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
@@ -103,6 +106,154 @@ public class TestMultilookOperator {
         TestUtils.attributeEquals(abs, AbstractMetadata.first_line_time, "10-MAY-2008 20:32:46.890683");
     }
 
+    /**
+     * Tests multi-look operator with float32 output of an int32 band.
+     *
+     * @throws Exception general exception
+     */
+    @Test
+    public void testMultilookOfRealImageAsFloat32() throws Exception {
+
+        final Product sourceProduct = createTestProduct(16, 4);
+
+        final MultilookOp op = (MultilookOp) spi.createOperator();
+        assertNotNull(op);
+        op.setSourceProduct(sourceProduct);
+        op.setParameter("outputFloat32", true);
+        op.setNumRangeLooks(4);
+        op.setNumAzimuthLooks(2);
+        op.setParameter("grSquarePixel", false);
+
+        final Product targetProduct = op.getTargetProduct();
+        TestUtils.verifyProduct(targetProduct, true, true);
+
+        final Band band = targetProduct.getBandAt(0);
+        assertNotNull(band);
+        assertEquals(ProductData.TYPE_FLOAT32, band.getDataType());
+
+        final float[] floatValues = new float[8];
+        band.readPixels(0, 0, 4, 2, floatValues, ProgressMonitor.NULL);
+
+        final float[] expectedValues = {10.5f, 14.5f, 18.5f, 22.5f, 42.5f, 46.5f, 50.5f, 54.5f};
+        assertTrue(Arrays.equals(expectedValues, floatValues));
+    }
+
+    /**
+     * The float32 bands keep the properties the bands have in the source data type.
+     */
+    @Test
+    public void testFloat32BandKeepsBandProperties() throws Exception {
+
+        final Product sourceProduct = createTestProduct(16, 4);
+        final Band sourceBand = sourceProduct.getBand("band1");
+        sourceBand.setDescription("amplitude of band1");
+        sourceBand.setNoDataValueUsed(true);
+        sourceBand.setNoDataValue(-1);
+        sourceBand.setValidPixelExpression("band1 > 0");
+
+        final Band intBand = multilook(sourceProduct, false).getBandAt(0);
+        final Band floatBand = multilook(sourceProduct, true).getBandAt(0);
+
+        assertEquals(ProductData.TYPE_FLOAT32, floatBand.getDataType());
+        assertEquals(intBand.getName(), floatBand.getName());
+        assertEquals(intBand.getUnit(), floatBand.getUnit());
+        assertEquals(intBand.getDescription(), floatBand.getDescription());
+        assertEquals(intBand.isNoDataValueUsed(), floatBand.isNoDataValueUsed());
+        assertEquals(intBand.getNoDataValue(), floatBand.getNoDataValue(), 0.0);
+        assertEquals(intBand.getValidPixelExpression(), floatBand.getValidPixelExpression());
+        assertEquals(intBand.getScalingFactor(), floatBand.getScalingFactor(), 0.0);
+    }
+
+    private Product multilook(final Product sourceProduct, final boolean outputFloat32) {
+        final MultilookOp op = (MultilookOp) spi.createOperator();
+        op.setSourceProduct(sourceProduct);
+        op.setParameter("outputFloat32", outputFloat32);
+        op.setNumRangeLooks(4);
+        op.setNumAzimuthLooks(2);
+        op.setParameter("grSquarePixel", false);
+        return op.getTargetProduct();
+    }
+
+    /**
+     * Compares the line by line mean values with the mean of every look window read sample by sample.
+     */
+    @Test
+    public void testMeanValuesMatchWindowMean() {
+
+        final int nRgLooks = 4, nAzLooks = 1;
+        final int stride = 200, rows = 80;
+        final int srcIndex0 = 3 * stride + 16;
+        final int tw = (stride - 16) / nRgLooks, th = (rows - 3) / nAzLooks;
+
+        final Random random = new Random(1);
+        final float[] i = new float[stride * rows];
+        final float[] q = new float[stride * rows];
+        final short[] amplitude = new short[stride * rows];
+        final int[] counts = new int[stride * rows];
+        for (int k = 0; k < i.length; k++) {
+            i[k] = (float) random.nextGaussian() * 100;
+            q[k] = (float) random.nextGaussian() * 100;
+            amplitude[k] = (short) random.nextInt(65536);
+            counts[k] = random.nextInt();
+        }
+        final ProductData iData = ProductData.createInstance(i);
+        final ProductData qData = ProductData.createInstance(q);
+        final ProductData uint16Data = ProductData.createUnsignedInstance(amplitude);
+        final ProductData int32Data = ProductData.createInstance(counts);
+        final ProductData dBData = ProductData.createInstance(Arrays.copyOf(i, i.length));
+
+        final double[] expected = new double[tw * th];
+        final double[] actual = new double[tw * th];
+
+        getWindowMeans(iData, qData, srcIndex0, stride, tw, th, nRgLooks, nAzLooks, false, true, expected);
+        MultilookOp.getMeanValues(iData, qData, srcIndex0, stride, tw, th, nRgLooks, nAzLooks, false, true, actual);
+        assertTrue(Arrays.equals(expected, actual));
+
+        getWindowMeans(uint16Data, null, srcIndex0, stride, tw, th, 3, 1, false, false, expected);
+        MultilookOp.getMeanValues(uint16Data, null, srcIndex0, stride, tw, th, 3, 1, false, false, actual);
+        assertTrue(Arrays.equals(expected, actual));
+
+        final double[] expected32 = new double[tw * (th / 3)];
+        final double[] actual32 = new double[tw * (th / 3)];
+        getWindowMeans(int32Data, null, srcIndex0, stride, tw, th / 3, 2, 3, false, false, expected32);
+        MultilookOp.getMeanValues(int32Data, null, srcIndex0, stride, tw, th / 3, 2, 3, false, false, actual32);
+        assertTrue(Arrays.equals(expected32, actual32));
+
+        final double[] expecteddB = new double[50 * 10];
+        final double[] actualdB = new double[50 * 10];
+        getWindowMeans(dBData, null, srcIndex0, stride, 50, 10, 2, 5, true, false, expecteddB);
+        MultilookOp.getMeanValues(dBData, null, srcIndex0, stride, 50, 10, 2, 5, true, false, actualdB);
+        assertTrue(Arrays.equals(expecteddB, actualdB));
+    }
+
+    // the mean of each look window read with getElemDoubleAt, as MultilookOp did per target pixel
+    private static void getWindowMeans(final ProductData srcData1, final ProductData srcData2,
+                                       final int srcIndex0, final int stride, final int tw, final int th,
+                                       final int nRgLooks, final int nAzLooks,
+                                       final boolean isdB, final boolean isIntensity, final double[] meanValues) {
+        for (int ty = 0; ty < th; ty++) {
+            for (int tx = 0; tx < tw; tx++) {
+                double meanValue = 0.0;
+                for (int y = ty * nAzLooks; y < (ty + 1) * nAzLooks; y++) {
+                    for (int x = tx * nRgLooks; x < (tx + 1) * nRgLooks; x++) {
+                        final int index = srcIndex0 + y * stride + x;
+                        if (isdB) {
+                            meanValue += FastMath.pow(10, srcData1.getElemDoubleAt(index) / 10.0);
+                        } else if (isIntensity) {
+                            final double i = srcData1.getElemDoubleAt(index);
+                            final double q = srcData2.getElemDoubleAt(index);
+                            meanValue += i * i + q * q;
+                        } else {
+                            meanValue += srcData1.getElemDoubleAt(index);
+                        }
+                    }
+                }
+                meanValue /= (nRgLooks * nAzLooks);
+                meanValues[ty * tw + tx] = isdB ? 10.0 * Math.log10(meanValue) : meanValue;
+            }
+        }
+    }
+
     /**
      * Processes a product and compares it to processed product known to be correct
      *
@@ -31,6 +31,7 @@ import org.junit.Test;
 import java.io.File;
 import java.util.Arrays;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
@@ -253,6 +254,94 @@ public class SpeckleFilterOperatorTest {
         assertTrue(Arrays.equals(expectedValues, floatValues));
     }
 
+    /**
+     * Tests refined Lee speckle filter with the weights of the span of two equal amplitude bands.
+     * The span is the sum of the intensities and the weights do not change with its scale, so each band is
+     * filtered as its intensity on its own.
+     *
+     * @throws Exception anything
+     */
+    @Test
+    public void testRefinedLeeFilterWithSpan() throws Exception {
+        final Product intensityProduct = createRefinedLeeTestProduct();
+        final Band intensityBand = intensityProduct.getBand("band1");
+        final int[] intValues = (int[]) intensityBand.getData().getElems();
+        for (int i = 0; i < intValues.length; i++) {
+            intValues[i] *= intValues[i];
+        }
+        intensityBand.setUnit(Unit.INTENSITY);
+
+        final SpeckleFilterOp intensityOp = (SpeckleFilterOp) spi.createOperator();
+        intensityOp.setSourceProduct(intensityProduct);
+        intensityOp.SetFilter("Refined Lee");
+        final float[] expectedValues = new float[49];
+        intensityOp.getTargetProduct().getBand("band1").readPixels(0, 0, 7, 7, expectedValues, ProgressMonitor.NULL);
+        for (int i = 0; i < expectedValues.length; i++) {
+            expectedValues[i] = (float) Math.sqrt(expectedValues[i]);
+        }
+
+        final Product sourceProduct = createRefinedLeeTestProduct();
+        final Band band1 = sourceProduct.getBand("band1");
+        final Band band2 = sourceProduct.addBand("band2", ProductData.TYPE_INT32);
+        band2.setData(band1.getData().createDeepClone());
+        band2.setUnit(Unit.AMPLITUDE);
+
+        final SpeckleFilterOp op = (SpeckleFilterOp) spi.createOperator();
+        assertNotNull(op);
+        op.setSourceProduct(sourceProduct);
+        op.SetFilter("Refined Lee");
+        op.setParameter("useSpan", true);
+
+        final Product targetProduct = op.getTargetProduct();
+        TestUtils.verifyProduct(targetProduct, true, true);
+
+        final float[] floatValues1 = new float[49];
+        targetProduct.getBand("band1").readPixels(0, 0, 7, 7, floatValues1, ProgressMonitor.NULL);
+        final float[] floatValues2 = new float[49];
+        targetProduct.getBand("band2").readPixels(0, 0, 7, 7, floatValues2, ProgressMonitor.NULL);
+
+        assertArrayEquals(expectedValues, floatValues1, 1e-3f);
+        assertArrayEquals(expectedValues, floatValues2, 1e-3f);
+    }
+
+    /**
+     * Tests IDAN speckle filter with the adaptive neighbourhoods of the span of two equal bands.
+     * The neighbourhoods and weights do not change with the scale of the span, so each band is filtered as on its own.
+     *
+     * @throws Exception anything
+     */
+    @Test
+    public void testIDANFilterWithSpan() throws Exception {
+        final SpeckleFilterOp bandOp = (SpeckleFilterOp) spi.createOperator();
+        bandOp.setSourceProduct(createRefinedLeeTestProduct());
+        bandOp.SetFilter("IDAN");
+        final float[] expectedValues = new float[49];
+        bandOp.getTargetProduct().getBand("band1").readPixels(0, 0, 7, 7, expectedValues, ProgressMonitor.NULL);
+
+        final Product sourceProduct = createRefinedLeeTestProduct();
+        final Band band1 = sourceProduct.getBand("band1");
+        final Band band2 = sourceProduct.addBand("band2", ProductData.TYPE_INT32);
+        band2.setData(band1.getData().createDeepClone());
+        band2.setUnit(Unit.AMPLITUDE);
+
+        final SpeckleFilterOp op = (SpeckleFilterOp) spi.createOperator();
+        assertNotNull(op);
+        op.setSourceProduct(sourceProduct);
+        op.SetFilter("IDAN");
+        op.setParameter("useSpan", true);
+
+        final Product targetProduct = op.getTargetProduct();
+        TestUtils.verifyProduct(targetProduct, true, true);
+
+        final float[] floatValues1 = new float[49];
+        targetProduct.getBand("band1").readPixels(0, 0, 7, 7, floatValues1, ProgressMonitor.NULL);
+        final float[] floatValues2 = new float[49];
+        targetProduct.getBand("band2").readPixels(0, 0, 7, 7, floatValues2, ProgressMonitor.NULL);
+
+        assertTrue(Arrays.equals(expectedValues, floatValues1));
+        assertTrue(Arrays.equals(expectedValues, floatValues2));
+    }
+
     /**
      * Creates a 4-by-4 test product as shown below for speckle filter tests:
      * 1  2  3  4
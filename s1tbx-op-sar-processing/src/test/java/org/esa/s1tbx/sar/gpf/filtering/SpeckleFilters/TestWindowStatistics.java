@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2021 by SkyWatch Space Applications Inc. http://www.skywatch.com
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sar.gpf.filtering.SpeckleFilters;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for WindowStatistics.
+ */
+public class TestWindowStatistics {
+
+    private static final double NO_DATA = 0.0;
+
+    private static double[] createIntensities(final int w, final int h, final long seed) {
+        final Random random = new Random(seed);
+        final double[] values = new double[w * h];
+        for (int i = 0; i < values.length; ++i) {
+            // speckled intensities with bright targets and no data pixels
+            values[i] = random.nextInt(20) == 0 ? NO_DATA : -Math.log(1.0 - random.nextDouble()) * 100.0;
+            if (random.nextInt(50) == 0) {
+                values[i] *= 1.0e4;
+            }
+        }
+        return values;
+    }
+
+    // the window of SpeckleFilter.getNeighborValues restricted to the source tile
+    private static double[] getWindow(final double[] values, final Rectangle src, final int x, final int y,
+                                      final int windowSizeX, final int windowSizeY) {
+        final double[] window = new double[windowSizeX * windowSizeY];
+        int n = 0;
+        for (int yy = y - windowSizeY / 2; yy < y - windowSizeY / 2 + windowSizeY; ++yy) {
+            for (int xx = x - windowSizeX / 2; xx < x - windowSizeX / 2 + windowSizeX; ++xx) {
+                if (src.contains(xx, yy)) {
+                    final double v = values[(yy - src.y) * src.width + xx - src.x];
+                    if (v != NO_DATA) {
+                        window[n++] = v;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(window, n);
+    }
+
+    @Test
+    public void testMomentsMatchBruteForce() {
+        final Rectangle src = new Rectangle(10, 20, 37, 29);
+        final double[] values = createIntensities(src.width, src.height, 1);
+        final WindowStatistics stats = new WindowStatistics(src, NO_DATA, values);
+
+        for (int[] size : new int[][]{{3, 3}, {5, 7}, {7, 7}, {4, 6}, {11, 11}}) {
+            final int x0 = 12, y0 = 22, w = 31, h = 24;
+            final int[] numSamples = new int[w * h];
+            final double[] mean = new double[w * h];
+            final double[] variance = new double[w * h];
+            stats.computeMoments(x0, y0, w, h, size[0], size[1], numSamples, mean, variance);
+
+            int k = 0;
+            for (int y = y0; y < y0 + h; ++y) {
+                for (int x = x0; x < x0 + w; ++x, ++k) {
+                    final double[] window = getWindow(values, src, x, y, size[0], size[1]);
+                    assertEquals(window.length, numSamples[k]);
+
+                    if (window.length < 2) {
+                        continue;
+                    }
+
+                    double m = 0.0;
+                    for (double v : window) {
+                        m += v;
+                    }
+                    m /= window.length;
+                    double var = 0.0;
+                    for (double v : window) {
+                        var += (v - m) * (v - m);
+                    }
+                    var /= (window.length - 1);
+
+                    assertEquals(m, mean[k], 1e-12 * m);
+                    assertEquals(var, variance[k], 1e-10 * var);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMedianMatchesSort() {
+        final Rectangle src = new Rectangle(0, 0, 40, 30);
+        final double[] values = createIntensities(src.width, src.height, 2);
+        final WindowStatistics stats = new WindowStatistics(src, NO_DATA, values);
+
+        for (int[] size : new int[][]{{3, 3}, {5, 5}, {7, 5}, {6, 4}, {11, 11}, {15, 15}}) {
+            final int[] numSamples = new int[src.width * src.height];
+            final double[] median = new double[src.width * src.height];
+            stats.computeMedians(0, 0, src.width, src.height, size[0], size[1], numSamples, median);
+
+            int k = 0;
+            for (int y = 0; y < src.height; ++y) {
+                for (int x = 0; x < src.width; ++x, ++k) {
+                    final double[] window = getWindow(values, src, x, y, size[0], size[1]);
+                    Arrays.sort(window);
+                    assertEquals(window.length, numSamples[k]);
+                    assertEquals(window.length > 0 ? window[window.length / 2] : NO_DATA, median[k], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFlatWindowHasNoVariance() {
+        final Rectangle src = new Rectangle(0, 0, 9, 9);
+        final double[] values = new double[81];
+        Arrays.fill(values, 0.1);
+        final WindowStatistics stats = new WindowStatistics(src, NO_DATA, values);
+
+        final int[] numSamples = new int[81];
+        final double[] mean = new double[81];
+        final double[] variance = new double[81];
+        stats.computeMoments(0, 0, 9, 9, 5, 5, numSamples, mean, variance);
+
+        assertEquals(9, numSamples[0]);
+        assertEquals(25, numSamples[40]);
+        for (int k = 0; k < 81; ++k) {
+            assertEquals(0.0, variance[k], 1e-20);
+        }
+        assertEquals(0.1, stats.getCentreValue(4, 4, 5, 5), 0.0);
+        assertEquals(NO_DATA, stats.getValue(-1, 4), 0.0);
+    }
+}